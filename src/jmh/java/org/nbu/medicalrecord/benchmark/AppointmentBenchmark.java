@@ -0,0 +1,81 @@
+package org.nbu.medicalrecord.benchmark;
+
+import org.nbu.medicalrecord.dtos.request.AppointmentDtoRequest;
+import org.nbu.medicalrecord.services.AppointmentService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@code AppointmentServiceImpl.makeAppointment}: booking free slots, and many concurrent bookers
+ * hammering a slot that is already taken, with and without the in-memory slot index.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AppointmentBenchmark {
+
+    private static final int SLOTS_PER_DAY = 24 * 4;
+
+    public static class BookingState extends ClinicState {
+
+        @Param({"true", "false"})
+        public boolean slotIndex;
+
+        AppointmentService appointments;
+        AppointmentDtoRequest takenSlot;
+        final AtomicLong nextSlot = new AtomicLong();
+
+        @Override
+        protected Map<String, Object> properties() {
+            return Map.of("appointments.slot-index.enabled", slotIndex);
+        }
+
+        @Override
+        protected void afterSeeding() {
+            appointments = bean(AppointmentService.class);
+            // off the quarter-hour grid of bookFreeSlot, so the two never meet
+            takenSlot = new AppointmentDtoRequest(LocalDate.now().plusDays(1), LocalTime.of(23, 59), 1L, 1L);
+            appointments.makeAppointment(takenSlot);
+        }
+
+        // every call gets a slot of its own: doctors round robin, then quarter hours from tomorrow on
+        AppointmentDtoRequest freeSlot() {
+            long n = nextSlot.getAndIncrement();
+            long slot = n / doctors;
+            return new AppointmentDtoRequest(
+                    LocalDate.now().plusDays(1 + slot / SLOTS_PER_DAY),
+                    LocalTime.MIN.plusMinutes(15 * (slot % SLOTS_PER_DAY)),
+                    n % doctors + 1,
+                    population.randomPatientId(ThreadLocalRandom.current()));
+        }
+    }
+
+    @Benchmark
+    public Object bookFreeSlot(BookingState state) {
+        return state.appointments.makeAppointment(state.freeSlot());
+    }
+
+    @Benchmark
+    @Threads(32)
+    public Object rejectTakenSlot(BookingState state) {
+        try {
+            return state.appointments.makeAppointment(state.takenSlot);
+        } catch (IllegalStateException e) {
+            return e;
+        }
+    }
+}
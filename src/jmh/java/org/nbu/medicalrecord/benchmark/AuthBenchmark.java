@@ -0,0 +1,70 @@
+package org.nbu.medicalrecord.benchmark;
+
+import org.nbu.medicalrecord.security.JwtUtil;
+import org.nbu.medicalrecord.security.RefreshTokenService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of keeping one client signed in for an hour with 15 minute access tokens. Before refresh
+ * tokens the client logged in again four times an hour, each time with a BCrypt verification; now it
+ * exchanges its refresh token four times an hour (the one login per session is spread over days).
+ * Every invocation is one user-hour, so the scores compare directly.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AuthBenchmark {
+
+    public static class Sessions extends ClinicState {
+
+        AuthenticationManager authManager;
+        RefreshTokenService refreshTokens;
+        JwtUtil jwt;
+        String email;
+        String refreshToken;
+        int renewalsPerHour;
+
+        @Override
+        protected void afterSeeding() {
+            authManager = bean(AuthenticationManager.class);
+            refreshTokens = bean(RefreshTokenService.class);
+            jwt = bean(JwtUtil.class);
+            email = population.patientEmail(1);
+            renewalsPerHour = (int) (3600 / jwt.expiresInSeconds());
+            refreshToken = refreshTokens.login(authenticate()).getRefreshToken();
+        }
+
+        Authentication authenticate() {
+            return authManager.authenticate(new UsernamePasswordAuthenticationToken(email, SyntheticPopulation.PASSWORD));
+        }
+    }
+
+    @Benchmark
+    public void userHourWithPasswordLogins(Sessions s, Blackhole bh) {
+        for (int i = 0; i < s.renewalsPerHour; i++) {
+            bh.consume(s.jwt.generate((UserDetails) s.authenticate().getPrincipal()));
+        }
+    }
+
+    @Benchmark
+    public void userHourWithRefreshTokens(Sessions s, Blackhole bh) {
+        for (int i = 0; i < s.renewalsPerHour; i++) {
+            var res = s.refreshTokens.refresh(s.refreshToken);
+            s.refreshToken = res.getRefreshToken();
+            bh.consume(res.getAccessToken());
+        }
+    }
+}
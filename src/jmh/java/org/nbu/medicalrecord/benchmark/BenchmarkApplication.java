@@ -0,0 +1,22 @@
+package org.nbu.medicalrecord.benchmark;
+
+import org.nbu.medicalrecord.MedicalSystemApplication;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+
+/**
+ * The application without its web layer: the benchmarks call the services directly, so the
+ * controllers (and the benchmark package itself) are left out of the component scan.
+ */
+@SpringBootConfiguration
+@EnableAutoConfiguration
+@AutoConfigurationPackage(basePackageClasses = MedicalSystemApplication.class)
+@ComponentScan(basePackageClasses = MedicalSystemApplication.class, excludeFilters = {
+        @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = MedicalSystemApplication.class),
+        @ComponentScan.Filter(type = FilterType.REGEX, pattern = "org\\.nbu\\.medicalrecord\\.(web|benchmark)\\..*")
+})
+class BenchmarkApplication {
+}
@@ -0,0 +1,46 @@
+package org.nbu.medicalrecord.benchmark;
+
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Boots the service layer (see {@link BenchmarkApplication}), or the whole application for the
+ * {@link LoadTest}, on the embedded H2 database of the "h2" profile (MySQL mode, see
+ * src/test/resources/application-h2.yaml). Every benchmark state starts its own
+ * context for the trial and closes it afterwards, which drops the schema again.
+ */
+final class BenchmarkContext {
+
+    private BenchmarkContext() {
+    }
+
+    static ConfigurableApplicationContext start(Map<String, Object> overrides) {
+        return start(BenchmarkApplication.class, WebApplicationType.NONE, overrides);
+    }
+
+    static ConfigurableApplicationContext start(Class<?> application, WebApplicationType web, Map<String, Object> overrides) {
+        Map<String, Object> properties = new HashMap<>();
+        // H2 would serve repeated queries over unchanged tables from a result cache, MySQL 8 has none
+        properties.put("spring.datasource.url", "jdbc:h2:mem:medical_record_benchmark;MODE=MySQL;DATABASE_TO_LOWER=TRUE;"
+                + "DB_CLOSE_DELAY=-1;NON_KEYWORDS=MONTH,YEAR,VALUE;OPTIMIZE_REUSE_RESULTS=FALSE");
+        // measure the code, not the bookkeeping around it
+        properties.put("spring.jpa.properties.hibernate.generate_statistics", false);
+        properties.put("logging.level.root", "WARN");
+        properties.put("logging.level.org.nbu.medicalrecord", "WARN");
+        properties.putAll(overrides);
+
+        return new SpringApplicationBuilder(application)
+                .profiles("h2")
+                .web(web)
+                .bannerMode(Banner.Mode.OFF)
+                // as command line arguments, so they win over application.yaml
+                .run(properties.entrySet().stream()
+                        .map(e -> "--" + e.getKey() + "=" + e.getValue())
+                        .toArray(String[]::new));
+    }
+}
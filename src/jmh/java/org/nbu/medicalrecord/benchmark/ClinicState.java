@@ -0,0 +1,70 @@
+package org.nbu.medicalrecord.benchmark;
+
+import org.nbu.medicalrecord.services.StatisticsService;
+import org.nbu.medicalrecord.services.impl.AppointmentSlotIndex;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Map;
+
+/**
+ * A running application over a seeded clinic: {@code doctors} GPs, {@code patients} patients and
+ * {@code visitsPerPatient} past visits per patient. Override the sizes with {@code -p}, e.g.
+ * {@code -p patients=100000}.
+ */
+@State(Scope.Benchmark)
+public class ClinicState {
+
+    @Param("42")
+    public long seed;
+
+    @Param("50")
+    public int doctors;
+
+    @Param("1000")
+    public int patients;
+
+    @Param("5")
+    public int visitsPerPatient;
+
+    protected ConfigurableApplicationContext context;
+    protected SyntheticPopulation population;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkContext.start(properties());
+        population = new SyntheticPopulation(bean(JdbcTemplate.class), seed)
+                .seedDoctors(doctors)
+                .seedPatients(patients)
+                .seedVisits(visitsPerPatient)
+                .advanceIdGenerators();
+
+        // the startup jobs ran against an empty database
+        bean(StatisticsService.class).rebuild();
+        bean(AppointmentSlotIndex.class).reload();
+        afterSeeding();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    protected Map<String, Object> properties() {
+        return Map.of();
+    }
+
+    // extra fixtures of a benchmark, on top of the seeded population
+    protected void afterSeeding() {
+    }
+}
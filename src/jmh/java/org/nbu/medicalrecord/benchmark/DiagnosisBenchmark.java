@@ -0,0 +1,79 @@
+package org.nbu.medicalrecord.benchmark;
+
+import org.nbu.medicalrecord.services.DiagnosisService;
+import org.nbu.medicalrecord.services.StatisticsService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The most frequent diagnosis report over a large diagnoses table: served from the statistic
+ * counters, against the GROUP BY over the diagnosis key it replaced.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DiagnosisBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Diagnosed {
+
+        @Param("42")
+        public long seed;
+
+        @Param("1000000")
+        public int diagnoses;
+
+        ConfigurableApplicationContext context;
+        DiagnosisService diagnosisService;
+        JdbcTemplate jdbc;
+
+        @Setup(Level.Trial)
+        public void start() {
+            context = BenchmarkContext.start(Map.of());
+            jdbc = context.getBean(JdbcTemplate.class);
+            new SyntheticPopulation(jdbc, seed)
+                    .seedDoctors(100)
+                    .seedPatients(10_000)
+                    .seedDiagnoses(diagnoses)
+                    .advanceIdGenerators();
+            context.getBean(StatisticsService.class).rebuild();
+            diagnosisService = context.getBean(DiagnosisService.class);
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public Object mostFrequentFromCounters(Diagnosed state) {
+        return state.diagnosisService.showMostFrequentDiagnosisResult();
+    }
+
+    @Benchmark
+    public List<String> mostFrequentGroupBy(Diagnosed state) {
+        return state.jdbc.queryForList("""
+            select diagnosis_key from diagnoses
+            group by diagnosis_key
+            having count(*) >= all (select count(*) from diagnoses group by diagnosis_key)
+        """, String.class);
+    }
+}
@@ -0,0 +1,193 @@
+package org.nbu.medicalrecord.benchmark;
+
+import org.nbu.medicalrecord.dtos.response.DiagnosisDtoResponse;
+import org.nbu.medicalrecord.dtos.response.PatientAppointmentDtoResponse;
+import org.nbu.medicalrecord.dtos.response.PatientDataWithDoctorDtoResponse;
+import org.nbu.medicalrecord.dtos.response.VisitDtoResponse;
+import org.nbu.medicalrecord.entities.Appointment;
+import org.nbu.medicalrecord.entities.Diagnosis;
+import org.nbu.medicalrecord.entities.Doctor;
+import org.nbu.medicalrecord.entities.MedicalRecord;
+import org.nbu.medicalrecord.entities.Patient;
+import org.nbu.medicalrecord.entities.Specialization;
+import org.nbu.medicalrecord.entities.User;
+import org.nbu.medicalrecord.entities.Visit;
+import org.nbu.medicalrecord.services.impl.AppointmentServiceImpl;
+import org.nbu.medicalrecord.services.impl.DiagnosisServiceImpl;
+import org.nbu.medicalrecord.services.impl.PatientServiceImpl;
+import org.nbu.medicalrecord.services.impl.VisitServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The in-memory half of the listings: the {@code byNameThenId} sort of {@code PatientServiceImpl}
+ * and the private {@code toDto} mappings of the services, on detached entities (no database).
+ * The private methods are reached through method handles held in static finals, so the JIT treats
+ * them like direct calls.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DtoMappingBenchmark {
+
+    private static final MethodHandle BY_NAME_THEN_ID = privateMethod(PatientServiceImpl.class, "byNameThenId", Comparator.class);
+    private static final MethodHandle PATIENT_TO_DTO = privateMethod(PatientServiceImpl.class, "toPatientWithDoctorDto", PatientDataWithDoctorDtoResponse.class, Patient.class);
+    private static final MethodHandle VISIT_TO_DTO = privateMethod(VisitServiceImpl.class, "toDto", VisitDtoResponse.class, Visit.class);
+    private static final MethodHandle APPOINTMENT_TO_DTO = privateMethod(AppointmentServiceImpl.class, "toPatientDto", PatientAppointmentDtoResponse.class, Appointment.class);
+    private static final MethodHandle DIAGNOSIS_TO_DTO = privateMethod(DiagnosisServiceImpl.class, "toDto", DiagnosisDtoResponse.class, Diagnosis.class);
+
+    @State(Scope.Benchmark)
+    public static class Entities {
+
+        @Param("42")
+        public long seed;
+
+        @Param("1000")
+        public int patients;
+
+        List<Patient> patientList;
+        List<Visit> visits;
+        Comparator<Patient> byNameThenId;
+
+        @Setup(Level.Trial)
+        @SuppressWarnings("unchecked")
+        public void build() throws Throwable {
+            SplittableRandom random = new SplittableRandom(seed);
+            String[] names = {"Ivan", "Maria", "Georgi", "Elena", "Dimitar", "Petya", "ivan", "maria", null};
+
+            Specialization spec = new Specialization();
+            spec.setId(1L);
+            spec.setType("General practice");
+
+            List<Doctor> doctors = new ArrayList<>();
+            for (long id = 1; id <= 50; id++) {
+                Doctor d = new Doctor();
+                d.setId(id);
+                d.setUser(user(id, names[random.nextInt(names.length - 1)], "Doctor"));
+                d.setSpecializations(Set.of(spec));
+                d.setGp(true);
+                doctors.add(d);
+            }
+
+            patientList = new ArrayList<>(patients);
+            visits = new ArrayList<>(patients);
+            for (long id = 1; id <= patients; id++) {
+                Doctor gp = doctors.get(random.nextInt(doctors.size()));
+                Patient p = new Patient();
+                p.setId(id);
+                p.setUser(user(1000 + id, names[random.nextInt(names.length)], names[random.nextInt(names.length)]));
+                p.setBirthDate(LocalDate.of(1950, 1, 1).plusDays(random.nextInt(25_000)));
+                p.setGp(gp);
+                patientList.add(p);
+
+                MedicalRecord record = new MedicalRecord();
+                record.setId(id);
+                record.setPatient(p);
+
+                Appointment a = new Appointment();
+                a.setId(id);
+                a.setDoctor(gp);
+                a.setPatient(p);
+                a.setDate(LocalDate.now().minusDays(random.nextInt(365)));
+                a.setHourOfAppointment(LocalTime.of(8 + random.nextInt(10), 0));
+
+                Diagnosis dg = new Diagnosis();
+                dg.setId(id);
+                dg.setDiagnosis("Acute bronchitis");
+                dg.setPatient(p);
+                dg.setDoctor(gp);
+
+                Visit v = new Visit();
+                v.setId(id);
+                v.setAppointment(a);
+                v.setMedicalRecord(record);
+                v.setDiagnosis(dg);
+                v.setComplaints("Cough and fever for three days");
+                v.setMedicalHistory("No relevant history");
+                visits.add(v);
+            }
+
+            byNameThenId = (Comparator<Patient>) (Comparator<?>) BY_NAME_THEN_ID.invokeExact();
+        }
+
+        private static User user(long id, String firstName, String lastName) {
+            User u = new User();
+            u.setId(id);
+            u.setFirstName(firstName);
+            u.setLastName(lastName);
+            return u;
+        }
+    }
+
+    @Benchmark
+    public List<Patient> sortByNameThenId(Entities e) {
+        List<Patient> sorted = new ArrayList<>(e.patientList);
+        sorted.sort(e.byNameThenId);
+        return sorted;
+    }
+
+    @Benchmark
+    public void patientToDto(Entities e, Blackhole bh) throws Throwable {
+        for (Patient p : e.patientList) {
+            bh.consume((PatientDataWithDoctorDtoResponse) PATIENT_TO_DTO.invokeExact(p));
+        }
+    }
+
+    @Benchmark
+    public void visitToDto(Entities e, Blackhole bh) throws Throwable {
+        for (Visit v : e.visits) {
+            bh.consume((VisitDtoResponse) VISIT_TO_DTO.invokeExact(v));
+        }
+    }
+
+    @Benchmark
+    public void appointmentToDto(Entities e, Blackhole bh) throws Throwable {
+        for (Visit v : e.visits) {
+            bh.consume((PatientAppointmentDtoResponse) APPOINTMENT_TO_DTO.invokeExact(v.getAppointment()));
+        }
+    }
+
+    @Benchmark
+    public void diagnosisToDto(Entities e, Blackhole bh) throws Throwable {
+        for (Visit v : e.visits) {
+            bh.consume((DiagnosisDtoResponse) DIAGNOSIS_TO_DTO.invokeExact(v.getDiagnosis()));
+        }
+    }
+
+    // binds a private instance method to a service built with null collaborators, the mappings never touch them
+    private static MethodHandle privateMethod(Class<?> owner, String name, Class<?> returns, Class<?>... params) {
+        try {
+            Constructor<?> constructor = owner.getDeclaredConstructors()[0];
+            Object service = constructor.newInstance(new Object[constructor.getParameterCount()]);
+            return MethodHandles.privateLookupIn(owner, MethodHandles.lookup())
+                    .findVirtual(owner, name, MethodType.methodType(returns, params))
+                    .bindTo(service);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot reach " + owner.getSimpleName() + "." + name, e);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.nbu.medicalrecord.benchmark;
+
+import org.nbu.medicalrecord.services.HealthInsuranceService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Month;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The monthly health insurance run over growing patient populations. It is a batch job, so every
+ * iteration is a single cold run over a month without rows.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+public class HealthInsuranceBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Insured {
+
+        @Param("42")
+        public long seed;
+
+        @Param({"10000", "100000", "1000000"})
+        public int insuredPatients;
+
+        @Param("5000")
+        public int chunkSize;
+
+        ConfigurableApplicationContext context;
+        HealthInsuranceService healthInsurances;
+        JdbcTemplate jdbc;
+
+        @Setup(Level.Trial)
+        public void start() {
+            context = BenchmarkContext.start(Map.of("health-insurance.monthly-rows.chunk-size", chunkSize));
+            jdbc = context.getBean(JdbcTemplate.class);
+            new SyntheticPopulation(jdbc, seed)
+                    .seedDoctors(Math.max(1, insuredPatients / 1000))
+                    .seedPatients(insuredPatients)
+                    .advanceIdGenerators();
+            healthInsurances = context.getBean(HealthInsuranceService.class);
+        }
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            jdbc.update("delete from health_insurances");
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public int createMonthlyRows(Insured state) {
+        return state.healthInsurances.createMonthlyHealthInsuranceRows(Month.JANUARY, 2030);
+    }
+}
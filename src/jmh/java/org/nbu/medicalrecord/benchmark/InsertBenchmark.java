@@ -0,0 +1,100 @@
+package org.nbu.medicalrecord.benchmark;
+
+import jakarta.persistence.EntityManager;
+import org.nbu.medicalrecord.entities.Medicine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persists 100k entities through JPA, the way a bulk job built on the repositories would: one
+ * transaction per chunk, flushed and cleared in between. Rows per second are {@code rows} divided by
+ * the time of a run. Every statement round trip can be delayed by {@code dbLatencyMicros} (see
+ * {@link LoadTest.DatabaseLatency}), which is what JDBC batching saves on a remote database.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+public class InsertBenchmark {
+
+    private static final String[] TYPES = {"tablet", "capsule", "syrup", "injection", "cream", "drops"};
+
+    @Configuration(proxyBeanMethods = false)
+    @Import({BenchmarkApplication.class, LoadTest.DatabaseLatency.class})
+    static class InsertApplication {
+    }
+
+    @State(Scope.Benchmark)
+    public static class Persistence {
+
+        @Param("100000")
+        public int rows;
+
+        @Param("1000")
+        public int chunkSize;
+
+        @Param({"0", "200"})
+        public long dbLatencyMicros;
+
+        ConfigurableApplicationContext context;
+        EntityManager entityManager;
+        TransactionTemplate transaction;
+        JdbcTemplate jdbc;
+
+        @Setup(Level.Trial)
+        public void start() {
+            context = BenchmarkContext.start(InsertApplication.class, WebApplicationType.NONE, Map.of());
+            entityManager = context.getBean(EntityManager.class);
+            transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+            jdbc = context.getBean(JdbcTemplate.class);
+        }
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            LoadTest.DatabaseLatency.delayMillis(0);
+            jdbc.update("delete from medicines");
+            LoadTest.DatabaseLatency.delayNanos(TimeUnit.MICROSECONDS.toNanos(dbLatencyMicros));
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            LoadTest.DatabaseLatency.delayMillis(0);
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public int persistMedicines(Persistence state) {
+        for (int from = 0; from < state.rows; from += state.chunkSize) {
+            int chunk = from;
+            state.transaction.executeWithoutResult(status -> {
+                for (int i = chunk; i < Math.min(chunk + state.chunkSize, state.rows); i++) {
+                    state.entityManager.persist(new Medicine("Medicine-" + i, 5 + i % 1000, TYPES[i % TYPES.length]));
+                }
+                state.entityManager.flush();
+                state.entityManager.clear();
+            });
+        }
+        return state.rows;
+    }
+}
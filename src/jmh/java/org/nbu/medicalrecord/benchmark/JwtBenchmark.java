@@ -0,0 +1,56 @@
+package org.nbu.medicalrecord.benchmark;
+
+import org.nbu.medicalrecord.security.JwtUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Issuing and checking access tokens with {@link JwtUtil}, which happens on login and on every
+ * authenticated request.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JwtBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Tokens {
+
+        JwtUtil jwtUtil;
+        UserDetails user;
+        String token;
+
+        @Setup(Level.Trial)
+        public void issue() {
+            jwtUtil = new JwtUtil();
+            user = User.withUsername("patient1@bench.local")
+                    .password("{noop}benchmark")
+                    .authorities("ROLE_PATIENT")
+                    .build();
+            token = jwtUtil.generate(user);
+        }
+    }
+
+    @Benchmark
+    public String generate(Tokens t) {
+        return t.jwtUtil.generate(t.user);
+    }
+
+    @Benchmark
+    public Object parse(Tokens t) {
+        return t.jwtUtil.parse(t.token);
+    }
+}
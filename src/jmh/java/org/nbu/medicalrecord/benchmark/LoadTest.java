@@ -0,0 +1,321 @@
+package org.nbu.medicalrecord.benchmark;
+
+import org.nbu.medicalrecord.security.JwtUtil;
+import org.nbu.medicalrecord.services.StatisticsService;
+import org.nbu.medicalrecord.services.impl.AppointmentSlotIndex;
+import org.nbu.medicalrecord.web.DatabaseBulkheadFilter;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Closed-loop HTTP load test of the read endpoints of appointments and visits, in three modes:
+ * Tomcat's platform worker threads, virtual threads, and virtual threads behind the database
+ * bulkhead. Every mode gets an application of its own on port 0 over a fresh H2 database. Each of
+ * {@code load.clients} clients (virtual threads) logs in as a patient and, in turn, lists the
+ * patient's appointments, the patient's visits and the visits of a doctor, sending the next
+ * request as soon as the last one was answered; a 503 is retried after its Retry-After.
+ * <p>
+ * In-memory H2 answers in microseconds, which would hide what the modes are about: who waits for
+ * a connection, and where. Every statement is therefore delayed by {@code load.db-latency-ms},
+ * standing in for the network round trip to MySQL, while the connection stays borrowed.
+ * <pre>
+ *     mvn -Pbenchmark -DskipTests test-compile exec:exec@load-test -Dload.clients=2000 -Dload.seconds=30
+ * </pre>
+ */
+public final class LoadTest {
+
+    private static final int CLIENTS = Integer.getInteger("load.clients", 1000);
+    private static final int WARMUP_SECONDS = Integer.getInteger("load.warmup-seconds", 10);
+    private static final int SECONDS = Integer.getInteger("load.seconds", 20);
+    private static final int PATIENTS = Integer.getInteger("load.patients", 5000);
+    private static final int DOCTORS = Integer.getInteger("load.doctors", 50);
+    private static final int VISITS_PER_PATIENT = Integer.getInteger("load.visits-per-patient", 2);
+    private static final long DB_LATENCY_MILLIS = Long.getLong("load.db-latency-ms", 1);
+    private static final String[] ENDPOINTS = {"/appointment/patient/{patient}", "/visit/patient/{patient}", "/visit/doctor/{doctor}"};
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.out.printf("%d clients, %d s (after %d s warmup), %d patients, %d doctors, %d ms per statement%n%n",
+                CLIENTS, SECONDS, WARMUP_SECONDS, PATIENTS, DOCTORS, DB_LATENCY_MILLIS);
+        run("platform threads", Map.of("spring.threads.virtual.enabled", false));
+        run("virtual threads", Map.of("spring.threads.virtual.enabled", true, "database-bulkhead.enabled", false));
+        run("virtual threads + bulkhead", Map.of("spring.threads.virtual.enabled", true, "database-bulkhead.enabled", true));
+    }
+
+    private static void run(String mode, Map<String, Object> overrides) throws Exception {
+        Map<String, Object> properties = new HashMap<>(overrides);
+        properties.put("spring.datasource.url", "jdbc:h2:mem:medical_record_load_" + mode.replaceAll("\\W", "_")
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;NON_KEYWORDS=MONTH,YEAR,VALUE;OPTIMIZE_REUSE_RESULTS=FALSE");
+        properties.put("server.port", 0);
+
+        try (ConfigurableApplicationContext context = BenchmarkContext.start(LoadTestApplication.class, WebApplicationType.SERVLET, properties)) {
+            SyntheticPopulation population = new SyntheticPopulation(context.getBean(JdbcTemplate.class), 42)
+                    .seedDoctors(DOCTORS)
+                    .seedPatients(PATIENTS)
+                    .seedVisits(VISITS_PER_PATIENT)
+                    .advanceIdGenerators();
+            context.getBean(StatisticsService.class).rebuild();
+            context.getBean(AppointmentSlotIndex.class).reload();
+            DatabaseLatency.delayMillis(DB_LATENCY_MILLIS);
+
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            JwtUtil jwt = context.getBean(JwtUtil.class);
+            List<Client> clients = new ArrayList<>();
+            for (int c = 0; c < CLIENTS; c++) {
+                long patientId = c % PATIENTS + 1;
+                clients.add(new Client(port, c,
+                        jwt.generate(population.patientEmail(patientId), Set.of("ROLE_PATIENT")), patientId,
+                        jwt.generate("doctor" + (c % DOCTORS + 1) + "@bench.local", Set.of("ROLE_DOCTOR")), c % DOCTORS + 1));
+            }
+
+            try (HttpClient http = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(Executors.newVirtualThreadPerTaskExecutor())
+                    .build()) {
+                for (int e = 0; e < ENDPOINTS.length; e++) {
+                    int status = clients.getFirst().send(http, e).statusCode();
+                    if (status != 200) {
+                        throw new IllegalStateException(ENDPOINTS[e] + " answered " + status);
+                    }
+                }
+                drive(http, clients, WARMUP_SECONDS);
+                clients.forEach(Client::reset);
+                DatabaseBulkheadFilter bulkhead = context.getBean(DatabaseBulkheadFilter.class);
+                DatabaseBulkheadFilter.BulkheadStats before = bulkhead.stats();
+                drive(http, clients, SECONDS);
+                DatabaseBulkheadFilter.BulkheadStats after = bulkhead.stats();
+
+                report(mode, clients);
+                if (after.enabled()) {
+                    System.out.printf("  bulkhead: %d permits, %d admitted, %d rejected%n",
+                            after.permits(), after.admitted() - before.admitted(), after.rejected() - before.rejected());
+                }
+                System.out.println();
+            } finally {
+                DatabaseLatency.delayMillis(0);
+            }
+        }
+    }
+
+    private static void drive(HttpClient http, List<Client> clients, int seconds) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        try (ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Client client : clients) {
+                threads.execute(() -> client.loop(http, deadline));
+            }
+        }
+    }
+
+    private static void report(String mode, List<Client> clients) {
+        System.out.println(mode);
+        System.out.printf("  %-32s %9s %9s %9s %9s %9s %9s %7s %7s%n",
+                "endpoint", "requests", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms", "503", "errors");
+        for (int e = 0; e <= ENDPOINTS.length; e++) {
+            boolean all = e == ENDPOINTS.length;
+            Samples latencies = new Samples();
+            long unavailable = 0, errors = 0;
+            for (Client client : clients) {
+                for (int i = 0; i < ENDPOINTS.length; i++) {
+                    if (all || i == e) {
+                        latencies.addAll(client.latencies[i]);
+                        unavailable += client.unavailable[i];
+                        errors += client.errors[i];
+                    }
+                }
+            }
+            long[] sorted = latencies.sorted();
+            System.out.printf("  %-32s %9d %9.0f %9.1f %9.1f %9.1f %9.1f %7d %7d%n",
+                    all ? "all" : ENDPOINTS[e], sorted.length, sorted.length / (double) SECONDS,
+                    percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99),
+                    percentile(sorted, 1.0), unavailable, errors);
+        }
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    // one simulated user; the samples are only touched by its own thread until the report
+    private static final class Client {
+
+        private final HttpRequest[] requests = new HttpRequest[ENDPOINTS.length];
+        private final Samples[] latencies = new Samples[ENDPOINTS.length];
+        private final long[] unavailable = new long[ENDPOINTS.length];
+        private final long[] errors = new long[ENDPOINTS.length];
+        private int next;
+
+        Client(int port, int index, String patientToken, long patientId, String doctorToken, long doctorId) {
+            for (int e = 0; e < ENDPOINTS.length; e++) {
+                String path = ENDPOINTS[e]
+                        .replace("{patient}", String.valueOf(patientId))
+                        .replace("{doctor}", String.valueOf(doctorId));
+                requests[e] = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                        .header("Authorization", "Bearer " + (path.startsWith("/visit/doctor") ? doctorToken : patientToken))
+                        .timeout(Duration.ofSeconds(60))
+                        .GET()
+                        .build();
+            }
+            // start at different endpoints, so the three see the same load from the first second
+            next = index % ENDPOINTS.length;
+            reset();
+        }
+
+        void reset() {
+            for (int e = 0; e < ENDPOINTS.length; e++) {
+                latencies[e] = new Samples();
+                unavailable[e] = 0;
+                errors[e] = 0;
+            }
+        }
+
+        HttpResponse<Void> send(HttpClient http, int endpoint) throws Exception {
+            return http.send(requests[endpoint], HttpResponse.BodyHandlers.discarding());
+        }
+
+        void loop(HttpClient http, long deadline) {
+            while (System.nanoTime() < deadline) {
+                int e = next;
+                next = (next + 1) % ENDPOINTS.length;
+                long started = System.nanoTime();
+                try {
+                    HttpResponse<Void> response = send(http, e);
+                    if (response.statusCode() == 200) {
+                        latencies[e].add(System.nanoTime() - started);
+                    } else if (response.statusCode() == 503) {
+                        unavailable[e]++;
+                        long retryAfter = response.headers().firstValueAsLong("Retry-After").orElse(1);
+                        LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(retryAfter));
+                    } else {
+                        errors[e]++;
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Exception ex) {
+                    errors[e]++;
+                }
+            }
+        }
+    }
+
+    private static final class Samples {
+
+        private long[] values = new long[64];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void addAll(Samples other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.values[i]);
+            }
+        }
+
+        long[] sorted() {
+            long[] copy = Arrays.copyOf(values, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+
+    /**
+     * Delays every statement execution by a configurable time while the connection stays borrowed
+     * from the pool, the way a round trip to a remote database would. Off until the population is seeded.
+     */
+    static class DatabaseLatency implements BeanPostProcessor {
+
+        private static volatile long delayNanos;
+
+        static void delayMillis(long millis) {
+            delayNanos(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+
+        static void delayNanos(long nanos) {
+            delayNanos = nanos;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!(bean instanceof DataSource dataSource) || bean instanceof DelegatingDataSource) {
+                return bean;
+            }
+            return new DelegatingDataSource(dataSource) {
+                @Override
+                public Connection getConnection() throws SQLException {
+                    return delayed(Connection.class, super.getConnection());
+                }
+
+                @Override
+                public Connection getConnection(String username, String password) throws SQLException {
+                    return delayed(Connection.class, super.getConnection(username, password));
+                }
+            };
+        }
+
+        // statements created by the connection are wrapped as well; their execute* calls wait first
+        private static <T> T delayed(Class<T> type, T target) {
+            return type.cast(Proxy.newProxyInstance(target.getClass().getClassLoader(), interfacesOf(target), (proxy, method, args) -> {
+                if (target instanceof Statement && method.getName().startsWith("execute") && delayNanos > 0) {
+                    LockSupport.parkNanos(delayNanos);
+                }
+                try {
+                    Object result = method.invoke(target, args);
+                    return result instanceof Statement statement && target instanceof Connection
+                            ? delayed(Statement.class, statement)
+                            : result;
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }));
+        }
+
+        private static Class<?>[] interfacesOf(Object target) {
+            Set<Class<?>> interfaces = new LinkedHashSet<>();
+            for (Class<?> type = target.getClass(); type != null; type = type.getSuperclass()) {
+                for (Class<?> candidate : type.getInterfaces()) {
+                    if (Modifier.isPublic(candidate.getModifiers())) {
+                        interfaces.add(candidate);
+                    }
+                }
+            }
+            return interfaces.toArray(Class<?>[]::new);
+        }
+    }
+}
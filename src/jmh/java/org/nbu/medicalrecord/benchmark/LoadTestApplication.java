@@ -0,0 +1,26 @@
+package org.nbu.medicalrecord.benchmark;
+
+import org.nbu.medicalrecord.MedicalSystemApplication;
+import org.nbu.medicalrecord.web.RegistrationController;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Import;
+
+/**
+ * The whole application, controllers and filters included, for the {@link LoadTest}. Left out of the
+ * component scan are the benchmark package and the invitation-based registration, which the load
+ * test does not exercise; the {@link LoadTest.DatabaseLatency} comes on top.
+ */
+@SpringBootConfiguration
+@EnableAutoConfiguration
+@AutoConfigurationPackage(basePackageClasses = MedicalSystemApplication.class)
+@ComponentScan(basePackageClasses = MedicalSystemApplication.class, excludeFilters = {
+        @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = {MedicalSystemApplication.class, RegistrationController.class}),
+        @ComponentScan.Filter(type = FilterType.REGEX, pattern = "org\\.nbu\\.medicalrecord\\.benchmark\\..*")
+})
+@Import(LoadTest.DatabaseLatency.class)
+class LoadTestApplication {
+}
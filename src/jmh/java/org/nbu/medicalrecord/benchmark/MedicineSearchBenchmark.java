@@ -0,0 +1,83 @@
+package org.nbu.medicalrecord.benchmark;
+
+import org.nbu.medicalrecord.services.impl.MedicineSearchIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Type-ahead queries against {@link MedicineSearchIndex} over a synthetic catalog: short and long
+ * prefixes, name plus milligrams, and a misspelling that needs the trigram pass. Average time per
+ * query; the target is well below a millisecond at 100k medicines.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MedicineSearchBenchmark {
+
+    private static final String[] STEMS = {"ibupro", "paracet", "amoxi", "cipro", "metfor", "atorva", "losar",
+            "omepra", "sertra", "levothy", "predni", "azithro", "clopido", "simva", "warfa", "gabapen"};
+    private static final String[] ENDINGS = {"fen", "amol", "cillin", "floxacin", "min", "statin", "tan", "zole",
+            "line", "xine", "sone", "mycin", "grel", "rin", "tin", "pam"};
+    private static final String[] FORMS = {"", " Forte", " Retard", " Junior", " Duo", " Plus"};
+    private static final String[] TYPES = {"tablet", "capsule", "syrup", "injection", "cream", "drops"};
+    private static final int[] MG = {5, 10, 20, 50, 100, 120, 200, 250, 400, 500, 850, 1000};
+
+    @State(Scope.Benchmark)
+    public static class Catalog {
+
+        @Param({"100000"})
+        public int medicines;
+
+        MedicineSearchIndex index;
+
+        @Setup(Level.Trial)
+        public void build() {
+            index = new MedicineSearchIndex(null);
+            Random random = new Random(42);
+            for (long id = 1; id <= medicines; id++) {
+                String name = STEMS[random.nextInt(STEMS.length)] + ENDINGS[random.nextInt(ENDINGS.length)]
+                        + "-" + Long.toString(id % 5000, 36) + FORMS[random.nextInt(FORMS.length)];
+                index.add(new MedicineSearchIndex.Entry(id, capitalize(name), MG[random.nextInt(MG.length)],
+                        TYPES[random.nextInt(TYPES.length)]));
+            }
+        }
+
+        private static String capitalize(String s) {
+            return Character.toUpperCase(s.charAt(0)) + s.substring(1);
+        }
+    }
+
+    @Benchmark
+    public List<MedicineSearchIndex.Entry> shortPrefix(Catalog c) {
+        return c.index.search("ib", 10);
+    }
+
+    @Benchmark
+    public List<MedicineSearchIndex.Entry> wordPrefix(Catalog c) {
+        return c.index.search("paracetamol", 10);
+    }
+
+    @Benchmark
+    public List<MedicineSearchIndex.Entry> nameAndMilligrams(Catalog c) {
+        return c.index.search("amoxicillin 500", 10);
+    }
+
+    @Benchmark
+    public List<MedicineSearchIndex.Entry> misspelled(Catalog c) {
+        return c.index.search("paracetmol", 10);
+    }
+}
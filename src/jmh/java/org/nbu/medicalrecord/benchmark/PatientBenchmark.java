@@ -0,0 +1,45 @@
+package org.nbu.medicalrecord.benchmark;
+
+import org.nbu.medicalrecord.services.PatientService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code PatientServiceImpl.showAllPatients}: loading every patient, sorting by name then id and
+ * mapping to DTOs. The sort and the mapping alone are measured in {@link DtoMappingBenchmark}.
+ * <p>
+ * The searches fetch one page of 20; the seeded names repeat a lot, so every prefix has many matches.
+ * Run them at scale with {@code -p patients=1000000 -p visitsPerPatient=0}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PatientBenchmark {
+
+    @Benchmark
+    public Object showAllPatients(ClinicState state) {
+        return state.bean(PatientService.class).showAllPatients();
+    }
+
+    @Benchmark
+    public Object searchByNamePrefix(ClinicState state) {
+        return state.bean(PatientService.class).searchPatients("pet", null, 20);
+    }
+
+    @Benchmark
+    public Object searchByFirstAndLastName(ClinicState state) {
+        return state.bean(PatientService.class).searchPatients("maria petr", null, 20);
+    }
+
+    @Benchmark
+    public Object searchByEgnPrefix(ClinicState state) {
+        return state.bean(PatientService.class).searchPatients("00001", null, 20);
+    }
+}
@@ -0,0 +1,168 @@
+package org.nbu.medicalrecord.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.nbu.medicalrecord.dtos.response.DoctorDataPatientViewDtoResponse;
+import org.nbu.medicalrecord.dtos.response.MedicalRecordDtoResponse;
+import org.nbu.medicalrecord.dtos.response.PatientDataDtoResponse;
+import org.nbu.medicalrecord.dtos.response.PatientDataWithDoctorDtoResponse;
+import org.nbu.medicalrecord.dtos.response.SpecializationDtoResponse;
+import org.nbu.medicalrecord.dtos.response.VisitDtoResponse;
+import org.nbu.medicalrecord.util.ContentNegotiationConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialization of the large listings ({@code /visit/doctor/{id}}, {@code /medical-record/all},
+ * {@code /patient/all}) in every format the API can answer with: compact JSON, the indented JSON it
+ * used to send, CBOR and Smile. Average time per listing; the bytes on the wire, plain and gzipped as
+ * server.compression sends them, are printed once per trial since JMH has no column for them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SerializationBenchmark {
+
+    private static final String[] NAMES = {"Ivan", "Maria", "Georgi", "Elena", "Dimitar", "Petya", "Йордан", "Цветелина"};
+    private static final String[] COMPLAINTS = {"Cough and fever for three days", "Lower back pain after lifting",
+            "Headache and dizziness in the mornings", "Rash on both forearms", "Follow-up, no complaints"};
+
+    @State(Scope.Benchmark)
+    public static class Listing {
+
+        @Param("42")
+        public long seed;
+
+        // a listing of this many DTOs
+        @Param("1000")
+        public int size;
+
+        @Param({"visits", "medicalRecords", "patients"})
+        public String dto;
+
+        @Param({"json", "json-indented", "cbor", "smile"})
+        public String format;
+
+        List<?> listing;
+        ObjectWriter writer;
+
+        @Setup(Level.Trial)
+        public void build() throws IOException {
+            SplittableRandom random = new SplittableRandom(seed);
+            listing = switch (dto) {
+                case "visits" -> visits(random, size);
+                case "medicalRecords" -> medicalRecords(random, size);
+                case "patients" -> patients(random, size);
+                default -> throw new IllegalArgumentException("Unknown DTO " + dto);
+            };
+            writer = mapper(format).writer();
+
+            byte[] bytes = writer.writeValueAsBytes(listing);
+            System.out.printf("%n%s as %s: %,d bytes, %,d gzipped%n", dto, format, bytes.length, gzip(bytes).length);
+        }
+    }
+
+    @Benchmark
+    public byte[] serialize(Listing l) throws IOException {
+        return l.writer.writeValueAsBytes(l.listing);
+    }
+
+    // built like the application's mappers: Boot's builder with dates as ISO strings
+    private static ObjectMapper mapper(String format) {
+        ContentNegotiationConfig config = new ContentNegotiationConfig();
+        return switch (format) {
+            case "json" -> builder().build();
+            case "json-indented" -> builder().indentOutput(true).build();
+            case "cbor" -> config.cborHttpMessageConverter(builder()).getObjectMapper();
+            case "smile" -> config.smileHttpMessageConverter(builder()).getObjectMapper();
+            default -> throw new IllegalArgumentException("Unknown format " + format);
+        };
+    }
+
+    private static Jackson2ObjectMapperBuilder builder() {
+        return new Jackson2ObjectMapperBuilder().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    private static List<VisitDtoResponse> visits(SplittableRandom random, int count) {
+        List<VisitDtoResponse> visits = new ArrayList<>(count);
+        for (long id = 1; id <= count; id++) {
+            visits.add(visit(random, id));
+        }
+        return visits;
+    }
+
+    private static VisitDtoResponse visit(SplittableRandom random, long id) {
+        return new VisitDtoResponse(id, name(random) + " " + name(random), id, 1 + id / 4,
+                random.nextInt(10) == 0 ? id : null, random.nextBoolean() ? id : null, id,
+                COMPLAINTS[random.nextInt(COMPLAINTS.length)], "No relevant history",
+                random.nextInt(3) == 0 ? "Complete blood count" : null);
+    }
+
+    // a record with its visits, four on average
+    private static List<MedicalRecordDtoResponse> medicalRecords(SplittableRandom random, int count) {
+        List<MedicalRecordDtoResponse> records = new ArrayList<>(count);
+        long visitId = 1;
+        for (long id = 1; id <= count; id++) {
+            Set<VisitDtoResponse> visits = new LinkedHashSet<>();
+            for (int v = random.nextInt(9); v > 0; v--) {
+                visits.add(visit(random, visitId++));
+            }
+            records.add(new MedicalRecordDtoResponse(id, id, name(random), name(random), birthDate(random),
+                    visits.size(), visits));
+        }
+        return records;
+    }
+
+    private static List<PatientDataWithDoctorDtoResponse> patients(SplittableRandom random, int count) {
+        List<SpecializationDtoResponse> specializations = List.of(new SpecializationDtoResponse(1L, "General practice"),
+                new SpecializationDtoResponse(2L, "Cardiology"), new SpecializationDtoResponse(3L, "Pediatrics"));
+        List<PatientDataWithDoctorDtoResponse> patients = new ArrayList<>(count);
+        for (long id = 1; id <= count; id++) {
+            long gp = 1 + random.nextInt(50);
+            patients.add(new PatientDataWithDoctorDtoResponse(
+                    new PatientDataDtoResponse(id, name(random), name(random), birthDate(random)),
+                    new DoctorDataPatientViewDtoResponse(gp, NAMES[(int) gp % NAMES.length], "Doctor",
+                            Set.of(specializations.get(0), specializations.get(1 + (int) gp % 2)), true)));
+        }
+        return patients;
+    }
+
+    private static String name(SplittableRandom random) {
+        return NAMES[random.nextInt(NAMES.length)];
+    }
+
+    private static LocalDate birthDate(SplittableRandom random) {
+        return LocalDate.of(1950, 1, 1).plusDays(random.nextInt(25_000));
+    }
+}
@@ -0,0 +1,223 @@
+package org.nbu.medicalrecord.benchmark;
+
+import org.nbu.medicalrecord.entities.PooledIdGenerator;
+import org.nbu.medicalrecord.util.DiagnosisKeyUtil;
+import org.nbu.medicalrecord.util.NameKeyUtil;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.LongFunction;
+import java.util.random.RandomGenerator;
+
+/**
+ * Seeds a reproducible synthetic population straight through JDBC batches: doctors, patients with
+ * their medical records, past visits with their appointments and diagnoses. Ids are assigned
+ * densely from 1, so doctor {@code i} and patient {@code i} can be addressed without a lookup.
+ */
+final class SyntheticPopulation {
+
+    private static final int BATCH_SIZE = 5_000;
+
+    // every seeded user can log in with this password; hashed once, with the strength of PasswordConfig
+    static final String PASSWORD = "benchmark-password";
+    private static final String PASSWORD_HASH = new BCryptPasswordEncoder().encode(PASSWORD);
+
+    // a handful of names, so the name sorting has plenty of ties to break
+    private static final String[] FIRST_NAMES = {
+            "Ivan", "Maria", "Georgi", "Elena", "Dimitar", "Petya", "Nikolay", "Ani", "Stoyan", "Desislava"
+    };
+    private static final String[] LAST_NAMES = {
+            "Ivanov", "Petrova", "Georgiev", "Dimitrova", "Nikolov", "Stoyanova", "Todorov", "Koleva"
+    };
+    private static final String[] DIAGNOSES = {
+            "Acute bronchitis", "Hypertension", "Type 2 diabetes", "Influenza", "Migraine", "Gastritis",
+            "Lower back pain", "Allergic rhinitis", "Sinusitis", "Anxiety disorder", "Asthma", "Tonsillitis",
+            "Conjunctivitis", "Otitis media", "Pneumonia", "Dermatitis", "Anemia", "Hypothyroidism"
+    };
+    private static final String[] DIAGNOSIS_KEYS = Arrays.stream(DIAGNOSES)
+            .map(DiagnosisKeyUtil::keyOf)
+            .toArray(String[]::new);
+
+    private static final int VISIT_SLOTS_PER_DAY = 16;
+
+    private final JdbcTemplate jdbc;
+    private final SplittableRandom random;
+
+    private int doctors;
+    private int patients;
+    private long appointments;
+    private long diagnoses;
+
+    SyntheticPopulation(JdbcTemplate jdbc, long seed) {
+        this.jdbc = jdbc;
+        this.random = new SplittableRandom(seed);
+    }
+
+    int doctors() {
+        return doctors;
+    }
+
+    int patients() {
+        return patients;
+    }
+
+    String patientEmail(long patientId) {
+        return "patient" + (doctors + patientId) + "@bench.local";
+    }
+
+    long randomDoctorId(RandomGenerator r) {
+        return r.nextInt(doctors) + 1;
+    }
+
+    long randomPatientId(RandomGenerator r) {
+        return r.nextInt(patients) + 1;
+    }
+
+    // doctor users take ids 1..doctors
+    SyntheticPopulation seedDoctors(int count) {
+        insert("insert into users (id, email, password, first_name, last_name, name_key, reversed_name_key, egn, enabled, locked) values (?,?,?,?,?,?,?,?,?,?)",
+                count, i -> userRow(i + 1, "doctor"));
+        insert("insert into user_authorities (user_id, authority) values (?,?)",
+                count, i -> new Object[]{i + 1, "ROLE_DOCTOR"});
+        insert("insert into doctors (id, user_id, gp) values (?,?,?)",
+                count, i -> new Object[]{i + 1, i + 1, true});
+        doctors = count;
+        return this;
+    }
+
+    // patient users follow the doctor users, every patient gets a GP and a medical record
+    SyntheticPopulation seedPatients(int count) {
+        requireDoctors();
+        insert("insert into users (id, email, password, first_name, last_name, name_key, reversed_name_key, egn, enabled, locked) values (?,?,?,?,?,?,?,?,?,?)",
+                count, i -> userRow(doctors + i + 1, "patient"));
+        insert("insert into user_authorities (user_id, authority) values (?,?)",
+                count, i -> new Object[]{doctors + i + 1, "ROLE_PATIENT"});
+        insert("insert into patients (id, user_id, birth_date, gp_doctor_id) values (?,?,?,?)",
+                count, i -> new Object[]{
+                        i + 1,
+                        doctors + i + 1,
+                        Date.valueOf(LocalDate.of(1940, 1, 1).plusDays(random.nextInt(30_000))),
+                        randomDoctorId(random)
+                });
+        insert("insert into medical_records (id, patient_id) values (?,?)",
+                count, i -> new Object[]{i + 1, i + 1});
+        patients = count;
+        return this;
+    }
+
+    /**
+     * Past visits: each one with its own appointment and diagnosis. Appointments are spread over the
+     * days before today, {@value #VISIT_SLOTS_PER_DAY} half-hour slots per doctor and day, so the future
+     * stays free for the booking benchmarks.
+     */
+    SyntheticPopulation seedVisits(int perPatient) {
+        requirePatients();
+        long count = (long) patients * perPatient;
+        long firstAppointment = appointments + 1;
+        long firstDiagnosis = diagnoses + 1;
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+
+        long[] doctorOf = new long[Math.toIntExact(count)];
+        insert("insert into appointments (id, date, hour_of_visit, patient_id, doctor_id) values (?,?,?,?,?)",
+                count, i -> {
+                    int doctor = (int) (i % doctors);
+                    long slot = i / doctors;
+                    doctorOf[(int) i] = doctor + 1;
+                    return new Object[]{
+                            firstAppointment + i,
+                            Date.valueOf(yesterday.minusDays(slot / VISIT_SLOTS_PER_DAY)),
+                            Time.valueOf(LocalTime.of(8, 0).plusMinutes(30 * (slot % VISIT_SLOTS_PER_DAY))),
+                            i / perPatient + 1,
+                            doctor + 1
+                    };
+                });
+        insert("insert into diagnoses (id, diagnosis, diagnosis_key, patient_id, doctor_id) values (?,?,?,?,?)",
+                count, i -> diagnosisRow(firstDiagnosis + i, i / perPatient + 1, doctorOf[(int) i]));
+        insert("insert into visits (id, appointment_id, medical_record_id, diagnosis_id, complaints, medical_history, required_tests) values (?,?,?,?,?,?,?)",
+                count, i -> new Object[]{
+                        firstAppointment + i,
+                        firstAppointment + i,
+                        i / perPatient + 1,
+                        firstDiagnosis + i,
+                        "Cough and fever for " + (1 + random.nextInt(10)) + " days",
+                        "No relevant history",
+                        random.nextInt(4) == 0 ? "Complete blood count" : null
+                });
+        appointments += count;
+        diagnoses += count;
+        return this;
+    }
+
+    // diagnoses without visits, for the statistics over large tables
+    SyntheticPopulation seedDiagnoses(long count) {
+        requirePatients();
+        long first = diagnoses + 1;
+        insert("insert into diagnoses (id, diagnosis, diagnosis_key, patient_id, doctor_id) values (?,?,?,?,?)",
+                count, i -> diagnosisRow(first + i, randomPatientId(random), randomDoctorId(random)));
+        diagnoses += count;
+        return this;
+    }
+
+    // the rows above carry explicit ids, the id generators have to continue after them
+    SyntheticPopulation advanceIdGenerators() {
+        for (String table : List.of("users", "doctors", "patients", "medical_records", "appointments", "diagnoses", "visits")) {
+            jdbc.update("update " + PooledIdGenerator.TABLE + " set " + PooledIdGenerator.VALUE_COLUMN
+                    + " = (select coalesce(max(id), 0) + 1 from " + table + ") where " + PooledIdGenerator.SEGMENT_COLUMN + " = ?", table);
+        }
+        return this;
+    }
+
+    private Object[] userRow(long id, String role) {
+        String firstName = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+        String lastName = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+        return new Object[]{
+                id,
+                role + id + "@bench.local",
+                PASSWORD_HASH,
+                firstName,
+                lastName,
+                NameKeyUtil.nameKey(firstName, lastName),
+                NameKeyUtil.reversedNameKey(firstName, lastName),
+                String.format("%010d", id),
+                true,
+                false
+        };
+    }
+
+    // skewed towards the first diagnoses, like real case mixes
+    private Object[] diagnosisRow(long id, long patientId, long doctorId) {
+        double u = random.nextDouble();
+        int d = (int) (u * u * u * DIAGNOSES.length);
+        return new Object[]{id, DIAGNOSES[d], DIAGNOSIS_KEYS[d], patientId, doctorId};
+    }
+
+    private void insert(String sql, long count, LongFunction<Object[]> row) {
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (long i = 0; i < count; i++) {
+            batch.add(row.apply(i));
+            if (batch.size() == BATCH_SIZE) {
+                jdbc.batchUpdate(sql, batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbc.batchUpdate(sql, batch);
+        }
+    }
+
+    private void requireDoctors() {
+        if (doctors == 0) throw new IllegalStateException("Seed the doctors first.");
+    }
+
+    private void requirePatients() {
+        if (patients == 0) throw new IllegalStateException("Seed the patients first.");
+    }
+}
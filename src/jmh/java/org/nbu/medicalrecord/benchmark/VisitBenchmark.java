@@ -0,0 +1,29 @@
+package org.nbu.medicalrecord.benchmark;
+
+import org.nbu.medicalrecord.services.VisitService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code VisitServiceImpl.showAllVisitsForPatient} for random patients of the seeded clinic
+ * ({@code visitsPerPatient} visits each).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class VisitBenchmark {
+
+    @Benchmark
+    public Object showAllVisitsForPatient(ClinicState state) {
+        long patientId = state.population.randomPatientId(ThreadLocalRandom.current());
+        return state.bean(VisitService.class).showAllVisitsForPatient(patientId);
+    }
+}
@@ -0,0 +1,91 @@
+package org.nbu.medicalrecord.cli;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.nbu.medicalrecord.dtos.response.ImportReportDtoResponse;
+import org.nbu.medicalrecord.services.ImportService;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Offline variant of {@code /admin/import}, for files too large to upload:
+ * <pre>
+ * java -jar medical-record.jar --spring.main.web-application-type=none \
+ *      --import.doctors=doctors.csv --import.patients=patients.ndjson
+ * </pre>
+ * The format follows the file extension (.csv, .ndjson or .jsonl). Rejected rows are written next to
+ * each file as {@code <file>.errors.ndjson}. The application exits afterwards, with status 1 when any
+ * row was rejected. Without these options the runner does nothing.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ImportCommandLineRunner implements ApplicationRunner {
+
+    private static final String DOCTORS = "import.doctors";
+    private static final String PATIENTS = "import.patients";
+
+    private final ImportService importService;
+    private final ObjectMapper objectMapper;
+    private final ConfigurableApplicationContext context;
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        if (!args.containsOption(DOCTORS) && !args.containsOption(PATIENTS)) {
+            return;
+        }
+
+        long rejected = 0;
+        // doctors first, a clinic's patients are usually assigned to its doctors afterwards
+        for (String file : values(args, DOCTORS)) {
+            rejected += run(Path.of(file), true);
+        }
+        for (String file : values(args, PATIENTS)) {
+            rejected += run(Path.of(file), false);
+        }
+
+        int status = rejected == 0 ? 0 : 1;
+        System.exit(SpringApplication.exit(context, () -> status));
+    }
+
+    private long run(Path file, boolean doctors) throws IOException {
+        ImportService.Format format = ImportService.Format.ofFileName(file.getFileName().toString());
+        ImportReportDtoResponse report;
+        try (InputStream in = Files.newInputStream(file)) {
+            report = doctors ? importService.importDoctors(in, format) : importService.importPatients(in, format);
+        }
+
+        log.info("{}: {} rows, {} imported, {} rejected", file, report.getRows(), report.getImported(), report.getFailed());
+        if (report.getFailed() > 0) {
+            Path errors = file.resolveSibling(file.getFileName() + ".errors.ndjson");
+            ObjectWriter writer = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+            try (BufferedWriter out = Files.newBufferedWriter(errors, StandardCharsets.UTF_8)) {
+                for (ImportReportDtoResponse.RowError error : report.getErrors()) {
+                    out.write(writer.writeValueAsString(error));
+                    out.newLine();
+                }
+            }
+            log.warn("Rejected rows of {} written to {}", file, errors);
+        }
+        return report.getFailed();
+    }
+
+    private static List<String> values(ApplicationArguments args, String option) {
+        List<String> values = args.getOptionValues(option);
+        return values == null ? List.of() : values;
+    }
+}
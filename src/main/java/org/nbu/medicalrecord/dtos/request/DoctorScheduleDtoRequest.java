@@ -0,0 +1,37 @@
+package org.nbu.medicalrecord.dtos.request;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.Set;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class DoctorScheduleDtoRequest {
+
+    @NotNull
+    private LocalTime workStart;
+
+    @NotNull
+    private LocalTime workEnd;
+
+    @Min(5)
+    @Max(240)
+    private int slotMinutes = 30;
+
+    private Set<DayOfWeek> daysOff = Set.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY);
+
+    @Min(1)
+    @Max(26)
+    private int weeksAhead = 4;
+
+}
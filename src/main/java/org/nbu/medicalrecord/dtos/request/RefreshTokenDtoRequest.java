@@ -0,0 +1,21 @@
+package org.nbu.medicalrecord.dtos.request;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class RefreshTokenDtoRequest {
+
+    // the refresh token returned by /auth/login or the previous /auth/refresh
+
+    @NotBlank
+    @Size(max = 128)
+    private String refreshToken;
+}
@@ -0,0 +1,19 @@
+package org.nbu.medicalrecord.dtos.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class CursorPageDtoResponse<T> {
+
+    private List<T> items;
+
+    private String nextCursor;  // opaque; null when there are no more rows
+}
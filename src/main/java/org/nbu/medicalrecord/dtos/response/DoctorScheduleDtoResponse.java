@@ -0,0 +1,35 @@
+package org.nbu.medicalrecord.dtos.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Set;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class DoctorScheduleDtoResponse {
+
+    private Long doctorId;
+
+    private LocalTime workStart;
+
+    private LocalTime workEnd;
+
+    private int slotMinutes;
+
+    private Set<DayOfWeek> daysOff;
+
+    private int weeksAhead;
+
+    private LocalDate materializedUntil;
+
+    private int slotsCreated;   // by the request that returned this response
+
+}
@@ -0,0 +1,27 @@
+package org.nbu.medicalrecord.dtos.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class ImportReportDtoResponse {
+
+    private long rows;
+
+    private long imported;
+
+    private long failed;
+
+    private List<RowError> errors;    // one entry per rejected row, in file order
+
+    // line is the 1-based line number in the file, the CSV header included
+    public record RowError(long line, String message) {
+    }
+}
@@ -17,4 +17,7 @@ public class LoginDtoResponse {
 
     @NotNull
     private Long expiresInSeconds;
+
+    @NonNull
+    private String refreshToken;    // single use, exchanged at /auth/refresh for the next pair
 }
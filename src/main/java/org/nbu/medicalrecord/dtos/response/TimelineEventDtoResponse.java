@@ -0,0 +1,24 @@
+package org.nbu.medicalrecord.dtos.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.nbu.medicalrecord.entities.TimelineEvent;
+
+import java.time.LocalDate;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class TimelineEventDtoResponse {
+
+    private LocalDate date;
+
+    private TimelineEvent.Kind kind;
+
+    private Long sourceId;  // id of the visit, diagnosis, sick leave, medication or health insurance entry
+
+    private String summary;
+}
@@ -6,16 +6,28 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.nbu.medicalrecord.util.AllergenKeyUtil;
 
 @AllArgsConstructor
 @NoArgsConstructor
 @Getter
 @Setter
 @Entity
-@Table(name = "allergies")
+@Table(name = "allergies", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_allergen_key", columnNames = "allergen_key")
+})
 public class Allergy extends BaseEntity {
 
     @Column()
     @NotBlank
     private String allergen;
+
+    @Column(name = "allergen_key")
+    private String allergenKey;    // see AllergenKeyUtil; one shared row per key, see AllergenCatalog
+
+    @PrePersist
+    @PreUpdate
+    void computeAllergenKey() {
+        this.allergenKey = AllergenKeyUtil.keyOf(allergen);
+    }
 }
@@ -7,7 +7,9 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.nbu.medicalrecord.util.DiagnosisKeyUtil;
 
+import java.time.LocalDate;
 import java.util.Set;
 
 @AllArgsConstructor
@@ -15,7 +17,9 @@ import java.util.Set;
 @Getter
 @Setter
 @Entity
-@Table(name = "diagnoses")
+@Table(name = "diagnoses", indexes = {
+        @Index(name = "idx_diagnosis_key", columnList = "diagnosis_key")
+})
 public class Diagnosis extends BaseEntity {
 
     @Column()
@@ -28,4 +32,16 @@ public class Diagnosis extends BaseEntity {
 
     @ManyToOne(optional = false, fetch = FetchType.LAZY)
     private Doctor doctor;
+
+    @Column(name = "diagnosis_key", length = 64)
+    private String diagnosisKey;    // see DiagnosisKeyUtil; filled in on every write
+
+    @Column(name = "diagnosed_on")
+    private LocalDate diagnosedOn;  // null for rows written before the column existed
+
+    @PrePersist
+    @PreUpdate
+    void computeDiagnosisKey() {
+        this.diagnosisKey = DiagnosisKeyUtil.keyOf(diagnosis);
+    }
 }
@@ -5,6 +5,7 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.nbu.medicalrecord.security.ProfileChangeListener;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -14,6 +15,7 @@ import java.util.Set;
 @Getter
 @Setter
 @Entity
+@EntityListeners(ProfileChangeListener.class)
 @Table(name = "doctors")
 public class Doctor extends BaseEntity {
 
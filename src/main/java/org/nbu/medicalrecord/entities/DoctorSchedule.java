@@ -0,0 +1,58 @@
+package org.nbu.medicalrecord.entities;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.EnumSet;
+import java.util.Set;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Entity
+@Table(name = "doctor_schedules")
+public class DoctorSchedule extends BaseEntity {
+
+    // weekly working-hours template; empty appointment slots are generated from it
+
+    @OneToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "doctor_id", nullable = false, unique = true)
+    private Doctor doctor;
+
+    @Column(name = "work_start")
+    @NotNull
+    private LocalTime workStart;
+
+    @Column(name = "work_end")
+    @NotNull
+    private LocalTime workEnd;
+
+    @Column(name = "slot_minutes")
+    @Min(5)
+    @Max(240)
+    private int slotMinutes;
+
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "doctor_schedule_days_off", joinColumns = @JoinColumn(name = "schedule_id"))
+    @Column(name = "day_of_week")
+    @Enumerated(EnumType.STRING)
+    private Set<DayOfWeek> daysOff = EnumSet.noneOf(DayOfWeek.class);
+
+    @Column(name = "weeks_ahead")
+    @Min(1)
+    @Max(26)
+    private int weeksAhead;
+
+    @Column(name = "materialized_until")
+    private LocalDate materializedUntil;  // last day for which slots exist
+}
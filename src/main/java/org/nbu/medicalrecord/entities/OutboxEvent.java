@@ -0,0 +1,73 @@
+package org.nbu.medicalrecord.entities;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+@NoArgsConstructor
+@Getter
+@Setter
+@Entity
+@Table(name = "outbox_events", indexes = {
+        @Index(name = "idx_outbox_status_available", columnList = "status,available_at,id")
+})
+public class OutboxEvent extends BaseEntity {
+
+    // written in the transaction of the change it announces (see OutboxServiceImpl), handed to the
+    // OutboxHandlers of its type by OutboxDispatcher once that transaction has committed
+
+    public enum Type {
+        APPOINTMENT_BOOKED,     // aggregate: appointment id; payload: PatientAppointmentDtoResponse
+        VISIT_CREATED,          // aggregate: visit id; payload: VisitDtoResponse
+        SICK_LEAVE_ISSUED,      // aggregate: sick leave id; payload: SickLeaveDtoResponse
+        HEALTH_INSURANCE_PAID   // aggregate: health insurance id; payload: HealthInsuranceDtoResponse
+    }
+
+    public enum Status {
+        PENDING,    // due at available_at: new, waiting out a backoff, or leased to a worker until then
+        DONE,
+        FAILED      // out of attempts, left for an operator
+    }
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 32, nullable = false)
+    private Type type;
+
+    @Column(name = "aggregate_id", nullable = false)
+    private Long aggregateId;
+
+    @Lob
+    @Column(nullable = false)
+    private String payload;     // JSON
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16, nullable = false)
+    private Status status;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "available_at", nullable = false)
+    private Instant availableAt;
+
+    @Column(name = "processed_at")
+    private Instant processedAt;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    public OutboxEvent(Type type, long aggregateId, String payload, Instant now) {
+        this.type = type;
+        this.aggregateId = aggregateId;
+        this.payload = payload;
+        this.status = Status.PENDING;
+        this.createdAt = now;
+        this.availableAt = now;
+    }
+}
@@ -9,6 +9,7 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.nbu.medicalrecord.security.ProfileChangeListener;
 
 import java.time.LocalDate;
 import java.util.Set;
@@ -18,6 +19,7 @@ import java.util.Set;
 @Getter
 @Setter
 @Entity
+@EntityListeners(ProfileChangeListener.class)
 @Table(name = "patients")
 public class Patient extends BaseEntity{
 
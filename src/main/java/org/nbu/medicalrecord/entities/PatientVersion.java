@@ -0,0 +1,25 @@
+package org.nbu.medicalrecord.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Entity
+@Table(name = "patient_versions")
+public class PatientVersion {
+
+    // moves on every write to a patient's record, visits, diagnoses or sick leaves; the ETag of their listings
+
+    @Id
+    @Column(name = "patient_id")
+    private Long patientId;
+
+    @Column(nullable = false)
+    private long version;
+}
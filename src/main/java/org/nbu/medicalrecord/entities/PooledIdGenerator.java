@@ -0,0 +1,46 @@
+package org.nbu.medicalrecord.entities;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.config.spi.StandardConverters;
+import org.hibernate.id.PersistentIdentifierGenerator;
+import org.hibernate.id.enhanced.TableGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+/**
+ * One row per entity table in {@code id_generators}, holding the next id that has not been handed out.
+ * A session reserves {@code allocation_size} ids with one update and assigns them from memory (pooled-lo),
+ * so inserts no longer need the id back from the database and Hibernate can batch them. MySQL has no
+ * sequences, hence the table.
+ * <p>
+ * Rows written with plain JDBC take their ids from the same rows through {@code IdAllocator}.
+ */
+public class PooledIdGenerator extends TableGenerator {
+
+    public static final String TABLE = "id_generators";
+    public static final String SEGMENT_COLUMN = "sequence_name";
+    public static final String VALUE_COLUMN = "next_val";
+
+    // Hibernate setting, from spring.jpa.properties
+    public static final String ALLOCATION_SIZE = "medicalrecord.id.allocation_size";
+    public static final int DEFAULT_ALLOCATION_SIZE = 50;
+
+    @Override
+    public void configure(Type type, Properties parameters, ServiceRegistry serviceRegistry) throws MappingException {
+        int allocationSize = serviceRegistry.requireService(ConfigurationService.class)
+                .getSetting(ALLOCATION_SIZE, StandardConverters.INTEGER, DEFAULT_ALLOCATION_SIZE);
+
+        parameters.setProperty(TABLE_PARAM, TABLE);
+        parameters.setProperty(SEGMENT_COLUMN_PARAM, SEGMENT_COLUMN);
+        parameters.setProperty(VALUE_COLUMN_PARAM, VALUE_COLUMN);
+        // the entity's table names its row
+        parameters.setProperty(SEGMENT_VALUE_PARAM, parameters.getProperty(PersistentIdentifierGenerator.TABLE));
+        parameters.setProperty(INITIAL_PARAM, "1");
+        parameters.setProperty(INCREMENT_PARAM, Integer.toString(allocationSize));
+        parameters.setProperty(OPT_PARAM, "pooled-lo");
+        super.configure(type, parameters, serviceRegistry);
+    }
+}
@@ -0,0 +1,41 @@
+package org.nbu.medicalrecord.entities;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+@NoArgsConstructor
+@Getter
+@Setter
+@Entity
+@Table(name = "refresh_tokens", indexes = {
+        @Index(name = "ix_refresh_token_hash", columnList = "token_hash", unique = true),
+        @Index(name = "ix_refresh_token_family", columnList = "family_id"),
+        @Index(name = "ix_refresh_token_expires", columnList = "expires_at")
+})
+public class RefreshToken extends BaseEntity {
+
+    // one login session = one family; every refresh replaces the token by the next one of the family
+
+    @Column(name = "token_hash", nullable = false, length = 64)
+    private String tokenHash;       // SHA-256 hex, the raw token is only ever known to the client
+
+    @Column(name = "family_id", nullable = false, length = 36)
+    private String familyId;
+
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;      // the whole family expires with the login that started it
+
+    @Column(name = "used_at")
+    private Instant usedAt;         // rotated: presenting it again means it was stolen
+
+    @Column(name = "revoked_at")
+    private Instant revokedAt;      // logout or detected reuse
+}
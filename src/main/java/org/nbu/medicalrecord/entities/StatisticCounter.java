@@ -0,0 +1,53 @@
+package org.nbu.medicalrecord.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Entity
+@Table(name = "statistic_counters", indexes = {
+        @Index(name = "idx_counter_kind_value", columnList = "kind,counter_value")
+})
+public class StatisticCounter {
+
+    // pre-aggregated report data, kept up to date by the services that write the counted rows
+
+    public enum Kind {
+        SICK_LEAVES_BY_MONTH,           // key: month number 1..12 (of fromDate)
+        SICK_LEAVES_BY_DOCTOR,          // key: doctor id
+        DIAGNOSES_BY_KEY,               // key: Diagnosis.diagnosisKey
+        DIAGNOSES_BY_DOCTOR_PATIENT,    // key: "doctorId:patientId"
+        PATIENTS_BY_DOCTOR              // key: doctor id; distinct patients diagnosed by the doctor
+    }
+
+    @EmbeddedId
+    private CounterId id;
+
+    @Column(name = "counter_value", nullable = false)
+    private long counterValue;
+
+    @Embeddable
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Getter
+    @Setter
+    @EqualsAndHashCode
+    public static class CounterId implements Serializable {
+
+        @Enumerated(EnumType.STRING)
+        @Column(length = 32, nullable = false)
+        private Kind kind;
+
+        @Column(name = "counter_key", length = 64, nullable = false)
+        private String counterKey;
+    }
+}
@@ -0,0 +1,48 @@
+package org.nbu.medicalrecord.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Entity
+@Table(name = "timeline_events", indexes = {
+        @Index(name = "idx_timeline_patient_date", columnList = "patient_id,event_date,id"),
+        @Index(name = "idx_timeline_source", columnList = "kind,source_id", unique = true)
+})
+public class TimelineEvent extends BaseEntity {
+
+    // read model of a patient's history, one pre-rendered row per event; kept up to date by the services
+    // that write the source rows and rebuilt from them by TimelineServiceImpl
+
+    public enum Kind {
+        VISIT,              // source: visit id; dated by its appointment
+        DIAGNOSIS,          // source: diagnosis id
+        SICK_LEAVE,         // source: sick leave id; dated by its first day
+        MEDICATION,         // source: medication id; dated by the visit it was prescribed at
+        HEALTH_INSURANCE    // source: health insurance id; a paid month, dated by its first day
+    }
+
+    @Column(name = "patient_id", nullable = false)
+    private Long patientId;
+
+    @Column(name = "event_date", nullable = false)
+    private LocalDate eventDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16, nullable = false)
+    private Kind kind;
+
+    @Column(name = "source_id", nullable = false)
+    private Long sourceId;
+
+    @Column(nullable = false)
+    private String summary;
+}
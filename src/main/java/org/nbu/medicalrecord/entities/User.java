@@ -11,6 +11,8 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.hibernate.validator.constraints.Length;
+import org.nbu.medicalrecord.security.UserChangeListener;
+import org.nbu.medicalrecord.util.NameKeyUtil;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -21,7 +23,11 @@ import java.util.Set;
 import java.util.stream.Collectors;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = {
+        @Index(name = "idx_users_name_key", columnList = "name_key, id"),
+        @Index(name = "idx_users_reversed_name_key", columnList = "reversed_name_key, id")
+})
+@EntityListeners(UserChangeListener.class)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -52,6 +58,14 @@ public class User extends BaseEntity implements UserDetails {
     @Pattern(regexp = "\\d{10}", message = "Personal ID must contain only digits.")
     private String egn;
 
+    @JsonIgnore
+    @Column(name = "name_key", length = NameKeyUtil.KEY_LENGTH)
+    private String nameKey;             // see NameKeyUtil; filled in on every write
+
+    @JsonIgnore
+    @Column(name = "reversed_name_key", length = NameKeyUtil.KEY_LENGTH)
+    private String reversedNameKey;
+
     @ElementCollection(fetch = FetchType.EAGER)
     @CollectionTable(name = "user_authorities", joinColumns = @JoinColumn(name = "user_id"))
     @Column(name = "authority")
@@ -66,6 +80,13 @@ public class User extends BaseEntity implements UserDetails {
     @OneToOne(mappedBy = "user", fetch = FetchType.LAZY)
     private Doctor doctorProfile;
 
+    @PrePersist
+    @PreUpdate
+    void computeNameKeys() {
+        this.nameKey = NameKeyUtil.nameKey(firstName, lastName);
+        this.reversedNameKey = NameKeyUtil.reversedNameKey(firstName, lastName);
+    }
+
     // ---- UserDetails ----
     @Override
     @JsonIgnore
@@ -20,7 +20,7 @@ public class Visit extends BaseEntity {
 
     // преглед
 
-    @OneToOne(optional = false)
+    @OneToOne(optional = false, fetch = FetchType.LAZY)
     @JoinColumn(name = "appointment_id", nullable = false, unique = true)
     @NotNull
     private Appointment appointment;
@@ -34,20 +34,20 @@ public class Visit extends BaseEntity {
     @Lob
     private String medicalHistory;  // patient's past conditions relevant to the current diagnosis
 
-    @OneToOne(cascade = CascadeType.ALL)
+    @OneToOne(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private Diagnosis diagnosis;
 
-    @OneToOne(cascade = CascadeType.ALL)
+    @OneToOne(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private Medication medication;   // no medications might be prescribed
 
     @Column(name = "required_tests")
     @Lob
     private String requiredTests;   // lab tests if needed
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private SickLeave sickLeave;  // no sick leave might be taken
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "medical_record_id")
     @NotNull
     private MedicalRecord medicalRecord;
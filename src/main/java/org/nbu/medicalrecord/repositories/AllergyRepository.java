@@ -1,10 +1,15 @@
 package org.nbu.medicalrecord.repositories;
 
+import jakarta.persistence.LockModeType;
 import org.nbu.medicalrecord.entities.Allergy;
-import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -15,4 +20,38 @@ public interface AllergyRepository extends JpaRepository<Allergy, Long> {
     Optional<Allergy> findByAllergenIgnoreCase(String allergen);
 
     long deleteByAllergenIgnoreCase(String allergen);
+
+    // point reads on the uk_allergen_key index, see AllergenKeyUtil
+    boolean existsByAllergenKey(String allergenKey);
+
+    Optional<Allergy> findByAllergenKey(String allergenKey);
+
+    List<Allergy> findAllByAllergenKeyIn(Collection<String> allergenKeys);
+
+    interface KeyView {
+        Long getId();
+        String getAllergenKey();
+    }
+
+    @Query("select a.id as id, a.allergenKey as allergenKey from Allergy a where a.allergenKey in :keys")
+    List<KeyView> findByAllergenKeys(Collection<String> keys);
+
+    // after an INSERT IGNORE: a locking read sees rows committed by other transactions since ours started
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("select a from Allergy a where a.allergenKey in :keys")
+    List<Allergy> lockByAllergenKeys(Collection<String> keys);
+
+    interface KeylessView {
+        Long getId();
+        String getAllergen();
+    }
+
+    // rows written before allergen_key existed, in id order
+    @Query("""
+      select a.id as id, a.allergen as allergen
+      from Allergy a
+      where a.allergenKey is null and a.id > :afterId
+      order by a.id
+    """)
+    List<KeylessView> findKeyless(Long afterId, Limit limit);
 }
@@ -1,13 +1,21 @@
 package org.nbu.medicalrecord.repositories;
 
+import jakarta.persistence.QueryHint;
+import org.nbu.medicalrecord.dtos.response.PatientAppointmentDtoResponse;
 import org.nbu.medicalrecord.entities.Appointment;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface AppointmentRepository extends JpaRepository<Appointment, Long> {
@@ -23,4 +31,62 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
     List<Appointment> findByPatient_Id(Long patientId);
 
     List<Appointment> findByDoctor_IdAndPatientIsNotNull(Long doctorId);
+
+    // Pre-generated slots (see DoctorSchedule): a row with patient == null is free.
+
+    // booking an existing free slot is one conditional update; 0 rows => taken or not offered
+    @Modifying
+    @Query(value = """
+      update appointments
+      set patient_id = :patientId
+      where doctor_id = :doctorId and date = :date and hour_of_visit = :hour and patient_id is null
+    """, nativeQuery = true)
+    int claimFreeSlot(Long doctorId, LocalDate date, LocalTime hour, Long patientId);
+
+    // a slot a visit refers to stays, even when its patient was cleared
+    @Modifying
+    @Query("""
+      delete from Appointment a
+      where a.doctor.id = :doctorId and a.patient is null and a.date >= :from
+        and not exists (select v.id from Visit v where v.appointment = a)
+    """)
+    int deleteFreeSlotsFrom(Long doctorId, LocalDate from);
+
+    // free slots of a doctor, in calendar order: a range scan on idx_appt_doctor_date_hour
+    @Query("""
+      select new org.nbu.medicalrecord.dtos.response.PatientAppointmentDtoResponse(
+          a.id, cast(null as Long), d.id, concat(u.firstName, ' ', u.lastName), a.date, a.hourOfAppointment)
+      from Appointment a
+      join a.doctor d
+      join d.user u
+      where d.id = :doctorId and a.date >= :from and a.patient is null
+      order by a.date, a.hourOfAppointment
+    """)
+    List<PatientAppointmentDtoResponse> findFreeSlotDtos(Long doctorId, LocalDate from);
+
+    @Query("""
+      select new org.nbu.medicalrecord.dtos.response.PatientAppointmentDtoResponse(
+          a.id, p.id, d.id, concat(u.firstName, ' ', u.lastName), a.date, a.hourOfAppointment)
+      from Appointment a
+      join a.doctor d
+      join d.user u
+      left join a.patient p
+      where d.id = :doctorId and a.date = :date and a.hourOfAppointment = :hour
+    """)
+    Optional<PatientAppointmentDtoResponse> findDtoBySlot(Long doctorId, LocalDate date, LocalTime hour);
+
+    // Booked (doctor, date, hour) triples only, for warming the in-memory slot index
+    interface SlotView {
+        Long getDoctorId();
+        LocalDate getDate();
+        LocalTime getHour();
+    }
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("""
+      select a.doctor.id as doctorId, a.date as date, a.hourOfAppointment as hour
+      from Appointment a
+      where a.date >= :from and a.patient is not null
+    """)
+    Stream<SlotView> streamSlotsFrom(LocalDate from);
 }
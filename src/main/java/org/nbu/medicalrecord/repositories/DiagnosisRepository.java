@@ -1,10 +1,13 @@
 package org.nbu.medicalrecord.repositories;
 
+import org.nbu.medicalrecord.dtos.response.DiagnosisDtoResponse;
 import org.nbu.medicalrecord.entities.Diagnosis;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -14,16 +17,35 @@ public interface DiagnosisRepository extends JpaRepository<Diagnosis, Long> {
 
     List<Diagnosis> findByDoctor_Id(Long doctorId);
 
-    interface DiagnosisResultCount {
-        String diagnosisResult();
-        long cnt();
+    // One representative (the oldest row) per diagnosis key: index lookups on idx_diagnosis_key,
+    // the LOB column is read for the representatives only.
+    @Query("""
+      select new org.nbu.medicalrecord.dtos.response.DiagnosisDtoResponse(
+          d.id, d.diagnosis, d.patient.id, doc.id, concat(u.firstName, ' ', u.lastName))
+      from Diagnosis d
+      join d.doctor doc
+      left join doc.user u
+      where d.id in (
+          select min(x.id)
+          from Diagnosis x
+          where x.diagnosisKey in :keys
+          group by x.diagnosisKey
+      )
+      order by d.id
+    """)
+    List<DiagnosisDtoResponse> findRepresentativesByKeys(Collection<String> keys);
+
+    // rows written before the diagnosis_key column existed
+    interface KeylessView {
+        Long getId();
+        String getDiagnosis();
     }
 
     @Query("""
-     select d.diagnosis as diagnosis, count(d) as cnt
-     from Diagnosis d
-     group by d.diagnosis
-     order by count(d) desc
-  """)
-    List<DiagnosisResultCount> countByDiagnosisResultDesc();
+      select d.id as id, d.diagnosis as diagnosis
+      from Diagnosis d
+      where d.diagnosisKey is null and d.id > :afterId
+      order by d.id
+    """)
+    List<KeylessView> findKeyless(Long afterId, Limit limit);
 }
@@ -1,13 +1,20 @@
 package org.nbu.medicalrecord.repositories;
 
+import jakarta.persistence.QueryHint;
 import org.nbu.medicalrecord.entities.Doctor;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface DoctorRepository extends JpaRepository<Doctor, Long> {
@@ -28,16 +35,28 @@ public interface DoctorRepository extends JpaRepository<Doctor, Long> {
            """)
     List<Doctor> findBySpecializationType(@Param("type") String type);
 
-    interface DoctorSickLeaveCount {
-        Long getDoctorId();
-        Long getCount();
+    // GP columns of patient listings, one row per specialization (none: a single row with null specialization)
+    interface GpView {
+        Long getId();
+        String getFirstName();
+        String getLastName();
+        boolean isGp();
+        Long getSpecializationId();
+        String getSpecializationType();
     }
 
     @Query("""
-    select sl.doctor.id as doctorId, count(sl) as count
-    from SickLeave sl
-    group by sl.doctor.id
-    order by count(sl) desc
-  """)
-    List<DoctorSickLeaveCount> countSickLeavesPerDoctor();
+           select d.id as id, u.firstName as firstName, u.lastName as lastName, d.gp as gp,
+                  s.id as specializationId, s.type as specializationType
+           from Doctor d
+           left join d.user u
+           left join d.specializations s
+           where d.id in :ids
+           """)
+    List<GpView> findGpViewsByIdIn(Collection<Long> ids);
+
+    List<Doctor> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    Stream<Doctor> streamAllByOrderByIdAsc();
 }
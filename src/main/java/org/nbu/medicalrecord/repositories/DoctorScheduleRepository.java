@@ -0,0 +1,20 @@
+package org.nbu.medicalrecord.repositories;
+
+import org.nbu.medicalrecord.entities.DoctorSchedule;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface DoctorScheduleRepository extends JpaRepository<DoctorSchedule, Long> {
+
+    Optional<DoctorSchedule> findByDoctor_Id(Long doctorId);
+
+    boolean existsByDoctor_Id(Long doctorId);
+
+    @Query("select s.id from DoctorSchedule s order by s.id")
+    List<Long> findAllIds();
+}
@@ -2,6 +2,7 @@ package org.nbu.medicalrecord.repositories;
 
 import org.nbu.medicalrecord.entities.HealthInsurance;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
@@ -16,6 +17,37 @@ public interface HealthInsuranceRepository extends JpaRepository<HealthInsurance
 
     Optional<HealthInsurance> findByPatient_IdAndMonthAndYear(Long patientId, Month month, int year);
 
+    // Set-based monthly generation: one statement per patient id range, idempotent thanks to NOT EXISTS
+    // and the (patient_id, month, year) unique constraint, so a re-run simply skips existing rows.
+    // The caller counts the missing rows first and reserves that many ids from firstId on; the rows are
+    // numbered in patient id order, and a patient added in between waits for the next run
+    @Query(value = """
+        select count(*) from patients p
+        where p.id > :fromId and p.id <= :toId
+          and not exists (
+              select 1 from health_insurances hi
+              where hi.patient_id = p.id and hi.month = :month and hi.year = :year
+          )
+    """, nativeQuery = true)
+    int countMissingForPatientIdRange(String month, int year, long fromId, long toId);
+
+    @Modifying
+    @Query(value = """
+        insert into health_insurances (id, patient_id, month, year, is_paid)
+        select :firstId + m.rn - 1, m.id, :month, :year, false
+        from (
+            select p.id, row_number() over (order by p.id) as rn
+            from patients p
+            where p.id > :fromId and p.id <= :toId
+              and not exists (
+                  select 1 from health_insurances hi
+                  where hi.patient_id = p.id and hi.month = :month and hi.year = :year
+              )
+        ) m
+        where m.rn <= :count
+    """, nativeQuery = true)
+    int insertMissingForPatientIdRange(String month, int year, long fromId, long toId, long firstId, int count);
+
     List<HealthInsurance> findByPatient_IdAndYearOrderByMonthAsc(Long patientId, int year);
 
     // Last 6 months for a patient, crossing year boundaries (requires numeric year)
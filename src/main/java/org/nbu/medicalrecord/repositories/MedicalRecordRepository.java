@@ -1,10 +1,17 @@
 package org.nbu.medicalrecord.repositories;
 
+import jakarta.persistence.QueryHint;
 import org.nbu.medicalrecord.entities.MedicalRecord;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface MedicalRecordRepository extends JpaRepository<MedicalRecord, Long> {
@@ -12,4 +19,9 @@ public interface MedicalRecordRepository extends JpaRepository<MedicalRecord, Lo
     Optional<MedicalRecord> findByPatient_Id(Long patientId);
 
     boolean existsByPatient_Id(Long patientId);
+
+    List<MedicalRecord> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    Stream<MedicalRecord> streamAllByOrderByIdAsc();
 }
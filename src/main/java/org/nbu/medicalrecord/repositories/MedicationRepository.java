@@ -1,13 +1,24 @@
 package org.nbu.medicalrecord.repositories;
 
+import jakarta.persistence.QueryHint;
 import org.nbu.medicalrecord.entities.Medication;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface MedicationRepository extends JpaRepository<Medication, Long> {
+
+    List<Medication> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    Stream<Medication> streamAllByOrderByIdAsc();
 }
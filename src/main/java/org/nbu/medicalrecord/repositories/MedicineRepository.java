@@ -1,10 +1,17 @@
 package org.nbu.medicalrecord.repositories;
 
+import jakarta.persistence.QueryHint;
 import org.nbu.medicalrecord.entities.Medicine;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface MedicineRepository extends JpaRepository<Medicine, Long> {
@@ -12,4 +19,12 @@ public interface MedicineRepository extends JpaRepository<Medicine, Long> {
     Optional<Medicine> findByNameIgnoreCaseAndMg(String name, int mg);
 
     boolean existsByNameIgnoreCaseAndMg(String name, int mg);
+
+    // search fallback while the in-memory index (MedicineSearchIndex) is not loaded
+    List<Medicine> findByNameStartingWithIgnoreCaseOrderByNameAscMgAsc(String prefix, Limit limit);
+
+    List<Medicine> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    Stream<Medicine> streamAllByOrderByIdAsc();
 }
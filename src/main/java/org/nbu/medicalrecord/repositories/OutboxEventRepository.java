@@ -0,0 +1,45 @@
+package org.nbu.medicalrecord.repositories;
+
+import org.nbu.medicalrecord.entities.OutboxEvent;
+import org.nbu.medicalrecord.entities.OutboxEvent.Status;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // due events in idx_outbox_status_available order, so the scan stops at the batch; SKIP LOCKED lets
+    // dispatchers on other instances pass over the rows this one is claiming instead of waiting for them.
+    // Native: Hibernate renders SKIP LOCKED for MySQL only, while H2 (the tests) understands the statement.
+    @Query(value = """
+      select * from outbox_events
+      where status = 'PENDING' and available_at <= :now
+      order by available_at, id
+      limit :limit
+      for update skip locked
+    """, nativeQuery = true)
+    List<OutboxEvent> lockDue(Instant now, int limit);
+
+    @Modifying
+    @Query("update OutboxEvent e set e.status = :status, e.processedAt = :processedAt, e.lastError = :error where e.id = :id")
+    int finish(long id, Status status, Instant processedAt, String error);
+
+    @Modifying
+    @Query("update OutboxEvent e set e.status = :status, e.availableAt = :availableAt, e.lastError = :error where e.id = :id")
+    int retryAt(long id, Status status, Instant availableAt, String error);
+
+    // lag: the oldest event not handled yet
+    @Query("select min(e.createdAt) from OutboxEvent e where e.status = :status")
+    Instant findOldestCreatedAt(Status status);
+
+    long countByStatus(Status status);
+
+    @Modifying
+    @Query("delete from OutboxEvent e where e.status = :status and e.processedAt < :before")
+    int deleteProcessedBefore(Status status, Instant before);
+}
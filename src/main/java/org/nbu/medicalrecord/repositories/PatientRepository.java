@@ -1,12 +1,19 @@
 package org.nbu.medicalrecord.repositories;
 
+import jakarta.persistence.QueryHint;
 import org.nbu.medicalrecord.entities.Patient;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface PatientRepository extends JpaRepository<Patient, Long> {
@@ -24,6 +31,9 @@ public interface PatientRepository extends JpaRepository<Patient, Long> {
 
     int countByGp_Id(Long doctorId);
 
+    @Query("select coalesce(max(p.id), 0) from Patient p")
+    long findMaxId();
+
     // Patients who have at least one diagnosis created by doctor
     @Query("""
       select distinct d.patient
@@ -32,34 +42,83 @@ public interface PatientRepository extends JpaRepository<Patient, Long> {
     """)
     List<Patient> findDistinctByVisitedDoctor(Long doctorId);
 
-    @Query("""
-      select count(distinct d.patient.id)
-      from Diagnosis d
-      where d.doctor.id = :doctorId
-    """)
-    int countDistinctByVisitedDoctor(Long doctorId);
-
-    // Patients with a specific diagnosis result
+    // Patients with a specific diagnosis result (matched by DiagnosisKeyUtil.keyOf, an indexed lookup)
     @Query("""
       select distinct d.patient
       from Diagnosis d
-      where d.diagnosis = :result
+      where d.diagnosisKey = :diagnosisKey
     """)
-    List<Patient> findDistinctByDiagnosis(String diagnosis);
+    List<Patient> findDistinctByDiagnosisKey(String diagnosisKey);
 
     @Query("""
       select count(distinct d.patient.id)
       from Diagnosis d
-      where d.diagnosis = :result
+      where d.diagnosisKey = :diagnosisKey
     """)
-    int countDistinctByDiagnosis(String diagnosis);
+    int countDistinctByDiagnosisKey(String diagnosisKey);
 
-    // Patients with at least one allergy (by allergen name)
+    // Patients with at least one allergy (by allergen key, see AllergenKeyUtil)
     @Query("""
     select distinct p
     from Patient p
     join p.allergies a
-    where lower(a.allergen) = lower(:allergen)
+    where a.allergenKey = :allergenKey
+    """)
+    List<Patient> findDistinctByAllergenKey(String allergenKey);
+
+    List<Patient> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    Stream<Patient> streamAllByOrderByIdAsc();
+
+    // Patient search (see NameKeyUtil). Each query is a range scan on one of the users' name key indexes in
+    // index order, resumed after the (key, user id) of a cursor; the egn pattern is '%' when not filtering.
+    // Only the listed columns are read: loading the entities would pull in their eager one-to-one sides.
+    interface SearchHitView {
+        String getSortKey();
+        Long getUserId();
+        Long getPatientId();
+        String getFirstName();
+        String getLastName();
+        LocalDate getBirthDate();
+        Long getGpId();
+    }
+
+    @Query("""
+      select u.nameKey as sortKey, u.id as userId, p.id as patientId, u.firstName as firstName,
+             u.lastName as lastName, p.birthDate as birthDate, p.gp.id as gpId
+      from Patient p
+      join p.user u
+      where u.nameKey like :pattern
+        and u.egn like :egnPattern
+        and (u.nameKey > :afterKey or (u.nameKey = :afterKey and u.id > :afterUserId))
+      order by u.nameKey, u.id
+    """)
+    List<SearchHitView> searchByNameKey(String pattern, String egnPattern, String afterKey, long afterUserId, Limit limit);
+
+    // names matching first name first; those already found by last name first are left out
+    @Query("""
+      select u.reversedNameKey as sortKey, u.id as userId, p.id as patientId, u.firstName as firstName,
+             u.lastName as lastName, p.birthDate as birthDate, p.gp.id as gpId
+      from Patient p
+      join p.user u
+      where u.reversedNameKey like :pattern
+        and u.nameKey not like :pattern
+        and u.egn like :egnPattern
+        and (u.reversedNameKey > :afterKey or (u.reversedNameKey = :afterKey and u.id > :afterUserId))
+      order by u.reversedNameKey, u.id
+    """)
+    List<SearchHitView> searchByReversedNameKey(String pattern, String egnPattern, String afterKey, long afterUserId, Limit limit);
+
+    // EGNs are unique, so they order the pages on their own
+    @Query("""
+      select u.egn as sortKey, u.id as userId, p.id as patientId, u.firstName as firstName,
+             u.lastName as lastName, p.birthDate as birthDate, p.gp.id as gpId
+      from Patient p
+      join p.user u
+      where u.egn like :egnPattern
+        and u.egn > :afterEgn
+      order by u.egn
     """)
-    List<Patient> findDistinctByAllergen(String allergen);
+    List<SearchHitView> searchByEgn(String egnPattern, String afterEgn, Limit limit);
 }
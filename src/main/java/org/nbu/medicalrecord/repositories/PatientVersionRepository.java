@@ -0,0 +1,25 @@
+package org.nbu.medicalrecord.repositories;
+
+import org.nbu.medicalrecord.entities.PatientVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface PatientVersionRepository extends JpaRepository<PatientVersion, Long> {
+
+    // one round-trip upsert; the row lock it takes serializes concurrent writers of the same patient
+    @Modifying
+    @Query(value = """
+      insert into patient_versions (patient_id, version)
+      values (:patientId, 1)
+      on duplicate key update version = version + 1
+    """, nativeQuery = true)
+    void bump(long patientId);
+
+    @Query("select v.version from PatientVersion v where v.patientId = :patientId")
+    Optional<Long> findVersion(long patientId);
+}
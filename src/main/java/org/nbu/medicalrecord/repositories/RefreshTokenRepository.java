@@ -0,0 +1,40 @@
+package org.nbu.medicalrecord.repositories;
+
+import org.nbu.medicalrecord.entities.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Optional;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    @Query("""
+      select t from RefreshToken t
+      join fetch t.user
+      where t.tokenHash = :tokenHash
+    """)
+    Optional<RefreshToken> findWithUserByTokenHash(String tokenHash);
+
+    // compare-and-set: of two concurrent refreshes with the same token exactly one wins
+    @Modifying
+    @Query("""
+      update RefreshToken t set t.usedAt = :now
+      where t.id = :id and t.usedAt is null and t.revokedAt is null
+    """)
+    int markUsed(Long id, Instant now);
+
+    @Modifying
+    @Query("""
+      update RefreshToken t set t.revokedAt = :now
+      where t.familyId = :familyId and t.revokedAt is null
+    """)
+    int revokeFamily(String familyId, Instant now);
+
+    @Modifying
+    @Query("delete from RefreshToken t where t.expiresAt < :before")
+    int deleteExpiredBefore(Instant before);
+}
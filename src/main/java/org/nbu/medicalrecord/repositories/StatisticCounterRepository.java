@@ -0,0 +1,95 @@
+package org.nbu.medicalrecord.repositories;
+
+import org.nbu.medicalrecord.entities.StatisticCounter;
+import org.nbu.medicalrecord.entities.StatisticCounter.Kind;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StatisticCounterRepository extends JpaRepository<StatisticCounter, StatisticCounter.CounterId> {
+
+    // one round-trip upsert; the row lock it takes serializes concurrent writers of the same counter
+    @Modifying
+    @Query(value = """
+      insert into statistic_counters (kind, counter_key, counter_value)
+      values (:kind, :key, :delta)
+      on duplicate key update counter_value = counter_value + :delta
+    """, nativeQuery = true)
+    void add(String kind, String key, long delta);
+
+    @Query("select c.counterValue from StatisticCounter c where c.id.kind = :kind and c.id.counterKey = :key")
+    Optional<Long> findValue(Kind kind, String key);
+
+    // non-zero counters of a kind, largest first (a range scan on idx_counter_kind_value)
+    @Query("""
+      select c
+      from StatisticCounter c
+      where c.id.kind = :kind and c.counterValue > 0
+      order by c.counterValue desc, c.id.counterKey
+    """)
+    List<StatisticCounter> findNonZeroDesc(Kind kind);
+
+    @Query("""
+      select c.id.counterKey
+      from StatisticCounter c
+      where c.id.kind = :kind and c.counterValue > 0
+        and c.counterValue = (select max(m.counterValue) from StatisticCounter m where m.id.kind = :kind)
+      order by c.id.counterKey
+    """)
+    List<String> findKeysWithMaxValue(Kind kind);
+
+    @Modifying
+    @Query(value = "delete from statistic_counters", nativeQuery = true)
+    void deleteAllCounters();
+
+    @Modifying
+    @Query(value = """
+      insert into statistic_counters (kind, counter_key, counter_value)
+      select 'SICK_LEAVES_BY_MONTH', concat('', month(s.from_date)), count(*)
+      from sick_leaves s
+      group by month(s.from_date)
+    """, nativeQuery = true)
+    int rebuildSickLeavesByMonth();
+
+    @Modifying
+    @Query(value = """
+      insert into statistic_counters (kind, counter_key, counter_value)
+      select 'SICK_LEAVES_BY_DOCTOR', concat('', s.doctor_id), count(*)
+      from sick_leaves s
+      group by s.doctor_id
+    """, nativeQuery = true)
+    int rebuildSickLeavesByDoctor();
+
+    @Modifying
+    @Query(value = """
+      insert into statistic_counters (kind, counter_key, counter_value)
+      select 'DIAGNOSES_BY_KEY', d.diagnosis_key, count(*)
+      from diagnoses d
+      where d.diagnosis_key is not null
+      group by d.diagnosis_key
+    """, nativeQuery = true)
+    int rebuildDiagnosesByKey();
+
+    @Modifying
+    @Query(value = """
+      insert into statistic_counters (kind, counter_key, counter_value)
+      select 'DIAGNOSES_BY_DOCTOR_PATIENT', concat(d.doctor_id, ':', d.patient_id), count(*)
+      from diagnoses d
+      group by d.doctor_id, d.patient_id
+    """, nativeQuery = true)
+    int rebuildDiagnosesByDoctorPatient();
+
+    @Modifying
+    @Query(value = """
+      insert into statistic_counters (kind, counter_key, counter_value)
+      select 'PATIENTS_BY_DOCTOR', concat('', d.doctor_id), count(distinct d.patient_id)
+      from diagnoses d
+      group by d.doctor_id
+    """, nativeQuery = true)
+    int rebuildPatientsByDoctor();
+}
@@ -0,0 +1,131 @@
+package org.nbu.medicalrecord.repositories;
+
+import org.nbu.medicalrecord.entities.TimelineEvent;
+import org.nbu.medicalrecord.entities.TimelineEvent.Kind;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.List;
+
+@Repository
+public interface TimelineEventRepository extends JpaRepository<TimelineEvent, Long> {
+
+    // newest first, resumed before the (date, id) of a cursor: one range scan on idx_timeline_patient_date
+    @Query("""
+      select e from TimelineEvent e
+      where e.patientId = :patientId
+        and (e.eventDate < :beforeDate or (e.eventDate = :beforeDate and e.id < :beforeId))
+      order by e.eventDate desc, e.id desc
+    """)
+    List<TimelineEvent> findPage(long patientId, LocalDate beforeDate, long beforeId, Limit limit);
+
+    @Modifying
+    @Query("delete from TimelineEvent e where e.kind = :kind and e.sourceId = :sourceId")
+    int deleteBySource(Kind kind, long sourceId);
+
+    @Modifying
+    @Query("delete from TimelineEvent e where e.patientId > :fromId and e.patientId <= :toId")
+    int deleteForPatientIdRange(long fromId, long toId);
+
+    // Rebuild sources, per patient id range. Only the columns a summary needs are read.
+
+    interface VisitSource {
+        Long getId();
+        Long getPatientId();
+        LocalDate getDate();
+        String getDoctorFirstName();
+        String getDoctorLastName();
+        String getComplaints();
+    }
+
+    @Query("""
+      select v.id as id, a.patient.id as patientId, a.date as date, u.firstName as doctorFirstName,
+             u.lastName as doctorLastName, v.complaints as complaints
+      from Visit v
+      join v.appointment a
+      join a.doctor.user u
+      where a.patient.id > :fromId and a.patient.id <= :toId
+    """)
+    List<VisitSource> findVisitSources(long fromId, long toId);
+
+    // one row per prescribed medicine, or one without a medicine for an empty medication
+    interface MedicineSource {
+        Long getMedicationId();
+        Long getPatientId();
+        LocalDate getDate();
+        String getPrescription();
+        String getName();
+        Integer getMg();
+    }
+
+    @Query("""
+      select m.id as medicationId, a.patient.id as patientId, a.date as date, m.prescription as prescription,
+             med.name as name, med.mg as mg
+      from Visit v
+      join v.medication m
+      join v.appointment a
+      left join m.medicines med
+      where a.patient.id > :fromId and a.patient.id <= :toId
+    """)
+    List<MedicineSource> findMedicineSources(long fromId, long toId);
+
+    interface DiagnosisSource {
+        Long getId();
+        Long getPatientId();
+        LocalDate getDate();
+        String getDoctorFirstName();
+        String getDoctorLastName();
+        String getDiagnosis();
+    }
+
+    // rows from before diagnosedOn existed are dated by the visit that refers to them, if any
+    @Query("""
+      select d.id as id, d.patient.id as patientId, coalesce(d.diagnosedOn, a.date) as date,
+             u.firstName as doctorFirstName, u.lastName as doctorLastName, d.diagnosis as diagnosis
+      from Diagnosis d
+      join d.doctor.user u
+      left join Visit v on v.diagnosis = d
+      left join v.appointment a
+      where d.patient.id > :fromId and d.patient.id <= :toId
+        and coalesce(d.diagnosedOn, a.date) is not null
+    """)
+    List<DiagnosisSource> findDiagnosisSources(long fromId, long toId);
+
+    interface SickLeaveSource {
+        Long getId();
+        Long getPatientId();
+        LocalDate getFromDate();
+        LocalDate getToDate();
+        String getReason();
+        String getDoctorFirstName();
+        String getDoctorLastName();
+    }
+
+    @Query("""
+      select s.id as id, s.patient.id as patientId, s.fromDate as fromDate, s.toDate as toDate, s.reason as reason,
+             u.firstName as doctorFirstName, u.lastName as doctorLastName
+      from SickLeave s
+      join s.doctor.user u
+      where s.patient.id > :fromId and s.patient.id <= :toId
+    """)
+    List<SickLeaveSource> findSickLeaveSources(long fromId, long toId);
+
+    interface HealthInsuranceSource {
+        Long getId();
+        Long getPatientId();
+        Month getMonth();
+        Integer getYear();
+    }
+
+    @Query("""
+      select hi.id as id, hi.patient.id as patientId, hi.month as month, hi.year as year
+      from HealthInsurance hi
+      where hi.patient.id > :fromId and hi.patient.id <= :toId and hi.isPaid = true
+    """)
+    List<HealthInsuranceSource> findPaidHealthInsuranceSources(long fromId, long toId);
+}
@@ -1,9 +1,13 @@
 package org.nbu.medicalrecord.repositories;
 
 import org.nbu.medicalrecord.entities.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -12,4 +16,42 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
 
     boolean existsByEmail(String email);
+
+    // set-based duplicate checks of the bulk import, one query per chunk instead of one per row
+    @Query("select u.email from User u where u.email in :emails")
+    List<String> findExistingEmails(Collection<String> emails);
+
+    @Query("select u.egn from User u where u.egn in :egns")
+    List<String> findExistingEgns(Collection<String> egns);
+
+    // Ids only, for authorization checks: no entity is loaded
+    interface IdentityView {
+        Long getUserId();
+        Long getDoctorId();
+        Long getPatientId();
+    }
+
+    @Query("""
+      select u.id as userId, d.id as doctorId, p.id as patientId
+      from User u
+      left join Doctor d on d.user = u
+      left join Patient p on p.user = u
+      where u.email = :email
+    """)
+    Optional<IdentityView> findIdentityByEmail(String email);
+
+    // rows written before the name key columns existed
+    interface NamelessView {
+        Long getId();
+        String getFirstName();
+        String getLastName();
+    }
+
+    @Query("""
+      select u.id as id, u.firstName as firstName, u.lastName as lastName
+      from User u
+      where u.nameKey is null and u.id > :afterId
+      order by u.id
+    """)
+    List<NamelessView> findWithoutNameKey(Long afterId, Limit limit);
 }
@@ -1,7 +1,9 @@
 package org.nbu.medicalrecord.repositories;
 
+import org.nbu.medicalrecord.dtos.response.VisitDtoResponse;
 import org.nbu.medicalrecord.entities.Visit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
@@ -17,13 +19,47 @@ public interface VisitRepository extends JpaRepository<Visit, Long> {
     // doctor’s visits (by appointment.doctor)
     List<Visit> findByAppointment_Doctor_IdOrderByAppointment_DateDesc(Long doctorId);
 
-    // patient’s visits (by medicalRecord.patient)
-    List<Visit> findByMedicalRecord_Patient_IdOrderByAppointment_DateDesc(Long patientId);
+    // Visit listings are projected straight into VisitDtoResponse: one statement per listing,
+    // no Visit entities (and none of their associations) are loaded.
+    // The listings differ only in their where clause.
+    String DTO_SELECT = """
+      select new org.nbu.medicalrecord.dtos.response.VisitDtoResponse(
+          v.id, concat(u.firstName, ' ', u.lastName), a.id, mr.id, sl.id, m.id, dg.id,
+          v.complaints, v.medicalHistory, v.requiredTests)
+      from Visit v
+      join v.appointment a
+      join a.doctor d
+      join d.user u
+      join v.medicalRecord mr
+      left join v.sickLeave sl
+      left join v.medication m
+      left join v.diagnosis dg
+    """;
 
-    List<Visit> findByMedicalRecord_Patient_IdAndAppointment_DateBetweenOrderByAppointment_DateDesc(
-            Long patientId, LocalDate from, LocalDate to);
+    @Query(DTO_SELECT + """
+      where d.id = :doctorId
+      order by a.date desc
+    """)
+    List<VisitDtoResponse> findDtosByDoctor(Long doctorId);
 
-    List<Visit> findByAppointment_Doctor_IdAndAppointment_DateBetweenOrderByAppointment_DateDesc(
-            Long doctorId, LocalDate from, LocalDate to);
+    @Query(DTO_SELECT + """
+      where d.id = :doctorId
+        and a.date between :from and :to
+      order by a.date desc
+    """)
+    List<VisitDtoResponse> findDtosByDoctorInPeriod(Long doctorId, LocalDate from, LocalDate to);
+
+    @Query(DTO_SELECT + """
+      where mr.patient.id = :patientId
+      order by a.date desc
+    """)
+    List<VisitDtoResponse> findDtosByPatient(Long patientId);
+
+    @Query(DTO_SELECT + """
+      where mr.patient.id = :patientId
+        and a.date between :from and :to
+      order by a.date desc
+    """)
+    List<VisitDtoResponse> findDtosByPatientInPeriod(Long patientId, LocalDate from, LocalDate to);
 
 }
@@ -1,69 +1,46 @@
 package org.nbu.medicalrecord.security;
 
 import lombok.RequiredArgsConstructor;
-import org.nbu.medicalrecord.entities.Doctor;
-import org.nbu.medicalrecord.entities.Patient;
 import org.nbu.medicalrecord.repositories.AppointmentRepository;
-import org.nbu.medicalrecord.repositories.DoctorRepository;
 import org.nbu.medicalrecord.repositories.PatientRepository;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
-import org.springframework.util.StringUtils;
 
 @Component("authz") // name used inside @PreAuthorize
 @RequiredArgsConstructor
 public class AuthorizationHelper {
 
-    private final DoctorRepository doctorRepository;
+    private final IdentityResolver identityResolver;
     private final PatientRepository patientRepository;
     private final AppointmentRepository appointmentRepository;
 
     public boolean isDoctor(Authentication authentication, Long doctorId) {
-        String email = principalEmail(authentication);
-        if (!StringUtils.hasText(email) || doctorId == null) return false;
-
-        Doctor doctor = doctorRepository.findByUser_Email(email).isPresent()
-                ? doctorRepository.findByUser_Email(email).get() : null;
-
-        return doctor != null && doctorId.equals(doctor.getId());
+        if (doctorId == null) return false;
+        return doctorId.equals(identityResolver.resolve(authentication).doctorId());
     }
 
     public boolean isPatient(Authentication authentication, Long patientId) {
-        String email = principalEmail(authentication);
-        if (!StringUtils.hasText(email) || patientId == null) return false;
-
-        Patient patient = patientRepository.findByUser_Email(email).isPresent()
-                ? patientRepository.findByUser_Email(email).get() : null;
-
-        return patient != null && patientId.equals(patient.getId());
+        if (patientId == null) return false;
+        return patientId.equals(identityResolver.resolve(authentication).patientId());
     }
 
     /** Is the authenticated doctor the GP of this patient? */
     public boolean isDoctorOfPatient(Authentication authentication, Long patientId) {
-        String email = principalEmail(authentication);
-        if (!StringUtils.hasText(email) || patientId == null) return false;
+        if (patientId == null) return false;
 
-        Doctor doctor = doctorRepository.findByUser_Email(email).isPresent()
-                ? doctorRepository.findByUser_Email(email).get() : null;
+        Long doctorId = identityResolver.resolve(authentication).doctorId();
+        if (doctorId == null) return false;
 
-        if (doctor == null) return false;
-
-        return patientRepository.existsByIdAndGp_Id(patientId, doctor.getId());
+        return patientRepository.existsByIdAndGp_Id(patientId, doctorId);
     }
 
     /** Does the authenticated doctor own this appointment? */
     public boolean isDoctorOfAppointment(Authentication authentication, Long appointmentId) {
-        String email = principalEmail(authentication);
-        if (!StringUtils.hasText(email) || appointmentId == null) return false;
-
-        Doctor doctor = doctorRepository.findByUser_Email(email).isPresent()
-                ? doctorRepository.findByUser_Email(email).get() : null;
+        if (appointmentId == null) return false;
 
-        if (doctor == null) return false;
-        return appointmentRepository.existsByIdAndDoctor_Id(appointmentId, doctor.getId());
-    }
+        Long doctorId = identityResolver.resolve(authentication).doctorId();
+        if (doctorId == null) return false;
 
-    private String principalEmail(Authentication authentication) {
-        return (authentication == null) ? null : authentication.getName();
+        return appointmentRepository.existsByIdAndDoctor_Id(appointmentId, doctorId);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,72 @@
+package org.nbu.medicalrecord.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.nbu.medicalrecord.repositories.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Maps the authenticated email to the ids used by authorization checks
+ * ({userId, doctorId, patientId}). Resolved with one id-only query on a miss and
+ * cached across requests; entries are evicted by {@link UserChangeListener} and
+ * {@link ProfileChangeListener} when a user or its doctor/patient profile changes.
+ */
+@Component
+public class IdentityResolver {
+
+    private final UserRepository userRepository;
+    private final Cache<String, ResolvedIdentity> identities;
+    private final AtomicLong evictions = new AtomicLong();
+
+    public IdentityResolver(UserRepository userRepository,
+                            @Value("${vsecurity.identity-cache.ttl-seconds:600}") long ttlSeconds,
+                            @Value("${vsecurity.identity-cache.max-size:100000}") long maxSize) {
+        this.userRepository = userRepository;
+        this.identities = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    public ResolvedIdentity resolve(Authentication authentication) {
+        String email = (authentication == null) ? null : authentication.getName();
+        if (!StringUtils.hasText(email)) return ResolvedIdentity.NONE;
+
+        // loaded outside the cache's lock, see PrincipalCache.get
+        ResolvedIdentity cached = identities.getIfPresent(email);
+        if (cached != null) return cached;
+
+        long seen = evictions.get();
+        ResolvedIdentity loaded = load(email);
+        identities.put(email, loaded);
+        if (evictions.get() != seen) identities.invalidate(email);
+        return loaded;
+    }
+
+    public void evict(String email) {
+        if (email == null) return;
+        evictions.incrementAndGet();
+        identities.invalidate(email);
+    }
+
+    public void evictAll() {
+        evictions.incrementAndGet();
+        identities.invalidateAll();
+    }
+
+    private ResolvedIdentity load(String email) {
+        return userRepository.findIdentityByEmail(email)
+                .map(v -> new ResolvedIdentity(v.getUserId(), v.getDoctorId(), v.getPatientId()))
+                .orElse(ResolvedIdentity.NONE);
+    }
+
+    public record ResolvedIdentity(Long userId, Long doctorId, Long patientId) {
+        static final ResolvedIdentity NONE = new ResolvedIdentity(null, null, null);
+    }
+}
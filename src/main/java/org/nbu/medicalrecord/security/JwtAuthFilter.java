@@ -1,37 +1,49 @@
 package org.nbu.medicalrecord.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.Set;
 
 @Component
 @RequiredArgsConstructor
 public class JwtAuthFilter extends OncePerRequestFilter {
     private final JwtUtil jwt;
-    private final UserDetailsService uds;
+    private final PrincipalCache principalCache;
 
     @Override
     protected void doFilterInternal(HttpServletRequest req, HttpServletResponse res, FilterChain chain)
             throws ServletException, IOException {
 
         String h = req.getHeader("Authorization");
-        if (h != null && h.startsWith("Bearer ")) {
-            String token = h.substring(7);
-            String subject = jwt.subject(token);
-            if (subject != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails user = uds.loadUserByUsername(subject);
-                if (jwt.valid(token, user)) {
-                    var auth = new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
+        if (h != null && h.startsWith("Bearer ") && SecurityContextHolder.getContext().getAuthentication() == null) {
+            // one parse checks signature + expiry; the signed "auth" claim carries the authorities
+            Claims claims = jwt.parse(h.substring(7));
+            String subject = claims != null ? claims.getSubject() : null;
+            if (subject != null) {
+                Set<String> tokenAuthorities = jwt.authorities(claims);
+                PrincipalCache.CachedAccount account = principalCache.get(subject);
+
+                // a token issued before the account was locked or re-authorized is no longer honoured
+                if (account.active() && account.authorities().equals(tokenAuthorities)) {
+                    List<SimpleGrantedAuthority> authorities = tokenAuthorities.stream()
+                            .map(SimpleGrantedAuthority::new)
+                            .toList();
+                    UserDetails user = User.withUsername(subject).password("").authorities(authorities).build();
+                    var auth = new UsernamePasswordAuthenticationToken(user, null, authorities);
                     SecurityContextHolder.getContext().setAuthentication(auth);
                 }
             }
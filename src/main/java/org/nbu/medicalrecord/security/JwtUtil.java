@@ -1,17 +1,22 @@
 package org.nbu.medicalrecord.security;
 
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import java.security.Key;
 import java.util.Base64;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Component
@@ -24,31 +29,50 @@ public class JwtUtil {
             )
     );
 
-    private static final long EXP_MS = 15 * 60 * 1000; // 15 minutes
+    // short-lived on purpose: clients renew through /auth/refresh, not by logging in again
+    @Value("${vsecurity.jwt.exp-min:15}")
+    private long expMinutes = 15;
+
+    // the parser is immutable and thread-safe, no need to rebuild it for every token
+    private final JwtParser parser = Jwts.parserBuilder().setSigningKey(key).build();
 
     public String generate(UserDetails user) {
-        Date now = new Date();
         List<String> auth = user.getAuthorities()
                 .stream().map(GrantedAuthority::getAuthority).collect(Collectors.toList());
+        return generate(user.getUsername(), auth);
+    }
+
+    public String generate(String email, Collection<String> authorities) {
+        Date now = new Date();
         return Jwts.builder()
-                .setSubject(user.getUsername()) // email
-                .claim("auth", auth)
+                .setSubject(email)
+                .claim("auth", authorities)
                 .setIssuedAt(now)
-                .setExpiration(new Date(now.getTime() + EXP_MS))
+                .setExpiration(new Date(now.getTime() + expiresInSeconds() * 1000))
                 .signWith(key, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    public String subject(String token) {
-        return parser().parseClaimsJws(token).getBody().getSubject();
+    public long expiresInSeconds() {
+        return expMinutes * 60;
     }
 
-    public boolean valid(String token, UserDetails ud) {
-        var b = parser().parseClaimsJws(token).getBody();
-        return ud.getUsername().equals(b.getSubject()) && b.getExpiration().after(new Date());
+    /**
+     * Verifies signature and expiry in a single parse.
+     * Returns the claims of a valid token or null if the token is malformed, tampered with or expired.
+     */
+    public Claims parse(String token) {
+        try {
+            return parser.parseClaimsJws(token).getBody();
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
     }
 
-    private JwtParser parser() {
-        return Jwts.parserBuilder().setSigningKey(key).build();
+    /** Authorities from the signed "auth" claim written by {@link #generate(UserDetails)}. */
+    public Set<String> authorities(Claims claims) {
+        Object auth = claims.get("auth");
+        if (!(auth instanceof Collection<?> values)) return Set.of();
+        return values.stream().map(String::valueOf).collect(Collectors.toUnmodifiableSet());
     }
 }
\ No newline at end of file
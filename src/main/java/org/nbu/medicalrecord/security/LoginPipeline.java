@@ -0,0 +1,177 @@
+package org.nbu.medicalrecord.security;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Password logins run on a small dedicated pool instead of the servlet threads, so a login burst
+ * (Monday morning, credential stuffing) costs at most {@code hashing-threads} cores of BCrypt and the
+ * rest of the API keeps its CPU. The pool has a bounded queue: when it is full, or a login waited
+ * longer than {@code max-wait-ms}, the request gets a 503 with Retry-After instead of piling up.
+ * Accounts and addresses with too many failures are refused by {@link LoginThrottle} before hashing.
+ */
+@Slf4j
+@Component
+public class LoginPipeline {
+
+    private final AuthenticationManager authManager;
+    private final LoginThrottle throttle;
+    private final ThreadPoolExecutor hashing;
+    private final long maxWaitMillis;
+    private final long retryAfterSeconds;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder queueWaits = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final LongAdder hashed = new LongAdder();
+    private final LongAdder hashNanos = new LongAdder();
+    private final LongAccumulator maxQueueWaitNanos = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator maxHashNanos = new LongAccumulator(Math::max, 0);
+
+    public LoginPipeline(AuthenticationManager authManager,
+                         LoginThrottle throttle,
+                         @Value("${vsecurity.login.hashing-threads:0}") int threads,
+                         @Value("${vsecurity.login.queue-capacity:64}") int queueCapacity,
+                         @Value("${vsecurity.login.max-wait-ms:5000}") long maxWaitMillis,
+                         @Value("${vsecurity.login.retry-after-seconds:2}") long retryAfterSeconds) {
+        this.authManager = authManager;
+        this.throttle = throttle;
+        this.maxWaitMillis = maxWaitMillis;
+        this.retryAfterSeconds = retryAfterSeconds;
+
+        // 0 = half of the cores, the other half stays with the rest of the API
+        int size = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.hashing = new ThreadPoolExecutor(size, size, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                Thread.ofPlatform().name("login-hash-", 1).daemon(true).factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        log.info("Login hashing pool: {} threads, queue of {}", size, queueCapacity);
+    }
+
+    /**
+     * Verifies the password on the hashing pool and waits for the result.
+     *
+     * @throws LoginRejectedException 429 when throttled, 503 when the pool is saturated
+     * @throws BadCredentialsException wrong email or password (counted as a failure)
+     */
+    public Authentication authenticate(String email, String password, String ip) {
+        throttle.checkAllowed(email, ip);
+
+        long enqueued = System.nanoTime();
+        Future<Authentication> result;
+        try {
+            result = hashing.submit(() -> {
+                long started = System.nanoTime();
+                record(queueWaits, queueWaitNanos, maxQueueWaitNanos, started - enqueued);
+                try {
+                    return authManager.authenticate(new UsernamePasswordAuthenticationToken(email, password));
+                } finally {
+                    record(hashed, hashNanos, maxHashNanos, System.nanoTime() - started);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw busy();
+        }
+        accepted.increment();
+
+        try {
+            Authentication auth = result.get(maxWaitMillis, TimeUnit.MILLISECONDS);
+            throttle.recordSuccess(email);
+            return auth;
+        } catch (TimeoutException e) {
+            // a queued login is dropped without hashing, a running one finishes and is discarded
+            result.cancel(true);
+            timedOut.increment();
+            throw busy();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw busy();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof BadCredentialsException bad) {
+                throttle.recordFailure(email, ip);
+                throw bad;
+            }
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new IllegalStateException("Login failed", e.getCause());
+        }
+    }
+
+    public LoginStats stats() {
+        Timing queueWait = queueWait();
+        Timing hash = hashTime();
+        return new LoginStats(
+                accepted.sum(),
+                rejected.sum(),
+                timedOut.sum(),
+                throttle.throttledCount(),
+                hashing.getActiveCount(),
+                hashing.getQueue().size(),
+                queueWait.avgMillis(),
+                millis(queueWait.maxNanos()),
+                hash.avgMillis(),
+                millis(hash.maxNanos())
+        );
+    }
+
+    /** Time from submitting a login until a hashing thread picks it up; dropped logins never get one. */
+    public Timing queueWait() {
+        return new Timing(queueWaits.sum(), queueWaitNanos.sum(), maxQueueWaitNanos.get());
+    }
+
+    /** Time a hashing thread spends on one login, BCrypt and the user lookup. */
+    public Timing hashTime() {
+        return new Timing(hashed.sum(), hashNanos.sum(), maxHashNanos.get());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashing.shutdownNow();
+    }
+
+    private LoginRejectedException busy() {
+        return new LoginRejectedException(HttpStatus.SERVICE_UNAVAILABLE, retryAfterSeconds, "Too many logins in progress, try again shortly");
+    }
+
+    private static void record(LongAdder count, LongAdder total, LongAccumulator max, long nanos) {
+        count.increment();
+        total.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    public record LoginStats(long accepted, long rejected, long timedOut, long throttled,
+                             int hashing, int queued,
+                             double avgQueueWaitMs, double maxQueueWaitMs,
+                             double avgHashMs, double maxHashMs) {
+    }
+
+    public record Timing(long count, long totalNanos, long maxNanos) {
+        public double avgMillis() {
+            return count == 0 ? 0 : millis(totalNanos) / count;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package org.nbu.medicalrecord.security;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+/**
+ * A login that was turned away before any password hashing: 429 when the account or the client
+ * address failed too often, 503 when the hashing pool is saturated. Both carry a Retry-After.
+ */
+@Getter
+public class LoginRejectedException extends RuntimeException {
+
+    private final HttpStatus status;
+    private final long retryAfterSeconds;
+
+    public LoginRejectedException(HttpStatus status, long retryAfterSeconds, String message) {
+        super(message);
+        this.status = status;
+        this.retryAfterSeconds = Math.max(1, retryAfterSeconds);
+    }
+}
@@ -0,0 +1,83 @@
+package org.nbu.medicalrecord.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Failed login counters per account and per client address, over a fixed window that starts with
+ * the first failure. Counting is an atomic increment on a cached counter, no locks are taken on
+ * the login path. A blocked login is rejected before the password is hashed.
+ */
+@Component
+public class LoginThrottle {
+
+    private final int maxFailuresPerAccount;
+    private final int maxFailuresPerIp;
+    private final Duration window;
+
+    private final Cache<String, AtomicInteger> accountFailures;
+    private final Cache<String, AtomicInteger> ipFailures;
+    private final LongAdder throttled = new LongAdder();
+
+    public LoginThrottle(@Value("${vsecurity.login.max-failures-per-account:5}") int maxFailuresPerAccount,
+                         @Value("${vsecurity.login.max-failures-per-ip:50}") int maxFailuresPerIp,
+                         @Value("${vsecurity.login.failure-window-minutes:15}") long windowMinutes,
+                         @Value("${vsecurity.login.max-tracked:100000}") long maxTracked) {
+        this.maxFailuresPerAccount = maxFailuresPerAccount;
+        this.maxFailuresPerIp = maxFailuresPerIp;
+        this.window = Duration.ofMinutes(windowMinutes);
+        this.accountFailures = counters(maxTracked);
+        this.ipFailures = counters(maxTracked);
+    }
+
+    /** Throws a 429 {@link LoginRejectedException} while the account or the address is over its limit. */
+    public void checkAllowed(String email, String ip) {
+        long retryAfter = Math.max(blockedFor(accountFailures, email, maxFailuresPerAccount),
+                blockedFor(ipFailures, ip, maxFailuresPerIp));
+        if (retryAfter > 0) {
+            throttled.increment();
+            throw new LoginRejectedException(HttpStatus.TOO_MANY_REQUESTS, retryAfter, "Too many failed logins, try again later");
+        }
+    }
+
+    public void recordFailure(String email, String ip) {
+        if (email != null) accountFailures.get(email, k -> new AtomicInteger()).incrementAndGet();
+        if (ip != null) ipFailures.get(ip, k -> new AtomicInteger()).incrementAndGet();
+    }
+
+    // a successful login clears the account, not the address: one good password must not unlock a stuffing source
+    public void recordSuccess(String email) {
+        if (email != null) accountFailures.invalidate(email);
+    }
+
+    public long throttledCount() {
+        return throttled.sum();
+    }
+
+    // seconds until the window of the key ends, 0 when not blocked
+    private long blockedFor(Cache<String, AtomicInteger> failures, String key, int max) {
+        if (key == null) return 0;
+        AtomicInteger count = failures.getIfPresent(key);
+        if (count == null || count.get() < max) return 0;
+
+        long age = failures.policy().expireAfterWrite()
+                .map(p -> p.ageOf(key, TimeUnit.SECONDS).orElse(0L))
+                .orElse(0L);
+        return Math.max(1, window.toSeconds() - age);
+    }
+
+    private Cache<String, AtomicInteger> counters(long maxTracked) {
+        return Caffeine.newBuilder()
+                .expireAfterWrite(window)
+                .maximumSize(maxTracked)
+                .build();
+    }
+}
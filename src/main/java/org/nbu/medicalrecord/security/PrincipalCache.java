@@ -0,0 +1,83 @@
+package org.nbu.medicalrecord.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Bounded, TTL-based cache of the account state needed to authenticate a JWT:
+ * whether the account may log in and which authorities it currently has.
+ * Entries are evicted by {@link UserChangeListener} when a user is updated or removed.
+ */
+@Component
+public class PrincipalCache {
+
+    private final UserDetailsService uds;
+    private final Cache<String, CachedAccount> accounts;
+    private final AtomicLong evictions = new AtomicLong();
+
+    public PrincipalCache(UserDetailsService uds,
+                          @Value("${vsecurity.principal-cache.ttl-seconds:300}") long ttlSeconds,
+                          @Value("${vsecurity.principal-cache.max-size:100000}") long maxSize) {
+        this.uds = uds;
+        this.accounts = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    /**
+     * Returns the cached account for the email, loading it from the database on a miss. The load runs
+     * outside the cache: Caffeine computes under a map lock, and a virtual thread waiting there for a
+     * connection pins its carrier, which with enough of them stalls every request.
+     */
+    public CachedAccount get(String email) {
+        CachedAccount cached = accounts.getIfPresent(email);
+        if (cached != null) return cached;
+
+        long seen = evictions.get();
+        CachedAccount loaded = load(email);
+        accounts.put(email, loaded);
+        // evicted while loading: what was just read may predate the change
+        if (evictions.get() != seen) accounts.invalidate(email);
+        return loaded;
+    }
+
+    public void evict(String email) {
+        if (email == null) return;
+        evictions.incrementAndGet();
+        accounts.invalidate(email);
+    }
+
+    public void evictAll() {
+        evictions.incrementAndGet();
+        accounts.invalidateAll();
+    }
+
+    private CachedAccount load(String email) {
+        try {
+            UserDetails user = uds.loadUserByUsername(email);
+            Set<String> authorities = user.getAuthorities().stream()
+                    .map(GrantedAuthority::getAuthority)
+                    .collect(Collectors.toUnmodifiableSet());
+            boolean active = user.isEnabled() && user.isAccountNonLocked();
+            return new CachedAccount(active, authorities);
+        } catch (UsernameNotFoundException e) {
+            // cache the miss as well, tokens of deleted users keep failing without a lookup
+            return new CachedAccount(false, Set.of());
+        }
+    }
+
+    public record CachedAccount(boolean active, Set<String> authorities) {
+    }
+}
@@ -0,0 +1,54 @@
+package org.nbu.medicalrecord.security;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.nbu.medicalrecord.entities.Doctor;
+import org.nbu.medicalrecord.entities.Patient;
+import org.nbu.medicalrecord.entities.User;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * JPA entity listener for {@link Doctor} and {@link Patient}: a profile that is created,
+ * re-linked or removed changes the ids its user resolves to in {@link IdentityResolver}.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProfileChangeListener {
+
+    private final ObjectProvider<IdentityResolver> identityResolver;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object profile) {
+        User user = null;
+        if (profile instanceof Doctor d) user = d.getUser();
+        if (profile instanceof Patient p) user = p.getUser();
+
+        String email = user != null ? user.getEmail() : null;
+        evict(email);
+
+        // evict again once committed, so a concurrent request cannot re-cache the old identity
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(email);
+                }
+            });
+        }
+    }
+
+    private void evict(String email) {
+        if (email == null) {
+            identityResolver.ifAvailable(IdentityResolver::evictAll);
+            return;
+        }
+        identityResolver.ifAvailable(resolver -> resolver.evict(email));
+    }
+}
@@ -0,0 +1,136 @@
+package org.nbu.medicalrecord.security;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.nbu.medicalrecord.dtos.response.LoginDtoResponse;
+import org.nbu.medicalrecord.entities.RefreshToken;
+import org.nbu.medicalrecord.entities.User;
+import org.nbu.medicalrecord.repositories.RefreshTokenRepository;
+import org.nbu.medicalrecord.repositories.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * Rotating refresh tokens, so clients renew their short-lived access token without sending the
+ * password again (and without a BCrypt verification on every renewal).
+ * <p>
+ * Every login starts a token family. Each refresh marks the presented token as used and hands out
+ * the next one of the family; a used token that is presented again was copied, so the whole family
+ * is revoked and the user has to log in again. Only SHA-256 hashes are stored.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RefreshTokenService {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final String TOKEN_TYPE = "Bearer";
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final UserRepository userRepository;
+    private final IdentityResolver identityResolver;
+    private final PrincipalCache principalCache;
+    private final JwtUtil jwt;
+
+    @Value("${vsecurity.refresh-token.ttl-days:30}")
+    private long ttlDays = 30;
+
+    /** Issues the first token pair of a new session, after a successful password authentication. */
+    @Transactional
+    public LoginDtoResponse login(Authentication authentication) {
+        Long userId = identityResolver.resolve(authentication).userId();
+        if (userId == null) {
+            throw new BadCredentialsException("Unknown user");
+        }
+
+        String refreshToken = issue(userRepository.getReferenceById(userId),
+                UUID.randomUUID().toString(), Instant.now().plus(Duration.ofDays(ttlDays)));
+        String accessToken = jwt.generate((UserDetails) authentication.getPrincipal());
+        return new LoginDtoResponse(accessToken, TOKEN_TYPE, jwt.expiresInSeconds(), refreshToken);
+    }
+
+    /**
+     * Exchanges a refresh token for a new access token and the next refresh token of its family.
+     * The account state and the authorities come from the {@link PrincipalCache}, no password is checked.
+     */
+    @Transactional(noRollbackFor = BadCredentialsException.class)
+    public LoginDtoResponse refresh(String rawToken) {
+        Instant now = Instant.now();
+        RefreshToken current = refreshTokenRepository.findWithUserByTokenHash(hash(rawToken))
+                .orElseThrow(() -> new BadCredentialsException("Invalid refresh token"));
+
+        if (current.getRevokedAt() != null || !now.isBefore(current.getExpiresAt())) {
+            throw new BadCredentialsException("Refresh token expired or revoked, please log in again");
+        }
+        if (refreshTokenRepository.markUsed(current.getId(), now) == 0) {
+            // rotated before: one of the two holders of this token is not the user
+            refreshTokenRepository.revokeFamily(current.getFamilyId(), now);
+            log.warn("Refresh token reuse for user {}, session {} revoked", current.getUser().getId(), current.getFamilyId());
+            throw new BadCredentialsException("Refresh token reuse detected, please log in again");
+        }
+
+        String email = current.getUser().getEmail();
+        PrincipalCache.CachedAccount account = principalCache.get(email);
+        if (!account.active()) {
+            refreshTokenRepository.revokeFamily(current.getFamilyId(), now);
+            throw new BadCredentialsException("Account is disabled or locked");
+        }
+
+        String refreshToken = issue(current.getUser(), current.getFamilyId(), current.getExpiresAt());
+        String accessToken = jwt.generate(email, account.authorities());
+        return new LoginDtoResponse(accessToken, TOKEN_TYPE, jwt.expiresInSeconds(), refreshToken);
+    }
+
+    /** Ends the session of the token. Unknown or already revoked tokens are ignored. */
+    @Transactional
+    public void logout(String rawToken) {
+        refreshTokenRepository.findWithUserByTokenHash(hash(rawToken))
+                .ifPresent(t -> refreshTokenRepository.revokeFamily(t.getFamilyId(), Instant.now()));
+    }
+
+    // 03:15 every night; a family is useless once its login expired, used and revoked tokens included
+    @Scheduled(cron = "${vsecurity.refresh-token.cleanup-cron:0 15 3 * * *}")
+    @Transactional
+    public void deleteExpired() {
+        int deleted = refreshTokenRepository.deleteExpiredBefore(Instant.now());
+        log.info("Expired refresh tokens deleted: {}", deleted);
+    }
+
+    private String issue(User user, String familyId, Instant expiresAt) {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        String raw = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        RefreshToken token = new RefreshToken();
+        token.setTokenHash(hash(raw));
+        token.setFamilyId(familyId);
+        token.setUser(user);
+        token.setExpiresAt(expiresAt);
+        refreshTokenRepository.save(token);
+        return raw;
+    }
+
+    private static String hash(String raw) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(raw.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
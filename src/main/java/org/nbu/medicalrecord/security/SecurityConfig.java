@@ -28,10 +28,12 @@ public class SecurityConfig {
                 .csrf(AbstractHttpConfigurer::disable)
                 .sessionManagement(sm -> sm.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
-                        .requestMatchers("/", "/home", "/auth","/auth/login", "/auth/accept-invite", "/actuator/health").permitAll()
+                        .requestMatchers("/", "/home", "/auth","/auth/login", "/auth/refresh", "/auth/logout", "/auth/accept-invite", "/actuator/health").permitAll()
                         .requestMatchers("/patient/**").hasAnyAuthority("PATIENT", "DOCTOR", "ADMIN")
                         .requestMatchers("/doctor/**").hasAnyAuthority("DOCTOR", "ADMIN")
                         .requestMatchers("/admin/**").hasAuthority("ADMIN")
+                        // metrics and the other actuator endpoints; health stays open for the load balancer
+                        .requestMatchers("/actuator/**").hasAuthority("ADMIN")
                         .anyRequest().authenticated()
                 )
                 .httpBasic(Customizer.withDefaults()) // required for Basic auth (postman)
@@ -0,0 +1,46 @@
+package org.nbu.medicalrecord.security;
+
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.nbu.medicalrecord.entities.User;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * JPA entity listener (resolved as a Spring bean by Hibernate) that drops cached
+ * authentication data whenever a user is locked, disabled, re-authorized or removed.
+ * The caches are looked up lazily: Hibernate creates this listener while the
+ * EntityManagerFactory is still being built.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserChangeListener {
+
+    private final ObjectProvider<PrincipalCache> principalCache;
+    private final ObjectProvider<IdentityResolver> identityResolver;
+
+    @PostUpdate
+    @PostRemove
+    public void onChange(User user) {
+        String email = user.getEmail();
+        evict(email);
+
+        // evict again once committed, so a concurrent request cannot re-cache the old state
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(email);
+                }
+            });
+        }
+    }
+
+    private void evict(String email) {
+        principalCache.ifAvailable(cache -> cache.evict(email));
+        identityResolver.ifAvailable(resolver -> resolver.evict(email));
+    }
+}
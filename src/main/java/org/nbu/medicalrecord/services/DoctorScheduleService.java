@@ -0,0 +1,16 @@
+package org.nbu.medicalrecord.services;
+
+import org.nbu.medicalrecord.dtos.request.DoctorScheduleDtoRequest;
+import org.nbu.medicalrecord.dtos.response.DoctorScheduleDtoResponse;
+
+public interface DoctorScheduleService {
+
+    DoctorScheduleDtoResponse setSchedule(long doctorId, DoctorScheduleDtoRequest request);
+
+    DoctorScheduleDtoResponse showSchedule(long doctorId);
+
+    void deleteSchedule(long doctorId);
+
+    // generates the missing empty slots so every schedule covers its weeks-ahead window
+    int topUpAllSchedules();
+}
@@ -1,9 +1,11 @@
 package org.nbu.medicalrecord.services;
 
+import org.nbu.medicalrecord.dtos.response.CursorPageDtoResponse;
 import org.nbu.medicalrecord.dtos.response.DoctorDataDtoResponse;
 import org.nbu.medicalrecord.dtos.response.PatientDataDtoResponse;
 
 import java.util.Set;
+import java.util.function.Consumer;
 
 public interface DoctorService {
 
@@ -18,4 +20,8 @@ public interface DoctorService {
     Set<DoctorDataDtoResponse> showAllDoctorsWithSpecialization(String specializationType);
 
     Set<DoctorDataDtoResponse> showAllDoctorsWithMostSickLeavesGiven();
+
+    CursorPageDtoResponse<DoctorDataDtoResponse> showDoctorsPage(String cursor, int size);
+
+    void streamAllDoctors(Consumer<DoctorDataDtoResponse> sink);
 }
@@ -12,6 +12,8 @@ public interface HealthInsuranceService {
 
     void createMonthlyHealthInsuranceRows();
 
+    int createMonthlyHealthInsuranceRows(Month month, int year);
+
     void payHealthInsuranceForMonthInYear(long patientId, Month month, int year);
 
     void payHealthInsuranceForMonthsInYear(long patientId, Set<Month> months, int year);
@@ -0,0 +1,27 @@
+package org.nbu.medicalrecord.services;
+
+import org.nbu.medicalrecord.dtos.response.ImportReportDtoResponse;
+
+import java.io.InputStream;
+import java.util.Locale;
+
+public interface ImportService {
+
+    ImportReportDtoResponse importPatients(InputStream in, Format format);
+
+    ImportReportDtoResponse importDoctors(InputStream in, Format format);
+
+    enum Format {
+        // header line with the field names, then one person per line
+        CSV,
+        // one AdminCreatePatientRequest / AdminCreateDoctorRequest JSON document per line
+        NDJSON;
+
+        public static Format ofFileName(String fileName) {
+            String name = fileName.toLowerCase(Locale.ROOT);
+            if (name.endsWith(".csv")) return CSV;
+            if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) return NDJSON;
+            throw new IllegalArgumentException("Unknown import format of " + fileName + ", expected .csv or .ndjson");
+        }
+    }
+}
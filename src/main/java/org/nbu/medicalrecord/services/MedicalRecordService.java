@@ -1,9 +1,11 @@
 package org.nbu.medicalrecord.services;
 
 import org.nbu.medicalrecord.dtos.request.MedicalRecordDtoRequest;
+import org.nbu.medicalrecord.dtos.response.CursorPageDtoResponse;
 import org.nbu.medicalrecord.dtos.response.MedicalRecordDtoResponse;
 
 import java.util.Set;
+import java.util.function.Consumer;
 
 public interface MedicalRecordService {
 
@@ -14,4 +16,8 @@ public interface MedicalRecordService {
     Set<MedicalRecordDtoResponse> showAllMedicalRecords();
 
     void deleteMedicalRecord(long medicalRecordId);
+
+    CursorPageDtoResponse<MedicalRecordDtoResponse> showMedicalRecordsPage(String cursor, int size);
+
+    void streamAllMedicalRecords(Consumer<MedicalRecordDtoResponse> sink);
 }
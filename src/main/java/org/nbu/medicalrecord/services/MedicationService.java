@@ -1,9 +1,11 @@
 package org.nbu.medicalrecord.services;
 
 import org.nbu.medicalrecord.dtos.request.MedicationDtoRequest;
+import org.nbu.medicalrecord.dtos.response.CursorPageDtoResponse;
 import org.nbu.medicalrecord.dtos.response.MedicationDtoResponse;
 
 import java.util.Set;
+import java.util.function.Consumer;
 
 public interface MedicationService {
 
@@ -12,4 +14,8 @@ public interface MedicationService {
     Set<MedicationDtoResponse> showAllMedications();
 
     Set<MedicationDtoResponse> showAllMedicationsByDoctor(long doctorId);
+
+    CursorPageDtoResponse<MedicationDtoResponse> showMedicationsPage(String cursor, int size);
+
+    void streamAllMedications(Consumer<MedicationDtoResponse> sink);
 }
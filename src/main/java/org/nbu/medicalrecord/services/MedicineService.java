@@ -1,9 +1,12 @@
 package org.nbu.medicalrecord.services;
 
 import org.nbu.medicalrecord.dtos.request.MedicineDtoRequest;
+import org.nbu.medicalrecord.dtos.response.CursorPageDtoResponse;
 import org.nbu.medicalrecord.dtos.response.MedicineDtoResponse;
 
+import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 
 public interface MedicineService {
 
@@ -13,5 +16,11 @@ public interface MedicineService {
 
     Set<MedicineDtoResponse> showAllMedicines();
 
+    List<MedicineDtoResponse> searchMedicines(String query, int limit);
+
     void deleteMedicine(long medicineId);
+
+    CursorPageDtoResponse<MedicineDtoResponse> showMedicinesPage(String cursor, int size);
+
+    void streamAllMedicines(Consumer<MedicineDtoResponse> sink);
 }
@@ -0,0 +1,16 @@
+package org.nbu.medicalrecord.services;
+
+import org.nbu.medicalrecord.entities.OutboxEvent;
+
+/**
+ * Follow-up work for an outbox event type (a projection, a notification, a call to an integration),
+ * run by {@code OutboxDispatcher} on its worker pool, off the request path. Delivery is at least once:
+ * an event is handled again after a failure or when a worker dies mid-way, so a handler must be
+ * idempotent. Throwing schedules a retry with backoff.
+ */
+public interface OutboxHandler {
+
+    OutboxEvent.Type type();
+
+    void handle(OutboxEvent event) throws Exception;
+}
@@ -0,0 +1,9 @@
+package org.nbu.medicalrecord.services;
+
+import org.nbu.medicalrecord.entities.OutboxEvent;
+
+public interface OutboxService {
+
+    // called inside the transaction of the change; the event is stored with it or rolled back with it
+    void publish(OutboxEvent.Type type, long aggregateId, Object payload);
+}
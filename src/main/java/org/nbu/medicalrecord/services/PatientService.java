@@ -1,8 +1,10 @@
 package org.nbu.medicalrecord.services;
 
+import org.nbu.medicalrecord.dtos.response.CursorPageDtoResponse;
 import org.nbu.medicalrecord.dtos.response.PatientDataWithDoctorDtoResponse;
 
 import java.util.Set;
+import java.util.function.Consumer;
 
 public interface PatientService {
 
@@ -19,4 +21,10 @@ public interface PatientService {
     int totalCountPatientsWithSameDiagnosis(String diagnosis);
 
     Set<PatientDataWithDoctorDtoResponse> showAllPatientsWithAllergy(String allergen);
+
+    CursorPageDtoResponse<PatientDataWithDoctorDtoResponse> showPatientsPage(String cursor, int size);
+
+    void streamAllPatients(Consumer<PatientDataWithDoctorDtoResponse> sink);
+
+    CursorPageDtoResponse<PatientDataWithDoctorDtoResponse> searchPatients(String query, String cursor, int size);
 }
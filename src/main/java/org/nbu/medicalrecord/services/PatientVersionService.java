@@ -0,0 +1,10 @@
+package org.nbu.medicalrecord.services;
+
+public interface PatientVersionService {
+
+    // called inside the transaction that writes a visit, diagnosis, sick leave or medical record of the patient
+    void patientChanged(long patientId);
+
+    // 0 for a patient nothing was written for yet
+    long currentVersion(long patientId);
+}
@@ -0,0 +1,29 @@
+package org.nbu.medicalrecord.services;
+
+import org.nbu.medicalrecord.entities.Diagnosis;
+import org.nbu.medicalrecord.entities.SickLeave;
+
+import java.time.Month;
+import java.util.List;
+
+public interface StatisticsService {
+
+    // counter maintenance, called inside the transaction that writes the counted row
+    void sickLeaveCreated(SickLeave sickLeave);
+
+    void diagnosisCreated(Diagnosis diagnosis);
+
+    void diagnosisDeleted(Diagnosis diagnosis);
+
+    // reports
+    Month monthWithMostSickLeaves();
+
+    List<Long> doctorIdsByMostSickLeaves();
+
+    List<String> mostFrequentDiagnosisKeys();
+
+    int countPatientsDiagnosedByDoctor(long doctorId);
+
+    // recomputes every counter from the source tables
+    void rebuild();
+}
@@ -0,0 +1,31 @@
+package org.nbu.medicalrecord.services;
+
+import org.nbu.medicalrecord.dtos.response.CursorPageDtoResponse;
+import org.nbu.medicalrecord.dtos.response.TimelineEventDtoResponse;
+import org.nbu.medicalrecord.entities.Diagnosis;
+import org.nbu.medicalrecord.entities.HealthInsurance;
+import org.nbu.medicalrecord.entities.SickLeave;
+import org.nbu.medicalrecord.entities.Visit;
+
+public interface TimelineService {
+
+    // timeline maintenance, called inside the transaction that writes the source row
+    void visitCreated(Visit visit);
+
+    // a deleted visit takes its diagnosis and medication along
+    void visitDeleted(Visit visit);
+
+    void diagnosisCreated(Diagnosis diagnosis);
+
+    void diagnosisDeleted(Diagnosis diagnosis);
+
+    void sickLeaveCreated(SickLeave sickLeave);
+
+    void healthInsurancePaid(HealthInsurance healthInsurance);
+
+    // newest first
+    CursorPageDtoResponse<TimelineEventDtoResponse> showTimeline(long patientId, String cursor, int size);
+
+    // recomputes every patient's timeline from the source tables
+    void rebuild();
+}
@@ -0,0 +1,159 @@
+package org.nbu.medicalrecord.services.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.nbu.medicalrecord.entities.Allergy;
+import org.nbu.medicalrecord.repositories.AllergyRepository;
+import org.nbu.medicalrecord.util.AllergenKeyUtil;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.nbu.medicalrecord.util.AllergenKeyUtil.keyOf;
+
+/**
+ * The shared allergen catalog: one {@code allergies} row per allergen key (see {@code AllergenKeyUtil}),
+ * linked to any number of patients. Registration resolves the allergens of a patient here instead of
+ * creating new rows; known keys come from {@link ReferenceDataCache}, missing ones are added in one batch.
+ * <p>
+ * The {@code uk_allergen_key} unique index keeps the catalog duplicate free when two registrations add
+ * the same allergen at once: the loser's INSERT IGNORE is a no-op and it reads the winner's row.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AllergenCatalog {
+
+    private static final int DEDUP_CHUNK = 1000;
+
+    private final AllergyRepository allergyRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ReferenceDataCache referenceData;
+    private final IdAllocator idAllocator;
+
+    /** Catalog entries (references, nothing is loaded) for the allergens; missing ones are created. */
+    @Transactional
+    public Set<Allergy> resolve(Collection<String> allergens) {
+        return resolveIds(allergens).values().stream()
+                .map(allergyRepository::getReferenceById)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    /** Allergen key to catalog id, for every non-blank allergen; missing entries are created. */
+    @Transactional
+    public Map<String, Long> resolveIds(Collection<String> allergens) {
+        Set<String> keys = allergens.stream()
+                .filter(a -> a != null && !a.isBlank())
+                .map(AllergenKeyUtil::keyOf)
+                .collect(Collectors.toSet());
+
+        Map<String, Long> ids = new HashMap<>();
+        List<String> absent = new ArrayList<>();
+        referenceData.findAllergies(keys).forEach((key, entry) -> entry.ifPresentOrElse(
+                e -> ids.put(key, e.id()),
+                () -> absent.add(key)));
+        if (absent.isEmpty()) return ids;
+
+        // the stored name is the normalized one, as in AllergyServiceImpl.addAllergy; the id of a key
+        // another registration added meanwhile stays unused
+        long[] next = {idAllocator.allocate("allergies", absent.size())};
+        jdbcTemplate.batchUpdate("insert ignore into allergies (id, allergen, allergen_key) values (?, ?, ?)", absent, absent.size(),
+                (ps, key) -> {
+                    ps.setLong(1, next[0]++);
+                    ps.setString(2, key);
+                    ps.setString(3, key);
+                });
+        for (Allergy created : allergyRepository.lockByAllergenKeys(absent)) {
+            ids.put(created.getAllergenKey(), created.getId());
+        }
+
+        // the cache still holds these keys as absent; they are read again once this transaction commits,
+        // so an entry of a transaction that rolls back (a failed import chunk) is never cached
+        referenceData.allergensChanged(absent);
+        return ids;
+    }
+
+    /**
+     * One-off migration of the per-patient allergy rows written before the catalog: fills
+     * {@code allergen_key} in id order, {@value #DEDUP_CHUNK} rows per transaction. The oldest row of
+     * a key stays; the patients of every later duplicate are moved to it and the duplicate is deleted.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(1)
+    public void deduplicate() {
+        long afterId = 0;
+        int keyed = 0;
+        int merged = 0;
+        while (true) {
+            long from = afterId;
+            int[] counts = new int[2];
+            List<AllergyRepository.KeylessView> chunk = transactionTemplate.execute(status -> {
+                List<AllergyRepository.KeylessView> rows = allergyRepository.findKeyless(from, Limit.of(DEDUP_CHUNK));
+                if (rows.isEmpty()) return rows;
+
+                Map<String, Long> canonical = new HashMap<>();
+                Set<String> keys = rows.stream().map(r -> keyOf(r.getAllergen())).collect(Collectors.toSet());
+                for (AllergyRepository.KeyView known : allergyRepository.findByAllergenKeys(keys)) {
+                    canonical.put(known.getAllergenKey(), known.getId());
+                }
+
+                List<Object[]> keyUpdates = new ArrayList<>();
+                List<long[]> duplicates = new ArrayList<>();    // {duplicate id, canonical id}
+                for (AllergyRepository.KeylessView row : rows) {
+                    String key = keyOf(row.getAllergen());
+                    Long target = canonical.putIfAbsent(key, row.getId());
+                    if (target == null) {
+                        keyUpdates.add(new Object[]{key, row.getId()});
+                    } else {
+                        duplicates.add(new long[]{row.getId(), target});
+                    }
+                }
+
+                jdbcTemplate.batchUpdate("update allergies set allergen_key = ? where id = ?", keyUpdates);
+                jdbcTemplate.batchUpdate("""
+                        insert into patients_allergies (patient_id, allergies_id)
+                        select pa.patient_id, ? from patients_allergies pa
+                        where pa.allergies_id = ?
+                          and not exists (select 1 from patients_allergies x where x.patient_id = pa.patient_id and x.allergies_id = ?)
+                        """, duplicates, DEDUP_CHUNK, (ps, d) -> {
+                    ps.setLong(1, d[1]);
+                    ps.setLong(2, d[0]);
+                    ps.setLong(3, d[1]);
+                });
+                jdbcTemplate.batchUpdate("delete from patients_allergies where allergies_id = ?", duplicates, DEDUP_CHUNK,
+                        (ps, d) -> ps.setLong(1, d[0]));
+                jdbcTemplate.batchUpdate("delete from allergies where id = ?", duplicates, DEDUP_CHUNK,
+                        (ps, d) -> ps.setLong(1, d[0]));
+
+                counts[0] = keyUpdates.size();
+                counts[1] = duplicates.size();
+                return rows;
+            });
+            if (chunk == null || chunk.isEmpty()) break;
+
+            keyed += counts[0];
+            merged += counts[1];
+            afterId = chunk.getLast().getId();
+        }
+
+        if (keyed + merged > 0) {
+            referenceData.allergensChanged();
+            log.info("Allergen catalog migrated: {} entries keyed, {} duplicates merged", keyed, merged);
+        }
+    }
+}
@@ -12,22 +12,27 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import static org.nbu.medicalrecord.util.AllergenKeyUtil.keyOf;
+
 @Service
 @RequiredArgsConstructor
 public class AllergyServiceImpl implements AllergyService {
 
     private final AllergyRepository allergyRepository;
     private final PatientRepository patientRepository;
+    private final ReferenceDataCache referenceData;
 
     @Override
     @Transactional
     public AllergyDtoResponse addAllergy(AllergyDtoRequest req) {
         String name = normalize(req.getAllergen());
-        if (allergyRepository.existsByAllergenIgnoreCase(name)) {
+        String key = keyOf(name);
+        if (referenceData.findAllergy(key).isPresent()) {
             throw new IllegalStateException("Allergy already exists: " + name);
         }
 
@@ -35,14 +40,15 @@ public class AllergyServiceImpl implements AllergyService {
         a.setAllergen(name);
 
         allergyRepository.save(a);
+        referenceData.allergensChanged(List.of(key));
         return toDto(a);
     }
 
     @Override
     public AllergyDtoResponse showAllergy(String allergen) {
-         Allergy a = allergyRepository.findByAllergenIgnoreCase(normalize(allergen))
+        return referenceData.findAllergy(keyOf(allergen))
+                .map(a -> new AllergyDtoResponse(a.id(), a.allergen()))
                 .orElseThrow(() -> new IllegalArgumentException("Allergy not found: " + allergen));
-        return toDto(a);
     }
 
     @Override
@@ -58,7 +64,8 @@ public class AllergyServiceImpl implements AllergyService {
     @Override
     @Transactional
     public void deleteAllergy(String allergen) {
-        Allergy a = allergyRepository.findByAllergenIgnoreCase(normalize(allergen))
+        String key = keyOf(allergen);
+        Allergy a = allergyRepository.findByAllergenKey(key)
                 .orElseThrow(() -> new IllegalArgumentException("Allergy not found: " + allergen));
 
         if (patientRepository.existsByAllergies_Id(a.getId())) {
@@ -68,6 +75,7 @@ public class AllergyServiceImpl implements AllergyService {
         }
 
         allergyRepository.delete(a);
+        referenceData.allergensChanged(List.of(key));
     }
 
     private static String normalize(String s) {
@@ -7,19 +7,27 @@ import org.nbu.medicalrecord.dtos.response.DoctorAppointmentDtoResponse;
 import org.nbu.medicalrecord.dtos.response.PatientAppointmentDtoResponse;
 import org.nbu.medicalrecord.entities.Appointment;
 import org.nbu.medicalrecord.entities.Doctor;
+import org.nbu.medicalrecord.entities.OutboxEvent;
 import org.nbu.medicalrecord.entities.Patient;
 import org.nbu.medicalrecord.repositories.AppointmentRepository;
 import org.nbu.medicalrecord.repositories.DoctorRepository;
+import org.nbu.medicalrecord.repositories.DoctorScheduleRepository;
 import org.nbu.medicalrecord.repositories.PatientRepository;
 import org.nbu.medicalrecord.services.AppointmentService;
+import org.nbu.medicalrecord.services.OutboxService;
+import org.nbu.medicalrecord.services.impl.AppointmentSlotIndex.Claim;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.Comparator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 import static org.nbu.medicalrecord.util.CheckExistUtil.*;
@@ -31,6 +39,9 @@ public class AppointmentServiceImpl implements AppointmentService {
     private final AppointmentRepository appointmentRepository;
     private final DoctorRepository doctorRepository;
     private final PatientRepository patientRepository;
+    private final DoctorScheduleRepository doctorScheduleRepository;
+    private final AppointmentSlotIndex slotIndex;
+    private final OutboxService outboxService;
 
     @Override
     @Transactional
@@ -39,29 +50,81 @@ public class AppointmentServiceImpl implements AppointmentService {
             throw new IllegalArgumentException("Cannot make appointments in the past.");
         }
 
-        Doctor doctor = doctorRepository.findById(req.getDoctorId())
+        long doctorId = req.getDoctorId();
+        LocalDate date = req.getDate();
+        LocalTime hour = req.getHourOfAppointment();
+
+        // taken slots are rejected in memory, before any query
+        Claim claim = slotIndex.claim(doctorId, date, hour);
+        if (claim == Claim.TAKEN) {
+            throw new IllegalStateException("This slot is already booked.");
+        }
+        AtomicBoolean takenInDb = new AtomicBoolean(false);
+        if (claim == Claim.CLAIMED) {
+            releaseUnlessCommitted(doctorId, date, hour, takenInDb);
+        }
+
+        // a pre-generated free slot is booked with one conditional update
+        int claimed;
+        try {
+            claimed = appointmentRepository.claimFreeSlot(doctorId, date, hour, req.getPatientId());
+        } catch (DataIntegrityViolationException e) {
+            // only a missing patient is the caller's mistake; any other violation is not about the request
+            if (!patientRepository.existsById(req.getPatientId())) {
+                throw new IllegalArgumentException("Patient with id " + req.getPatientId() + " not found", e);
+            }
+            throw e;
+        }
+        if (claimed == 1) {
+            // the index learns of the booking once it is committed, event included
+            if (claim == Claim.UNKNOWN) {
+                afterCommit(() -> slotIndex.markTaken(doctorId, date, hour));
+            }
+            PatientAppointmentDtoResponse booked = appointmentRepository.findDtoBySlot(doctorId, date, hour).orElseThrow();
+            outboxService.publish(OutboxEvent.Type.APPOINTMENT_BOOKED, booked.getId(), booked);
+            return booked;
+        }
+        if (doctorScheduleRepository.existsByDoctor_Id(doctorId)) {
+            // doctors with a schedule are booked only into their generated slots
+            if (appointmentRepository.existsByDoctor_IdAndDateAndHourOfAppointment(doctorId, date, hour)) {
+                takenInDb.set(true);
+                slotIndex.markTaken(doctorId, date, hour);
+                throw new IllegalStateException("This slot was just booked by someone else.");
+            }
+            throw new IllegalArgumentException("Doctor with id " + doctorId + " has no slot on " + date + " at " + hour);
+        }
+
+        Doctor doctor = doctorRepository.findById(doctorId)
                 .orElseThrow(() -> new IllegalArgumentException("Doctor with id " + req.getDoctorId() + " not found"));
         Patient patient = patientRepository.findById(req.getPatientId())
                 .orElseThrow(() -> new IllegalArgumentException("Patient with id " + req.getPatientId() + " not found"));
 
-        if (appointmentRepository.existsByDoctor_IdAndDateAndHourOfAppointment(
-                doctor.getId(), req.getDate(), req.getHourOfAppointment())) {
+        if (claim == Claim.UNKNOWN
+                && appointmentRepository.existsByDoctor_IdAndDateAndHourOfAppointment(doctorId, date, hour)) {
             throw new IllegalStateException("This slot is already booked.");
         }
 
         Appointment a = new Appointment();
         a.setDoctor(doctor);
         a.setPatient(patient);
-        a.setDate(req.getDate());
-        a.setHourOfAppointment(req.getHourOfAppointment());
+        a.setDate(date);
+        a.setHourOfAppointment(hour);
 
         try {
-            appointmentRepository.save(a);
+            appointmentRepository.saveAndFlush(a);
         } catch (DataIntegrityViolationException e) {
+            // booked through another instance: keep the bit, the slot really is taken
+            takenInDb.set(true);
+            slotIndex.markTaken(doctorId, date, hour);
             throw new IllegalStateException("This slot was just booked by someone else.", e);
         }
+        if (claim == Claim.UNKNOWN) {
+            afterCommit(() -> slotIndex.markTaken(doctorId, date, hour));
+        }
 
-        return toPatientDto(a);
+        PatientAppointmentDtoResponse booked = toPatientDto(a);
+        outboxService.publish(OutboxEvent.Type.APPOINTMENT_BOOKED, a.getId(), booked);
+        return booked;
     }
 
     @Override
@@ -69,13 +132,7 @@ public class AppointmentServiceImpl implements AppointmentService {
     public Set<PatientAppointmentDtoResponse> showAllAvailableAppointmentsByDoctorId(Long doctorId) {
         checkIfDoctorExists(doctorRepository, doctorId);
 
-        return appointmentRepository
-                .findByDoctor_IdAndPatientIsNullAndDateGreaterThanEqual(doctorId, LocalDate.now())
-                .stream()
-                .sorted(Comparator.comparing(Appointment::getDate)
-                        .thenComparing(Appointment::getHourOfAppointment))
-                .map(this::toPatientDto)
-                .collect(Collectors.toCollection(LinkedHashSet::new));
+        return new LinkedHashSet<>(appointmentRepository.findFreeSlotDtos(doctorId, LocalDate.now()));
     }
 
     @Override
@@ -122,12 +179,47 @@ public class AppointmentServiceImpl implements AppointmentService {
     @Override
     @Transactional
     public void cancelAppointment(long appointmentId) {
-        if (appointmentRepository.findById(appointmentId).isEmpty()) {
-            throw new IllegalArgumentException("Appointment wih id " + appointmentId + " not found");
-        }
+        Appointment a = appointmentRepository.findById(appointmentId)
+                .orElseThrow(() -> new IllegalArgumentException("Appointment wih id " + appointmentId + " not found"));
 
         // TODO: check whether it is connected with something else
-        appointmentRepository.deleteById(appointmentId);
+        if (doctorScheduleRepository.existsByDoctor_Id(a.getDoctor().getId()) && !a.getDate().isBefore(LocalDate.now())) {
+            // a generated slot goes back to the calendar
+            a.setPatient(null);
+        } else {
+            appointmentRepository.deleteById(appointmentId);
+        }
+
+        long doctorId = a.getDoctor().getId();
+        LocalDate date = a.getDate();
+        LocalTime hour = a.getHourOfAppointment();
+        afterCommit(() -> slotIndex.release(doctorId, date, hour));
+    }
+
+    // a claimed slot goes back to the index if the booking transaction does not commit
+    private void releaseUnlessCommitted(long doctorId, LocalDate date, LocalTime hour, AtomicBoolean takenInDb) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) return;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED && !takenInDb.get()) {
+                    slotIndex.release(doctorId, date, hour);
+                }
+            }
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 
     private PatientAppointmentDtoResponse toPatientDto(Appointment a) {
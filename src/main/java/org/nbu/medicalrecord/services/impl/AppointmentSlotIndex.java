@@ -0,0 +1,121 @@
+package org.nbu.medicalrecord.services.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.nbu.medicalrecord.repositories.AppointmentRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+
+/**
+ * In-memory view of the booked appointment slots: one bitmap per doctor and day, one bit per
+ * minute of the day (free pre-generated slots are not set). Booking claims its bit with a CAS before touching the database, so a slot
+ * that is already taken is rejected without a single query.
+ * <p>
+ * The database (the {@code idx_appt_doctor_date_hour} unique index) stays the source of truth:
+ * the index only filters out doomed inserts. It is warm-loaded from {@code appointments} on
+ * startup and rebuilt nightly, which also drops the days that are over.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AppointmentSlotIndex {
+
+    private static final int WORDS_PER_DAY = (24 * 60 + 63) / 64;
+
+    private final AppointmentRepository appointmentRepository;
+
+    @Value("${appointments.slot-index.enabled:true}")
+    private boolean enabled = true;
+
+    private volatile ConcurrentHashMap<DayKey, AtomicLongArray> days = new ConcurrentHashMap<>();
+    private volatile boolean warm;
+
+    public enum Claim {
+        CLAIMED,    // the bit was free and is now ours
+        TAKEN,      // someone else holds the slot
+        UNKNOWN     // index disabled or not loaded yet: the database decides
+    }
+
+    public Claim claim(long doctorId, LocalDate date, LocalTime time) {
+        if (!enabled || !warm) return Claim.UNKNOWN;
+
+        AtomicLongArray bits = bitsOf(days, doctorId, date);
+        int minute = minuteOfDay(time);
+        int word = minute >>> 6;
+        long mask = 1L << (minute & 63);
+
+        while (true) {
+            long current = bits.get(word);
+            if ((current & mask) != 0) return Claim.TAKEN;
+            if (bits.compareAndSet(word, current, current | mask)) return Claim.CLAIMED;
+        }
+    }
+
+    // the slot is occupied in the database (booked through the UNKNOWN path, or lost a race to another node)
+    public void markTaken(long doctorId, LocalDate date, LocalTime time) {
+        if (!enabled) return;
+        int minute = minuteOfDay(time);
+        bitsOf(days, doctorId, date).getAndUpdate(minute >>> 6, w -> w | (1L << (minute & 63)));
+    }
+
+    // booking rolled back or appointment cancelled
+    public void release(long doctorId, LocalDate date, LocalTime time) {
+        if (!enabled) return;
+        AtomicLongArray bits = days.get(new DayKey(doctorId, date));
+        if (bits == null) return;
+        int minute = minuteOfDay(time);
+        bits.getAndUpdate(minute >>> 6, w -> w & ~(1L << (minute & 63)));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void warmUp() {
+        reload();
+    }
+
+    /**
+     * Rebuilds the index from the database at 03:30 every night. Slots of past days are not loaded
+     * again, and anything booked or cancelled on another instance is picked up.
+     */
+    @Scheduled(cron = "${appointments.slot-index.reload-cron:0 30 3 * * *}")
+    @Transactional(readOnly = true)
+    public void reload() {
+        if (!enabled) return;
+
+        var fresh = new ConcurrentHashMap<DayKey, AtomicLongArray>();
+        long slots = 0;
+        try (Stream<AppointmentRepository.SlotView> rows = appointmentRepository.streamSlotsFrom(LocalDate.now())) {
+            for (var it = rows.iterator(); it.hasNext(); slots++) {
+                var r = it.next();
+                int minute = minuteOfDay(r.getHour());
+                bitsOf(fresh, r.getDoctorId(), r.getDate())
+                        .getAndUpdate(minute >>> 6, w -> w | (1L << (minute & 63)));
+            }
+        }
+
+        days = fresh;
+        warm = true;
+        log.info("Appointment slot index loaded: {} occupied slots over {} doctor-days", slots, fresh.size());
+    }
+
+    private static AtomicLongArray bitsOf(ConcurrentHashMap<DayKey, AtomicLongArray> days, long doctorId, LocalDate date) {
+        return days.computeIfAbsent(new DayKey(doctorId, date), k -> new AtomicLongArray(WORDS_PER_DAY));
+    }
+
+    private static int minuteOfDay(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    private record DayKey(long doctorId, LocalDate date) {
+    }
+}
@@ -2,26 +2,46 @@ package org.nbu.medicalrecord.services.impl;
 
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.nbu.medicalrecord.dtos.request.DiagnosisDtoRequest;
 import org.nbu.medicalrecord.dtos.response.DiagnosisDtoResponse;
 import org.nbu.medicalrecord.entities.*;
 import org.nbu.medicalrecord.repositories.*;
 import org.nbu.medicalrecord.services.DiagnosisService;
+import org.nbu.medicalrecord.services.PatientVersionService;
+import org.nbu.medicalrecord.services.StatisticsService;
+import org.nbu.medicalrecord.services.TimelineService;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDate;
 import java.util.*;
 import java.util.stream.Collectors;
 
 import static org.nbu.medicalrecord.util.CheckExistUtil.*;
+import static org.nbu.medicalrecord.util.DiagnosisKeyUtil.keyOf;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class DiagnosisServiceImpl implements DiagnosisService {
 
+    private static final int BACKFILL_CHUNK = 1000;
+
     private final DiagnosisRepository diagnosisRepository;
     private final DoctorRepository doctorRepository;
     private final PatientRepository patientRepository;
     private final VisitRepository visitRepository;
+    private final StatisticsService statisticsService;
+    private final PatientVersionService patientVersionService;
+    private final TimelineService timelineService;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
 
     @Override
     @Transactional
@@ -36,8 +56,12 @@ public class DiagnosisServiceImpl implements DiagnosisService {
         d.setDiagnosis(req.getDiagnosis());
         d.setPatient(patient);
         d.setDoctor(doctor);
+        d.setDiagnosedOn(LocalDate.now());
 
         Diagnosis saved = diagnosisRepository.save(d);
+        statisticsService.diagnosisCreated(saved);
+        timelineService.diagnosisCreated(saved);
+        patientVersionService.patientChanged(patient.getId());
         return toDto(saved);
     }
 
@@ -67,31 +91,49 @@ public class DiagnosisServiceImpl implements DiagnosisService {
     @Override
     @Transactional
     public Set<DiagnosisDtoResponse> showMostFrequentDiagnosisResult() {
-        List<DiagnosisRepository.DiagnosisResultCount> counts = diagnosisRepository.countByDiagnosisResultDesc();
-        if (counts.isEmpty()) return Set.of();
-
-        long max = counts.getFirst().cnt();
+        List<String> topKeys = statisticsService.mostFrequentDiagnosisKeys();
+        if (topKeys.isEmpty()) return Set.of();
 
-        Set<String> topResults = counts.stream()
-                .takeWhile(c -> c.cnt() == max)
-                .map(DiagnosisRepository.DiagnosisResultCount::diagnosisResult)
-                .collect(Collectors.toSet());
+        return new LinkedHashSet<>(diagnosisRepository.findRepresentativesByKeys(topKeys));
+    }
 
-        return new LinkedHashSet<>(diagnosisRepository.findAll().stream()
-                .filter(d -> topResults.contains(d.getDiagnosis()))
-                .sorted(Comparator.comparing(Diagnosis::getId))
-                .collect(Collectors.toMap(
-                        Diagnosis::getDiagnosis, this::toDto, (a, b) -> a, LinkedHashMap::new
-                ))
-                .values());
+    /**
+     * Fills {@code diagnosis_key} for rows written before the column existed, in id order and
+     * {@value #BACKFILL_CHUNK} rows per transaction. New rows get their key from the entity callback.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(1)
+    public void backfillDiagnosisKeys() {
+        long afterId = 0;
+        int filled = 0;
+        while (true) {
+            long from = afterId;
+            List<DiagnosisRepository.KeylessView> chunk = transactionTemplate.execute(status -> {
+                List<DiagnosisRepository.KeylessView> rows =
+                        diagnosisRepository.findKeyless(from, Limit.of(BACKFILL_CHUNK));
+                if (rows.isEmpty()) return rows;
+                jdbcTemplate.batchUpdate("update diagnoses set diagnosis_key = ? where id = ?", rows, rows.size(),
+                        (ps, row) -> {
+                            ps.setString(1, keyOf(row.getDiagnosis()));
+                            ps.setLong(2, row.getId());
+                        });
+                return rows;
+            });
+            if (chunk == null || chunk.isEmpty()) break;
+
+            filled += chunk.size();
+            afterId = chunk.getLast().getId();
+        }
+        if (filled > 0) {
+            log.info("Diagnosis keys backfilled for {} rows", filled);
+        }
     }
 
     @Override
     @Transactional
     public void deleteDiagnosis(Long diagnosisId) {
-        if (!diagnosisRepository.existsById(diagnosisId)) {
-            throw new IllegalArgumentException("Diagnosis with id " + diagnosisId + " not found");
-        }
+        Diagnosis diagnosis = diagnosisRepository.findById(diagnosisId)
+                .orElseThrow(() -> new IllegalArgumentException("Diagnosis with id " + diagnosisId + " not found"));
 
         boolean usedByVisit = visitRepository.existsByDiagnosis_Id(diagnosisId);
         if (usedByVisit) {
@@ -100,6 +142,9 @@ public class DiagnosisServiceImpl implements DiagnosisService {
             );
         }
 
+        statisticsService.diagnosisDeleted(diagnosis);
+        timelineService.diagnosisDeleted(diagnosis);
+        patientVersionService.patientChanged(diagnosis.getPatient().getId());
         diagnosisRepository.deleteById(diagnosisId);
     }
 
@@ -0,0 +1,184 @@
+package org.nbu.medicalrecord.services.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.nbu.medicalrecord.dtos.request.DoctorScheduleDtoRequest;
+import org.nbu.medicalrecord.dtos.response.DoctorScheduleDtoResponse;
+import org.nbu.medicalrecord.entities.Doctor;
+import org.nbu.medicalrecord.entities.DoctorSchedule;
+import org.nbu.medicalrecord.repositories.AppointmentRepository;
+import org.nbu.medicalrecord.repositories.DoctorRepository;
+import org.nbu.medicalrecord.repositories.DoctorScheduleRepository;
+import org.nbu.medicalrecord.services.DoctorScheduleService;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DoctorScheduleServiceImpl implements DoctorScheduleService {
+
+    private static final int BATCH_SIZE = 500;
+
+    // a slot that already exists (free or booked) hits the unique (doctor_id, date, hour_of_visit) index and is
+    // left as it is (0 rows); the id reserved for it stays unused. Any other error still fails the batch
+    private static final String INSERT_SLOT =
+            "insert into appointments (id, doctor_id, date, hour_of_visit) values (?, ?, ?, ?) on duplicate key update id = id";
+
+    private final DoctorScheduleRepository doctorScheduleRepository;
+    private final DoctorRepository doctorRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final IdAllocator idAllocator;
+
+    @Override
+    @Transactional
+    public DoctorScheduleDtoResponse setSchedule(long doctorId, DoctorScheduleDtoRequest req) {
+        Doctor doctor = doctorRepository.findById(doctorId)
+                .orElseThrow(() -> new IllegalArgumentException("Doctor with id " + doctorId + " not found"));
+
+        if (!req.getWorkStart().isBefore(req.getWorkEnd())) {
+            throw new IllegalArgumentException("'workStart' must be before 'workEnd'");
+        }
+        if (req.getDaysOff() != null && req.getDaysOff().size() == DayOfWeek.values().length) {
+            throw new IllegalArgumentException("A schedule needs at least one working day.");
+        }
+
+        DoctorSchedule schedule = doctorScheduleRepository.findByDoctor_Id(doctorId).orElseGet(DoctorSchedule::new);
+        schedule.setDoctor(doctor);
+        schedule.setWorkStart(req.getWorkStart());
+        schedule.setWorkEnd(req.getWorkEnd());
+        schedule.setSlotMinutes(req.getSlotMinutes());
+        schedule.setDaysOff(req.getDaysOff() == null || req.getDaysOff().isEmpty()
+                ? EnumSet.noneOf(DayOfWeek.class)
+                : EnumSet.copyOf(req.getDaysOff()));
+        schedule.setWeeksAhead(req.getWeeksAhead());
+
+        // the template changed: free future slots are regenerated, booked ones stay untouched
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate today = now.toLocalDate();
+        appointmentRepository.deleteFreeSlotsFrom(doctorId, today);
+        schedule.setMaterializedUntil(today.minusDays(1));
+
+        int created = materialize(schedule, now);
+        doctorScheduleRepository.save(schedule);
+        return toDto(schedule, created);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public DoctorScheduleDtoResponse showSchedule(long doctorId) {
+        return toDto(findByDoctor(doctorId), 0);
+    }
+
+    @Override
+    @Transactional
+    public void deleteSchedule(long doctorId) {
+        DoctorSchedule schedule = findByDoctor(doctorId);
+        appointmentRepository.deleteFreeSlotsFrom(doctorId, LocalDate.now());
+        doctorScheduleRepository.delete(schedule);
+    }
+
+    /**
+     * Runs at 02:00 every Monday: extends every schedule so that its free slots again reach
+     * {@code weeksAhead} weeks into the future. Each doctor is committed on its own.
+     */
+    @Override
+    @Scheduled(cron = "${appointments.schedule.top-up-cron:0 0 2 * * MON}")
+    public int topUpAllSchedules() {
+        LocalDateTime now = LocalDateTime.now();
+        int created = 0;
+
+        for (Long scheduleId : doctorScheduleRepository.findAllIds()) {
+            Integer rows = transactionTemplate.execute(status -> doctorScheduleRepository.findById(scheduleId)
+                    .map(s -> materialize(s, now))
+                    .orElse(0));
+            created += rows == null ? 0 : rows;
+        }
+
+        log.info("Doctor schedules topped up: {} slots created", created);
+        return created;
+    }
+
+    // generates the slots from the day after materializedUntil (but not before 'today') to the end of the window;
+    // today only from the next whole hour on, the earlier ones could not be booked any more
+    private int materialize(DoctorSchedule schedule, LocalDateTime now) {
+        LocalDate today = now.toLocalDate();
+        LocalDateTime earliest = now.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+        LocalDate until = today.plusWeeks(schedule.getWeeksAhead()).minusDays(1);
+        LocalDate from = schedule.getMaterializedUntil() == null || schedule.getMaterializedUntil().isBefore(today)
+                ? today
+                : schedule.getMaterializedUntil().plusDays(1);
+        if (from.isAfter(until)) return 0;
+
+        Long doctorId = schedule.getDoctor().getId();
+        List<Object[]> slots = new ArrayList<>();
+        for (LocalDate day = from; !day.isAfter(until); day = day.plusDays(1)) {
+            if (schedule.getDaysOff().contains(day.getDayOfWeek())) continue;
+            for (LocalTime t : slotTimes(schedule.getWorkStart(), schedule.getWorkEnd(), schedule.getSlotMinutes())) {
+                if (day.atTime(t).isBefore(earliest)) continue;
+                slots.add(new Object[]{day, t});
+            }
+        }
+
+        List<Object[]> rows = new ArrayList<>(slots.size());
+        long id = slots.isEmpty() ? 0 : idAllocator.allocate("appointments", slots.size());
+        for (Object[] slot : slots) {
+            rows.add(new Object[]{id++, slot[0], slot[1]});
+        }
+
+        int created = 0;
+        for (int[] batch : jdbcTemplate.batchUpdate(INSERT_SLOT, rows, BATCH_SIZE, (ps, row) -> {
+            ps.setLong(1, (Long) row[0]);
+            ps.setLong(2, doctorId);
+            ps.setObject(3, row[1]);
+            ps.setObject(4, row[2]);
+        })) {
+            for (int n : batch) created += Math.max(n, 0);
+        }
+
+        schedule.setMaterializedUntil(until);
+        return created;
+    }
+
+    // slot start times within [start, end); the last slot has to end by 'end'
+    private static List<LocalTime> slotTimes(LocalTime start, LocalTime end, int slotMinutes) {
+        List<LocalTime> times = new ArrayList<>();
+        int endMinute = end.getHour() * 60 + end.getMinute();
+        for (int m = start.getHour() * 60 + start.getMinute(); m + slotMinutes <= endMinute; m += slotMinutes) {
+            times.add(LocalTime.of(m / 60, m % 60));
+        }
+        return times;
+    }
+
+    private DoctorSchedule findByDoctor(long doctorId) {
+        return doctorScheduleRepository.findByDoctor_Id(doctorId)
+                .orElseThrow(() -> new IllegalArgumentException("Doctor with id " + doctorId + " has no schedule"));
+    }
+
+    private DoctorScheduleDtoResponse toDto(DoctorSchedule s, int slotsCreated) {
+        return new DoctorScheduleDtoResponse(
+                s.getDoctor().getId(),
+                s.getWorkStart(),
+                s.getWorkEnd(),
+                s.getSlotMinutes(),
+                s.getDaysOff(),
+                s.getWeeksAhead(),
+                s.getMaterializedUntil(),
+                slotsCreated
+        );
+    }
+}
@@ -1,6 +1,9 @@
 package org.nbu.medicalrecord.services.impl;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
+import org.nbu.medicalrecord.dtos.response.CursorPageDtoResponse;
 import org.nbu.medicalrecord.dtos.response.DoctorDataDtoResponse;
 import org.nbu.medicalrecord.dtos.response.PatientDataDtoResponse;
 import org.nbu.medicalrecord.dtos.response.SpecializationDtoResponse;
@@ -8,21 +11,29 @@ import org.nbu.medicalrecord.entities.Doctor;
 import org.nbu.medicalrecord.entities.Patient;
 import org.nbu.medicalrecord.repositories.DoctorRepository;
 import org.nbu.medicalrecord.repositories.PatientRepository;
-import org.nbu.medicalrecord.repositories.SpecializationRepository;
 import org.nbu.medicalrecord.services.DoctorService;
+import org.nbu.medicalrecord.services.StatisticsService;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+import static org.nbu.medicalrecord.util.CursorUtil.*;
+
 @Service
 @RequiredArgsConstructor
 public class DoctorServiceImpl implements DoctorService {
 
     private final DoctorRepository doctorRepository;
     private final PatientRepository patientRepository;
-    private final SpecializationRepository specializationRepository;
+    private final ReferenceDataCache referenceData;
+    private final StatisticsService statisticsService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
     @Override
     @Transactional
@@ -66,10 +77,23 @@ public class DoctorServiceImpl implements DoctorService {
                 .collect(Collectors.toCollection(LinkedHashSet::new));
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageDtoResponse<DoctorDataDtoResponse> showDoctorsPage(String cursor, int size) {
+        Limit limit = limit(size);
+        return page(doctorRepository.findByIdGreaterThanOrderByIdAsc(afterId(cursor), limit), limit, this::toDoctorDto);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAllDoctors(Consumer<DoctorDataDtoResponse> sink) {
+        streamDetached(doctorRepository.streamAllByOrderByIdAsc(), entityManager, this::toDoctorDto, sink);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public Set<DoctorDataDtoResponse> showAllDoctorsWithSpecialization(String specializationType) {
-         if (!specializationRepository.existsByTypeIgnoreCase(specializationType)) {
+         if (!referenceData.specializationTypeExists(specializationType)) {
              throw new IllegalArgumentException("Specialization '" + specializationType + "' not found");
          }
         return doctorRepository.findBySpecializationType(specializationType).stream()
@@ -80,15 +104,13 @@ public class DoctorServiceImpl implements DoctorService {
     @Override
     @Transactional(readOnly = true)
     public Set<DoctorDataDtoResponse> showAllDoctorsWithMostSickLeavesGiven() {
-        List<DoctorRepository.DoctorSickLeaveCount> counts = doctorRepository.countSickLeavesPerDoctor();
-
-        List<Long> ids = counts.stream().map(DoctorRepository.DoctorSickLeaveCount::getDoctorId).toList();
+        List<Long> ids = statisticsService.doctorIdsByMostSickLeaves();
         Map<Long, Doctor> byId = ids.isEmpty()
                 ? Collections.emptyMap()
                 : doctorRepository.findAllById(ids).stream().collect(Collectors.toMap(Doctor::getId, d -> d));
 
-        return counts.stream()
-                .map(c -> byId.get(c.getDoctorId()))
+        return ids.stream()
+                .map(byId::get)
                 .filter(Objects::nonNull)
                 .map(this::toDoctorDto)
                 .collect(Collectors.toCollection(LinkedHashSet::new));
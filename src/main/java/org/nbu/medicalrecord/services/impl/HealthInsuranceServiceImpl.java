@@ -2,29 +2,47 @@ package org.nbu.medicalrecord.services.impl;
 
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.nbu.medicalrecord.dtos.request.HealthInsuranceDtoRequest;
 import org.nbu.medicalrecord.dtos.response.HealthInsuranceDtoResponse;
 import org.nbu.medicalrecord.entities.HealthInsurance;
+import org.nbu.medicalrecord.entities.OutboxEvent;
 import org.nbu.medicalrecord.entities.Patient;
 import org.nbu.medicalrecord.repositories.HealthInsuranceRepository;
 import org.nbu.medicalrecord.repositories.PatientRepository;
 import org.nbu.medicalrecord.services.HealthInsuranceService;
+import org.nbu.medicalrecord.services.OutboxService;
+import org.nbu.medicalrecord.services.TimelineService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
 import java.time.Month;
-import java.util.List;
 import java.util.Set;
 
 import static org.nbu.medicalrecord.util.CheckExistUtil.*;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class HealthInsuranceServiceImpl implements HealthInsuranceService {
 
     private final HealthInsuranceRepository healthInsuranceRepository;
     private final PatientRepository patientRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final IdAllocator idAllocator;
+    private final TimelineService timelineService;
+    private final OutboxService outboxService;
+
+    @Value("${health-insurance.monthly-rows.chunk-size:5000}")
+    private int chunkSize = 5000;
+
+    @Value("${health-insurance.monthly-rows.run-on-startup:true}")
+    private boolean runOnStartup = true;
 
     @Override
     @Transactional
@@ -59,36 +77,50 @@ public class HealthInsuranceServiceImpl implements HealthInsuranceService {
      * "0 0 1 1 * *" -> at 01:00 on day 1 of each month
      */
     @Scheduled(cron = "0 0 1 1 * *")
-    @Transactional
     public void createMonthlyHealthInsuranceRows() {
-
         LocalDate now = LocalDate.now();
-        Month month = now.getMonth();
-        int year = now.getYear();
-
-        // get all patients
-        List<Patient> patients = patientRepository.findAll();
-
-        // for each patient, ensure the row for (month, year) exists
-        for (Patient p : patients) {
-            boolean exists = healthInsuranceRepository.existsByPatient_IdAndMonthAndYear(
-                    p.getId(),
-                    month,
-                    year
-            );
-
-            if (!exists) {
-                HealthInsurance hi = new HealthInsurance();
-                hi.setPatient(p);
-                hi.setMonth(month);
-                hi.setYear(year);
-                hi.setPaid(false);
-
-                healthInsuranceRepository.save(hi);
-            }
+        createMonthlyHealthInsuranceRows(now.getMonth(), now.getYear());
+    }
+
+    /**
+     * Catch-up run after a restart: if the application was down (or crashed) during the scheduled run,
+     * the missing rows for the current month are generated on startup. Already existing rows are skipped.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeMonthlyHealthInsuranceRows() {
+        if (runOnStartup) {
+            createMonthlyHealthInsuranceRows();
         }
     }
 
+    @Override
+    public int createMonthlyHealthInsuranceRows(Month month, int year) {
+        long maxPatientId = patientRepository.findMaxId();
+        int step = Math.max(1, chunkSize);
+        int inserted = 0;
+
+        // each patient id range is committed on its own, so the persistence context stays empty
+        // and a crash only loses the chunk that was in flight
+        for (long fromId = 0; fromId < maxPatientId; fromId += step) {
+            long from = fromId;
+            long to = Math.min(fromId + step, maxPatientId);
+
+            // ids only for the missing rows, so a range that is already complete reserves none
+            Integer rows = transactionTemplate.execute(status -> {
+                int missing = healthInsuranceRepository.countMissingForPatientIdRange(month.name(), year, from, to);
+                if (missing == 0) return 0;
+                long firstId = idAllocator.allocate("health_insurances", missing);
+                return healthInsuranceRepository.insertMissingForPatientIdRange(month.name(), year, from, to, firstId, missing);
+            });
+            inserted += rows == null ? 0 : rows;
+
+            log.info("Health insurance rows for {} {}: patients up to id {} of {} processed, {} rows created",
+                    month, year, to, maxPatientId, inserted);
+        }
+
+        return inserted;
+    }
+
     @Override
     @Transactional
     public void payHealthInsuranceForMonthInYear(long patientId, Month month, int year) {
@@ -103,6 +135,8 @@ public class HealthInsuranceServiceImpl implements HealthInsuranceService {
 
         hi.setPaid(true);
         healthInsuranceRepository.save(hi);
+        timelineService.healthInsurancePaid(hi);
+        outboxService.publish(OutboxEvent.Type.HEALTH_INSURANCE_PAID, hi.getId(), toDto(hi));
     }
 
     @Override
@@ -121,6 +155,8 @@ public class HealthInsuranceServiceImpl implements HealthInsuranceService {
 
             hi.setPaid(true);
             healthInsuranceRepository.save(hi);
+            timelineService.healthInsurancePaid(hi);
+            outboxService.publish(OutboxEvent.Type.HEALTH_INSURANCE_PAID, hi.getId(), toDto(hi));
         }
     }
 
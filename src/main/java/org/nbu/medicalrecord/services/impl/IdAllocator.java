@@ -0,0 +1,109 @@
+package org.nbu.medicalrecord.services.impl;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.nbu.medicalrecord.entities.PooledIdGenerator;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Ids for rows written with plain JDBC (imports, appointment slots, allergen catalog, monthly insurance
+ * rows), reserved as one block from the same {@code id_generators} row the entity's {@link PooledIdGenerator}
+ * uses, so both paths never hand out the same id. A block is reserved in a transaction of its own, like
+ * Hibernate does, so the row lock is not held for the duration of the caller's transaction.
+ * <p>
+ * On startup every generator is moved past the largest id of its table. This is the migration from the
+ * former auto-increment ids, and keeps the generators ahead of rows inserted with explicit ids.
+ */
+@Slf4j
+@Component
+public class IdAllocator implements SmartInitializingSingleton {
+
+    private static final String CURRENT = "select " + PooledIdGenerator.VALUE_COLUMN + " from " + PooledIdGenerator.TABLE
+            + " where " + PooledIdGenerator.SEGMENT_COLUMN + " = ?";
+    private static final String SELECT = CURRENT + " for update";
+    private static final String UPDATE = "update " + PooledIdGenerator.TABLE + " set " + PooledIdGenerator.VALUE_COLUMN
+            + " = ? where " + PooledIdGenerator.SEGMENT_COLUMN + " = ?";
+    private static final String CATCH_UP = UPDATE + " and " + PooledIdGenerator.VALUE_COLUMN + " < ?";
+    private static final String INSERT = "insert into " + PooledIdGenerator.TABLE + " (" + PooledIdGenerator.SEGMENT_COLUMN
+            + ", " + PooledIdGenerator.VALUE_COLUMN + ") values (?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate newTransaction;
+    private final EntityManagerFactory entityManagerFactory;
+
+    public IdAllocator(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                       EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    /** The first of {@code count} consecutive ids reserved for {@code table}. */
+    public long allocate(String table, int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("At least one id has to be allocated, got " + count);
+        }
+        return newTransaction.execute(status -> {
+            List<Long> next = jdbcTemplate.queryForList(SELECT, Long.class, table);
+            if (next.isEmpty()) {
+                throw new IllegalArgumentException("No id generator for table " + table);
+            }
+            jdbcTemplate.update(UPDATE, next.get(0) + count, table);
+            return next.get(0);
+        });
+    }
+
+    /** {@code count} consecutive ids for {@code table}, see {@link #allocate}. */
+    public long[] allocateIds(String table, int count) {
+        long first = allocate(table, count);
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) ids[i] = first + i;
+        return ids;
+    }
+
+    // runs before the web server accepts requests and before the ApplicationReadyEvent jobs
+    @Override
+    public void afterSingletonsInstantiated() {
+        for (String table : tables()) {
+            long next = jdbcTemplate.queryForObject("select coalesce(max(id), 0) + 1 from " + table, Long.class);
+            List<Long> current = jdbcTemplate.queryForList(CURRENT, Long.class, table);
+            if (current.isEmpty()) {
+                try {
+                    // a new table, or the first start after the switch from auto-increment ids
+                    jdbcTemplate.update(INSERT, table, next);
+                    log.info("Id generator of {} created, starting at {}", table, next);
+                    continue;
+                } catch (DuplicateKeyException createdMeanwhile) {
+                    // by another instance starting at the same time
+                }
+            }
+            if (jdbcTemplate.update(CATCH_UP, next, table, next) > 0) {
+                log.info("Id generator of {} moved to {}", table, next);
+            }
+        }
+    }
+
+    // every entity table with pooled ids; the table name is also its generator's segment
+    private Set<String> tables() {
+        Set<String> tables = new TreeSet<>();
+        entityManagerFactory.unwrap(SessionFactoryImplementor.class).getMappingMetamodel()
+                .forEachEntityDescriptor(entity -> {
+                    if (entity.getGenerator() instanceof PooledIdGenerator generator) {
+                        tables.add(generator.getSegmentValue());
+                    }
+                });
+        return tables;
+    }
+}
@@ -0,0 +1,513 @@
+package org.nbu.medicalrecord.services.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.nbu.medicalrecord.dtos.request.AdminCreateDoctorRequest;
+import org.nbu.medicalrecord.dtos.request.AdminCreatePatientRequest;
+import org.nbu.medicalrecord.dtos.request.AllergyDtoRequest;
+import org.nbu.medicalrecord.dtos.response.ImportReportDtoResponse;
+import org.nbu.medicalrecord.dtos.response.ImportReportDtoResponse.RowError;
+import org.nbu.medicalrecord.entities.Specialization;
+import org.nbu.medicalrecord.repositories.UserRepository;
+import org.nbu.medicalrecord.security.IdentityResolver;
+import org.nbu.medicalrecord.security.PrincipalCache;
+import org.nbu.medicalrecord.services.ImportService;
+import org.nbu.medicalrecord.util.AllergenKeyUtil;
+import org.nbu.medicalrecord.util.CsvUtil;
+import org.nbu.medicalrecord.util.NameKeyUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk registration of patients and doctors, for onboarding a whole clinic from one file.
+ * <p>
+ * The file is read as a stream and handled in chunks of {@code chunk-size} rows. Per chunk the emails
+ * and EGNs are checked with one query each, the passwords are hashed in parallel on a dedicated pool,
+ * and the rows are written with JDBC batches in one transaction. A row that fails validation or a check
+ * is reported with its line number and skipped; the rest of the file is still imported.
+ */
+@Slf4j
+@Service
+public class ImportServiceImpl implements ImportService {
+
+    private final UserRepository userRepository;
+    private final ReferenceDataCache referenceData;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PasswordEncoder passwordEncoder;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final PrincipalCache principalCache;
+    private final IdentityResolver identityResolver;
+    private final AllergenCatalog allergenCatalog;
+    private final IdAllocator idAllocator;
+    private final int chunkSize;
+    private final ExecutorService hashing;
+
+    public ImportServiceImpl(UserRepository userRepository,
+                             ReferenceDataCache referenceData,
+                             JdbcTemplate jdbcTemplate,
+                             TransactionTemplate transactionTemplate,
+                             PasswordEncoder passwordEncoder,
+                             Validator validator,
+                             ObjectMapper objectMapper,
+                             PrincipalCache principalCache,
+                             IdentityResolver identityResolver,
+                             AllergenCatalog allergenCatalog,
+                             IdAllocator idAllocator,
+                             @Value("${registration.import.chunk-size:1000}") int chunkSize,
+                             @Value("${registration.import.hashing-threads:0}") int threads) {
+        this.userRepository = userRepository;
+        this.referenceData = referenceData;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.passwordEncoder = passwordEncoder;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.principalCache = principalCache;
+        this.identityResolver = identityResolver;
+        this.allergenCatalog = allergenCatalog;
+        this.idAllocator = idAllocator;
+        this.chunkSize = Math.max(1, chunkSize);
+
+        // 0 = half of the cores, an import must not starve the logins and the rest of the API
+        int size = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.hashing = Executors.newFixedThreadPool(size, Thread.ofPlatform().name("import-hash-", 1).daemon(true).factory());
+    }
+
+    @Override
+    public ImportReportDtoResponse importPatients(InputStream in, Format format) {
+        return run(in, format, AdminCreatePatientRequest.class, ImportServiceImpl::patientFromCsv, this::importPatientChunk);
+    }
+
+    @Override
+    public ImportReportDtoResponse importDoctors(InputStream in, Format format) {
+        return run(in, format, AdminCreateDoctorRequest.class, ImportServiceImpl::doctorFromCsv, this::importDoctorChunk);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashing.shutdownNow();
+    }
+
+    // ---- reading ----
+
+    private record Row<T>(long line, T value) {
+    }
+
+    private record Person(String email, String egn, String firstName, String lastName) {
+    }
+
+    @FunctionalInterface
+    private interface ChunkImporter<T> {
+        // returns the number of imported rows, rejected ones are added to errors
+        int importChunk(List<Row<T>> rows, List<RowError> errors);
+    }
+
+    private <T> ImportReportDtoResponse run(InputStream in, Format format, Class<T> type,
+                                            Function<Map<String, String>, T> fromCsv, ChunkImporter<T> importer) {
+        List<RowError> errors = new ArrayList<>();
+        List<Row<T>> chunk = new ArrayList<>(chunkSize);
+        long rows = 0;
+        long imported = 0;
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            List<String> header = null;
+            long lineNo = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                if (line.isBlank()) continue;
+                if (format == Format.CSV && header == null) {
+                    header = CsvUtil.parseLine(line.replace("\uFEFF", "")).stream().map(ImportServiceImpl::fieldName).toList();
+                    continue;
+                }
+
+                rows++;
+                T value;
+                try {
+                    value = format == Format.CSV
+                            ? fromCsv.apply(fields(header, CsvUtil.parseLine(line)))
+                            : objectMapper.readValue(line, type);
+                } catch (JsonProcessingException e) {
+                    errors.add(new RowError(lineNo, "Unreadable row: " + e.getOriginalMessage()));
+                    continue;
+                } catch (RuntimeException e) {
+                    errors.add(new RowError(lineNo, "Unreadable row: " + e.getMessage()));
+                    continue;
+                }
+
+                String violations = violations(value);
+                if (violations != null) {
+                    errors.add(new RowError(lineNo, violations));
+                    continue;
+                }
+
+                chunk.add(new Row<>(lineNo, value));
+                if (chunk.size() == chunkSize) {
+                    imported += importer.importChunk(chunk, errors);
+                    chunk.clear();
+                    log.info("Import of {}: {} rows read, {} imported, {} rejected", type.getSimpleName(), rows, imported, errors.size());
+                }
+            }
+            if (!chunk.isEmpty()) {
+                imported += importer.importChunk(chunk, errors);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        log.info("Import of {} finished: {} rows, {} imported, {} rejected", type.getSimpleName(), rows, imported, errors.size());
+        errors.sort(Comparator.comparingLong(RowError::line));
+        return new ImportReportDtoResponse(rows, imported, errors.size(), errors);
+    }
+
+    private String violations(Object value) {
+        Set<ConstraintViolation<Object>> violations = validator.validate(value);
+        if (violations.isEmpty()) return null;
+        return violations.stream()
+                .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    // ---- chunks ----
+
+    private int importPatientChunk(List<Row<AdminCreatePatientRequest>> rows, List<RowError> errors) {
+        List<Row<AdminCreatePatientRequest>> accepted = withoutTakenIdentities(rows, errors,
+                AdminCreatePatientRequest::getEmail, AdminCreatePatientRequest::getEgn);
+        for (Row<AdminCreatePatientRequest> row : accepted) {
+            row.value().setEmail(normalize(row.value().getEmail()));
+        }
+
+        List<String> hashes = hashPasswords(accepted.stream().map(r -> r.value().getPassword()).toList());
+        return insert(accepted, hashes, errors, AdminCreatePatientRequest::getEmail, this::insertPatients);
+    }
+
+    private int importDoctorChunk(List<Row<AdminCreateDoctorRequest>> rows, List<RowError> errors) {
+        // only the specializations the chunk refers to, from the reference data cache
+        Map<Long, Specialization> specializations = referenceData.findSpecializationsById(rows.stream()
+                        .flatMap(row -> row.value().getSpecializationIds().stream())
+                        .collect(Collectors.toSet())).stream()
+                .collect(Collectors.toMap(Specialization::getId, Function.identity()));
+
+        List<Row<AdminCreateDoctorRequest>> known = new ArrayList<>(rows.size());
+        for (Row<AdminCreateDoctorRequest> row : rows) {
+            Set<Long> ids = row.value().getSpecializationIds();
+            if (ids.isEmpty()) {
+                errors.add(new RowError(row.line(), "At least one specialization must be provided"));
+                continue;
+            }
+            Set<Long> missing = ids.stream().filter(id -> !specializations.containsKey(id)).collect(Collectors.toCollection(TreeSet::new));
+            if (!missing.isEmpty()) {
+                errors.add(new RowError(row.line(), "Specialization(s) not found with id(s): " + missing));
+                continue;
+            }
+            known.add(row);
+        }
+
+        List<Row<AdminCreateDoctorRequest>> accepted = withoutTakenIdentities(known, errors,
+                AdminCreateDoctorRequest::getEmail, AdminCreateDoctorRequest::getEgn);
+        for (Row<AdminCreateDoctorRequest> row : accepted) {
+            row.value().setEmail(normalize(row.value().getEmail()));
+        }
+
+        List<String> hashes = hashPasswords(accepted.stream().map(r -> r.value().getPassword()).toList());
+        return insert(accepted, hashes, errors, AdminCreateDoctorRequest::getEmail, (doctors, passwordHashes) -> insertDoctors(doctors, passwordHashes, specializations));
+    }
+
+    // emails and EGNs already registered (one query each for the chunk) or repeated within the file
+    private <T> List<Row<T>> withoutTakenIdentities(List<Row<T>> rows, List<RowError> errors,
+                                                    Function<T, String> email, Function<T, String> egn) {
+        Set<String> emails = new HashSet<>();
+        Set<String> egns = new HashSet<>();
+        for (Row<T> row : rows) {
+            if (email.apply(row.value()) != null) emails.add(normalize(email.apply(row.value())));
+            egns.add(egn.apply(row.value()));
+        }
+        Set<String> takenEmails = emails.isEmpty() ? Set.of() : new HashSet<>(userRepository.findExistingEmails(emails));
+        Set<String> takenEgns = egns.isEmpty() ? Set.of() : new HashSet<>(userRepository.findExistingEgns(egns));
+
+        // earlier chunks are committed already, their rows show up as taken
+        Set<String> seenEmails = new HashSet<>();
+        Set<String> seenEgns = new HashSet<>();
+        List<Row<T>> accepted = new ArrayList<>(rows.size());
+        for (Row<T> row : rows) {
+            String rawEmail = email.apply(row.value());
+            String e = rawEmail == null ? null : normalize(rawEmail);
+            String n = egn.apply(row.value());
+
+            if (e == null || e.isEmpty()) {
+                errors.add(new RowError(row.line(), "email: must not be blank"));
+            } else if (takenEmails.contains(e)) {
+                errors.add(new RowError(row.line(), "Email " + rawEmail + " already registered"));
+            } else if (takenEgns.contains(n)) {
+                errors.add(new RowError(row.line(), "EGN " + n + " already exists"));
+            } else if (!seenEmails.add(e)) {
+                errors.add(new RowError(row.line(), "Email " + rawEmail + " appears more than once in the file"));
+            } else if (!seenEgns.add(n)) {
+                errors.add(new RowError(row.line(), "EGN " + n + " appears more than once in the file"));
+            } else {
+                accepted.add(row);
+            }
+        }
+        return accepted;
+    }
+
+    // BCrypt is the bulk of an import, so the chunk is hashed on all threads of the pool
+    private List<String> hashPasswords(List<String> passwords) {
+        List<Future<String>> futures = passwords.stream()
+                .map(password -> hashing.submit(() -> passwordEncoder.encode(password)))
+                .toList();
+
+        List<String> hashes = new ArrayList<>(futures.size());
+        try {
+            for (Future<String> future : futures) {
+                hashes.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            // the chunk fails anyway, the rest of it need not be hashed
+            futures.forEach(f -> f.cancel(true));
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+        return hashes;
+    }
+
+    @FunctionalInterface
+    private interface ChunkWriter<T> {
+        void write(List<T> values, List<String> passwordHashes);
+    }
+
+    /**
+     * Writes the chunk in one transaction. When the batch fails (a row was registered concurrently since
+     * the checks, or breaks a constraint the checks do not cover), the rows are retried one by one so
+     * only the failing ones are reported.
+     */
+    private <T> int insert(List<Row<T>> rows, List<String> hashes, List<RowError> errors,
+                           Function<T, String> email, ChunkWriter<T> writer) {
+        if (rows.isEmpty()) return 0;
+        List<T> values = rows.stream().map(Row::value).toList();
+
+        int imported;
+        try {
+            transactionTemplate.executeWithoutResult(status -> writer.write(values, hashes));
+            imported = rows.size();
+        } catch (DataAccessException e) {
+            log.warn("Import batch of {} rows failed, retrying row by row: {}", rows.size(), e.getMostSpecificCause().getMessage());
+            imported = 0;
+            for (int i = 0; i < rows.size(); i++) {
+                List<T> value = List.of(values.get(i));
+                List<String> hash = List.of(hashes.get(i));
+                try {
+                    transactionTemplate.executeWithoutResult(status -> writer.write(value, hash));
+                    imported++;
+                } catch (DataAccessException rowFailure) {
+                    errors.add(new RowError(rows.get(i).line(), "Rejected by the database: " + rowFailure.getMostSpecificCause().getMessage()));
+                }
+            }
+        }
+
+        // a login attempt before the import may have cached the email as unknown
+        for (T value : values) {
+            principalCache.evict(email.apply(value));
+            identityResolver.evict(email.apply(value));
+        }
+        return imported;
+    }
+
+    // ---- JDBC batches ----
+
+    private void insertPatients(List<AdminCreatePatientRequest> patients, List<String> hashes) {
+        long[] userIds = insertUsers(patients.stream()
+                .map(p -> new Person(p.getEmail(), p.getEgn(), p.getFirstName(), p.getLastName()))
+                .toList(), hashes, "PATIENT");
+
+        long[] patientIds = insertWithIds("patients", "insert into patients (id, user_id, birth_date) values (?,?,?)", patients.size(), (ps, i) -> {
+            ps.setLong(2, userIds[i]);
+            ps.setDate(3, Date.valueOf(patients.get(i).getBirthDate()));
+        });
+
+        // catalog entries shared by all patients, the missing ones of the whole chunk are added at once
+        Map<String, Long> catalog = allergenCatalog.resolveIds(patients.stream()
+                .filter(p -> p.getAllergies() != null)
+                .flatMap(p -> p.getAllergies().stream())
+                .map(AllergyDtoRequest::getAllergen)
+                .toList());
+        List<long[]> links = new ArrayList<>();
+        for (int i = 0; i < patients.size(); i++) {
+            if (patients.get(i).getAllergies() == null) continue;
+            Set<Long> allergyIds = new TreeSet<>();
+            for (AllergyDtoRequest allergy : patients.get(i).getAllergies()) {
+                Long id = catalog.get(AllergenKeyUtil.keyOf(allergy.getAllergen()));
+                if (id != null) allergyIds.add(id);
+            }
+            for (Long allergyId : allergyIds) {
+                links.add(new long[]{patientIds[i], allergyId});
+            }
+        }
+        jdbcTemplate.batchUpdate("insert into patients_allergies (patient_id, allergies_id) values (?,?)", links, chunkSize,
+                (ps, link) -> {
+                    ps.setLong(1, link[0]);
+                    ps.setLong(2, link[1]);
+                });
+    }
+
+    private void insertDoctors(List<AdminCreateDoctorRequest> doctors, List<String> hashes, Map<Long, Specialization> specializations) {
+        long[] userIds = insertUsers(doctors.stream()
+                .map(d -> new Person(d.getEmail(), d.getEgn(), d.getFirstName(), d.getLastName()))
+                .toList(), hashes, "DOCTOR");
+
+        long[] doctorIds = insertWithIds("doctors", "insert into doctors (id, user_id, gp) values (?,?,?)", doctors.size(), (ps, i) -> {
+            ps.setLong(2, userIds[i]);
+            ps.setBoolean(3, doctors.get(i).getSpecializationIds().stream()
+                    .anyMatch(id -> "GP".equalsIgnoreCase(specializations.get(id).getType())));
+        });
+
+        List<long[]> links = new ArrayList<>();
+        for (int i = 0; i < doctors.size(); i++) {
+            for (Long specializationId : new TreeSet<>(doctors.get(i).getSpecializationIds())) {
+                links.add(new long[]{doctorIds[i], specializationId});
+            }
+        }
+        jdbcTemplate.batchUpdate("insert into doctor_specializations (doctor_id, specialization_id) values (?,?)", links, chunkSize,
+                (ps, link) -> {
+                    ps.setLong(1, link[0]);
+                    ps.setLong(2, link[1]);
+                });
+    }
+
+    private long[] insertUsers(List<Person> people, List<String> hashes, String authority) {
+        long[] userIds = insertWithIds("users",
+                "insert into users (id, email, password, first_name, last_name, name_key, reversed_name_key, egn, enabled, locked) "
+                        + "values (?,?,?,?,?,?,?,?,true,false)",
+                people.size(), (ps, i) -> {
+                    Person p = people.get(i);
+                    ps.setString(2, p.email());
+                    ps.setString(3, hashes.get(i));
+                    ps.setString(4, p.firstName());
+                    ps.setString(5, p.lastName());
+                    // no entity callback on this path
+                    ps.setString(6, NameKeyUtil.nameKey(p.firstName(), p.lastName()));
+                    ps.setString(7, NameKeyUtil.reversedNameKey(p.firstName(), p.lastName()));
+                    ps.setString(8, p.egn());
+                });
+
+        jdbcTemplate.batchUpdate("insert into user_authorities (user_id, authority) values (?,?)", indices(userIds.length), chunkSize,
+                (ps, i) -> {
+                    ps.setLong(1, userIds[i]);
+                    ps.setString(2, authority);
+                });
+        return userIds;
+    }
+
+    // one batch; the ids are reserved up front and bound as the first parameter, so no generated keys are read back
+    private long[] insertWithIds(String table, String sql, int rows, ParameterizedPreparedStatementSetter<Integer> setter) {
+        long[] ids = idAllocator.allocateIds(table, rows);
+        jdbcTemplate.batchUpdate(sql, indices(rows), rows, (ps, i) -> {
+            ps.setLong(1, ids[i]);
+            setter.setValues(ps, i);
+        });
+        return ids;
+    }
+
+    private static List<Integer> indices(int size) {
+        List<Integer> indices = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) indices.add(i);
+        return indices;
+    }
+
+    // ---- CSV ----
+
+    // "first_name", "First Name" and "firstName" all name the same field
+    private static String fieldName(String header) {
+        return header.trim().toLowerCase(Locale.ROOT).replace("_", "").replace(" ", "");
+    }
+
+    private static Map<String, String> fields(List<String> header, List<String> values) {
+        if (values.size() != header.size()) {
+            throw new IllegalArgumentException("Expected " + header.size() + " fields, found " + values.size());
+        }
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            String value = values.get(i).trim();
+            fields.put(header.get(i), value.isEmpty() ? null : value);
+        }
+        return fields;
+    }
+
+    // allergies: separated by semicolons, e.g. "Penicillin;Pollen"
+    private static AdminCreatePatientRequest patientFromCsv(Map<String, String> f) {
+        AdminCreatePatientRequest req = new AdminCreatePatientRequest();
+        req.setEgn(f.get("egn"));
+        req.setFirstName(f.get("firstname"));
+        req.setLastName(f.get("lastname"));
+        req.setBirthDate(f.get("birthdate") == null ? null : LocalDate.parse(f.get("birthdate")));
+        req.setEmail(f.get("email"));
+        req.setPassword(f.get("password"));
+        req.setAllergies(list(f.get("allergies")).stream()
+                .map(AllergyDtoRequest::new)
+                .collect(Collectors.toSet()));
+        return req;
+    }
+
+    // specializationIds: separated by semicolons, e.g. "1;4"
+    private static AdminCreateDoctorRequest doctorFromCsv(Map<String, String> f) {
+        AdminCreateDoctorRequest req = new AdminCreateDoctorRequest();
+        req.setEgn(f.get("egn"));
+        req.setFirstName(f.get("firstname"));
+        req.setLastName(f.get("lastname"));
+        req.setEmail(f.get("email"));
+        req.setPassword(f.get("password"));
+        req.setSpecializationIds(f.get("specializationids") == null ? null : list(f.get("specializationids")).stream()
+                .map(Long::valueOf)
+                .collect(Collectors.toSet()));
+        return req;
+    }
+
+    private static List<String> list(String value) {
+        if (value == null) return List.of();
+        return Arrays.stream(value.split(";")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+    }
+
+    private static String normalize(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -1,18 +1,28 @@
 package org.nbu.medicalrecord.services.impl;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
 import org.nbu.medicalrecord.dtos.request.MedicalRecordDtoRequest;
+import org.nbu.medicalrecord.dtos.response.CursorPageDtoResponse;
 import org.nbu.medicalrecord.dtos.response.MedicalRecordDtoResponse;
 import org.nbu.medicalrecord.dtos.response.VisitDtoResponse;
 import org.nbu.medicalrecord.entities.*;
 import org.nbu.medicalrecord.repositories.MedicalRecordRepository;
 import org.nbu.medicalrecord.repositories.PatientRepository;
 import org.nbu.medicalrecord.services.MedicalRecordService;
+import org.nbu.medicalrecord.services.PatientVersionService;
+import org.nbu.medicalrecord.services.StatisticsService;
+import org.nbu.medicalrecord.services.TimelineService;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.nbu.medicalrecord.util.CursorUtil.*;
 
 @Service
 @RequiredArgsConstructor
@@ -20,6 +30,12 @@ public class MedicalRecordServiceImpl implements MedicalRecordService {
 
     private final MedicalRecordRepository medicalRecordRepository;
     private final PatientRepository patientRepository;
+    private final PatientVersionService patientVersionService;
+    private final StatisticsService statisticsService;
+    private final TimelineService timelineService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
     @Override
     @Transactional
@@ -36,6 +52,7 @@ public class MedicalRecordServiceImpl implements MedicalRecordService {
         rec.setVisits(new HashSet<>());
 
         medicalRecordRepository.save(rec);
+        patientVersionService.patientChanged(patient.getId());
         return toDto(rec);
     }
 
@@ -55,12 +72,32 @@ public class MedicalRecordServiceImpl implements MedicalRecordService {
                 .collect(java.util.stream.Collectors.toCollection(java.util.LinkedHashSet::new));
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageDtoResponse<MedicalRecordDtoResponse> showMedicalRecordsPage(String cursor, int size) {
+        Limit limit = limit(size);
+        return page(medicalRecordRepository.findByIdGreaterThanOrderByIdAsc(afterId(cursor), limit), limit, this::toDto);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAllMedicalRecords(Consumer<MedicalRecordDtoResponse> sink) {
+        streamDetached(medicalRecordRepository.streamAllByOrderByIdAsc(), entityManager, this::toDto, sink);
+    }
+
     @Override
     @Transactional
     public void deleteMedicalRecord(long medicalRecordId) {
-        if (!medicalRecordRepository.existsById(medicalRecordId)) {
-            throw new IllegalArgumentException("Medical record with id " + medicalRecordId + " not found");
+        MedicalRecord rec = medicalRecordRepository.findById(medicalRecordId)
+                .orElseThrow(() -> new IllegalArgumentException("Medical record with id " + medicalRecordId + " not found"));
+        // the visits go with the record (and their diagnoses and medications with them)
+        for (Visit v : rec.getVisits() == null ? Set.<Visit>of() : rec.getVisits()) {
+            if (v.getDiagnosis() != null) {
+                statisticsService.diagnosisDeleted(v.getDiagnosis());
+            }
+            timelineService.visitDeleted(v);
         }
+        patientVersionService.patientChanged(rec.getPatient().getId());
         medicalRecordRepository.deleteById(medicalRecordId);
     }
 
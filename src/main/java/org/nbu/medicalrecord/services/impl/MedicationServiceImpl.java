@@ -1,8 +1,11 @@
 package org.nbu.medicalrecord.services.impl;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.nbu.medicalrecord.dtos.request.MedicationDtoRequest;
+import org.nbu.medicalrecord.dtos.response.CursorPageDtoResponse;
 import org.nbu.medicalrecord.dtos.response.MedicationDtoResponse;
 import org.nbu.medicalrecord.dtos.response.MedicineDtoResponse;
 import org.nbu.medicalrecord.entities.Medication;
@@ -10,26 +13,32 @@ import org.nbu.medicalrecord.entities.Medicine;
 import org.nbu.medicalrecord.entities.Visit;
 import org.nbu.medicalrecord.repositories.*;
 import org.nbu.medicalrecord.services.MedicationService;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static org.nbu.medicalrecord.util.CheckExistUtil.*;
+import static org.nbu.medicalrecord.util.CursorUtil.*;
 
 @Service
 @RequiredArgsConstructor
 public class MedicationServiceImpl implements MedicationService {
 
     private final MedicationRepository medicationRepository;
-    private final MedicineRepository medicineRepository;
+    private final ReferenceDataCache referenceData;
     private final DoctorRepository doctorRepository;
     private final VisitRepository visitRepository;
 
+    @PersistenceContext
+    private EntityManager entityManager;
+
     @Override
     @Transactional
     public MedicationDtoResponse addMedication(MedicationDtoRequest req) {
-        List<Medicine> meds = medicineRepository.findAllById(req.getMedicineIds());
+        List<Medicine> meds = referenceData.findMedicinesById(req.getMedicineIds());
         if (meds.size() != req.getMedicineIds().size()) {
             throw new IllegalArgumentException("Some medicineIds do not exist");
         }
@@ -45,6 +54,19 @@ public class MedicationServiceImpl implements MedicationService {
         return medicationRepository.findAll().stream().map(this::toDto).collect(Collectors.toSet());
     }
 
+    @Override
+    @Transactional
+    public CursorPageDtoResponse<MedicationDtoResponse> showMedicationsPage(String cursor, int size) {
+        Limit limit = limit(size);
+        return page(medicationRepository.findByIdGreaterThanOrderByIdAsc(afterId(cursor), limit), limit, this::toDto);
+    }
+
+    @Override
+    @Transactional
+    public void streamAllMedications(Consumer<MedicationDtoResponse> sink) {
+        streamDetached(medicationRepository.streamAllByOrderByIdAsc(), entityManager, this::toDto, sink);
+    }
+
     @Override
     @Transactional
     public Set<MedicationDtoResponse> showAllMedicationsByDoctor(long doctorId) {
@@ -0,0 +1,575 @@
+package org.nbu.medicalrecord.services.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.nbu.medicalrecord.entities.Medicine;
+import org.nbu.medicalrecord.repositories.MedicineRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.nbu.medicalrecord.util.DiagnosisKeyUtil.normalize;
+
+/**
+ * In-memory type-ahead index over the medicine catalog. Names, types and milligrams are split into
+ * tokens kept in a sorted map, so a query term is a prefix range scan over the token postings; a
+ * trigram map over the distinct tokens finds misspelled terms ("paracetmol") when the prefixes alone
+ * do not fill a page.
+ * <p>
+ * A term scores by where it matches: the first word of the name, another word of the name, the
+ * milligrams, the medicine type; a whole word beats a prefix, the whole name beats everything and
+ * misspelled matches come last. Ties go to the shorter name. Searches read lock-free; {@link #add}
+ * and {@link #remove} keep the index current after a committed change, and a nightly reload picks
+ * up changes of other instances.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MedicineSearchIndex {
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // where a token occurs in a medicine, best first
+    private static final byte FIRST_WORD = 0, OTHER_WORD = 1, MILLIGRAMS = 2, TYPE = 3;
+    private static final int[] WORD_SCORE = {140, 120, 60, 40};
+    private static final int[] PREFIX_SCORE = {110, 100, 50, 40};
+    private static final int WHOLE_NAME_SCORE = 1000;
+    // a misspelled match scores below every prefix match
+    private static final int FUZZY_WEIGHT = 30;
+    // share of a misspelled term's trigrams that a token has to contain
+    private static final double MIN_SIMILARITY = 0.5;
+
+    private static final Comparator<Hit> RANKING = Comparator.comparingInt(Hit::score).reversed()
+            .thenComparingLong(Hit::rankKey)
+            .thenComparing(h -> h.medicine().name())
+            .thenComparingInt(h -> h.medicine().entry().mg())
+            .thenComparingLong(h -> h.medicine().entry().id());
+
+    private final MedicineRepository medicineRepository;
+
+    @Value("${medicines.search.enabled:true}")
+    private boolean enabled = true;
+
+    // a lock rather than a monitor: reload() reads the database while holding it, and virtual threads
+    // waiting on a monitor would pin their carriers
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile Index index = new Index(List.of());
+    private volatile boolean warm;
+
+    public record Entry(long id, String name, int mg, String medicineType) {
+
+        public static Entry of(Medicine m) {
+            return new Entry(m.getId(), m.getName(), m.getMg(), m.getMedicineType());
+        }
+    }
+
+    // false while disabled or not loaded yet: the caller searches the database instead
+    public boolean isReady() {
+        return enabled && warm;
+    }
+
+    public int size() {
+        return index.bySlot.size();
+    }
+
+    /** The best {@code limit} matches of the query, best first. */
+    public List<Entry> search(String query, int limit) {
+        String[] terms = tokens(query).toArray(String[]::new);
+        if (terms.length == 0 || limit <= 0) return List.of();
+
+        Index idx = index;
+        Page page = new Page(idx.slots, limit);
+        long[] matched = new long[(page.slots.entries().length + 63) >>> 6];
+
+        if (terms.length == 1) {
+            prefixMatches(idx, terms[0], page, matched);
+        } else {
+            prefixMatches(idx, terms, page, matched);
+        }
+        if (!page.isFull()) {
+            fuzzyMatches(idx, terms, page, matched);
+        }
+        return page.entries();
+    }
+
+    // one term: the postings alone say where it matches, so most candidates are never looked at
+    private static void prefixMatches(Index idx, String term, Page page, long[] matched) {
+        Slots slots = page.slots;
+        for (var token : idx.postings.subMap(term, true, term + Character.MAX_VALUE, false).entrySet()) {
+            boolean word = token.getKey().equals(term);
+            Posting p = token.getValue();
+            for (int i = 0; i < p.slots().length; i++) {
+                int slot = p.slots()[i];
+                // slots added after this search started are beyond its view
+                if (slot >= slots.entries().length) continue;
+
+                int role = p.roles()[i];
+                int score = (word ? WORD_SCORE : PREFIX_SCORE)[role];
+                if (word && role == FIRST_WORD && slots.nameWords()[slot] == 1) score += WHOLE_NAME_SCORE;
+
+                if (mark(matched, slot)) {
+                    page.offer(slot, score);
+                } else {
+                    // a second token of the medicine with the same prefix: keep the better match
+                    Indexed m = slots.entries()[slot];
+                    if (m != null) page.replace(slot, score(m, new String[]{term}));
+                }
+            }
+        }
+    }
+
+    // several terms: every one is the prefix of a token of the medicine. The postings of the rarest
+    // term are walked and the others are checked against the medicine's own tokens
+    private static void prefixMatches(Index idx, String[] terms, Page page, long[] matched) {
+        List<Posting> driver = null;
+        long driverSize = Long.MAX_VALUE;
+        for (String term : terms) {
+            List<Posting> postings = idx.withPrefix(term);
+            long size = postings.stream().mapToLong(p -> p.slots().length).sum();
+            if (size < driverSize) {
+                driver = postings;
+                driverSize = size;
+            }
+        }
+
+        Slots slots = page.slots;
+        for (Posting p : driver) {
+            for (int slot : p.slots()) {
+                if (slot >= slots.entries().length || !mark(matched, slot)) continue;
+                Indexed m = slots.entries()[slot];
+                int score = m == null ? 0 : score(m, terms);
+                if (score > 0) {
+                    page.offer(slot, score);
+                } else {
+                    clear(matched, slot);
+                }
+            }
+        }
+    }
+
+    // a term may be misspelled: it counts if it is the prefix of a token or close to one
+    private static void fuzzyMatches(Index idx, String[] terms, Page page, long[] matched) {
+        List<Map<String, Double>> similar = new ArrayList<>(terms.length);
+        int driver = 0;
+        long driverSize = Long.MAX_VALUE;
+        for (int t = 0; t < terms.length; t++) {
+            Map<String, Double> tokens = idx.similarTo(terms[t]);
+            idx.postings.subMap(terms[t], true, terms[t] + Character.MAX_VALUE, false).keySet()
+                    .forEach(token -> tokens.put(token, 1.0));
+            similar.add(tokens);
+            long size = tokens.keySet().stream().mapToLong(idx::postingSize).sum();
+            if (size < driverSize) {
+                driver = t;
+                driverSize = size;
+            }
+        }
+
+        // closest tokens first; once the page is full, tokens that cannot beat it end the search
+        List<Map.Entry<String, Double>> driverTokens = new ArrayList<>(similar.get(driver).entrySet());
+        driverTokens.sort(Map.Entry.<String, Double>comparingByValue().reversed());
+        Slots slots = page.slots;
+        long[] seen = new long[matched.length];
+        for (var token : driverTokens) {
+            double best = (token.getValue() + terms.length - 1) / terms.length;
+            if (page.isFull() && (int) (FUZZY_WEIGHT * best) < page.worstScore()) break;
+
+            Posting p = idx.postings.get(token.getKey());
+            if (p == null) continue;
+            for (int slot : p.slots()) {
+                if (slot >= slots.entries().length || isSet(matched, slot) || !mark(seen, slot)) continue;
+                Indexed m = slots.entries()[slot];
+                if (m == null) continue;
+
+                double total = 0;
+                for (int t = 0; t < terms.length && total >= 0; t++) {
+                    double s = closeness(m, terms[t], similar.get(t));
+                    total = s == 0 ? -1 : total + s;
+                }
+                if (total > 0) page.offer(slot, (int) (FUZZY_WEIGHT * total / terms.length));
+            }
+        }
+    }
+
+    public void add(Entry entry) {
+        if (!enabled) return;
+        writeLock.lock();
+        try {
+            index.remove(entry.id());
+            index.add(entry);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void remove(long medicineId) {
+        if (!enabled) return;
+        writeLock.lock();
+        try {
+            index.remove(medicineId);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void warmUp() {
+        reload();
+    }
+
+    /**
+     * Rebuilds the index from the database at 03:45 every night, so medicines added or deleted on
+     * another instance become searchable here too.
+     */
+    @Scheduled(cron = "${medicines.search.reload-cron:0 45 3 * * *}")
+    @Transactional(readOnly = true)
+    public void reload() {
+        if (!enabled) return;
+
+        // changes committed while loading wait for the swap and are applied to the fresh index
+        writeLock.lock();
+        try {
+            Index fresh;
+            try (Stream<Medicine> rows = medicineRepository.streamAllByOrderByIdAsc()) {
+                fresh = new Index(rows.map(Entry::of).toList());
+            }
+            index = fresh;
+            warm = true;
+            log.info("Medicine search index loaded: {} medicines, {} distinct tokens",
+                    fresh.bySlot.size(), fresh.postings.size());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // 0 when a term matches no token of the medicine
+    private static int score(Indexed m, String[] terms) {
+        int score = 0;
+        int wholeWords = 0;
+        for (String term : terms) {
+            int best = 0;
+            for (int i = 0; i < m.tokens().length; i++) {
+                String token = m.tokens()[i];
+                if (token.equals(term)) {
+                    best = Math.max(best, WORD_SCORE[m.roles()[i]]);
+                    if (m.roles()[i] <= OTHER_WORD) wholeWords++;
+                } else if (token.startsWith(term)) {
+                    best = Math.max(best, PREFIX_SCORE[m.roles()[i]]);
+                }
+            }
+            if (best == 0) return 0;
+            score += best;
+        }
+        return wholeWords == m.nameWords() && wholeWords == terms.length ? score + WHOLE_NAME_SCORE : score;
+    }
+
+    private static double closeness(Indexed m, String term, Map<String, Double> similar) {
+        double best = 0;
+        for (String token : m.tokens()) {
+            if (token.startsWith(term)) return 1.0;
+            best = Math.max(best, similar.getOrDefault(token, 0.0));
+        }
+        return best;
+    }
+
+    // set the bit, false if it was set already
+    private static boolean mark(long[] bits, int i) {
+        long mask = 1L << i;
+        if ((bits[i >>> 6] & mask) != 0) return false;
+        bits[i >>> 6] |= mask;
+        return true;
+    }
+
+    private static void clear(long[] bits, int i) {
+        bits[i >>> 6] &= ~(1L << i);
+    }
+
+    private static boolean isSet(long[] bits, int i) {
+        return (bits[i >>> 6] & (1L << i)) != 0;
+    }
+
+    static List<String> tokens(String text) {
+        if (text == null) return List.of();
+        return Arrays.stream(SEPARATORS.split(normalize(text)))
+                .filter(t -> !t.isEmpty())
+                .distinct()
+                .toList();
+    }
+
+    // "$" marks the start of the token, so leading letters weigh more than inner ones
+    private static Set<String> trigrams(String token) {
+        String padded = "$" + token;
+        Set<String> out = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) out.add(padded.substring(i, i + 3));
+        return out;
+    }
+
+    // name length, then the first eight characters: orders most ties without touching the name
+    private static long rankKey(String name) {
+        long key = Math.min(name.length(), 127);
+        for (int i = 0; i < 8; i++) {
+            key = key << 7 | (i < name.length() ? Math.min(name.charAt(i), 127) : 0);
+        }
+        return key;
+    }
+
+    private record Indexed(Entry entry, String name, String[] tokens, byte[] roles, int nameWords, long rankKey) {
+
+        static Indexed of(Entry e) {
+            Map<String, Byte> roles = new LinkedHashMap<>();
+            List<String> words = MedicineSearchIndex.tokens(e.name());
+            for (int i = 0; i < words.size(); i++) roles.put(words.get(i), i == 0 ? FIRST_WORD : OTHER_WORD);
+            roles.putIfAbsent(Integer.toString(e.mg()), MILLIGRAMS);
+            MedicineSearchIndex.tokens(e.medicineType()).forEach(t -> roles.putIfAbsent(t, TYPE));
+
+            String[] tokens = roles.keySet().toArray(String[]::new);
+            byte[] tokenRoles = new byte[tokens.length];
+            for (int i = 0; i < tokens.length; i++) tokenRoles[i] = roles.get(tokens[i]);
+            String name = normalize(e.name());
+            return new Indexed(e, name, tokens, tokenRoles, words.size(), MedicineSearchIndex.rankKey(name));
+        }
+    }
+
+    // the slots of the medicines with a token, and the token's role in each of them
+    private record Posting(int[] slots, byte[] roles) {
+
+        Posting with(int slot, byte role) {
+            int n = slots.length;
+            int[] s = Arrays.copyOf(slots, n + 1);
+            byte[] r = Arrays.copyOf(roles, n + 1);
+            s[n] = slot;
+            r[n] = role;
+            return new Posting(s, r);
+        }
+
+        Posting without(int slot) {
+            int n = 0;
+            int[] s = new int[slots.length];
+            byte[] r = new byte[slots.length];
+            for (int i = 0; i < slots.length; i++) {
+                if (slots[i] == slot) continue;
+                s[n] = slots[i];
+                r[n++] = roles[i];
+            }
+            return new Posting(Arrays.copyOf(s, n), Arrays.copyOf(r, n));
+        }
+    }
+
+    // per slot: the medicine, and what ranking needs of it in flat arrays
+    private record Slots(Indexed[] entries, long[] rankKeys, byte[] nameWords) {
+
+        static Slots ofCapacity(int capacity) {
+            return new Slots(new Indexed[capacity], new long[capacity], new byte[capacity]);
+        }
+
+        Slots grown() {
+            int capacity = entries.length * 2;
+            return new Slots(Arrays.copyOf(entries, capacity), Arrays.copyOf(rankKeys, capacity), Arrays.copyOf(nameWords, capacity));
+        }
+
+        void put(int slot, Indexed m) {
+            entries[slot] = m;
+            rankKeys[slot] = m.rankKey();
+            nameWords[slot] = (byte) Math.min(m.nameWords(), Byte.MAX_VALUE);
+        }
+    }
+
+    private record Hit(int slot, Indexed medicine, int score, long rankKey) {
+    }
+
+    // the best hits so far, worst on top
+    private static final class Page {
+
+        final Slots slots;
+        final int limit;
+        final PriorityQueue<Hit> hits = new PriorityQueue<>(RANKING.reversed());
+
+        Page(Slots slots, int limit) {
+            this.slots = slots;
+            this.limit = limit;
+        }
+
+        boolean isFull() {
+            return hits.size() == limit;
+        }
+
+        int worstScore() {
+            return hits.peek().score();
+        }
+
+        void offer(int slot, int score) {
+            Hit worst = hits.peek();
+            if (isFull()) {
+                if (score < worst.score()) return;
+                if (score == worst.score() && slots.rankKeys()[slot] > worst.rankKey()) return;
+            }
+            Indexed m = slots.entries()[slot];
+            if (m == null) return;
+
+            Hit hit = new Hit(slot, m, score, m.rankKey());
+            if (!isFull()) {
+                hits.add(hit);
+            } else if (RANKING.compare(hit, worst) < 0) {
+                hits.poll();
+                hits.add(hit);
+            }
+        }
+
+        void replace(int slot, int score) {
+            for (Hit h : hits) {
+                if (h.slot() != slot) continue;
+                if (h.score() >= score) return;
+                hits.remove(h);
+                break;
+            }
+            offer(slot, score);
+        }
+
+        List<Entry> entries() {
+            List<Entry> out = new ArrayList<>(hits.size());
+            while (!hits.isEmpty()) out.add(hits.poll().medicine().entry());
+            return out.reversed();
+        }
+    }
+
+    /**
+     * Medicines live in dense slots; the postings of a token list the slots of its medicines.
+     * Slots are not reused until the next reload, and postings and slot arrays are replaced rather
+     * than resized, so a search can run alongside the (single) writer.
+     */
+    private static final class Index {
+
+        final ConcurrentHashMap<Long, Integer> bySlot = new ConcurrentHashMap<>();
+        final ConcurrentSkipListMap<String, Posting> postings = new ConcurrentSkipListMap<>();
+        final ConcurrentHashMap<String, Set<String>> trigramTokens = new ConcurrentHashMap<>();
+        volatile Slots slots;
+        int next;
+
+        Index(List<Entry> entries) {
+            Slots s = Slots.ofCapacity(Math.max(16, entries.size() + entries.size() / 8));
+            Map<String, int[]> slotsOf = new HashMap<>();
+            Map<String, byte[]> rolesOf = new HashMap<>();
+            Map<String, Integer> sizes = new HashMap<>();
+            for (Entry e : entries) {
+                int slot = next++;
+                Indexed m = Indexed.of(e);
+                s.put(slot, m);
+                bySlot.put(e.id(), slot);
+                for (int i = 0; i < m.tokens().length; i++) {
+                    String token = m.tokens()[i];
+                    int n = sizes.merge(token, 1, Integer::sum);
+                    int[] ps = slotsOf.computeIfAbsent(token, t -> new int[4]);
+                    byte[] pr = rolesOf.computeIfAbsent(token, t -> new byte[4]);
+                    if (n > ps.length) {
+                        slotsOf.put(token, ps = Arrays.copyOf(ps, ps.length * 2));
+                        rolesOf.put(token, pr = Arrays.copyOf(pr, pr.length * 2));
+                    }
+                    ps[n - 1] = slot;
+                    pr[n - 1] = m.roles()[i];
+                }
+            }
+            slotsOf.forEach((token, ps) -> {
+                int n = sizes.get(token);
+                postings.put(token, new Posting(Arrays.copyOf(ps, n), Arrays.copyOf(rolesOf.get(token), n)));
+                indexTrigrams(token);
+            });
+            slots = s;
+        }
+
+        void add(Entry e) {
+            if (next == slots.entries().length) slots = slots.grown();
+
+            int slot = next++;
+            Indexed m = Indexed.of(e);
+            slots.put(slot, m);
+            for (int i = 0; i < m.tokens().length; i++) {
+                String token = m.tokens()[i];
+                Posting p = postings.get(token);
+                if (p == null) {
+                    postings.put(token, new Posting(new int[]{slot}, new byte[]{m.roles()[i]}));
+                    indexTrigrams(token);
+                } else {
+                    postings.put(token, p.with(slot, m.roles()[i]));
+                }
+            }
+            bySlot.put(e.id(), slot);
+        }
+
+        void remove(long id) {
+            Integer slot = bySlot.remove(id);
+            if (slot == null) return;
+            Indexed m = slots.entries()[slot];
+            slots.entries()[slot] = null;
+            for (String token : m.tokens()) {
+                Posting p = postings.get(token);
+                if (p == null) continue;
+                Posting rest = p.without(slot);
+                if (rest.slots().length > 0) {
+                    postings.put(token, rest);
+                    continue;
+                }
+                postings.remove(token);
+                if (token.length() < 3) continue;
+                for (String g : trigrams(token)) {
+                    Set<String> tokens = trigramTokens.get(g);
+                    if (tokens == null) continue;
+                    tokens.remove(token);
+                    if (tokens.isEmpty()) trigramTokens.remove(g);
+                }
+            }
+        }
+
+        void indexTrigrams(String token) {
+            if (token.length() < 3) return;
+            for (String g : trigrams(token)) {
+                trigramTokens.computeIfAbsent(g, k -> ConcurrentHashMap.newKeySet()).add(token);
+            }
+        }
+
+        List<Posting> withPrefix(String term) {
+            return new ArrayList<>(postings.subMap(term, true, term + Character.MAX_VALUE, false).values());
+        }
+
+        long postingSize(String token) {
+            Posting p = postings.get(token);
+            return p == null ? 0 : p.slots().length;
+        }
+
+        // token -> share of the term's trigrams it contains, for the tokens close enough
+        Map<String, Double> similarTo(String term) {
+            Map<String, Double> out = new HashMap<>();
+            if (term.length() < 3) return out;
+
+            Set<String> grams = trigrams(term);
+            Map<String, Integer> shared = new HashMap<>();
+            for (String g : grams) {
+                Set<String> tokens = trigramTokens.get(g);
+                if (tokens != null) tokens.forEach(t -> shared.merge(t, 1, Integer::sum));
+            }
+            shared.forEach((token, count) -> {
+                double similarity = (double) count / grams.size();
+                if (similarity >= MIN_SIMILARITY) out.put(token, similarity);
+            });
+            return out;
+        }
+    }
+}
@@ -1,28 +1,45 @@
 package org.nbu.medicalrecord.services.impl;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.nbu.medicalrecord.dtos.request.MedicineDtoRequest;
+import org.nbu.medicalrecord.dtos.response.CursorPageDtoResponse;
 import org.nbu.medicalrecord.dtos.response.MedicineDtoResponse;
 import org.nbu.medicalrecord.entities.Medicine;
 import org.nbu.medicalrecord.repositories.MedicineRepository;
 import org.nbu.medicalrecord.services.MedicineService;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+import static org.nbu.medicalrecord.util.CursorUtil.*;
+
 @Service
 @RequiredArgsConstructor
 public class MedicineServiceImpl implements MedicineService {
 
+    private static final int MAX_SEARCH_RESULTS = 50;
+
     private final MedicineRepository medicineRepository;
+    private final ReferenceDataCache referenceData;
+    private final MedicineSearchIndex searchIndex;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
     @Override
     @Transactional
     public MedicineDtoResponse addMedicine(MedicineDtoRequest req) {
         String nameNorm = req.getName().trim();
-        if (medicineRepository.existsByNameIgnoreCaseAndMg(nameNorm, req.getMg())) {
+        if (referenceData.findMedicine(nameNorm, req.getMg()).isPresent()) {
             throw new IllegalStateException("Medicine already exists (name+mg must be unique).");
         }
         Medicine m = new Medicine();
@@ -30,12 +47,15 @@ public class MedicineServiceImpl implements MedicineService {
         m.setMg(req.getMg());
         m.setMedicineType(req.getMedicineType());
         medicineRepository.save(m);
+        referenceData.medicinesChanged();
+        MedicineSearchIndex.Entry entry = MedicineSearchIndex.Entry.of(m);
+        afterCommit(() -> searchIndex.add(entry));
         return toDto(m);
     }
 
     @Override
     public MedicineDtoResponse showMedicine(String name, int mg) {
-        Medicine m = medicineRepository.findByNameIgnoreCaseAndMg(name.trim(), mg)
+        Medicine m = referenceData.findMedicine(name.trim(), mg)
                 .orElseThrow(() -> new IllegalArgumentException("Medicine " + name + " not found"));
         return toDto(m);
     }
@@ -49,6 +69,34 @@ public class MedicineServiceImpl implements MedicineService {
                 .collect(Collectors.toSet());
     }
 
+    @Override
+    public List<MedicineDtoResponse> searchMedicines(String query, int limit) {
+        int n = Math.clamp(limit, 1, MAX_SEARCH_RESULTS);
+        if (query == null || query.isBlank()) return List.of();
+
+        if (searchIndex.isReady()) {
+            return searchIndex.search(query, n).stream()
+                    .map(e -> new MedicineDtoResponse(e.id(), e.name(), e.mg(), e.medicineType()))
+                    .toList();
+        }
+        return medicineRepository.findByNameStartingWithIgnoreCaseOrderByNameAscMgAsc(query.strip(), Limit.of(n)).stream()
+                .map(this::toDto)
+                .toList();
+    }
+
+    @Override
+    @Transactional
+    public CursorPageDtoResponse<MedicineDtoResponse> showMedicinesPage(String cursor, int size) {
+        Limit limit = limit(size);
+        return page(medicineRepository.findByIdGreaterThanOrderByIdAsc(afterId(cursor), limit), limit, this::toDto);
+    }
+
+    @Override
+    @Transactional
+    public void streamAllMedicines(Consumer<MedicineDtoResponse> sink) {
+        streamDetached(medicineRepository.streamAllByOrderByIdAsc(), entityManager, this::toDto, sink);
+    }
+
     @Override
     @Transactional
     public void deleteMedicine(long medicineId) {
@@ -56,6 +104,21 @@ public class MedicineServiceImpl implements MedicineService {
             throw new IllegalArgumentException("Medicine not found");
         }
         medicineRepository.deleteById(medicineId);
+        referenceData.medicinesChanged();
+        afterCommit(() -> searchIndex.remove(medicineId));
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 
     private MedicineDtoResponse toDto(Medicine m) {
@@ -0,0 +1,199 @@
+package org.nbu.medicalrecord.services.impl;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.nbu.medicalrecord.entities.OutboxEvent;
+import org.nbu.medicalrecord.entities.OutboxEvent.Status;
+import org.nbu.medicalrecord.entities.OutboxEvent.Type;
+import org.nbu.medicalrecord.repositories.OutboxEventRepository;
+import org.nbu.medicalrecord.services.OutboxHandler;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Delivers the outbox (see {@link OutboxServiceImpl}) to the {@link OutboxHandler}s of each event type.
+ * Every {@code poll-interval-ms} a batch of due events is claimed with {@code FOR UPDATE SKIP LOCKED}
+ * and leased for {@code lease-ms} (their available_at moves past the lease), so several instances share
+ * the backlog without waiting on each other and the events of a crashed worker come due again. The batch is handled
+ * on a pool of {@code workers} threads, outside of the claiming transaction. A failed event is retried
+ * with exponential backoff (doubling from {@code backoff.initial-ms} up to {@code backoff.max-ms}, with
+ * jitter) and marked FAILED after {@code max-attempts}. Handled events are purged after
+ * {@code retention-days}.
+ */
+@Slf4j
+@Component
+public class OutboxDispatcher {
+
+    private static final int ERROR_LENGTH = 1000;
+
+    private final OutboxEventRepository outboxRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<Type, List<OutboxHandler>> handlers;
+    private final ThreadPoolExecutor workers;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final Duration lease;
+    private final Duration retention;
+
+    private final LongAdder dispatched = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private volatile long pending;
+    private volatile double lagSeconds;
+
+    public OutboxDispatcher(OutboxEventRepository outboxRepository,
+                            TransactionTemplate transactionTemplate,
+                            ObjectProvider<OutboxHandler> handlers,
+                            @Value("${outbox.workers:4}") int threads,
+                            @Value("${outbox.batch-size:100}") int batchSize,
+                            @Value("${outbox.max-attempts:10}") int maxAttempts,
+                            @Value("${outbox.backoff.initial-ms:1000}") long initialBackoffMillis,
+                            @Value("${outbox.backoff.max-ms:600000}") long maxBackoffMillis,
+                            @Value("${outbox.lease-ms:300000}") long leaseMillis,
+                            @Value("${outbox.retention-days:7}") int retentionDays) {
+        this.outboxRepository = outboxRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.handlers = handlers.orderedStream().collect(Collectors.groupingBy(OutboxHandler::type));
+        this.batchSize = Math.max(1, batchSize);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffMillis = Math.max(1, initialBackoffMillis);
+        this.maxBackoffMillis = Math.max(this.initialBackoffMillis, maxBackoffMillis);
+        this.lease = Duration.ofMillis(leaseMillis);
+        this.retention = Duration.ofDays(retentionDays);
+
+        // the queue never holds more than one batch: a poll waits for its batch before claiming the next
+        int size = Math.max(1, threads);
+        this.workers = new ThreadPoolExecutor(size, size, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                Thread.ofPlatform().name("outbox-", 1).daemon(true).factory());
+        log.info("Outbox dispatcher: {} workers, batches of {}, handlers for {}", size, this.batchSize, this.handlers.keySet());
+    }
+
+    /** Claims and handles due events until a batch comes back short, then refreshes the lag. */
+    @Scheduled(fixedDelayString = "${outbox.poll-interval-ms:500}")
+    public void dispatch() {
+        List<OutboxEvent> batch;
+        do {
+            batch = claim();
+            if (!batch.isEmpty() && !handle(batch)) return;
+        } while (batch.size() == batchSize);
+
+        Instant oldest = outboxRepository.findOldestCreatedAt(Status.PENDING);
+        lagSeconds = oldest == null ? 0 : Duration.between(oldest, Instant.now()).toMillis() / 1000.0;
+        pending = outboxRepository.countByStatus(Status.PENDING);
+    }
+
+    @Scheduled(cron = "${outbox.purge-cron:0 45 3 * * *}")
+    public void purge() {
+        Integer purged = transactionTemplate.execute(status ->
+                outboxRepository.deleteProcessedBefore(Status.DONE, Instant.now().minus(retention)));
+        log.info("Outbox purged: {} handled events older than {} days", purged, retention.toDays());
+    }
+
+    private List<OutboxEvent> claim() {
+        return transactionTemplate.execute(status -> {
+            Instant now = Instant.now();
+            List<OutboxEvent> batch = outboxRepository.lockDue(now, batchSize);
+            for (OutboxEvent event : batch) {
+                event.setAttempts(event.getAttempts() + 1);
+                event.setAvailableAt(now.plus(lease));
+            }
+            return batch;
+        });
+    }
+
+    // false when interrupted (shutdown); the unfinished events are claimed again when their lease runs out
+    private boolean handle(List<OutboxEvent> batch) {
+        List<Callable<Void>> tasks = new ArrayList<>(batch.size());
+        for (OutboxEvent event : batch) {
+            tasks.add(() -> {
+                deliver(event);
+                return null;
+            });
+        }
+        try {
+            workers.invokeAll(tasks);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void deliver(OutboxEvent event) {
+        try {
+            for (OutboxHandler handler : handlers.getOrDefault(event.getType(), List.of())) {
+                handler.handle(event);
+            }
+        } catch (Exception e) {
+            failedAttempt(event, e);
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status ->
+                outboxRepository.finish(event.getId(), Status.DONE, Instant.now(), null));
+        dispatched.increment();
+    }
+
+    private void failedAttempt(OutboxEvent event, Exception e) {
+        String error = e.toString();
+        if (error.length() > ERROR_LENGTH) {
+            error = error.substring(0, ERROR_LENGTH);
+        }
+
+        Instant now = Instant.now();
+        String lastError = error;
+        if (event.getAttempts() >= maxAttempts) {
+            transactionTemplate.executeWithoutResult(status ->
+                    outboxRepository.finish(event.getId(), Status.FAILED, now, lastError));
+            failed.increment();
+            log.error("Outbox event {} ({} {}) failed for good after {} attempts",
+                    event.getId(), event.getType(), event.getAggregateId(), event.getAttempts(), e);
+        } else {
+            Instant retryAt = now.plusMillis(backoffMillis(event.getAttempts()));
+            transactionTemplate.executeWithoutResult(status ->
+                    outboxRepository.retryAt(event.getId(), Status.PENDING, retryAt, lastError));
+            retried.increment();
+            log.warn("Outbox event {} ({} {}) failed, attempt {} of {}, retrying at {}: {}",
+                    event.getId(), event.getType(), event.getAggregateId(), event.getAttempts(), maxAttempts, retryAt, lastError);
+        }
+    }
+
+    // doubles per attempt up to the cap; a random half of it spreads the retries of a burst of failures
+    public long backoffMillis(int attempts) {
+        long backoff = initialBackoffMillis;
+        for (int i = 1; i < attempts && backoff < maxBackoffMillis; i++) {
+            backoff *= 2;
+        }
+        backoff = Math.min(backoff, maxBackoffMillis);
+        return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    }
+
+    public OutboxStats stats() {
+        return new OutboxStats(dispatched.sum(), retried.sum(), failed.sum(), pending, lagSeconds, workers.getActiveCount());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    public record OutboxStats(long dispatched, long retried, long failed, long pending, double lagSeconds, int active) {
+    }
+}
@@ -0,0 +1,38 @@
+package org.nbu.medicalrecord.services.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.nbu.medicalrecord.entities.OutboxEvent;
+import org.nbu.medicalrecord.repositories.OutboxEventRepository;
+import org.nbu.medicalrecord.services.OutboxService;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+/**
+ * Transactional outbox: a domain event is one more insert in the transaction of the change, so it
+ * exists exactly when the change committed, and the request does not wait for whatever follows it.
+ * {@link OutboxDispatcher} delivers the events in the background.
+ */
+@Service
+@RequiredArgsConstructor
+public class OutboxServiceImpl implements OutboxService {
+
+    private final OutboxEventRepository outboxRepository;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publish(OutboxEvent.Type type, long aggregateId, Object payload) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize the " + type + " event of " + aggregateId, e);
+        }
+        outboxRepository.save(new OutboxEvent(type, aggregateId, json, Instant.now()));
+    }
+}
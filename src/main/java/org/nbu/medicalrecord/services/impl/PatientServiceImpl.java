@@ -1,6 +1,10 @@
 package org.nbu.medicalrecord.services.impl;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.nbu.medicalrecord.dtos.response.CursorPageDtoResponse;
 import org.nbu.medicalrecord.dtos.response.DoctorDataPatientViewDtoResponse;
 import org.nbu.medicalrecord.dtos.response.PatientDataDtoResponse;
 import org.nbu.medicalrecord.dtos.response.PatientDataWithDoctorDtoResponse;
@@ -9,23 +13,52 @@ import org.nbu.medicalrecord.entities.Doctor;
 import org.nbu.medicalrecord.entities.Patient;
 import org.nbu.medicalrecord.repositories.DoctorRepository;
 import org.nbu.medicalrecord.repositories.PatientRepository;
+import org.nbu.medicalrecord.repositories.PatientRepository.SearchHitView;
+import org.nbu.medicalrecord.repositories.UserRepository;
 import org.nbu.medicalrecord.services.PatientService;
+import org.nbu.medicalrecord.services.StatisticsService;
+import org.nbu.medicalrecord.util.AllergenKeyUtil;
+import org.nbu.medicalrecord.util.NameKeyUtil;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static org.nbu.medicalrecord.util.CheckExistUtil.*;
+import static org.nbu.medicalrecord.util.CursorUtil.*;
+import static org.nbu.medicalrecord.util.DiagnosisKeyUtil.keyOf;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class PatientServiceImpl implements PatientService {
 
+    private static final int BACKFILL_CHUNK = 1000;
+
     private final PatientRepository patientRepository;
     private final DoctorRepository doctorRepository;
+    private final UserRepository userRepository;
+    private final StatisticsService statisticsService;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
     @Override
     @Transactional
@@ -47,6 +80,111 @@ public class PatientServiceImpl implements PatientService {
                 .collect(Collectors.toCollection(LinkedHashSet::new));
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageDtoResponse<PatientDataWithDoctorDtoResponse> showPatientsPage(String cursor, int size) {
+        Limit limit = limit(size);
+        return page(patientRepository.findByIdGreaterThanOrderByIdAsc(afterId(cursor), limit), limit, this::toPatientWithDoctorDto);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAllPatients(Consumer<PatientDataWithDoctorDtoResponse> sink) {
+        streamDetached(patientRepository.streamAllByOrderByIdAsc(), entityManager, this::toPatientWithDoctorDto, sink);
+    }
+
+    /**
+     * Patients by name and/or EGN prefix, page by page. Every name term has to start the first or the last
+     * name, in either order ("ivan pet", "petrov iv"), ignoring case and accents; digits are an EGN prefix.
+     * Matches by last name come from one index range and matches by first name from the other; both are
+     * merged in key order, so a page costs two index range scans of at most {@code size} rows each, plus
+     * one query for the GPs on the page.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageDtoResponse<PatientDataWithDoctorDtoResponse> searchPatients(String query, String cursor, int size) {
+        Limit limit = limit(size);
+        KeyPosition after = afterKey(cursor);
+
+        List<String> names = new ArrayList<>();
+        StringBuilder egn = new StringBuilder();
+        for (String term : NameKeyUtil.normalize(query).split(" ")) {
+            if (term.isEmpty()) continue;
+            if (term.chars().allMatch(c -> c >= '0' && c <= '9')) egn.append(term);
+            else names.add(term);
+        }
+        String egnPattern = egn + "%";
+
+        if (names.isEmpty()) {
+            if (egn.isEmpty()) return new CursorPageDtoResponse<>(List.of(), null);
+            return searchPage(patientRepository.searchByEgn(egnPattern, after.key(), limit), limit);
+        }
+
+        // each term a word prefix ("petr iv" -> "petr% iv%"); the first stays literal, so the index range holds
+        String pattern = String.join("% ", names) + "%";
+        List<SearchHitView> hits = new ArrayList<>(patientRepository.searchByNameKey(pattern, egnPattern, after.key(), after.id(), limit));
+        hits.addAll(patientRepository.searchByReversedNameKey(pattern, egnPattern, after.key(), after.id(), limit));
+        hits.sort(Comparator.comparing(SearchHitView::getSortKey).thenComparing(SearchHitView::getUserId));
+
+        return searchPage(hits.subList(0, Math.min(hits.size(), limit.max())), limit);
+    }
+
+    private CursorPageDtoResponse<PatientDataWithDoctorDtoResponse> searchPage(List<SearchHitView> hits, Limit limit) {
+        Set<Long> gpIds = hits.stream().map(SearchHitView::getGpId).filter(Objects::nonNull).collect(Collectors.toSet());
+        Map<Long, DoctorDataPatientViewDtoResponse> gps = gpIds.isEmpty() ? Map.of() : toGpDtos(doctorRepository.findGpViewsByIdIn(gpIds));
+
+        List<PatientDataWithDoctorDtoResponse> items = hits.stream()
+                .map(h -> new PatientDataWithDoctorDtoResponse(
+                        new PatientDataDtoResponse(h.getPatientId(), h.getFirstName(), h.getLastName(), h.getBirthDate()),
+                        h.getGpId() != null ? gps.get(h.getGpId()) : null))
+                .toList();
+        String next = hits.size() < limit.max() ? null : keyCursor(hits.getLast().getSortKey(), hits.getLast().getUserId());
+        return new CursorPageDtoResponse<>(items, next);
+    }
+
+    private static Map<Long, DoctorDataPatientViewDtoResponse> toGpDtos(List<DoctorRepository.GpView> rows) {
+        Map<Long, DoctorDataPatientViewDtoResponse> gps = new HashMap<>();
+        for (DoctorRepository.GpView row : rows) {
+            DoctorDataPatientViewDtoResponse gp = gps.computeIfAbsent(row.getId(), id -> new DoctorDataPatientViewDtoResponse(
+                    id, row.getFirstName(), row.getLastName(), new HashSet<>(), row.isGp()));
+            if (row.getSpecializationId() != null) {
+                gp.getSpecializations().add(new SpecializationDtoResponse(row.getSpecializationId(), row.getSpecializationType()));
+            }
+        }
+        return gps;
+    }
+
+    /**
+     * Fills the name keys of users written before the columns existed, in id order and
+     * {@value #BACKFILL_CHUNK} rows per transaction. New and renamed users get theirs from the entity callback.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillNameKeys() {
+        long afterId = 0;
+        int filled = 0;
+        while (true) {
+            long from = afterId;
+            List<UserRepository.NamelessView> chunk = transactionTemplate.execute(status -> {
+                List<UserRepository.NamelessView> rows = userRepository.findWithoutNameKey(from, Limit.of(BACKFILL_CHUNK));
+                if (rows.isEmpty()) return rows;
+                jdbcTemplate.batchUpdate("update users set name_key = ?, reversed_name_key = ? where id = ?", rows, rows.size(),
+                        (ps, row) -> {
+                            ps.setString(1, NameKeyUtil.nameKey(row.getFirstName(), row.getLastName()));
+                            ps.setString(2, NameKeyUtil.reversedNameKey(row.getFirstName(), row.getLastName()));
+                            ps.setLong(3, row.getId());
+                        });
+                return rows;
+            });
+            if (chunk == null || chunk.isEmpty()) break;
+
+            filled += chunk.size();
+            afterId = chunk.getLast().getId();
+        }
+        if (filled > 0) {
+            log.info("Name keys backfilled for {} users", filled);
+        }
+    }
+
     @Override
     @Transactional
     public Set<PatientDataWithDoctorDtoResponse> showAllPatientsWhoVisitedDoctor(long doctorId) {
@@ -63,7 +201,7 @@ public class PatientServiceImpl implements PatientService {
     public int totalCountPatientsWhoVisitedDoctor(long doctorId) {
         checkIfPatientExists(patientRepository, doctorId);
 
-        return patientRepository.countDistinctByVisitedDoctor(doctorId);
+        return statisticsService.countPatientsDiagnosedByDoctor(doctorId);
     }
 
     @Override
@@ -71,7 +209,7 @@ public class PatientServiceImpl implements PatientService {
     public Set<PatientDataWithDoctorDtoResponse> showAllPatientsWithSameDiagnosis(String diagnosis) {
         // TODO check if diagnosis exists
 
-        return patientRepository.findDistinctByDiagnosis(diagnosis).stream()
+        return patientRepository.findDistinctByDiagnosisKey(keyOf(diagnosis)).stream()
                 .sorted(byNameThenId())
                 .map(this::toPatientWithDoctorDto)
                 .collect(Collectors.toCollection(LinkedHashSet::new));
@@ -82,13 +220,13 @@ public class PatientServiceImpl implements PatientService {
     public int totalCountPatientsWithSameDiagnosis(String diagnosis) {
         // TODO check if diagnosis exists
 
-        return patientRepository.countDistinctByDiagnosis(diagnosis);
+        return patientRepository.countDistinctByDiagnosisKey(keyOf(diagnosis));
     }
 
     @Override
     @Transactional
     public Set<PatientDataWithDoctorDtoResponse> showAllPatientsWithAllergy(String allergen) {
-        return patientRepository.findDistinctByAllergen(allergen).stream()
+        return patientRepository.findDistinctByAllergenKey(AllergenKeyUtil.keyOf(allergen)).stream()
                 .sorted(byNameThenId())
                 .map(this::toPatientWithDoctorDto)
                 .collect(Collectors.toCollection(LinkedHashSet::new));
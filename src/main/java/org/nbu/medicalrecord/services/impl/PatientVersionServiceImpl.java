@@ -0,0 +1,30 @@
+package org.nbu.medicalrecord.services.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.nbu.medicalrecord.repositories.PatientVersionRepository;
+import org.nbu.medicalrecord.services.PatientVersionService;
+import org.springframework.stereotype.Service;
+
+/**
+ * Per-patient version counters behind the ETags of {@code /medical-record/patient/{id}},
+ * {@code /diagnosis/patient/{id}} and {@code /visit/patient/{id}}: a poll whose {@code If-None-Match}
+ * still matches is answered 304 after a primary key lookup in {@code patient_versions}, without
+ * loading the record. Medications reach a patient's listings only through a visit, so attaching one
+ * moves the version with the visit.
+ */
+@Service
+@RequiredArgsConstructor
+public class PatientVersionServiceImpl implements PatientVersionService {
+
+    private final PatientVersionRepository versionRepository;
+
+    @Override
+    public void patientChanged(long patientId) {
+        versionRepository.bump(patientId);
+    }
+
+    @Override
+    public long currentVersion(long patientId) {
+        return versionRepository.findVersion(patientId).orElse(0L);
+    }
+}
@@ -0,0 +1,250 @@
+package org.nbu.medicalrecord.services.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.nbu.medicalrecord.entities.Allergy;
+import org.nbu.medicalrecord.entities.Medicine;
+import org.nbu.medicalrecord.entities.Specialization;
+import org.nbu.medicalrecord.repositories.AllergyRepository;
+import org.nbu.medicalrecord.repositories.MedicineRepository;
+import org.nbu.medicalrecord.repositories.SpecializationRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Specializations, medicines and allergens change a few times a month but are read on most write
+ * paths (doctor registration, prescriptions, allergen resolution). This keeps immutable views of them
+ * in bounded Caffeine caches; callers get fresh detached entities built from the views, good for
+ * reading and for linking (none of the associations to them cascade).
+ * <p>
+ * The services that change these tables invalidate the affected entries, immediately and again once
+ * the transaction commits. Changes made outside of this instance are picked up after {@code ttl-minutes}.
+ */
+@Component
+public class ReferenceDataCache {
+
+    public record SpecializationView(long id, String type) {
+        public Specialization toEntity() {
+            Specialization s = new Specialization();
+            s.setId(id);
+            s.setType(type);
+            return s;
+        }
+    }
+
+    public record MedicineView(long id, String name, int mg, String medicineType) {
+        public Medicine toEntity() {
+            Medicine m = new Medicine(name, mg, medicineType);
+            m.setId(id);
+            return m;
+        }
+    }
+
+    public record AllergyView(long id, String allergen) {
+    }
+
+    public record Stats(long size, long hits, long misses, double hitRate, long evictions, long invalidations) {
+    }
+
+    private final SpecializationRepository specializationRepository;
+    private final MedicineRepository medicineRepository;
+    private final AllergyRepository allergyRepository;
+
+    private final Cache<Long, SpecializationView> specializationsById;
+    private final Cache<String, Boolean> specializationTypes;                 // lower-case type -> exists
+    private final Cache<Long, MedicineView> medicinesById;
+    private final Cache<String, Optional<MedicineView>> medicinesByNameAndMg; // "name|mg", lower-case
+    private final Cache<String, Optional<AllergyView>> allergensByKey;        // see AllergenKeyUtil
+    private final Map<String, Cache<?, ?>> caches = new LinkedHashMap<>();
+    private final Map<Cache<?, ?>, LongAdder> invalidations = new HashMap<>();
+    // bumped by every invalidation, also the ones after commit; a load that saw another value may be stale
+    private final Map<Cache<?, ?>, AtomicLong> generations = new HashMap<>();
+
+    public ReferenceDataCache(SpecializationRepository specializationRepository,
+                              MedicineRepository medicineRepository,
+                              AllergyRepository allergyRepository,
+                              @Value("${reference-data.cache.max-size:10000}") long maxSize,
+                              @Value("${reference-data.cache.ttl-minutes:60}") long ttlMinutes) {
+        this.specializationRepository = specializationRepository;
+        this.medicineRepository = medicineRepository;
+        this.allergyRepository = allergyRepository;
+
+        Duration ttl = Duration.ofMinutes(ttlMinutes);
+        this.specializationsById = register("specializations-by-id", maxSize, ttl);
+        this.specializationTypes = register("specialization-types", maxSize, ttl);
+        this.medicinesById = register("medicines-by-id", maxSize, ttl);
+        this.medicinesByNameAndMg = register("medicines-by-name-and-mg", maxSize, ttl);
+        this.allergensByKey = register("allergens-by-key", maxSize, ttl);
+    }
+
+    // ---- specializations ----
+
+    /** The existing ones of the ids, as detached entities; unknown ids are left out. */
+    public List<Specialization> findSpecializationsById(Collection<Long> ids) {
+        return getAll(specializationsById, ids, missing -> specializationRepository.findAllById(List.copyOf(missing)).stream()
+                        .collect(Collectors.toMap(Specialization::getId, s -> new SpecializationView(s.getId(), s.getType()))))
+                .values().stream()
+                .map(SpecializationView::toEntity)
+                .toList();
+    }
+
+    public boolean specializationTypeExists(String type) {
+        return get(specializationTypes, type.toLowerCase(Locale.ROOT), k -> specializationRepository.existsByTypeIgnoreCase(type));
+    }
+
+    public void specializationsChanged() {
+        invalidateAll(specializationsById);
+        invalidateAll(specializationTypes);
+    }
+
+    // ---- medicines ----
+
+    /** The existing ones of the ids, as detached entities; unknown ids are left out. */
+    public List<Medicine> findMedicinesById(Collection<Long> ids) {
+        return getAll(medicinesById, ids, missing -> medicineRepository.findAllById(List.copyOf(missing)).stream()
+                        .collect(Collectors.toMap(Medicine::getId, ReferenceDataCache::view)))
+                .values().stream()
+                .map(MedicineView::toEntity)
+                .toList();
+    }
+
+    public Optional<Medicine> findMedicine(String name, int mg) {
+        String key = name.toLowerCase(Locale.ROOT) + "|" + mg;
+        return get(medicinesByNameAndMg, key, k -> medicineRepository.findByNameIgnoreCaseAndMg(name, mg).map(ReferenceDataCache::view))
+                .map(MedicineView::toEntity);
+    }
+
+    public void medicinesChanged() {
+        invalidateAll(medicinesById);
+        invalidateAll(medicinesByNameAndMg);
+    }
+
+    // ---- allergens ----
+
+    public Optional<AllergyView> findAllergy(String allergenKey) {
+        return findAllergies(List.of(allergenKey)).get(allergenKey);
+    }
+
+    /** Every key mapped to its catalog entry, or to empty when there is none (absent entries are cached too). */
+    public Map<String, Optional<AllergyView>> findAllergies(Collection<String> allergenKeys) {
+        return getAll(allergensByKey, allergenKeys, missing -> {
+            Map<String, Optional<AllergyView>> found = new HashMap<>();
+            missing.forEach(key -> found.put(key, Optional.empty()));
+            for (Allergy a : allergyRepository.findAllByAllergenKeyIn(List.copyOf(missing))) {
+                found.put(a.getAllergenKey(), Optional.of(new AllergyView(a.getId(), a.getAllergen())));
+            }
+            return found;
+        });
+    }
+
+    public void allergensChanged(Collection<String> allergenKeys) {
+        List<String> keys = new ArrayList<>(allergenKeys);
+        allergensByKey.invalidateAll(keys);
+        generations.get(allergensByKey).incrementAndGet();
+        invalidations.get(allergensByKey).add(keys.size());
+        afterCommit(() -> {
+            generations.get(allergensByKey).incrementAndGet();
+            allergensByKey.invalidateAll(keys);
+        });
+    }
+
+    public void allergensChanged() {
+        invalidateAll(allergensByKey);
+    }
+
+    // ---- all ----
+
+    public void clear() {
+        caches.values().forEach(this::invalidateAll);
+    }
+
+    public Map<String, Stats> stats() {
+        Map<String, Stats> stats = new LinkedHashMap<>();
+        caches.forEach((name, cache) -> {
+            CacheStats s = cache.stats();
+            stats.put(name, new Stats(cache.estimatedSize(), s.hitCount(), s.missCount(), s.hitRate(),
+                    s.evictionCount(), invalidations.get(cache).sum()));
+        });
+        return stats;
+    }
+
+    // a miss loads outside the cache: Caffeine's get(key, loader) runs it under a map lock, where a virtual
+    // thread waiting for a connection would pin its carrier (bulk getAll already loads unlocked)
+    private <K, V> V get(Cache<K, V> cache, K key, Function<K, V> loader) {
+        V cached = cache.getIfPresent(key);
+        if (cached != null) return cached;
+
+        AtomicLong generation = generations.get(cache);
+        long seen = generation.get();
+        V loaded = loader.apply(key);
+        cache.put(key, loaded);
+        if (generation.get() != seen) cache.invalidate(key);
+        return loaded;
+    }
+
+    // the bulk counterpart of get: getAll caches what it loaded before returning, so a change that raced the
+    // load drops those keys again
+    private <K, V> Map<K, V> getAll(Cache<K, V> cache, Collection<? extends K> keys,
+                                    Function<? super Set<? extends K>, ? extends Map<? extends K, ? extends V>> loader) {
+        AtomicLong generation = generations.get(cache);
+        long seen = generation.get();
+        Map<K, V> found = cache.getAll(keys, loader);
+        if (generation.get() != seen) cache.invalidateAll(found.keySet());
+        return found;
+    }
+
+    private <K, V> Cache<K, V> register(String name, long maxSize, Duration ttl) {
+        Cache<K, V> cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        caches.put(name, cache);
+        invalidations.put(cache, new LongAdder());
+        generations.put(cache, new AtomicLong());
+        return cache;
+    }
+
+    // again once committed, so a concurrent reader cannot re-cache the state from before the change
+    private void invalidateAll(Cache<?, ?> cache) {
+        cache.invalidateAll();
+        generations.get(cache).incrementAndGet();
+        invalidations.get(cache).increment();
+        afterCommit(() -> {
+            generations.get(cache).incrementAndGet();
+            cache.invalidateAll();
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) return;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static MedicineView view(Medicine m) {
+        return new MedicineView(m.getId(), m.getName(), m.getMg(), m.getMedicineType());
+    }
+}
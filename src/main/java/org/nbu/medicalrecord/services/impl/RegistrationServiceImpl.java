@@ -8,7 +8,6 @@ import org.nbu.medicalrecord.dtos.request.AllergyDtoRequest;
 import org.nbu.medicalrecord.entities.*;
 import org.nbu.medicalrecord.repositories.DoctorRepository;
 import org.nbu.medicalrecord.repositories.PatientRepository;
-import org.nbu.medicalrecord.repositories.SpecializationRepository;
 import org.nbu.medicalrecord.repositories.UserRepository;
 import org.nbu.medicalrecord.services.RegistrationService;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -26,8 +25,9 @@ public class RegistrationServiceImpl implements RegistrationService {
     private final UserRepository userRepository;
     private final PatientRepository patientRepository;
     private final DoctorRepository doctorRepository;
-    private final SpecializationRepository specializationRepository;
+    private final ReferenceDataCache referenceData;
     private final PasswordEncoder passwordEncoder;
+    private final AllergenCatalog allergenCatalog;
 
     @Transactional
     public void createPatient(AdminCreatePatientRequest req) {
@@ -88,7 +88,7 @@ public class RegistrationServiceImpl implements RegistrationService {
         user.setAuthorities(Set.of("DOCTOR"));
 
         HashSet<Long> requestedIds = new HashSet<>(req.getSpecializationIds());
-        List<Specialization> foundSpecs = specializationRepository.findAllById(requestedIds);
+        List<Specialization> foundSpecs = referenceData.findSpecializationsById(requestedIds);
 
         if (foundSpecs.size() != requestedIds.size()) {
             Set<Long> foundIds = foundSpecs.stream().map(Specialization::getId).collect(java.util.stream.Collectors.toSet());
@@ -111,15 +111,12 @@ public class RegistrationServiceImpl implements RegistrationService {
         return email.trim().toLowerCase(Locale.ROOT);
     }
 
+    // shared catalog entries, not new rows per patient
     private Set<Allergy> toAllergies(Set<AllergyDtoRequest> allergiesDtoRequests) {
-        Set<Allergy> allergySet = new HashSet<>();
+        if (allergiesDtoRequests.isEmpty()) return new HashSet<>();
 
-        for (AllergyDtoRequest allergyDtoRequest : allergiesDtoRequests) {
-            Allergy allergy = new Allergy();
-            allergy.setAllergen(allergyDtoRequest.getAllergen());
-            allergySet.add(allergy);
-        }
-
-        return allergySet;
+        return new HashSet<>(allergenCatalog.resolve(allergiesDtoRequests.stream()
+                .map(AllergyDtoRequest::getAllergen)
+                .toList()));
     }
 }
\ No newline at end of file
@@ -5,12 +5,17 @@ import lombok.RequiredArgsConstructor;
 import org.nbu.medicalrecord.dtos.request.SickLeaveDtoRequest;
 import org.nbu.medicalrecord.dtos.response.SickLeaveDtoResponse;
 import org.nbu.medicalrecord.entities.Doctor;
+import org.nbu.medicalrecord.entities.OutboxEvent;
 import org.nbu.medicalrecord.entities.Patient;
 import org.nbu.medicalrecord.entities.SickLeave;
 import org.nbu.medicalrecord.repositories.DoctorRepository;
 import org.nbu.medicalrecord.repositories.PatientRepository;
 import org.nbu.medicalrecord.repositories.SickLeaveRepository;
+import org.nbu.medicalrecord.services.OutboxService;
+import org.nbu.medicalrecord.services.PatientVersionService;
 import org.nbu.medicalrecord.services.SickLeaveService;
+import org.nbu.medicalrecord.services.StatisticsService;
+import org.nbu.medicalrecord.services.TimelineService;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
@@ -29,6 +34,10 @@ public class SickLeaveServiceImpl implements SickLeaveService {
     private final SickLeaveRepository sickLeaveRepository;
     private final DoctorRepository doctorRepository;
     private final PatientRepository patientRepository;
+    private final StatisticsService statisticsService;
+    private final PatientVersionService patientVersionService;
+    private final TimelineService timelineService;
+    private final OutboxService outboxService;
 
     @Override
     @Transactional
@@ -53,7 +62,13 @@ public class SickLeaveServiceImpl implements SickLeaveService {
         sl.setReason(req.getReason());
 
         sickLeaveRepository.save(sl);
-        return toDto(sl);
+        statisticsService.sickLeaveCreated(sl);
+        timelineService.sickLeaveCreated(sl);
+        patientVersionService.patientChanged(patient.getId());
+
+        SickLeaveDtoResponse issued = toDto(sl);
+        outboxService.publish(OutboxEvent.Type.SICK_LEAVE_ISSUED, sl.getId(), issued);
+        return issued;
     }
 
     @Override
@@ -78,10 +93,7 @@ public class SickLeaveServiceImpl implements SickLeaveService {
 
     @Override
     public Month showMonthWithMostSickLeaves() {
-        var list = sickLeaveRepository.countByMonthDesc();
-        if (list.isEmpty()) return null;
-        int monthNumber = list.getFirst().getM();
-        return Month.of(monthNumber);
+        return statisticsService.monthWithMostSickLeaves();
     }
 
     private SickLeaveDtoResponse toDto(SickLeave s) {
@@ -20,12 +20,13 @@ public class SpecializationServiceImpl implements SpecializationService {
 
     private final SpecializationRepository specializationRepository;
     private final DoctorRepository doctorRepository;
+    private final ReferenceDataCache referenceData;
 
     @Override
     @Transactional
     public SpecializationDtoResponse addNewSpecialization(SpecializationDtoRequest req) {
         String name = normalize(req.getType());
-        if (specializationRepository.existsByTypeIgnoreCase(name)) {
+        if (referenceData.specializationTypeExists(name)) {
             throw new IllegalStateException("Specialization " + name + " already exists");
         }
 
@@ -33,6 +34,7 @@ public class SpecializationServiceImpl implements SpecializationService {
         s.setType(name);
 
         specializationRepository.save(s);
+        referenceData.specializationsChanged();
 
         return toDto(s);
     }
@@ -56,6 +58,7 @@ public class SpecializationServiceImpl implements SpecializationService {
         }
 
         specializationRepository.deleteById(specializationId);
+        referenceData.specializationsChanged();
     }
 
     private SpecializationDtoResponse toDto(Specialization s) {
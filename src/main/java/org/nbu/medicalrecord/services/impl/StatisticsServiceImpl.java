@@ -0,0 +1,128 @@
+package org.nbu.medicalrecord.services.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.nbu.medicalrecord.entities.Diagnosis;
+import org.nbu.medicalrecord.entities.SickLeave;
+import org.nbu.medicalrecord.entities.StatisticCounter;
+import org.nbu.medicalrecord.entities.StatisticCounter.Kind;
+import org.nbu.medicalrecord.repositories.StatisticCounterRepository;
+import org.nbu.medicalrecord.services.StatisticsService;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Month;
+import java.util.List;
+
+import static org.nbu.medicalrecord.entities.StatisticCounter.Kind.*;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StatisticsServiceImpl implements StatisticsService {
+
+    private final StatisticCounterRepository counterRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Override
+    @Transactional
+    public void sickLeaveCreated(SickLeave sl) {
+        add(SICK_LEAVES_BY_MONTH, String.valueOf(sl.getFromDate().getMonthValue()), 1);
+        add(SICK_LEAVES_BY_DOCTOR, String.valueOf(sl.getDoctor().getId()), 1);
+    }
+
+    @Override
+    @Transactional
+    public void diagnosisCreated(Diagnosis d) {
+        add(DIAGNOSES_BY_KEY, d.getDiagnosisKey(), 1);
+        addDoctorPatientPair(d.getDoctor().getId(), d.getPatient().getId(), 1);
+    }
+
+    @Override
+    @Transactional
+    public void diagnosisDeleted(Diagnosis d) {
+        add(DIAGNOSES_BY_KEY, d.getDiagnosisKey(), -1);
+        addDoctorPatientPair(d.getDoctor().getId(), d.getPatient().getId(), -1);
+    }
+
+    @Override
+    @Transactional
+    public Month monthWithMostSickLeaves() {
+        List<StatisticCounter> months = counterRepository.findNonZeroDesc(SICK_LEAVES_BY_MONTH);
+        if (months.isEmpty()) return null;
+        return Month.of(Integer.parseInt(months.getFirst().getId().getCounterKey()));
+    }
+
+    @Override
+    @Transactional
+    public List<Long> doctorIdsByMostSickLeaves() {
+        return counterRepository.findNonZeroDesc(SICK_LEAVES_BY_DOCTOR).stream()
+                .map(c -> Long.valueOf(c.getId().getCounterKey()))
+                .toList();
+    }
+
+    @Override
+    @Transactional
+    public List<String> mostFrequentDiagnosisKeys() {
+        return counterRepository.findKeysWithMaxValue(DIAGNOSES_BY_KEY);
+    }
+
+    @Override
+    @Transactional
+    public int countPatientsDiagnosedByDoctor(long doctorId) {
+        return counterRepository.findValue(PATIENTS_BY_DOCTOR, String.valueOf(doctorId))
+                .map(Long::intValue)
+                .orElse(0);
+    }
+
+    /**
+     * Recomputes all counters from the source tables in one transaction (04:00 every Sunday, on demand
+     * through {@code POST /admin/statistics/rebuild}, and on the first start with an empty counters table).
+     * Each counter kind is a single INSERT ... SELECT ... GROUP BY.
+     */
+    @Override
+    @Scheduled(cron = "${statistics.rebuild-cron:0 0 4 * * SUN}")
+    public void rebuild() {
+        transactionTemplate.executeWithoutResult(status -> {
+            counterRepository.deleteAllCounters();
+            int rows = counterRepository.rebuildSickLeavesByMonth()
+                    + counterRepository.rebuildSickLeavesByDoctor()
+                    + counterRepository.rebuildDiagnosesByKey()
+                    + counterRepository.rebuildDiagnosesByDoctorPatient()
+                    + counterRepository.rebuildPatientsByDoctor();
+            log.info("Statistics counters rebuilt: {} counters", rows);
+        });
+    }
+
+    // after the diagnosis keys are backfilled (see DiagnosisServiceImpl), the counters of an existing database are built once
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(2)
+    public void initializeCounters() {
+        if (counterRepository.count() == 0) {
+            rebuild();
+        }
+    }
+
+    private void add(Kind kind, String key, long delta) {
+        if (key == null) return;
+        counterRepository.add(kind.name(), key, delta);
+    }
+
+    // the distinct-patients counter moves only when a doctor/patient pair appears or disappears
+    private void addDoctorPatientPair(long doctorId, long patientId, long delta) {
+        String pair = doctorId + ":" + patientId;
+        add(DIAGNOSES_BY_DOCTOR_PATIENT, pair, delta);
+
+        long diagnoses = counterRepository.findValue(DIAGNOSES_BY_DOCTOR_PATIENT, pair).orElse(0L);
+        if (delta > 0 && diagnoses == delta) {
+            add(PATIENTS_BY_DOCTOR, String.valueOf(doctorId), 1);
+        } else if (delta < 0 && diagnoses == 0) {
+            add(PATIENTS_BY_DOCTOR, String.valueOf(doctorId), -1);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package org.nbu.medicalrecord.services.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.nbu.medicalrecord.dtos.response.CursorPageDtoResponse;
+import org.nbu.medicalrecord.dtos.response.TimelineEventDtoResponse;
+import org.nbu.medicalrecord.entities.*;
+import org.nbu.medicalrecord.entities.TimelineEvent.Kind;
+import org.nbu.medicalrecord.repositories.PatientRepository;
+import org.nbu.medicalrecord.repositories.TimelineEventRepository;
+import org.nbu.medicalrecord.repositories.TimelineEventRepository.MedicineSource;
+import org.nbu.medicalrecord.services.TimelineService;
+import org.nbu.medicalrecord.util.TimelineUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.nbu.medicalrecord.entities.TimelineEvent.Kind.*;
+import static org.nbu.medicalrecord.util.CheckExistUtil.checkIfPatientExists;
+import static org.nbu.medicalrecord.util.CursorUtil.*;
+import static org.nbu.medicalrecord.util.TimelineUtil.*;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TimelineServiceImpl implements TimelineService {
+
+    private static final String INSERT =
+            "insert into timeline_events (id, patient_id, event_date, kind, source_id, summary) values (?, ?, ?, ?, ?, ?)";
+
+    // before every event: the first page of a timeline
+    private static final LocalDate END_OF_TIME = LocalDate.of(9999, 12, 31);
+
+    private final TimelineEventRepository timelineRepository;
+    private final PatientRepository patientRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final IdAllocator idAllocator;
+
+    @Value("${timeline.rebuild.chunk-size:1000}")
+    private int chunkSize = 1000;
+
+    private record Event(long patientId, LocalDate date, Kind kind, long sourceId, String summary) {
+    }
+
+    @Override
+    public void visitCreated(Visit visit) {
+        Appointment appt = visit.getAppointment();
+        User doctor = appt.getDoctor().getUser();
+        long patientId = appt.getPatient().getId();
+        save(new Event(patientId, appt.getDate(), VISIT, visit.getId(),
+                visit(doctorName(doctor.getFirstName(), doctor.getLastName()), visit.getComplaints())));
+
+        Medication medication = visit.getMedication();
+        if (medication != null) {
+            List<String> medicines = Optional.ofNullable(medication.getMedicines()).orElseGet(Set::of).stream()
+                    .sorted(Comparator.comparing(Medicine::getName).thenComparing(Medicine::getMg))
+                    .map(m -> medicine(m.getName(), m.getMg()))
+                    .toList();
+            save(new Event(patientId, appt.getDate(), MEDICATION, medication.getId(),
+                    medication(medicines, medication.getPrescription())));
+        }
+    }
+
+    @Override
+    public void visitDeleted(Visit visit) {
+        timelineRepository.deleteBySource(VISIT, visit.getId());
+        if (visit.getMedication() != null) {
+            timelineRepository.deleteBySource(MEDICATION, visit.getMedication().getId());
+        }
+        if (visit.getDiagnosis() != null) {
+            timelineRepository.deleteBySource(DIAGNOSIS, visit.getDiagnosis().getId());
+        }
+    }
+
+    @Override
+    public void diagnosisCreated(Diagnosis diagnosis) {
+        User doctor = diagnosis.getDoctor().getUser();
+        LocalDate date = diagnosis.getDiagnosedOn() != null ? diagnosis.getDiagnosedOn() : LocalDate.now();
+        save(new Event(diagnosis.getPatient().getId(), date, DIAGNOSIS, diagnosis.getId(),
+                diagnosis(doctorName(doctor.getFirstName(), doctor.getLastName()), diagnosis.getDiagnosis())));
+    }
+
+    @Override
+    public void diagnosisDeleted(Diagnosis diagnosis) {
+        timelineRepository.deleteBySource(DIAGNOSIS, diagnosis.getId());
+    }
+
+    @Override
+    public void sickLeaveCreated(SickLeave sickLeave) {
+        User doctor = sickLeave.getDoctor().getUser();
+        save(new Event(sickLeave.getPatient().getId(), sickLeave.getFromDate(), SICK_LEAVE, sickLeave.getId(),
+                sickLeave(doctorName(doctor.getFirstName(), doctor.getLastName()),
+                        sickLeave.getFromDate(), sickLeave.getToDate(), sickLeave.getReason())));
+    }
+
+    @Override
+    public void healthInsurancePaid(HealthInsurance hi) {
+        save(new Event(hi.getPatient().getId(), LocalDate.of(hi.getYear(), hi.getMonth(), 1), HEALTH_INSURANCE, hi.getId(),
+                TimelineUtil.healthInsurancePaid(hi.getMonth(), hi.getYear())));
+    }
+
+    /**
+     * A page of the timeline, newest first: one range scan on {@code idx_timeline_patient_date},
+     * whatever the length of the history. The patient is only looked up when the first page is empty.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageDtoResponse<TimelineEventDtoResponse> showTimeline(long patientId, String cursor, int size) {
+        Limit limit = limit(size);
+        KeyPosition before = afterKey(cursor);
+        LocalDate beforeDate;
+        try {
+            beforeDate = before.key().isEmpty() ? END_OF_TIME : LocalDate.parse(before.key());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor " + cursor);
+        }
+        long beforeId = before.key().isEmpty() ? Long.MAX_VALUE : before.id();
+
+        List<TimelineEvent> events = timelineRepository.findPage(patientId, beforeDate, beforeId, limit);
+        if (events.isEmpty() && before.key().isEmpty()) {
+            checkIfPatientExists(patientRepository, patientId);
+        }
+
+        List<TimelineEventDtoResponse> items = events.stream()
+                .map(e -> new TimelineEventDtoResponse(e.getEventDate(), e.getKind(), e.getSourceId(), e.getSummary()))
+                .toList();
+        String next = events.size() < limit.max() ? null
+                : keyCursor(events.getLast().getEventDate().toString(), events.getLast().getId());
+        return new CursorPageDtoResponse<>(items, next);
+    }
+
+    /**
+     * Recomputes every timeline from the source tables, on demand through {@code POST /admin/timeline/rebuild}
+     * (after manual data fixes) and on the first start with an empty timeline table. The timelines are
+     * otherwise kept current by the write paths. Each patient id range is deleted and rebuilt in a
+     * transaction of its own, so a reader sees a patient's timeline either before or after the rebuild,
+     * never half of it.
+     */
+    @Override
+    public void rebuild() {
+        long maxPatientId = patientRepository.findMaxId();
+        int step = Math.max(1, chunkSize);
+        int events = 0;
+
+        for (long fromId = 0; fromId < maxPatientId; fromId += step) {
+            long from = fromId;
+            long to = Math.min(fromId + step, maxPatientId);
+            Integer rows = transactionTemplate.execute(status -> rebuildPatientIdRange(from, to));
+            events += rows == null ? 0 : rows;
+        }
+        log.info("Patient timelines rebuilt: {} events for patients up to id {}", events, maxPatientId);
+    }
+
+    // after the statistics counters (see StatisticsServiceImpl), the timelines of an existing database are built once
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(3)
+    public void initializeTimeline() {
+        if (timelineRepository.count() == 0) {
+            rebuild();
+        }
+    }
+
+    private int rebuildPatientIdRange(long fromId, long toId) {
+        timelineRepository.deleteForPatientIdRange(fromId, toId);
+
+        List<Event> events = new ArrayList<>();
+        timelineRepository.findVisitSources(fromId, toId).forEach(v -> events.add(new Event(
+                v.getPatientId(), v.getDate(), VISIT, v.getId(),
+                visit(doctorName(v.getDoctorFirstName(), v.getDoctorLastName()), v.getComplaints()))));
+
+        Map<Long, List<MedicineSource>> medications = timelineRepository.findMedicineSources(fromId, toId).stream()
+                .collect(Collectors.groupingBy(MedicineSource::getMedicationId, LinkedHashMap::new, Collectors.toList()));
+        medications.forEach((medicationId, rows) -> {
+            MedicineSource first = rows.getFirst();
+            List<String> medicines = rows.stream()
+                    .filter(r -> r.getName() != null)
+                    .sorted(Comparator.comparing(MedicineSource::getName).thenComparing(MedicineSource::getMg))
+                    .map(r -> medicine(r.getName(), r.getMg()))
+                    .toList();
+            events.add(new Event(first.getPatientId(), first.getDate(), MEDICATION, medicationId,
+                    medication(medicines, first.getPrescription())));
+        });
+
+        timelineRepository.findDiagnosisSources(fromId, toId).forEach(d -> events.add(new Event(
+                d.getPatientId(), d.getDate(), DIAGNOSIS, d.getId(),
+                diagnosis(doctorName(d.getDoctorFirstName(), d.getDoctorLastName()), d.getDiagnosis()))));
+
+        timelineRepository.findSickLeaveSources(fromId, toId).forEach(s -> events.add(new Event(
+                s.getPatientId(), s.getFromDate(), SICK_LEAVE, s.getId(),
+                sickLeave(doctorName(s.getDoctorFirstName(), s.getDoctorLastName()),
+                        s.getFromDate(), s.getToDate(), s.getReason()))));
+
+        timelineRepository.findPaidHealthInsuranceSources(fromId, toId).forEach(hi -> events.add(new Event(
+                hi.getPatientId(), LocalDate.of(hi.getYear(), hi.getMonth(), 1), HEALTH_INSURANCE, hi.getId(),
+                TimelineUtil.healthInsurancePaid(hi.getMonth(), hi.getYear()))));
+
+        if (events.isEmpty()) return 0;
+
+        long[] next = {idAllocator.allocate("timeline_events", events.size())};
+        jdbcTemplate.batchUpdate(INSERT, events, 1000, (ps, e) -> {
+            ps.setLong(1, next[0]++);
+            ps.setLong(2, e.patientId());
+            ps.setDate(3, Date.valueOf(e.date()));
+            ps.setString(4, e.kind().name());
+            ps.setLong(5, e.sourceId());
+            ps.setString(6, e.summary());
+        });
+        return events.size();
+    }
+
+    private void save(Event e) {
+        timelineRepository.save(new TimelineEvent(e.patientId(), e.date(), e.kind(), e.sourceId(), e.summary()));
+    }
+}
@@ -6,6 +6,9 @@ import org.nbu.medicalrecord.dtos.request.VisitDtoRequest;
 import org.nbu.medicalrecord.dtos.response.VisitDtoResponse;
 import org.nbu.medicalrecord.entities.*;
 import org.nbu.medicalrecord.repositories.*;
+import org.nbu.medicalrecord.services.OutboxService;
+import org.nbu.medicalrecord.services.PatientVersionService;
+import org.nbu.medicalrecord.services.TimelineService;
 import org.nbu.medicalrecord.services.VisitService;
 import org.springframework.stereotype.Service;
 
@@ -13,7 +16,6 @@ import java.time.LocalDate;
 import java.util.LinkedHashSet;
 import java.util.Objects;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 import static org.nbu.medicalrecord.util.CheckExistUtil.*;
 
@@ -29,6 +31,9 @@ public class VisitServiceImpl implements VisitService {
     private final MedicalRecordRepository medicalRecordRepository;
     private final DoctorRepository doctorRepository;
     private final PatientRepository patientRepository;
+    private final PatientVersionService patientVersionService;
+    private final TimelineService timelineService;
+    private final OutboxService outboxService;
 
     @Override
     @Transactional
@@ -90,25 +95,26 @@ public class VisitServiceImpl implements VisitService {
         v.setRequiredTests(req.getRequiredTests());
 
         visitRepository.save(v);
-        return toDto(v);
+        timelineService.visitCreated(v);
+        patientVersionService.patientChanged(patient.getId());
+
+        VisitDtoResponse created = toDto(v);
+        outboxService.publish(OutboxEvent.Type.VISIT_CREATED, v.getId(), created);
+        return created;
     }
 
     @Override
     public Set<VisitDtoResponse> showAllVisitsByDoctor(long doctorId) {
         checkIfDoctorExists(doctorRepository, doctorId);
 
-        return visitRepository.findByAppointment_Doctor_IdOrderByAppointment_DateDesc(doctorId).stream()
-                .map(this::toDto)
-                .collect(Collectors.toCollection(LinkedHashSet::new));
+        return new LinkedHashSet<>(visitRepository.findDtosByDoctor(doctorId));
     }
 
     @Override
     public Set<VisitDtoResponse> showAllVisitsForPatient(long patientId) {
         checkIfPatientExists(patientRepository, patientId);
 
-        return visitRepository.findByMedicalRecord_Patient_IdOrderByAppointment_DateDesc(patientId).stream()
-                .map(this::toDto)
-                .collect(Collectors.toCollection(LinkedHashSet::new));
+        return new LinkedHashSet<>(visitRepository.findDtosByPatient(patientId));
     }
 
     @Override
@@ -116,11 +122,7 @@ public class VisitServiceImpl implements VisitService {
         checkIfPatientExists(patientRepository, patientId);
         validateRange(from, to);
 
-        return visitRepository
-                .findByMedicalRecord_Patient_IdAndAppointment_DateBetweenOrderByAppointment_DateDesc(patientId, from, to)
-                .stream()
-                .map(this::toDto)
-                .collect(Collectors.toCollection(LinkedHashSet::new));
+        return new LinkedHashSet<>(visitRepository.findDtosByPatientInPeriod(patientId, from, to));
     }
 
     @Override
@@ -128,11 +130,7 @@ public class VisitServiceImpl implements VisitService {
         checkIfDoctorExists(doctorRepository, doctorId);
         validateRange(from, to);
 
-        return visitRepository
-                .findByAppointment_Doctor_IdAndAppointment_DateBetweenOrderByAppointment_DateDesc(doctorId, from, to)
-                .stream()
-                .map(this::toDto)
-                .collect(Collectors.toCollection(LinkedHashSet::new));
+        return new LinkedHashSet<>(visitRepository.findDtosByDoctorInPeriod(doctorId, from, to));
     }
 
     private static void validateRange(LocalDate from, LocalDate to) {
@@ -0,0 +1,14 @@
+package org.nbu.medicalrecord.util;
+
+public final class AllergenKeyUtil {
+
+    private AllergenKeyUtil() {
+    }
+
+    // "Pollen", " pollen " and "POLLEN" are one catalog entry; same rules as the diagnosis texts.
+    // Allergens are short, so the normalized text itself is the (unique, indexed) key.
+    public static String keyOf(String allergen) {
+        if (allergen == null) return null;
+        return DiagnosisKeyUtil.normalize(allergen);
+    }
+}
@@ -0,0 +1,30 @@
+package org.nbu.medicalrecord.util;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Binary JSON for integrations: a request with {@code Accept: application/cbor} or
+ * {@code Accept: application/x-jackson-smile} gets the same documents in CBOR or Smile, every other
+ * client compact JSON. The mappers come from Boot's builder, so they share the spring.jackson.*
+ * settings and modules of the JSON one; as beans they take the place of MVC's own binary converters,
+ * which sit behind the JSON converter, so JSON stays the answer to {@code Accept: *}{@code /*}.
+ */
+@Configuration
+public class ContentNegotiationConfig {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+}
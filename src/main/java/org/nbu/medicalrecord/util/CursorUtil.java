@@ -0,0 +1,90 @@
+package org.nbu.medicalrecord.util;
+
+import jakarta.persistence.EntityManager;
+import org.nbu.medicalrecord.dtos.response.CursorPageDtoResponse;
+import org.nbu.medicalrecord.entities.BaseEntity;
+import org.springframework.data.domain.Limit;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Helpers for the paged and streamed listings. Both walk the repositories in id order:
+ * <ul>
+ *     <li>a page is {@code findByIdGreaterThanOrderByIdAsc(afterId, limit)}, a range scan on the primary key
+ *     that costs the same on every page and does not skip or repeat rows when others are inserted or deleted
+ *     in between, unlike an offset;</li>
+ *     <li>a full export is {@code streamAllByOrderByIdAsc()} with a fetch size hint, so the rows come from a
+ *     server-side cursor in batches instead of being loaded all at once.</li>
+ * </ul>
+ */
+public final class CursorUtil {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    // rows kept in the persistence context while streaming before it is cleared
+    private static final int STREAM_CLEAR_INTERVAL = 500;
+
+    /** Id after which the next page starts; a missing cursor means the first page. */
+    public static long afterId(String cursor) {
+        if (cursor == null || cursor.isBlank()) return 0L;
+        try {
+            return Long.parseLong(cursor.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor " + cursor);
+        }
+    }
+
+    /** Position in a listing ordered by a text key, then id; the first page starts before every key. */
+    public record KeyPosition(String key, long id) {
+    }
+
+    public static KeyPosition afterKey(String cursor) {
+        if (cursor == null || cursor.isBlank()) return new KeyPosition("", 0L);
+        try {
+            String s = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+            int colon = s.indexOf(':');
+            return new KeyPosition(s.substring(colon + 1), Long.parseLong(s.substring(0, colon)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid cursor " + cursor);
+        }
+    }
+
+    // URL-safe, the keys may hold spaces and Cyrillic
+    public static String keyCursor(String key, long id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString((id + ":" + key).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Limit limit(int size) {
+        return Limit.of(Math.min(Math.max(size, 1), MAX_PAGE_SIZE));
+    }
+
+    /** Builds a page of rows ordered by id; the next cursor is the last id of a full page. */
+    public static <E extends BaseEntity, D> CursorPageDtoResponse<D> page(List<E> rows, Limit limit, Function<E, D> mapper) {
+        List<D> items = rows.stream().map(mapper).toList();
+        String next = rows.size() < limit.max() ? null : String.valueOf(rows.getLast().getId());
+        return new CursorPageDtoResponse<>(items, next);
+    }
+
+    /**
+     * Maps every row of a JPA stream and hands it to the sink, clearing the persistence context
+     * periodically so heap usage does not grow with the table size.
+     */
+    public static <E, D> void streamDetached(Stream<E> rows, EntityManager entityManager,
+                                             Function<E, D> mapper, Consumer<D> sink) {
+        try (rows) {
+            int[] count = {0};
+            rows.forEach(row -> {
+                sink.accept(mapper.apply(row));
+                if (++count[0] % STREAM_CLEAR_INTERVAL == 0) {
+                    entityManager.clear();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package org.nbu.medicalrecord.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+public final class DiagnosisKeyUtil {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private DiagnosisKeyUtil() {
+    }
+
+    // Diagnosis texts are @Lob columns, which cannot be indexed or grouped efficiently. Equal texts
+    // (ignoring case, surrounding and repeated whitespace) share this fixed-length key instead.
+    public static String keyOf(String diagnosis) {
+        if (diagnosis == null) return null;
+        return sha256(normalize(diagnosis));
+    }
+
+    public static String normalize(String diagnosis) {
+        String s = Normalizer.normalize(diagnosis, Normalizer.Form.NFKC).strip();
+        return WHITESPACE.matcher(s).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    private static String sha256(String s) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(s.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
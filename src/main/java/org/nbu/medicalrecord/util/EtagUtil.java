@@ -0,0 +1,28 @@
+package org.nbu.medicalrecord.util;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.function.Supplier;
+
+public final class EtagUtil {
+
+    // clients may keep the body but have to revalidate it; replaces Spring Security's no-store
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
+    /**
+     * 304 when the request's {@code If-None-Match} matches the version, otherwise the body from
+     * {@code body}, which is only built then. The version has to be read before the body, so a write in
+     * between can only leave the ETag older than the body, never newer.
+     */
+    public static <T> ResponseEntity<T> ifNoneMatch(WebRequest request, long version, Supplier<T> body) {
+        // weak: JSON, CBOR and Smile of the same version are the same document
+        String etag = "W/\"" + version + "\"";
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(REVALIDATE).build();
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE).body(body.get());
+    }
+}
@@ -0,0 +1,99 @@
+package org.nbu.medicalrecord.util;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.nbu.medicalrecord.security.LoginPipeline;
+import org.nbu.medicalrecord.services.impl.OutboxDispatcher;
+import org.nbu.medicalrecord.services.impl.ReferenceDataCache;
+import org.nbu.medicalrecord.web.DatabaseBulkheadFilter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The application's own statistics as meters, next to what Boot instruments by itself: endpoint latency
+ * ({@code http.server.requests}), repository calls ({@code spring.data.repository.invocations}), the
+ * connection pool ({@code hikaricp.*}), scheduled jobs ({@code tasks.scheduled.execution}) and Hibernate
+ * ({@code hibernate.*}). Scraped in Prometheus format at /actuator/prometheus.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    MeterBinder loginMetrics(LoginPipeline logins) {
+        return registry -> {
+            FunctionCounter.builder("login.requests", logins, l -> l.stats().accepted())
+                    .tag("outcome", "accepted").register(registry);
+            FunctionCounter.builder("login.requests", logins, l -> l.stats().rejected())
+                    .tag("outcome", "rejected").register(registry);
+            FunctionCounter.builder("login.requests", logins, l -> l.stats().timedOut())
+                    .tag("outcome", "timed_out").register(registry);
+            FunctionCounter.builder("login.requests", logins, l -> l.stats().throttled())
+                    .tag("outcome", "throttled").register(registry);
+            Gauge.builder("login.hashing.active", logins, l -> l.stats().hashing())
+                    .description("BCrypt checks in progress").register(registry);
+            Gauge.builder("login.hashing.queued", logins, l -> l.stats().queued())
+                    .description("Logins waiting for a BCrypt thread").register(registry);
+            FunctionTimer.builder("login.queue.wait", logins, l -> l.queueWait().count(), l -> l.queueWait().totalNanos(), TimeUnit.NANOSECONDS)
+                    .description("Time a login waited for a BCrypt thread").register(registry);
+            TimeGauge.builder("login.queue.wait.max", logins, TimeUnit.NANOSECONDS, l -> l.queueWait().maxNanos())
+                    .description("Longest wait for a BCrypt thread since startup").register(registry);
+            FunctionTimer.builder("login.hashing", logins, l -> l.hashTime().count(), l -> l.hashTime().totalNanos(), TimeUnit.NANOSECONDS)
+                    .description("Time a BCrypt thread spent on one login").register(registry);
+            TimeGauge.builder("login.hashing.max", logins, TimeUnit.NANOSECONDS, l -> l.hashTime().maxNanos())
+                    .description("Longest BCrypt check since startup").register(registry);
+        };
+    }
+
+    // the filter is part of the web layer, which the benchmarks leave out
+    @Bean
+    MeterBinder bulkheadMetrics(ObjectProvider<DatabaseBulkheadFilter> bulkheads) {
+        return registry -> bulkheads.ifAvailable(bulkhead -> {
+            Gauge.builder("database.bulkhead.permits", bulkhead, b -> b.stats().permits()).register(registry);
+            Gauge.builder("database.bulkhead.in.use", bulkhead, b -> b.stats().inUse()).register(registry);
+            Gauge.builder("database.bulkhead.waiting", bulkhead, b -> b.stats().waiting()).register(registry);
+            FunctionCounter.builder("database.bulkhead.requests", bulkhead, b -> b.stats().admitted())
+                    .tag("outcome", "admitted").register(registry);
+            FunctionCounter.builder("database.bulkhead.requests", bulkhead, b -> b.stats().rejected())
+                    .tag("outcome", "rejected").register(registry);
+        });
+    }
+
+    @Bean
+    MeterBinder outboxMetrics(OutboxDispatcher outbox) {
+        return registry -> {
+            FunctionCounter.builder("outbox.events", outbox, o -> o.stats().dispatched())
+                    .tag("outcome", "dispatched").register(registry);
+            FunctionCounter.builder("outbox.events", outbox, o -> o.stats().retried())
+                    .tag("outcome", "retried").register(registry);
+            FunctionCounter.builder("outbox.events", outbox, o -> o.stats().failed())
+                    .tag("outcome", "failed").register(registry);
+            Gauge.builder("outbox.pending", outbox, o -> o.stats().pending())
+                    .description("Events not handled yet, as of the last poll").register(registry);
+            Gauge.builder("outbox.lag", outbox, o -> o.stats().lagSeconds()).baseUnit("seconds")
+                    .description("Age of the oldest event not handled yet, as of the last poll").register(registry);
+            Gauge.builder("outbox.workers.active", outbox, o -> o.stats().active()).register(registry);
+        };
+    }
+
+    @Bean
+    MeterBinder referenceDataCacheMetrics(ReferenceDataCache cache) {
+        return registry -> cache.stats().keySet().forEach(name -> {
+            Gauge.builder("reference.cache.size", cache, c -> c.stats().get(name).size())
+                    .tag("cache", name).register(registry);
+            FunctionCounter.builder("reference.cache.gets", cache, c -> c.stats().get(name).hits())
+                    .tag("cache", name).tag("result", "hit").register(registry);
+            FunctionCounter.builder("reference.cache.gets", cache, c -> c.stats().get(name).misses())
+                    .tag("cache", name).tag("result", "miss").register(registry);
+            FunctionCounter.builder("reference.cache.evictions", cache, c -> c.stats().get(name).evictions())
+                    .tag("cache", name).register(registry);
+            FunctionCounter.builder("reference.cache.invalidations", cache, c -> c.stats().get(name).invalidations())
+                    .tag("cache", name).register(registry);
+        });
+    }
+}
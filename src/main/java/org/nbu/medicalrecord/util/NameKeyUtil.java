@@ -0,0 +1,46 @@
+package org.nbu.medicalrecord.util;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+public final class NameKeyUtil {
+
+    // users.name_key and reversed_name_key; compatibility forms can expand a lot under NFKD ("ﬃ" is "ffi"),
+    // so two names within their 30 characters can still normalize past it: the keys are cut to fit
+    public static final int KEY_LENGTH = 64;
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private NameKeyUtil() {
+    }
+
+    // "Ivanov", "IVANOV" and "Ivánov" are one search text; Cyrillic stays Cyrillic (not transliterated).
+    // Accents and other combining marks are dropped, so "Йордан" is also found as "иордан".
+    // Hyphens, apostrophes and repeated spaces become single spaces.
+    public static String normalize(String text) {
+        if (text == null) return "";
+        String s = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFKD)).replaceAll("");
+        return SEPARATORS.matcher(s.toLowerCase(Locale.ROOT)).replaceAll(" ").strip();
+    }
+
+    // "last first": a name prefix is a range scan on the indexed key.
+    // Only lower-case letters, digits and single spaces remain; for Latin and Cyrillic names MySQL and H2
+    // order these like String.compareTo, so database keyset ranges and in-memory merges agree.
+    public static String nameKey(String firstName, String lastName) {
+        return key(normalize(lastName), normalize(firstName));
+    }
+
+    // "first last", for the queries that start with the first name
+    public static String reversedNameKey(String firstName, String lastName) {
+        return key(normalize(firstName), normalize(lastName));
+    }
+
+    private static String key(String first, String second) {
+        String key = (first + " " + second).strip();
+        if (key.length() <= KEY_LENGTH) return key;
+        int end = Character.isHighSurrogate(key.charAt(KEY_LENGTH - 1)) ? KEY_LENGTH - 1 : KEY_LENGTH;
+        return key.substring(0, end).strip();
+    }
+}
@@ -0,0 +1,38 @@
+package org.nbu.medicalrecord.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+public final class NdjsonUtil {
+
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    /**
+     * Streams one JSON document per line. The producer pushes rows into the given consumer
+     * while they are read from the database, so nothing is buffered server-side.
+     */
+    public static <T> ResponseEntity<StreamingResponseBody> ndjson(ObjectMapper mapper, Consumer<Consumer<T>> producer) {
+        ObjectWriter writer = mapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+
+        StreamingResponseBody body = out -> producer.accept(row -> {
+            try {
+                out.write(writer.writeValueAsBytes(row));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(APPLICATION_NDJSON))
+                .body(body);
+    }
+}
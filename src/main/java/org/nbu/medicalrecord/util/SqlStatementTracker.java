@@ -0,0 +1,183 @@
+package org.nbu.medicalrecord.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.sql.DataSource;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Wraps the DataSource and keeps, per statement fingerprint (the SQL with literals, IN lists and multi-row
+ * VALUES collapsed to {@code ?}), how often it ran and for how long; see /admin/sql/top. Executions slower
+ * than {@code slow-threshold-ms} are logged with the controller method (or thread) that ran them, at most
+ * once per {@code slow-log-interval-seconds} per fingerprint. Parameter values are never logged.
+ * <p>
+ * It sits below Hibernate, so statements of a {@code JdbcTemplate} are seen too. Every execution also
+ * counts towards the current request's {@link QueryCounter}; a JDBC batch is one execution.
+ */
+@Slf4j
+@Component
+public class SqlStatementTracker implements BeanPostProcessor, QueryExecutionListener {
+
+    private static final String STARTED = SqlStatementTracker.class.getName() + ".started";
+    // fingerprints beyond max-fingerprints (generated SQL gone wrong) are added up here
+    private static final String OTHER = "(other statements)";
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bin\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern VALUES_ROWS = Pattern.compile("(\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\))(?:\\s*,\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\))+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final boolean enabled;
+    private final long slowNanos;
+    private final long slowLogIntervalNanos;
+    private final int maxFingerprints;
+
+    // raw SQL -> fingerprint; Hibernate and the services only ever produce a few hundred distinct strings
+    private final Cache<String, String> fingerprints = Caffeine.newBuilder().maximumSize(10_000).build();
+    private final ConcurrentHashMap<String, Totals> totals = new ConcurrentHashMap<>();
+
+    // read from the Environment: as a BeanPostProcessor it is created before @Value placeholders resolve
+    @Autowired
+    public SqlStatementTracker(Environment env) {
+        this(env.getProperty("sql-tracking.enabled", Boolean.class, true),
+                env.getProperty("sql-tracking.slow-threshold-ms", Long.class, 200L),
+                env.getProperty("sql-tracking.slow-log-interval-seconds", Long.class, 60L),
+                env.getProperty("sql-tracking.max-fingerprints", Integer.class, 2000));
+    }
+
+    public SqlStatementTracker(boolean enabled, long slowThresholdMillis, long slowLogIntervalSeconds, int maxFingerprints) {
+        this.enabled = enabled;
+        this.slowNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+        this.slowLogIntervalNanos = TimeUnit.SECONDS.toNanos(slowLogIntervalSeconds);
+        this.maxFingerprints = maxFingerprints;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!enabled || !(bean instanceof DataSource dataSource) || bean instanceof ProxyDataSource) {
+            return bean;
+        }
+        return ProxyDataSourceBuilder.create(beanName, dataSource).listener(this).build();
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        execInfo.addCustomValue(STARTED, System.nanoTime());
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        long nanos = System.nanoTime() - execInfo.getCustomValue(STARTED, Long.class);
+        QueryCounter.statementExecuted();
+        if (queryInfoList.isEmpty()) return;
+
+        // a Statement batch can mix several statements; they share its time
+        long share = nanos / queryInfoList.size();
+        for (QueryInfo query : queryInfoList) {
+            record(query.getQuery(), share, execInfo.isSuccess());
+        }
+    }
+
+    private void record(String sql, long nanos, boolean success) {
+        String fingerprint = fingerprints.get(sql, SqlStatementTracker::fingerprint);
+        Totals t = totals.get(fingerprint);
+        if (t == null) {
+            t = totals.size() < maxFingerprints
+                    ? totals.computeIfAbsent(fingerprint, k -> new Totals())
+                    : totals.computeIfAbsent(OTHER, k -> new Totals());
+        }
+        t.executions.increment();
+        t.nanos.add(nanos);
+        t.maxNanos.accumulate(nanos);
+        if (!success) t.failures.increment();
+
+        if (nanos >= slowNanos) {
+            t.slow.increment();
+            long now = System.nanoTime();
+            long last = t.lastLogged.get();
+            if (now - last >= slowLogIntervalNanos && t.lastLogged.compareAndSet(last, now)) {
+                log.warn("Slow SQL ({} ms, {} slow executions so far) from {}: {}",
+                        TimeUnit.NANOSECONDS.toMillis(nanos), t.slow.sum(), origin(), fingerprint);
+            }
+        }
+    }
+
+    /** The statement with its literal values replaced by {@code ?} and whitespace collapsed. */
+    public static String fingerprint(String sql) {
+        String s = STRING_LITERAL.matcher(sql).replaceAll("?");
+        s = NUMBER_LITERAL.matcher(s).replaceAll("?");
+        s = IN_LIST.matcher(s).replaceAll("in (?)");
+        s = VALUES_ROWS.matcher(s).replaceAll("$1");
+        return WHITESPACE.matcher(s).replaceAll(" ").trim();
+    }
+
+    // the controller method of the current request, else the request line, else the thread
+    private static String origin() {
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            HttpServletRequest request = attributes.getRequest();
+            if (request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE) instanceof HandlerMethod handler) {
+                return handler.getBeanType().getSimpleName() + "#" + handler.getMethod().getName();
+            }
+            return request.getMethod() + " " + request.getRequestURI();
+        }
+        Thread thread = Thread.currentThread();
+        return "thread " + (thread.getName().isEmpty() ? thread.toString() : thread.getName());
+    }
+
+    /** The {@code limit} fingerprints that took the most time in total since startup or the last reset. */
+    public List<Fingerprint> top(int limit) {
+        return totals.entrySet().stream()
+                .map(e -> e.getValue().snapshot(e.getKey()))
+                .sorted(Comparator.comparingDouble(Fingerprint::totalMillis).reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    public void reset() {
+        totals.clear();
+    }
+
+    public record Fingerprint(String sql, long executions, double totalMillis, double meanMillis,
+                              double maxMillis, long slow, long failures) {
+    }
+
+    private static final class Totals {
+        private final LongAdder executions = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder slow = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final AtomicLong lastLogged = new AtomicLong(System.nanoTime() - Long.MAX_VALUE / 2);
+
+        Fingerprint snapshot(String sql) {
+            long count = executions.sum();
+            double totalMillis = nanos.sum() / 1e6;
+            return new Fingerprint(sql, count, totalMillis, count > 0 ? totalMillis / count : 0,
+                    maxNanos.get() / 1e6, slow.sum(), failures.sum());
+        }
+    }
+}
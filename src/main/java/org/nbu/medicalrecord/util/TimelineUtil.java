@@ -0,0 +1,53 @@
+package org.nbu.medicalrecord.util;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.format.TextStyle;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Summaries of the patient timeline (see {@code TimelineEvent}), rendered once when the event is
+ * written or rebuilt, so reading a timeline never joins the source tables.
+ */
+public final class TimelineUtil {
+
+    public static final int SUMMARY_LENGTH = 255;
+
+    public static String visit(String doctorName, String complaints) {
+        return fit("Visit with " + doctorName + ": " + complaints);
+    }
+
+    public static String diagnosis(String doctorName, String diagnosis) {
+        return fit("Diagnosis by " + doctorName + ": " + diagnosis);
+    }
+
+    public static String sickLeave(String doctorName, LocalDate from, LocalDate to, String reason) {
+        long days = ChronoUnit.DAYS.between(from, to) + 1;
+        return fit("Sick leave " + from + " to " + to + " (" + days + (days == 1 ? " day" : " days") + ") by "
+                + doctorName + ": " + reason);
+    }
+
+    // medicines as "name mg", in the order MedicationServiceImpl lists them
+    public static String medication(List<String> medicines, String prescription) {
+        return fit("Prescribed " + (medicines.isEmpty() ? "medication" : String.join(", ", medicines)) + ": " + prescription);
+    }
+
+    public static String medicine(String name, int mg) {
+        return name + " " + mg + " mg";
+    }
+
+    public static String healthInsurancePaid(Month month, int year) {
+        return "Health insurance paid for " + month.getDisplayName(TextStyle.FULL, Locale.ENGLISH) + " " + year;
+    }
+
+    public static String doctorName(String firstName, String lastName) {
+        return "Dr. " + firstName + " " + lastName;
+    }
+
+    private static String fit(String summary) {
+        String s = summary.replaceAll("\\s+", " ").trim();
+        return s.length() <= SUMMARY_LENGTH ? s : s.substring(0, SUMMARY_LENGTH - 1) + "…";
+    }
+}
@@ -0,0 +1,34 @@
+package org.nbu.medicalrecord.web;
+
+import lombok.RequiredArgsConstructor;
+import org.nbu.medicalrecord.services.impl.ReferenceDataCache;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/admin/cache")
+@RequiredArgsConstructor
+@PreAuthorize("hasAuthority('ADMIN')")
+public class AdminCacheController {
+
+    private final ReferenceDataCache referenceData;
+
+    // size, hits/misses, size-bound evictions and explicit invalidations of every reference data cache
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, ReferenceDataCache.Stats>> stats() {
+        return ResponseEntity.ok(referenceData.stats());
+    }
+
+    // after the reference tables were changed directly in the database
+    @DeleteMapping("/reference-data")
+    public ResponseEntity<Void> clear() {
+        referenceData.clear();
+        return ResponseEntity.noContent().build();
+    }
+}
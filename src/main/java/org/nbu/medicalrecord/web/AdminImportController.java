@@ -0,0 +1,49 @@
+package org.nbu.medicalrecord.web;
+
+import lombok.RequiredArgsConstructor;
+import org.nbu.medicalrecord.dtos.response.ImportReportDtoResponse;
+import org.nbu.medicalrecord.services.ImportService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.InputStream;
+
+import static org.nbu.medicalrecord.util.NdjsonUtil.APPLICATION_NDJSON;
+
+@RestController
+@RequestMapping("/admin/import")
+@RequiredArgsConstructor
+@PreAuthorize("hasAuthority('ADMIN')")
+public class AdminImportController {
+
+    // bulk registration of a whole clinic; the body is the file itself (text/csv or application/x-ndjson),
+    // read as a stream, so it is not limited by the multipart size
+
+    private static final String TEXT_CSV = "text/csv";
+
+    private final ImportService importService;
+
+    @PostMapping(value = "/patients", consumes = {TEXT_CSV, APPLICATION_NDJSON})
+    public ResponseEntity<ImportReportDtoResponse> importPatients(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                                  InputStream body) {
+        return ResponseEntity.ok(importService.importPatients(body, format(contentType)));
+    }
+
+    @PostMapping(value = "/doctors", consumes = {TEXT_CSV, APPLICATION_NDJSON})
+    public ResponseEntity<ImportReportDtoResponse> importDoctors(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                                 InputStream body) {
+        return ResponseEntity.ok(importService.importDoctors(body, format(contentType)));
+    }
+
+    private static ImportService.Format format(String contentType) {
+        return MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.parseMediaType(TEXT_CSV))
+                ? ImportService.Format.CSV
+                : ImportService.Format.NDJSON;
+    }
+}
@@ -0,0 +1,23 @@
+package org.nbu.medicalrecord.web;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/admin/load")
+@RequiredArgsConstructor
+@PreAuthorize("hasAuthority('ADMIN')")
+public class AdminLoadController {
+
+    private final DatabaseBulkheadFilter bulkhead;
+
+    // requests admitted/rejected by the database bulkhead, permits in use, waiting requests and wait times
+    @GetMapping("/bulkhead")
+    public ResponseEntity<DatabaseBulkheadFilter.BulkheadStats> bulkhead() {
+        return ResponseEntity.ok(bulkhead.stats());
+    }
+}
@@ -0,0 +1,24 @@
+package org.nbu.medicalrecord.web;
+
+import lombok.RequiredArgsConstructor;
+import org.nbu.medicalrecord.security.LoginPipeline;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/admin/security")
+@RequiredArgsConstructor
+@PreAuthorize("hasAuthority('ADMIN')")
+public class AdminSecurityController {
+
+    private final LoginPipeline loginPipeline;
+
+    // load of the login hashing pool: accepted/rejected/throttled logins, queue wait and hash times
+    @GetMapping("/login-stats")
+    public ResponseEntity<LoginPipeline.LoginStats> loginStats() {
+        return ResponseEntity.ok(loginPipeline.stats());
+    }
+}
@@ -0,0 +1,35 @@
+package org.nbu.medicalrecord.web;
+
+import lombok.RequiredArgsConstructor;
+import org.nbu.medicalrecord.util.SqlStatementTracker;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/admin/sql")
+@RequiredArgsConstructor
+@PreAuthorize("hasAuthority('ADMIN')")
+public class AdminSqlController {
+
+    private final SqlStatementTracker tracker;
+
+    // statement fingerprints by total time: executions, mean/max time, slow and failed executions
+    @GetMapping("/top")
+    public ResponseEntity<List<SqlStatementTracker.Fingerprint>> top(@RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(tracker.top(Math.clamp(limit, 1, 500)));
+    }
+
+    // starts a new measurement window, e.g. before a load test
+    @DeleteMapping("/stats")
+    public ResponseEntity<Void> reset() {
+        tracker.reset();
+        return ResponseEntity.noContent().build();
+    }
+}
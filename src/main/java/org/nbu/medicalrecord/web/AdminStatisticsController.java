@@ -0,0 +1,25 @@
+package org.nbu.medicalrecord.web;
+
+import lombok.RequiredArgsConstructor;
+import org.nbu.medicalrecord.services.StatisticsService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/admin/statistics")
+@RequiredArgsConstructor
+@PreAuthorize("hasAuthority('ADMIN')")
+public class AdminStatisticsController {
+
+    private final StatisticsService statisticsService;
+
+    // Recompute the report counters from scratch (after manual data fixes or an import)
+    @PostMapping("/rebuild")
+    public ResponseEntity<Void> rebuild() {
+        statisticsService.rebuild();
+        return ResponseEntity.noContent().build();
+    }
+}
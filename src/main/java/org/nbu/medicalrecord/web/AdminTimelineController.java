@@ -0,0 +1,25 @@
+package org.nbu.medicalrecord.web;
+
+import lombok.RequiredArgsConstructor;
+import org.nbu.medicalrecord.services.TimelineService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/admin/timeline")
+@RequiredArgsConstructor
+@PreAuthorize("hasAuthority('ADMIN')")
+public class AdminTimelineController {
+
+    private final TimelineService timelineService;
+
+    // Rebuild every patient timeline from the source tables (after manual data fixes or an import)
+    @PostMapping("/rebuild")
+    public ResponseEntity<Void> rebuild() {
+        timelineService.rebuild();
+        return ResponseEntity.noContent().build();
+    }
+}
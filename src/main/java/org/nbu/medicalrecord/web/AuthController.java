@@ -1,15 +1,17 @@
 package org.nbu.medicalrecord.web;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.nbu.medicalrecord.dtos.request.LoginDtoRequest;
+import org.nbu.medicalrecord.dtos.request.RefreshTokenDtoRequest;
 import org.nbu.medicalrecord.dtos.response.LoginDtoResponse;
-import org.nbu.medicalrecord.security.JwtUtil;
+import org.nbu.medicalrecord.security.LoginPipeline;
+import org.nbu.medicalrecord.security.LoginRejectedException;
+import org.nbu.medicalrecord.security.RefreshTokenService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Locale;
@@ -21,18 +23,36 @@ public class AuthController {
 
     // login logic
 
-    private final AuthenticationManager authManager;
+    private final LoginPipeline loginPipeline;
 
-    private final JwtUtil jwt;
+    private final RefreshTokenService refreshTokenService;
 
     @PostMapping("/login")
-    public ResponseEntity<LoginDtoResponse> login(@Valid @RequestBody LoginDtoRequest req) {
+    public ResponseEntity<LoginDtoResponse> login(@Valid @RequestBody LoginDtoRequest req, HttpServletRequest request) {
         System.out.println("Success");
-        Authentication auth = authManager.authenticate(
-                new UsernamePasswordAuthenticationToken(req.getEmail().trim().toLowerCase(Locale.ROOT), req.getPassword()));
+        // BCrypt runs on the bounded login pool, see LoginPipeline
+        Authentication auth = loginPipeline.authenticate(
+                req.getEmail().trim().toLowerCase(Locale.ROOT), req.getPassword(), request.getRemoteAddr());
 
+        return ResponseEntity.ok(refreshTokenService.login(auth));
+    }
+
+    // a new access token without the password; the refresh token is single use and replaced by the returned one
+    @PostMapping("/refresh")
+    public ResponseEntity<LoginDtoResponse> refresh(@Valid @RequestBody RefreshTokenDtoRequest req) {
+        return ResponseEntity.ok(refreshTokenService.refresh(req.getRefreshToken()));
+    }
+
+    @ExceptionHandler(LoginRejectedException.class)
+    public ResponseEntity<Void> loginRejected(LoginRejectedException e) {
+        return ResponseEntity.status(e.getStatus())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .build();
+    }
 
-        String token = jwt.generate((UserDetails) auth.getPrincipal());
-        return ResponseEntity.ok(new LoginDtoResponse(token, "Bearer", 900L));
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@Valid @RequestBody RefreshTokenDtoRequest req) {
+        refreshTokenService.logout(req.getRefreshToken());
+        return ResponseEntity.noContent().build();
     }
-}
\ No newline at end of file
+}
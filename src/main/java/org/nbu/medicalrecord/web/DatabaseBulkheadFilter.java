@@ -0,0 +1,122 @@
+package org.nbu.medicalrecord.web;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * On platform threads Tomcat's worker pool bounds the requests in progress. On virtual threads nothing
+ * does: thousands of requests can be parked at once, all queueing for a JDBC connection until the pool
+ * times them out. This bulkhead admits at most {@code permits} requests at a time, by default as many
+ * as the pool has connections. The rest wait in line (fair, oldest first) for up to {@code max-wait-ms}
+ * and are then answered 503 with a Retry-After, like logins when the hashing pool is full.
+ * <p>
+ * It runs before the security filters, whose principal lookups also use connections. Asynchronous
+ * dispatches (the NDJSON exports) are not counted: their permit is released once the export started.
+ * It is on by default only in virtual-thread mode.
+ */
+@Slf4j
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER - 1)
+public class DatabaseBulkheadFilter extends OncePerRequestFilter {
+
+    private final boolean enabled;
+    private final int size;
+    private final Semaphore permits;
+    private final long maxWaitMillis;
+    private final long retryAfterSeconds;
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+
+    public DatabaseBulkheadFilter(@Value("${database-bulkhead.enabled:${spring.threads.virtual.enabled:false}}") boolean enabled,
+                                  @Value("${database-bulkhead.permits:0}") int permits,
+                                  @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize,
+                                  @Value("${database-bulkhead.max-wait-ms:1000}") long maxWaitMillis,
+                                  @Value("${database-bulkhead.retry-after-seconds:1}") long retryAfterSeconds) {
+        this.enabled = enabled;
+        // 0 = one request per pooled connection
+        this.size = permits > 0 ? permits : poolSize;
+        this.permits = new Semaphore(size, true);
+        this.maxWaitMillis = maxWaitMillis;
+        this.retryAfterSeconds = Math.max(1, retryAfterSeconds);
+        if (enabled) {
+            log.info("Database bulkhead: {} requests at a time, waiting up to {} ms", size, maxWaitMillis);
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        // health checks and metric scrapes still get through while the database is saturated
+        return !enabled || request.getRequestURI().startsWith(request.getContextPath() + "/actuator/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long started = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        long waited = System.nanoTime() - started;
+        waitNanos.add(waited);
+        maxWaitNanos.accumulate(waited);
+
+        if (!acquired) {
+            rejected.increment();
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+            return;
+        }
+        admitted.increment();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            permits.release();
+        }
+    }
+
+    public BulkheadStats stats() {
+        long requests = admitted.sum() + rejected.sum();
+        return new BulkheadStats(
+                enabled,
+                size,
+                size - permits.availablePermits(),
+                permits.getQueueLength(),
+                admitted.sum(),
+                rejected.sum(),
+                requests == 0 ? 0 : millis(waitNanos.sum()) / requests,
+                millis(maxWaitNanos.get())
+        );
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    public record BulkheadStats(boolean enabled, int permits, int inUse, int waiting,
+                                long admitted, long rejected,
+                                double avgWaitMs, double maxWaitMs) {
+    }
+}
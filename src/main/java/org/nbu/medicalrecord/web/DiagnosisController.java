@@ -5,19 +5,24 @@ import lombok.RequiredArgsConstructor;
 import org.nbu.medicalrecord.dtos.request.DiagnosisDtoRequest;
 import org.nbu.medicalrecord.dtos.response.DiagnosisDtoResponse;
 import org.nbu.medicalrecord.services.DiagnosisService;
+import org.nbu.medicalrecord.services.PatientVersionService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.Set;
 
+import static org.nbu.medicalrecord.util.EtagUtil.ifNoneMatch;
+
 @RestController
 @RequestMapping("/diagnosis")
 @RequiredArgsConstructor
 public class DiagnosisController {
 
     private final DiagnosisService diagnosisService;
+    private final PatientVersionService patientVersionService;
 
     // Doctor creates a diagnosis for a patient
     @PostMapping
@@ -27,11 +32,12 @@ public class DiagnosisController {
         return ResponseEntity.status(HttpStatus.CREATED).body(res);
     }
 
-    // View patient’s diagnoses
+    // View patient’s diagnoses; 304 without loading them while the ETag still matches
     @GetMapping("/patient/{patientId}")
     @PreAuthorize("@authz.isPatient(authentication, #patientId) or hasAuthority('ADMIN')")
-    public Set<DiagnosisDtoResponse> byPatient(@PathVariable Long patientId) {
-        return diagnosisService.showAllDiagnosisForPatientId(patientId);
+    public ResponseEntity<Set<DiagnosisDtoResponse>> byPatient(@PathVariable Long patientId, WebRequest request) {
+        return ifNoneMatch(request, patientVersionService.currentVersion(patientId),
+                () -> diagnosisService.showAllDiagnosisForPatientId(patientId));
     }
 
     // View doctor’s diagnoses
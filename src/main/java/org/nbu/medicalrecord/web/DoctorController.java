@@ -1,7 +1,9 @@
 package org.nbu.medicalrecord.web;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.constraints.NotBlank;
 import lombok.RequiredArgsConstructor;
+import org.nbu.medicalrecord.dtos.response.CursorPageDtoResponse;
 import org.nbu.medicalrecord.dtos.response.DoctorDataDtoResponse;
 import org.nbu.medicalrecord.dtos.response.PatientDataDtoResponse;
 import org.nbu.medicalrecord.services.DoctorService;
@@ -9,9 +11,12 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.Set;
 
+import static org.nbu.medicalrecord.util.NdjsonUtil.ndjson;
+
 @RestController
 @RequestMapping("/doctor")
 @RequiredArgsConstructor
@@ -19,6 +24,8 @@ public class DoctorController {
 
     private final DoctorService doctorService;
 
+    private final ObjectMapper objectMapper;
+
     // Add patient to a particular GP doctor
     @PostMapping("/{doctorId}/gp/patients/{patientId}")
     @PreAuthorize("@authz.isDoctor(authentication, #doctorId) or hasAuthority('ADMIN')")
@@ -48,6 +55,21 @@ public class DoctorController {
         return doctorService.showAllDoctors();
     }
 
+    // Get all doctors page by page (keyset cursor, stable id order)
+    @GetMapping("/all/page")
+    @PreAuthorize("hasAnyAuthority('ADMIN','PATIENT','DOCTOR')")
+    public CursorPageDtoResponse<DoctorDataDtoResponse> page(@RequestParam(required = false) String cursor,
+                                                             @RequestParam(defaultValue = "50") int size) {
+        return doctorService.showDoctorsPage(cursor, size);
+    }
+
+    // Stream all doctors as NDJSON (one JSON document per line), constant memory on the server
+    @GetMapping("/all/stream")
+    @PreAuthorize("hasAnyAuthority('ADMIN','PATIENT','DOCTOR')")
+    public ResponseEntity<StreamingResponseBody> stream() {
+        return ndjson(objectMapper, doctorService::streamAllDoctors);
+    }
+
     // Filter doctors by specialization
     @GetMapping("/specialization/{type}")
     @PreAuthorize("hasAnyAuthority('ADMIN','PATIENT','DOCTOR')")
@@ -0,0 +1,39 @@
+package org.nbu.medicalrecord.web;
+
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.nbu.medicalrecord.dtos.request.DoctorScheduleDtoRequest;
+import org.nbu.medicalrecord.dtos.response.DoctorScheduleDtoResponse;
+import org.nbu.medicalrecord.services.DoctorScheduleService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/doctor/{doctorId}/schedule")
+@RequiredArgsConstructor
+public class DoctorScheduleController {
+
+    private final DoctorScheduleService doctorScheduleService;
+
+    // Create or replace the working-hours template; free slots for the coming weeks are (re)generated
+    @PutMapping
+    @PreAuthorize("@authz.isDoctor(authentication, #doctorId) or hasAuthority('ADMIN')")
+    public DoctorScheduleDtoResponse set(@PathVariable long doctorId, @Valid @RequestBody DoctorScheduleDtoRequest req) {
+        return doctorScheduleService.setSchedule(doctorId, req);
+    }
+
+    @GetMapping
+    @PreAuthorize("@authz.isDoctor(authentication, #doctorId) or hasAnyAuthority('PATIENT','ADMIN')")
+    public DoctorScheduleDtoResponse show(@PathVariable long doctorId) {
+        return doctorScheduleService.showSchedule(doctorId);
+    }
+
+    // Remove the template and its free future slots (booked appointments stay)
+    @DeleteMapping
+    @PreAuthorize("@authz.isDoctor(authentication, #doctorId) or hasAuthority('ADMIN')")
+    public ResponseEntity<Void> delete(@PathVariable long doctorId) {
+        doctorScheduleService.deleteSchedule(doctorId);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -1,17 +1,25 @@
 package org.nbu.medicalrecord.web;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.nbu.medicalrecord.dtos.request.MedicalRecordDtoRequest;
+import org.nbu.medicalrecord.dtos.response.CursorPageDtoResponse;
 import org.nbu.medicalrecord.dtos.response.MedicalRecordDtoResponse;
 import org.nbu.medicalrecord.services.MedicalRecordService;
+import org.nbu.medicalrecord.services.PatientVersionService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.Set;
 
+import static org.nbu.medicalrecord.util.EtagUtil.ifNoneMatch;
+import static org.nbu.medicalrecord.util.NdjsonUtil.ndjson;
+
 @RestController
 @RequestMapping("/medical-record")
 @RequiredArgsConstructor
@@ -19,6 +27,10 @@ public class MedicalRecordController {
 
     private final MedicalRecordService medicalRecordService;
 
+    private final PatientVersionService patientVersionService;
+
+    private final ObjectMapper objectMapper;
+
     // Create Medical Record for a patient
     @PostMapping
     @PreAuthorize("hasAuthority('ADMIN') or hasAuthority('DOCTOR')")
@@ -27,13 +39,14 @@ public class MedicalRecordController {
         return ResponseEntity.status(HttpStatus.CREATED).body(res);
     }
 
-    // Show medical record for a patient
+    // Show medical record for a patient; 304 without loading it while the ETag still matches
     @GetMapping("/patient/{patientId}")
     @PreAuthorize("@authz.isPatient(authentication, #patientId) "
             + "or @authz.isDoctorOfPatient(authentication, #patientId) "
             + "or hasAuthority('ADMIN')")
-    public MedicalRecordDtoResponse byPatient(@PathVariable long patientId) {
-        return medicalRecordService.showMedicalRecord(patientId);
+    public ResponseEntity<MedicalRecordDtoResponse> byPatient(@PathVariable long patientId, WebRequest request) {
+        return ifNoneMatch(request, patientVersionService.currentVersion(patientId),
+                () -> medicalRecordService.showMedicalRecord(patientId));
     }
 
     // Show all medical records
@@ -43,6 +56,21 @@ public class MedicalRecordController {
         return medicalRecordService.showAllMedicalRecords();
     }
 
+    // Get all medical records page by page (keyset cursor, stable id order)
+    @GetMapping("/all/page")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public CursorPageDtoResponse<MedicalRecordDtoResponse> page(@RequestParam(required = false) String cursor,
+                                                                @RequestParam(defaultValue = "50") int size) {
+        return medicalRecordService.showMedicalRecordsPage(cursor, size);
+    }
+
+    // Stream all medical records as NDJSON (one JSON document per line), constant memory on the server
+    @GetMapping("/all/stream")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> stream() {
+        return ndjson(objectMapper, medicalRecordService::streamAllMedicalRecords);
+    }
+
     // Delete medical record
     @DeleteMapping("/{id}")
     @PreAuthorize("hasAuthority('ADMIN')")
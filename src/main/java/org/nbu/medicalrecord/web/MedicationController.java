@@ -1,17 +1,22 @@
 package org.nbu.medicalrecord.web;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.nbu.medicalrecord.dtos.request.MedicationDtoRequest;
+import org.nbu.medicalrecord.dtos.response.CursorPageDtoResponse;
 import org.nbu.medicalrecord.dtos.response.MedicationDtoResponse;
 import org.nbu.medicalrecord.services.MedicationService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.Set;
 
+import static org.nbu.medicalrecord.util.NdjsonUtil.ndjson;
+
 @RestController
 @RequestMapping("/medication")
 @RequiredArgsConstructor
@@ -19,6 +24,8 @@ public class MedicationController {
 
     private final MedicationService medicationService;
 
+    private final ObjectMapper objectMapper;
+
     // Create new medication
     @PostMapping
     @PreAuthorize("hasAnyAuthority('DOCTOR','ADMIN')")
@@ -34,6 +41,21 @@ public class MedicationController {
         return medicationService.showAllMedications();
     }
 
+    // Get all medications page by page (keyset cursor, stable id order)
+    @GetMapping("/all/page")
+    @PreAuthorize("hasAnyAuthority('DOCTOR','ADMIN')")
+    public CursorPageDtoResponse<MedicationDtoResponse> page(@RequestParam(required = false) String cursor,
+                                                             @RequestParam(defaultValue = "50") int size) {
+        return medicationService.showMedicationsPage(cursor, size);
+    }
+
+    // Stream all medications as NDJSON (one JSON document per line), constant memory on the server
+    @GetMapping("/all/stream")
+    @PreAuthorize("hasAnyAuthority('DOCTOR','ADMIN')")
+    public ResponseEntity<StreamingResponseBody> stream() {
+        return ndjson(objectMapper, medicationService::streamAllMedications);
+    }
+
     // Show all medications by doctor
     // TODO : medication is not directly related to the doctors or to the diagnosis
     @GetMapping("/doctor/{doctorId}")
@@ -1,17 +1,23 @@
 package org.nbu.medicalrecord.web;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.nbu.medicalrecord.dtos.request.MedicineDtoRequest;
+import org.nbu.medicalrecord.dtos.response.CursorPageDtoResponse;
 import org.nbu.medicalrecord.dtos.response.MedicineDtoResponse;
 import org.nbu.medicalrecord.services.MedicineService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.util.List;
 import java.util.Set;
 
+import static org.nbu.medicalrecord.util.NdjsonUtil.ndjson;
+
 @RestController
 @RequestMapping("/medicine")
 @RequiredArgsConstructor
@@ -19,6 +25,8 @@ public class MedicineController {
 
     private final MedicineService medicineService;
 
+    private final ObjectMapper objectMapper;
+
     @PostMapping
     @PreAuthorize("hasAuthority('ADMIN')")
     public ResponseEntity<MedicineDtoResponse> add(@Valid @RequestBody MedicineDtoRequest req) {
@@ -32,6 +40,29 @@ public class MedicineController {
         return medicineService.showAllMedicines();
     }
 
+    // Type-ahead search over name, milligrams and type, best matches first; tolerates misspellings
+    @GetMapping("/search")
+    @PreAuthorize("hasAnyAuthority('DOCTOR','ADMIN')")
+    public List<MedicineDtoResponse> search(@RequestParam String q,
+                                            @RequestParam(defaultValue = "10") int limit) {
+        return medicineService.searchMedicines(q, limit);
+    }
+
+    // Get all medicines page by page (keyset cursor, stable id order)
+    @GetMapping("/all/page")
+    @PreAuthorize("hasAnyAuthority('DOCTOR','ADMIN')")
+    public CursorPageDtoResponse<MedicineDtoResponse> page(@RequestParam(required = false) String cursor,
+                                                           @RequestParam(defaultValue = "50") int size) {
+        return medicineService.showMedicinesPage(cursor, size);
+    }
+
+    // Stream all medicines as NDJSON (one JSON document per line), constant memory on the server
+    @GetMapping("/all/stream")
+    @PreAuthorize("hasAnyAuthority('DOCTOR','ADMIN')")
+    public ResponseEntity<StreamingResponseBody> stream() {
+        return ndjson(objectMapper, medicineService::streamAllMedicines);
+    }
+
     // TODO
     @GetMapping("/name/mg")
     @PreAuthorize("hasAnyAuthority('DOCTOR','ADMIN')")
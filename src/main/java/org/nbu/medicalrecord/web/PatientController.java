@@ -1,13 +1,21 @@
 package org.nbu.medicalrecord.web;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.nbu.medicalrecord.dtos.response.CursorPageDtoResponse;
 import org.nbu.medicalrecord.dtos.response.PatientDataWithDoctorDtoResponse;
+import org.nbu.medicalrecord.dtos.response.TimelineEventDtoResponse;
 import org.nbu.medicalrecord.services.PatientService;
+import org.nbu.medicalrecord.services.TimelineService;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.Set;
 
+import static org.nbu.medicalrecord.util.NdjsonUtil.ndjson;
+
 @RestController
 @RequestMapping("/patient")
 @RequiredArgsConstructor
@@ -15,6 +23,10 @@ public class PatientController {
 
     private final PatientService patientService;
 
+    private final TimelineService timelineService;
+
+    private final ObjectMapper objectMapper;
+
     // Get all patients
     @GetMapping("/all")
     @PreAuthorize("hasAnyAuthority('ADMIN','DOCTOR')")
@@ -22,6 +34,41 @@ public class PatientController {
         return patientService.showAllPatients();
     }
 
+    // Get all patients page by page (keyset cursor, stable id order)
+    @GetMapping("/all/page")
+    @PreAuthorize("hasAnyAuthority('ADMIN','DOCTOR')")
+    public CursorPageDtoResponse<PatientDataWithDoctorDtoResponse> page(@RequestParam(required = false) String cursor,
+                                                                        @RequestParam(defaultValue = "50") int size) {
+        return patientService.showPatientsPage(cursor, size);
+    }
+
+    // Stream all patients as NDJSON (one JSON document per line), constant memory on the server
+    @GetMapping("/all/stream")
+    @PreAuthorize("hasAnyAuthority('ADMIN','DOCTOR')")
+    public ResponseEntity<StreamingResponseBody> stream() {
+        return ndjson(objectMapper, patientService::streamAllPatients);
+    }
+
+    // Search patients by name fragments and/or EGN prefix ("ivan pet", "петров", "8501"), page by page
+    @GetMapping("/search")
+    @PreAuthorize("hasAnyAuthority('ADMIN','DOCTOR')")
+    public CursorPageDtoResponse<PatientDataWithDoctorDtoResponse> search(@RequestParam String q,
+                                                                          @RequestParam(required = false) String cursor,
+                                                                          @RequestParam(defaultValue = "20") int size) {
+        return patientService.searchPatients(q, cursor, size);
+    }
+
+    // A patient's history (visits, diagnoses, sick leaves, prescriptions, paid insurance), newest first, page by page
+    @GetMapping("/{patientId}/timeline")
+    @PreAuthorize("@authz.isPatient(authentication, #patientId) "
+            + "or @authz.isDoctorOfPatient(authentication, #patientId) "
+            + "or hasAuthority('ADMIN')")
+    public CursorPageDtoResponse<TimelineEventDtoResponse> timeline(@PathVariable long patientId,
+                                                                    @RequestParam(required = false) String cursor,
+                                                                    @RequestParam(defaultValue = "20") int size) {
+        return timelineService.showTimeline(patientId, cursor, size);
+    }
+
     // Get patients for with GP (doctor can see own GP panel; admin can see any)
     @GetMapping("/gp/{doctorId}")
     @PreAuthorize("@authz.isDoctor(authentication, #doctorId) or hasAuthority('ADMIN')")
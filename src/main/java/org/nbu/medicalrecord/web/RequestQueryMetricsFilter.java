@@ -0,0 +1,57 @@
+package org.nbu.medicalrecord.web;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.nbu.medicalrecord.util.QueryCounter;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Records how many SQL statements and entity loads a request caused, security lookups included, as
+ * distributions per endpoint next to Boot's {@code http.server.requests} timer: the N+1 queries of an
+ * endpoint show up as a statement count that grows with the size of the response. Only the thread that
+ * handles the request is counted, not the async part of the NDJSON exports.
+ */
+@Component
+@RequiredArgsConstructor
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER - 2)
+public class RequestQueryMetricsFilter extends OncePerRequestFilter {
+
+    private final MeterRegistry registry;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        QueryCounter.start();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            QueryCounter.Counts counts = QueryCounter.stop();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+
+            summary("http.server.requests.statements", "SQL statements executed per request", request, uri)
+                    .record(counts.statements());
+            summary("http.server.requests.entity.loads", "Entities loaded by Hibernate per request", request, uri)
+                    .record(counts.entityLoads());
+        }
+    }
+
+    private DistributionSummary summary(String name, String description, HttpServletRequest request, String uri) {
+        return DistributionSummary.builder(name)
+                .description(description)
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .register(registry);
+    }
+}
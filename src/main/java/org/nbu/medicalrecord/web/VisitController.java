@@ -4,22 +4,27 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.nbu.medicalrecord.dtos.request.VisitDtoRequest;
 import org.nbu.medicalrecord.dtos.response.VisitDtoResponse;
+import org.nbu.medicalrecord.services.PatientVersionService;
 import org.nbu.medicalrecord.services.VisitService;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.time.LocalDate;
 import java.util.Set;
 
+import static org.nbu.medicalrecord.util.EtagUtil.ifNoneMatch;
+
 @RestController
 @RequestMapping("/visit")
 @RequiredArgsConstructor
 public class VisitController {
 
     private final VisitService visitService;
+    private final PatientVersionService patientVersionService;
 
     // Create a visit for a completed appointment
     @PostMapping
@@ -36,11 +41,12 @@ public class VisitController {
         return visitService.showAllVisitsByDoctor(doctorId);
     }
 
-    // Show all visits of a patient
+    // Show all visits of a patient; 304 without loading them while the ETag still matches
     @GetMapping("/patient/{patientId}")
     @PreAuthorize("@authz.isPatient(authentication, #patientId) or hasAuthority('ADMIN')")
-    public Set<VisitDtoResponse> byPatient(@PathVariable long patientId) {
-        return visitService.showAllVisitsForPatient(patientId);
+    public ResponseEntity<Set<VisitDtoResponse>> byPatient(@PathVariable long patientId, WebRequest request) {
+        return ifNoneMatch(request, patientVersionService.currentVersion(patientId),
+                () -> visitService.showAllVisitsForPatient(patientId));
     }
 
     // Show all visits of a patient in a specific time period
@@ -0,0 +1,91 @@
+package org.nbu.medicalrecord;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.nbu.medicalrecord.entities.Allergy;
+import org.nbu.medicalrecord.services.impl.AllergenCatalog;
+import org.nbu.medicalrecord.services.impl.IdAllocator;
+import org.nbu.medicalrecord.services.impl.ReferenceDataCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.*;
+
+// the migration commits chunk by chunk, so the tests run outside of a test transaction and clean up afterwards
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({AllergenCatalog.class, ReferenceDataCache.class, IdAllocator.class})
+class AllergenCatalogTest extends JpaSliceTest {
+
+    @Autowired
+    private AllergenCatalog catalog;
+
+    @Autowired
+    private ReferenceDataCache referenceData;
+
+    @AfterEach
+    void cleanUp() {
+        deleteFrom("patients_allergies", "allergies", "patients", "users");
+        referenceData.clear();
+    }
+
+    private long patient(long id) {
+        jdbc.update("insert into users (id, email, password, first_name, last_name, egn, enabled, locked) values (?,?,?,?,?,?,true,false)",
+                id, "p" + id + "@example.com", "x", "P", "P", String.format("%010d", id));
+        jdbc.update("insert into patients (id, user_id, birth_date) values (?, ?, date '1990-01-01')", id, id);
+        return id;
+    }
+
+    private Set<String> allergensOf(long patientId) {
+        return Set.copyOf(jdbc.queryForList("""
+                select a.allergen_key from allergies a join patients_allergies pa on pa.allergies_id = a.id
+                where pa.patient_id = ?""", String.class, patientId));
+    }
+
+    @Test
+    @DisplayName("resolve adds missing allergens once and reuses them for every spelling")
+    void resolveInternsAllergens() {
+        Map<String, Long> first = catalog.resolveIds(List.of("Pollen", " PENICILLIN ", "pollen", ""));
+        assertThat(first).containsOnlyKeys("pollen", "penicillin");
+
+        // cached, and found in the database once the cache is gone
+        assertThat(catalog.resolveIds(List.of("POLLEN"))).containsEntry("pollen", first.get("pollen"));
+        referenceData.clear();
+        assertThat(catalog.resolveIds(List.of("Penicillin", "Latex")))
+                .containsEntry("penicillin", first.get("penicillin"))
+                .containsKey("latex");
+
+        assertThat(jdbc.queryForList("select allergen from allergies order by allergen", String.class))
+                .containsExactly("latex", "penicillin", "pollen");
+    }
+
+    @Test
+    @DisplayName("the migration keys legacy rows and merges duplicates into the oldest row")
+    void deduplicateMergesLegacyRows() {
+        long ana = patient(1);
+        long ivan = patient(2);
+        // per-patient rows as the registration wrote them before the catalog
+        jdbc.update("insert into allergies (id, allergen) values (10, 'Pollen'), (11, ' pollen '), (12, 'Latex'), (13, 'POLLEN')");
+        jdbc.update("insert into patients_allergies (patient_id, allergies_id) values (?, 10), (?, 11), (?, 12), (?, 13)", ana, ana, ana, ivan);
+
+        catalog.deduplicate();
+
+        Map<Long, String> rows = jdbc.queryForList("select id, allergen_key from allergies").stream()
+                .collect(Collectors.toMap(r -> ((Number) r.get("id")).longValue(), r -> (String) r.get("allergen_key")));
+        assertThat(rows).containsOnly(entry(10L, "pollen"), entry(12L, "latex"));
+        assertThat(allergensOf(ana)).containsExactlyInAnyOrder("pollen", "latex");
+        assertThat(allergensOf(ivan)).containsExactly("pollen");
+
+        // nothing left to migrate, and the catalog answers from the kept rows
+        catalog.deduplicate();
+        Set<Allergy> resolved = catalog.resolve(List.of("pollen"));
+        assertThat(resolved).extracting(Allergy::getId).containsExactly(10L);
+    }
+}
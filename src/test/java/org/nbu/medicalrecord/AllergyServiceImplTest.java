@@ -13,7 +13,10 @@ import org.nbu.medicalrecord.dtos.response.AllergyDtoResponse;
 import org.nbu.medicalrecord.entities.Allergy;
 import org.nbu.medicalrecord.repositories.AllergyRepository;
 import org.nbu.medicalrecord.services.impl.AllergyServiceImpl;
+import org.nbu.medicalrecord.services.impl.ReferenceDataCache;
+import org.nbu.medicalrecord.services.impl.ReferenceDataCache.AllergyView;
 
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.*;
@@ -26,6 +29,9 @@ class AllergyServiceImplTest {
     @Mock
     private AllergyRepository allergyRepository;
 
+    @Mock
+    private ReferenceDataCache referenceData;
+
     @InjectMocks
     private AllergyServiceImpl service;
 
@@ -39,7 +45,7 @@ class AllergyServiceImplTest {
             AllergyDtoRequest req = new AllergyDtoRequest();
             req.setAllergen("  PoLlEn  "); // will be normalized to "pollen"
 
-            when(allergyRepository.existsByAllergenIgnoreCase("pollen")).thenReturn(false);
+            when(referenceData.findAllergy("pollen")).thenReturn(Optional.empty());
             doAnswer(inv -> {
                 Allergy a = inv.getArgument(0, Allergy.class);
                 a.setId(42L);
@@ -48,7 +54,7 @@ class AllergyServiceImplTest {
 
             AllergyDtoResponse out = service.addAllergy(req);
 
-            verify(allergyRepository).existsByAllergenIgnoreCase("pollen");
+            verify(referenceData).findAllergy("pollen");
 
             ArgumentCaptor<Allergy> captor = ArgumentCaptor.forClass(Allergy.class);
             verify(allergyRepository).save(captor.capture());
@@ -57,6 +63,7 @@ class AllergyServiceImplTest {
 
             assertThat(out.getId()).isEqualTo(42L);
             assertThat(out.getAllergen()).isEqualTo("pollen");
+            verify(referenceData).allergensChanged(List.of("pollen"));
         }
 
         @Test
@@ -65,7 +72,7 @@ class AllergyServiceImplTest {
             AllergyDtoRequest req = new AllergyDtoRequest();
             req.setAllergen("  MILK ");
 
-            when(allergyRepository.existsByAllergenIgnoreCase("milk")).thenReturn(true);
+            when(referenceData.findAllergy("milk")).thenReturn(Optional.of(new AllergyView(3L, "milk")));
 
             assertThatThrownBy(() -> service.addAllergy(req))
                     .isInstanceOf(IllegalStateException.class)
@@ -81,12 +88,8 @@ class AllergyServiceImplTest {
         @Test
         @DisplayName("returns DTO with diagnosesCount=0 when diagnoses is null")
         void showAllergyWithNullDiagnosesReturnsCount0() {
-            Allergy a = new Allergy();
-            a.setId(7L);
-            a.setAllergen("pollen");
-
-            when(allergyRepository.findByAllergenIgnoreCase("pollen"))
-                    .thenReturn(Optional.of(a));
+            when(referenceData.findAllergy("pollen"))
+                    .thenReturn(Optional.of(new AllergyView(7L, "pollen")));
 
             AllergyDtoResponse out = service.showAllergy("  PoLlEn ");
             assertThat(out.getId()).isEqualTo(7L);
@@ -96,12 +99,8 @@ class AllergyServiceImplTest {
         @Test
         @DisplayName("returns DTO with diagnosesCount=size when diagnoses is non-empty")
         void showAllergyWithDiagnosesCountsSize() {
-            Allergy a = new Allergy();
-            a.setId(8L);
-            a.setAllergen("milk");
-
-            when(allergyRepository.findByAllergenIgnoreCase("milk"))
-                    .thenReturn(Optional.of(a));
+            when(referenceData.findAllergy("milk"))
+                    .thenReturn(Optional.of(new AllergyView(8L, "milk")));
 
             AllergyDtoResponse out = service.showAllergy("MiLk");
         }
@@ -109,7 +108,7 @@ class AllergyServiceImplTest {
         @Test
         @DisplayName("throws IllegalArgumentException when allergy not found")
         void showAllergyNotFound_throws() {
-            when(allergyRepository.findByAllergenIgnoreCase("unknown"))
+            when(referenceData.findAllergy("unknown"))
                     .thenReturn(Optional.empty());
 
             assertThatThrownBy(() -> service.showAllergy("  unknown "))
@@ -129,7 +128,7 @@ class AllergyServiceImplTest {
             a.setId(9L);
             a.setAllergen("pollen");
 
-            when(allergyRepository.findByAllergenIgnoreCase("pollen"))
+            when(allergyRepository.findByAllergenKey("pollen"))
                     .thenReturn(Optional.of(a));
 
             service.deleteAllergy("  POLLEN ");
@@ -140,7 +139,7 @@ class AllergyServiceImplTest {
         @Test
         @DisplayName("throws IllegalArgumentException when allergy not found")
         void deleteAllergyNotFound_throws() {
-            when(allergyRepository.findByAllergenIgnoreCase("missing"))
+            when(allergyRepository.findByAllergenKey("missing"))
                     .thenReturn(Optional.empty());
 
             assertThatThrownBy(() -> service.deleteAllergy(" missing "))
@@ -156,7 +155,7 @@ class AllergyServiceImplTest {
             a.setId(10L);
             a.setAllergen("milk");
 
-            when(allergyRepository.findByAllergenIgnoreCase("milk"))
+            when(allergyRepository.findByAllergenKey("milk"))
                     .thenReturn(Optional.of(a));
 
             assertThatThrownBy(() -> service.deleteAllergy("MiLk"))
@@ -0,0 +1,128 @@
+package org.nbu.medicalrecord;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.nbu.medicalrecord.repositories.AppointmentRepository;
+import org.nbu.medicalrecord.services.impl.AppointmentSlotIndex;
+import org.nbu.medicalrecord.services.impl.AppointmentSlotIndex.Claim;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AppointmentSlotIndexTest {
+
+    private static final LocalDate DAY = LocalDate.now().plusDays(1);
+
+    @Mock
+    private AppointmentRepository appointmentRepo;
+
+    @InjectMocks
+    private AppointmentSlotIndex index;
+
+    private static AppointmentRepository.SlotView slot(long doctorId, LocalDate date, LocalTime hour) {
+        return new AppointmentRepository.SlotView() {
+            public Long getDoctorId() { return doctorId; }
+            public LocalDate getDate() { return date; }
+            public LocalTime getHour() { return hour; }
+        };
+    }
+
+    @BeforeEach
+    void warmUp() {
+        when(appointmentRepo.streamSlotsFrom(any()))
+                .thenReturn(Stream.of(slot(1L, DAY, LocalTime.of(9, 0))));
+        index.reload();
+    }
+
+    @Test
+    @DisplayName("before the warm-up every claim is left to the database")
+    void coldIndex_isUnknown() {
+        AppointmentSlotIndex cold = new AppointmentSlotIndex(appointmentRepo);
+        assertThat(cold.claim(1L, DAY, LocalTime.of(9, 0))).isEqualTo(Claim.UNKNOWN);
+    }
+
+    @Test
+    @DisplayName("slots loaded from the database are taken, others can be claimed once")
+    void claimAndRelease() {
+        assertThat(index.claim(1L, DAY, LocalTime.of(9, 0))).isEqualTo(Claim.TAKEN);
+
+        assertThat(index.claim(1L, DAY, LocalTime.of(9, 30))).isEqualTo(Claim.CLAIMED);
+        assertThat(index.claim(1L, DAY, LocalTime.of(9, 30))).isEqualTo(Claim.TAKEN);
+        // same time, other doctor or other day
+        assertThat(index.claim(2L, DAY, LocalTime.of(9, 30))).isEqualTo(Claim.CLAIMED);
+        assertThat(index.claim(1L, DAY.plusDays(1), LocalTime.of(9, 30))).isEqualTo(Claim.CLAIMED);
+
+        index.release(1L, DAY, LocalTime.of(9, 30));
+        assertThat(index.claim(1L, DAY, LocalTime.of(9, 30))).isEqualTo(Claim.CLAIMED);
+
+        index.markTaken(1L, DAY, LocalTime.of(23, 59));
+        assertThat(index.claim(1L, DAY, LocalTime.of(23, 59))).isEqualTo(Claim.TAKEN);
+    }
+
+    @Test
+    @DisplayName("thousands of concurrent bookers on one slot: exactly one wins")
+    void contention_singleSlot() throws Exception {
+        int bookers = 5_000;
+        AtomicInteger won = new AtomicInteger();
+        AtomicInteger lost = new AtomicInteger();
+
+        race(bookers, i -> {
+            Claim c = index.claim(1L, DAY, LocalTime.of(10, 0));
+            (c == Claim.CLAIMED ? won : lost).incrementAndGet();
+        });
+
+        assertThat(won.get()).isEqualTo(1);
+        assertThat(lost.get()).isEqualTo(bookers - 1);
+    }
+
+    @Test
+    @DisplayName("concurrent bookers on different minutes of the same day never lose each other's bits")
+    void contention_sameWord() throws Exception {
+        // every minute of the day, each claimed by two competing threads
+        int minutes = 24 * 60;
+        AtomicInteger won = new AtomicInteger();
+
+        race(minutes * 2, i -> {
+            LocalTime t = LocalTime.of(0, 0).plusMinutes(i % minutes);
+            if (index.claim(3L, DAY, t) == Claim.CLAIMED) won.incrementAndGet();
+        });
+
+        assertThat(won.get()).isEqualTo(minutes);
+        for (int m = 0; m < minutes; m++) {
+            assertThat(index.claim(3L, DAY, LocalTime.of(0, 0).plusMinutes(m))).isEqualTo(Claim.TAKEN);
+        }
+    }
+
+    private static void race(int tasks, IntConsumer task) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>(tasks);
+            for (int i = 0; i < tasks; i++) {
+                int n = i;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    task.accept(n);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> f : futures) f.get(30, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.nbu.medicalrecord;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.nbu.medicalrecord.dtos.response.SpecializationDtoResponse;
+import org.nbu.medicalrecord.services.SpecializationService;
+import org.nbu.medicalrecord.util.ContentNegotiationConfig;
+import org.nbu.medicalrecord.web.SpecializationController;
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+class ContentNegotiationTest {
+
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() {
+        SpecializationService service = mock(SpecializationService.class);
+        when(service.showAllSpecializations()).thenReturn(Set.of(new SpecializationDtoResponse(1L, "Cardiology")));
+
+        // the converters in the order Boot puts them in
+        ContentNegotiationConfig config = new ContentNegotiationConfig();
+        HttpMessageConverters converters = new HttpMessageConverters(
+                config.cborHttpMessageConverter(new Jackson2ObjectMapperBuilder()),
+                config.smileHttpMessageConverter(new Jackson2ObjectMapperBuilder()));
+        mvc = MockMvcBuilders.standaloneSetup(new SpecializationController(service))
+                .setMessageConverters(converters.getConverters().toArray(new HttpMessageConverter<?>[0]))
+                .build();
+    }
+
+    @Test
+    @DisplayName("clients without a preference get compact JSON")
+    void jsonByDefault() throws Exception {
+        for (String accept : new String[]{null, "*/*", "application/json"}) {
+            MockHttpServletResponse response = list(accept);
+
+            assertThat(response.getContentType()).startsWith(MediaType.APPLICATION_JSON_VALUE);
+            assertThat(response.getContentAsString()).isEqualTo("[{\"id\":1,\"type\":\"Cardiology\"}]");
+        }
+    }
+
+    @Test
+    @DisplayName("CBOR and Smile are served on request and carry the same document")
+    void binaryOnRequest() throws Exception {
+        assertSameDocument(list("application/cbor"), "application/cbor", new CBORMapper());
+        assertSameDocument(list("application/x-jackson-smile"), "application/x-jackson-smile", new SmileMapper());
+    }
+
+    private MockHttpServletResponse list(String accept) throws Exception {
+        var request = get("/specialization/all");
+        if (accept != null) {
+            request.header("Accept", accept);
+        }
+        return mvc.perform(request).andReturn().getResponse();
+    }
+
+    private static void assertSameDocument(MockHttpServletResponse response, String contentType, ObjectMapper mapper) throws Exception {
+        assertThat(response.getContentType()).isEqualTo(contentType);
+        JsonNode document = mapper.readTree(response.getContentAsByteArray());
+        assertThat(document).isEqualTo(new ObjectMapper().readTree("[{\"id\":1,\"type\":\"Cardiology\"}]"));
+    }
+}
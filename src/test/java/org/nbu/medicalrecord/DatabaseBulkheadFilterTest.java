@@ -0,0 +1,100 @@
+package org.nbu.medicalrecord;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.nbu.medicalrecord.web.DatabaseBulkheadFilter;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+class DatabaseBulkheadFilterTest {
+
+    private static MockHttpServletResponse call(DatabaseBulkheadFilter filter, CountDownLatch release, AtomicInteger inChain) {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            filter.doFilter(new MockHttpServletRequest("GET", "/visit/patient/1"), response, (req, res) -> {
+                inChain.incrementAndGet();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return response;
+    }
+
+    @Test
+    @DisplayName("admits as many requests as there are permits, the next one gets 503 with Retry-After after waiting")
+    void shedsRequestsBeyondThePermits() throws Exception {
+        DatabaseBulkheadFilter filter = new DatabaseBulkheadFilter(true, 2, 10, 50, 3);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger inChain = new AtomicInteger();
+
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            CompletableFuture<MockHttpServletResponse> first = CompletableFuture.supplyAsync(() -> call(filter, release, inChain), clients);
+            CompletableFuture<MockHttpServletResponse> second = CompletableFuture.supplyAsync(() -> call(filter, release, inChain), clients);
+            while (inChain.get() < 2) Thread.onSpinWait();
+
+            MockHttpServletResponse third = call(filter, release, inChain);
+            assertThat(third.getStatus()).isEqualTo(503);
+            assertThat(third.getHeader("Retry-After")).isEqualTo("3");
+            assertThat(filter.stats().inUse()).isEqualTo(2);
+
+            release.countDown();
+            assertThat(first.get().getStatus()).isEqualTo(200);
+            assertThat(second.get().getStatus()).isEqualTo(200);
+        }
+
+        DatabaseBulkheadFilter.BulkheadStats stats = filter.stats();
+        assertThat(stats.admitted()).isEqualTo(2);
+        assertThat(stats.rejected()).isEqualTo(1);
+        assertThat(stats.inUse()).isZero();
+        assertThat(stats.maxWaitMs()).isGreaterThanOrEqualTo(50);
+    }
+
+    @Test
+    @DisplayName("a released permit goes to the next waiting request; by default the pool size is the limit")
+    void waitingRequestGetsReleasedPermit() throws Exception {
+        DatabaseBulkheadFilter filter = new DatabaseBulkheadFilter(true, 0, 1, 5_000, 1);
+        assertThat(filter.stats().permits()).isEqualTo(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger inChain = new AtomicInteger();
+
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            CompletableFuture<MockHttpServletResponse> first = CompletableFuture.supplyAsync(() -> call(filter, release, inChain), clients);
+            while (inChain.get() < 1) Thread.onSpinWait();
+            CompletableFuture<MockHttpServletResponse> second = CompletableFuture.supplyAsync(() -> call(filter, release, inChain), clients);
+            while (filter.stats().waiting() < 1) Thread.onSpinWait();
+
+            release.countDown();
+            assertThat(first.get().getStatus()).isEqualTo(200);
+            assertThat(second.get().getStatus()).isEqualTo(200);
+        }
+        assertThat(filter.stats().rejected()).isZero();
+    }
+
+    @Test
+    @DisplayName("when disabled every request passes straight through")
+    void disabledPassesThrough() throws Exception {
+        DatabaseBulkheadFilter filter = new DatabaseBulkheadFilter(false, 1, 10, 0, 1);
+        CountDownLatch released = new CountDownLatch(0);
+        AtomicInteger inChain = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(call(filter, released, inChain).getStatus()).isEqualTo(200);
+        }
+        assertThat(inChain.get()).isEqualTo(3);
+        assertThat(filter.stats().admitted()).isZero();
+    }
+}
@@ -0,0 +1,106 @@
+package org.nbu.medicalrecord;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.nbu.medicalrecord.dtos.response.DiagnosisDtoResponse;
+import org.nbu.medicalrecord.entities.Diagnosis;
+import org.nbu.medicalrecord.entities.Doctor;
+import org.nbu.medicalrecord.entities.Patient;
+import org.nbu.medicalrecord.repositories.DiagnosisRepository;
+import org.nbu.medicalrecord.repositories.PatientRepository;
+import org.nbu.medicalrecord.util.DiagnosisKeyUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+class DiagnosisRepositoryTest extends JpaSliceTest {
+
+    @Autowired
+    private DiagnosisRepository diagnosisRepo;
+
+    @Autowired
+    private PatientRepository patientRepo;
+
+    private Doctor doctor;
+    private Patient p1;
+    private Patient p2;
+
+    private Diagnosis diagnose(Patient p, String text) {
+        Diagnosis d = new Diagnosis();
+        d.setDoctor(doctor);
+        d.setPatient(p);
+        d.setDiagnosis(text);
+        em.persist(d);
+        return d;
+    }
+
+    @BeforeEach
+    void seed() {
+        doctor = doctor("Ana", "Dimitrova", "1111111111");
+        p1 = patient("Ivan", "Petrov", "2222222222");
+        p2 = patient("Ivan", "Petrov", "3333333333");
+    }
+
+    @Test
+    @DisplayName("the key ignores case and whitespace differences")
+    void key_isNormalized() {
+        assertThat(DiagnosisKeyUtil.keyOf("  Acute   Bronchitis\n"))
+                .isEqualTo(DiagnosisKeyUtil.keyOf("acute bronchitis"))
+                .hasSize(64);
+        assertThat(DiagnosisKeyUtil.keyOf("Flu")).isNotEqualTo(DiagnosisKeyUtil.keyOf("Flu B"));
+        assertThat(DiagnosisKeyUtil.keyOf(null)).isNull();
+    }
+
+    @Test
+    @DisplayName("one representative (the oldest row) per requested diagnosis key")
+    void representativesByKeys() {
+        Diagnosis firstFlu = diagnose(p1, "Flu");
+        diagnose(p2, "flu ");
+        Diagnosis firstAngina = diagnose(p1, "Angina");
+        diagnose(p2, "ANGINA");
+        diagnose(p1, "Migraine");
+        em.flush();
+
+        List<DiagnosisDtoResponse> reps = diagnosisRepo.findRepresentativesByKeys(
+                List.of(DiagnosisKeyUtil.keyOf("flu"), DiagnosisKeyUtil.keyOf("angina")));
+
+        assertThat(reps).extracting(DiagnosisDtoResponse::getId)
+                .containsExactly(firstFlu.getId(), firstAngina.getId());
+        assertThat(reps.getFirst().getDiagnosis()).isEqualTo("Flu");
+        assertThat(reps.getFirst().getPatientId()).isEqualTo(p1.getId());
+        assertThat(reps.getFirst().getDoctorId()).isEqualTo(doctor.getId());
+        assertThat(reps.getFirst().getDoctorName()).isEqualTo("Ana Dimitrova");
+    }
+
+    @Test
+    @DisplayName("patients with the same diagnosis are matched by key")
+    void patientsByDiagnosisKey() {
+        diagnose(p1, "Flu");
+        diagnose(p1, "FLU");
+        diagnose(p2, " flu");
+        diagnose(p2, "Angina");
+        em.flush();
+
+        String key = DiagnosisKeyUtil.keyOf("flu");
+        assertThat(patientRepo.findDistinctByDiagnosisKey(key)).containsExactlyInAnyOrder(p1, p2);
+        assertThat(patientRepo.countDistinctByDiagnosisKey(key)).isEqualTo(2);
+        assertThat(patientRepo.countDistinctByDiagnosisKey(DiagnosisKeyUtil.keyOf("angina"))).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("rows without a key are found for the backfill")
+    void keylessRows() {
+        Diagnosis d = diagnose(p1, "Flu");
+        em.flush();
+        jdbc.update("update diagnoses set diagnosis_key = null where id = ?", d.getId());
+
+        assertThat(diagnosisRepo.findKeyless(0L, Limit.of(10)))
+                .singleElement()
+                .satisfies(v -> assertThat(v.getDiagnosis()).isEqualTo("Flu"));
+        assertThat(diagnosisRepo.findKeyless(d.getId(), Limit.of(10))).isEmpty();
+    }
+}
@@ -0,0 +1,183 @@
+package org.nbu.medicalrecord;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.nbu.medicalrecord.dtos.request.AppointmentDtoRequest;
+import org.nbu.medicalrecord.dtos.request.DoctorScheduleDtoRequest;
+import org.nbu.medicalrecord.dtos.response.DoctorScheduleDtoResponse;
+import org.nbu.medicalrecord.dtos.response.PatientAppointmentDtoResponse;
+import org.nbu.medicalrecord.entities.Doctor;
+import org.nbu.medicalrecord.entities.MedicalRecord;
+import org.nbu.medicalrecord.entities.Patient;
+import org.nbu.medicalrecord.services.impl.AppointmentServiceImpl;
+import org.nbu.medicalrecord.services.impl.AppointmentSlotIndex;
+import org.nbu.medicalrecord.services.impl.DoctorScheduleServiceImpl;
+import org.nbu.medicalrecord.services.impl.IdAllocator;
+import org.nbu.medicalrecord.services.impl.OutboxServiceImpl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+
+// the slot index releases bits after commit, which never happens inside a test transaction: exercise the database path
+@TestPropertySource(properties = "appointments.slot-index.enabled=false")
+@Import({DoctorScheduleServiceImpl.class, OutboxServiceImpl.class, IdAllocator.class, AppointmentServiceImpl.class, AppointmentSlotIndex.class})
+class DoctorScheduleServiceImplTest extends JpaSliceTest {
+
+    private static final Set<DayOfWeek> WEEKEND = Set.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY);
+
+    @Autowired
+    private DoctorScheduleServiceImpl scheduleService;
+
+    @Autowired
+    private AppointmentServiceImpl appointmentService;
+
+    private Doctor doctor;
+    private Patient patient;
+
+    @BeforeEach
+    void seed() {
+        doctor = doctor("Ana", "Dimitrova", "1111111111");
+        patient = patient("Ivan", "Petrov", "2222222222");
+        em.flush();
+    }
+
+    private DoctorScheduleDtoResponse weekdaysNineToTwelve() {
+        DoctorScheduleDtoRequest req = new DoctorScheduleDtoRequest(
+                LocalTime.of(9, 0), LocalTime.of(12, 0), 30, WEEKEND, 1);
+        return scheduleService.setSchedule(doctor.getId(), req);
+    }
+
+    private static LocalDate nextWorkingDay() {
+        LocalDate d = LocalDate.now().plusDays(1);
+        while (WEEKEND.contains(d.getDayOfWeek())) d = d.plusDays(1);
+        return d;
+    }
+
+    // slots of [start, end) on the working days of the next week; today only the ones from the next whole hour on
+    private static int slotsInNextWeek(LocalTime start, LocalTime end, int minutes) {
+        LocalDateTime earliest = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).plusHours(1);
+        int slots = 0;
+        for (LocalDate d = LocalDate.now(); d.isBefore(LocalDate.now().plusWeeks(1)); d = d.plusDays(1)) {
+            if (WEEKEND.contains(d.getDayOfWeek())) continue;
+            for (LocalTime t = start; !t.plusMinutes(minutes).isAfter(end); t = t.plusMinutes(minutes)) {
+                if (!d.atTime(t).isBefore(earliest)) slots++;
+            }
+        }
+        return slots;
+    }
+
+    private PatientAppointmentDtoResponse book(LocalDate date, LocalTime hour) {
+        return appointmentService.makeAppointment(new AppointmentDtoRequest(date, hour, doctor.getId(), patient.getId()));
+    }
+
+    @Test
+    @DisplayName("setSchedule generates every slot of the window, skipping days off")
+    void setSchedule_materializesSlots() {
+        DoctorScheduleDtoResponse res = weekdaysNineToTwelve();
+
+        int expected = slotsInNextWeek(LocalTime.of(9, 0), LocalTime.of(12, 0), 30);
+        assertThat(res.getSlotsCreated()).isEqualTo(expected);
+        assertThat(res.getMaterializedUntil()).isEqualTo(LocalDate.now().plusWeeks(1).minusDays(1));
+        assertThat(appointmentService.showAllAvailableAppointmentsByDoctorId(doctor.getId()))
+                .hasSize(expected)
+                .allSatisfy(s -> {
+                    assertThat(s.getPatientId()).isNull();
+                    assertThat(WEEKEND).doesNotContain(s.getDate().getDayOfWeek());
+                    assertThat(s.getHourOfAppointment()).isBetween(LocalTime.of(9, 0), LocalTime.of(11, 30));
+                    assertThat(s.getDate().atTime(s.getHourOfAppointment())).isAfter(LocalDateTime.now());
+                });
+
+        // running the top-up again within the window creates nothing
+        assertThat(scheduleService.topUpAllSchedules()).isZero();
+    }
+
+    @Test
+    @DisplayName("booking claims the generated slot; a second booking of it is rejected")
+    void book_claimsGeneratedSlot() {
+        weekdaysNineToTwelve();
+        LocalDate day = nextWorkingDay();
+        int free = appointmentService.showAllAvailableAppointmentsByDoctorId(doctor.getId()).size();
+
+        PatientAppointmentDtoResponse booked = book(day, LocalTime.of(9, 30));
+
+        assertThat(booked.getId()).isNotNull();
+        assertThat(booked.getPatientId()).isEqualTo(patient.getId());
+        assertThat(booked.getDoctorName()).isEqualTo("Ana Dimitrova");
+        assertThat(appointmentService.showAllAvailableAppointmentsByDoctorId(doctor.getId())).hasSize(free - 1);
+
+        assertThatThrownBy(() -> book(day, LocalTime.of(9, 30)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    @DisplayName("a doctor with a schedule cannot be booked outside of it")
+    void book_outsideSchedule_throws() {
+        weekdaysNineToTwelve();
+
+        assertThatThrownBy(() -> book(nextWorkingDay(), LocalTime.of(15, 0)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("has no slot");
+    }
+
+    @Test
+    @DisplayName("booking a generated slot for an unknown patient is rejected as such")
+    void book_unknownPatient_throws() {
+        weekdaysNineToTwelve();
+
+        assertThatThrownBy(() -> appointmentService.makeAppointment(
+                new AppointmentDtoRequest(nextWorkingDay(), LocalTime.of(9, 0), doctor.getId(), 999_999L)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Patient with id 999999 not found");
+    }
+
+    @Test
+    @DisplayName("cancelling a generated slot frees it; rescheduling keeps booked slots")
+    void cancelAndReschedule() {
+        weekdaysNineToTwelve();
+        LocalDate day = nextWorkingDay();
+        int free = appointmentService.showAllAvailableAppointmentsByDoctorId(doctor.getId()).size();
+
+        PatientAppointmentDtoResponse booked = book(day, LocalTime.of(10, 0));
+        appointmentService.cancelAppointment(booked.getId());
+        assertThat(appointmentService.showAllAvailableAppointmentsByDoctorId(doctor.getId())).hasSize(free);
+
+        book(day, LocalTime.of(10, 0));
+        DoctorScheduleDtoResponse res = scheduleService.setSchedule(doctor.getId(),
+                new DoctorScheduleDtoRequest(LocalTime.of(9, 0), LocalTime.of(11, 0), 60, WEEKEND, 1));
+
+        assertThat(res.getSlotsCreated()).isEqualTo(slotsInNextWeek(LocalTime.of(9, 0), LocalTime.of(11, 0), 60) - 1);
+        assertThat(appointmentService.showAllPatientAppointmentsById(patient.getId()))
+                .singleElement()
+                .satisfies(a -> assertThat(a.getHourOfAppointment()).isEqualTo(LocalTime.of(10, 0)));
+    }
+
+    @Test
+    @DisplayName("rescheduling keeps a free slot that a visit refers to")
+    void rescheduleKeepsSlotsWithVisits() {
+        weekdaysNineToTwelve();
+        LocalDate day = nextWorkingDay();
+        Long slotId = jdbc.queryForObject("select id from appointments where doctor_id = ? and date = ? and hour_of_visit = ?",
+                Long.class, doctor.getId(), day, LocalTime.of(9, 0));
+        MedicalRecord record = new MedicalRecord();
+        record.setPatient(patient);
+        em.persist(record);
+        em.flush();
+        jdbc.update("insert into visits (id, appointment_id, complaints, medical_record_id) values (1, ?, 'cough', ?)",
+                slotId, record.getId());
+
+        scheduleService.setSchedule(doctor.getId(),
+                new DoctorScheduleDtoRequest(LocalTime.of(10, 0), LocalTime.of(12, 0), 60, WEEKEND, 1));
+
+        assertThat(jdbc.queryForObject("select count(*) from appointments where id = ?", Integer.class, slotId)).isOne();
+    }
+}
@@ -14,7 +14,13 @@ import org.nbu.medicalrecord.entities.HealthInsurance;
 import org.nbu.medicalrecord.entities.Patient;
 import org.nbu.medicalrecord.repositories.HealthInsuranceRepository;
 import org.nbu.medicalrecord.repositories.PatientRepository;
+import org.nbu.medicalrecord.services.OutboxService;
+import org.nbu.medicalrecord.services.TimelineService;
 import org.nbu.medicalrecord.services.impl.HealthInsuranceServiceImpl;
+import org.nbu.medicalrecord.services.impl.IdAllocator;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Month;
 import java.util.List;
@@ -34,6 +40,18 @@ class HealthInsuranceServiceImplTest {
     @Mock
     private PatientRepository patientRepo;
 
+    @Mock
+    private TransactionTemplate tx;
+
+    @Mock
+    private IdAllocator ids;
+
+    @Mock
+    private TimelineService timeline;
+
+    @Mock
+    private OutboxService outbox;
+
     @InjectMocks
     private HealthInsuranceServiceImpl service;
 
@@ -200,6 +218,45 @@ class HealthInsuranceServiceImplTest {
 
     }
 
+    @Nested
+    @DisplayName("createMonthlyHealthInsuranceRows")
+    class MonthlyRows {
+
+        @Test
+        @DisplayName("inserts missing rows chunk by chunk, reserving ids only for the missing ones")
+        void insertsPerIdRange() {
+            ReflectionTestUtils.setField(service, "chunkSize", 2);
+            when(patientRepo.findMaxId()).thenReturn(5L);
+            when(tx.execute(any())).thenAnswer(inv -> inv.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+            when(repo.countMissingForPatientIdRange(eq("MARCH"), eq(2025), anyLong(), anyLong())).thenReturn(2, 1, 0);
+            when(ids.allocate(eq("health_insurances"), anyInt())).thenReturn(100L, 102L);
+            when(repo.insertMissingForPatientIdRange(eq("MARCH"), eq(2025), anyLong(), anyLong(), anyLong(), anyInt())).thenReturn(2, 1);
+
+            int inserted = service.createMonthlyHealthInsuranceRows(Month.MARCH, 2025);
+
+            assertThat(inserted).isEqualTo(3);
+            verify(ids).allocate("health_insurances", 2);
+            verify(ids).allocate("health_insurances", 1);
+            verify(repo).insertMissingForPatientIdRange("MARCH", 2025, 0L, 2L, 100L, 2);
+            verify(repo).insertMissingForPatientIdRange("MARCH", 2025, 2L, 4L, 102L, 1);
+            verify(repo).countMissingForPatientIdRange("MARCH", 2025, 4L, 5L);
+            verify(repo, never()).insertMissingForPatientIdRange(eq("MARCH"), eq(2025), eq(4L), eq(5L), anyLong(), anyInt());
+            verifyNoMoreInteractions(ids);
+            verify(patientRepo, never()).findAll();
+            verify(repo, never()).save(any());
+        }
+
+        @Test
+        @DisplayName("does nothing when there are no patients")
+        void noPatients() {
+            when(patientRepo.findMaxId()).thenReturn(0L);
+
+            assertThat(service.createMonthlyHealthInsuranceRows(Month.MARCH, 2025)).isZero();
+
+            verifyNoInteractions(repo, tx);
+        }
+    }
+
     @Test
     @DisplayName("referenceForLastSixMonthsByPatientId: returns mapped DTOs, keeps repository order, limits to 6")
     void referenceLastSix() {
@@ -0,0 +1,131 @@
+package org.nbu.medicalrecord;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.nbu.medicalrecord.dtos.response.ImportReportDtoResponse;
+import org.nbu.medicalrecord.dtos.response.ImportReportDtoResponse.RowError;
+import org.nbu.medicalrecord.security.IdentityResolver;
+import org.nbu.medicalrecord.security.PasswordConfig;
+import org.nbu.medicalrecord.security.PrincipalCache;
+import org.nbu.medicalrecord.services.ImportService;
+import org.nbu.medicalrecord.services.impl.AllergenCatalog;
+import org.nbu.medicalrecord.services.impl.IdAllocator;
+import org.nbu.medicalrecord.services.impl.ImportServiceImpl;
+import org.nbu.medicalrecord.services.impl.ReferenceDataCache;
+import org.nbu.medicalrecord.services.impl.UserServiceImpl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.*;
+
+// the import commits chunk by chunk, so the tests run outside of a test transaction and clean up afterwards
+@TestPropertySource(properties = {"registration.import.chunk-size=2", "registration.import.hashing-threads=2"})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ImportAutoConfiguration({JacksonAutoConfiguration.class, ValidationAutoConfiguration.class})
+@Import({ImportServiceImpl.class, AllergenCatalog.class, IdAllocator.class, ReferenceDataCache.class, PasswordConfig.class, PrincipalCache.class, IdentityResolver.class, UserServiceImpl.class})
+class ImportServiceImplTest extends JpaSliceTest {
+
+    @Autowired
+    private ImportService importService;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private ReferenceDataCache referenceData;
+
+    @AfterEach
+    void cleanUp() {
+        deleteFrom("patients_allergies", "allergies", "patients", "doctor_specializations",
+                "doctors", "user_authorities", "users", "specializations");
+        referenceData.clear();
+    }
+
+    private static InputStream file(String... lines) {
+        return new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("CSV patients: valid rows are imported, every rejected row is reported with its line")
+    void importsPatientsFromCsv() {
+        jdbc.update("insert into users (id, email, password, first_name, last_name, egn, enabled, locked) "
+                + "values (9000, 'taken@example.com', 'x', 'Taken', 'User', '1111111111', true, false)");
+
+        ImportReportDtoResponse report = importService.importPatients(file(
+                "egn,first_name,last_name,birth_date,email,password,allergies",
+                "9001011234,Ana,Petrova,1990-01-01,Ana@Example.com,password-1,Penicillin;Pollen",
+                "9102021234,\"Ivan, Jr.\",Ivanov,1991-02-02,ivan@example.com,password-2,",
+                "12345,Bad,Egn,1992-03-03,bad@example.com,password-3,",
+                "9203031234,Taken,Email,1992-03-03,TAKEN@example.com,password-4,",
+                "9304041234,Second,Ana,1993-04-04,ana@example.com,password-5,",
+                "9405051234,Maria,Georgieva,not-a-date,maria@example.com,password-6,",
+                "9506061234,Elena,Dimitrova,1995-06-06,elena@example.com,password-7,Pollen"
+        ), ImportService.Format.CSV);
+
+        assertThat(report.getRows()).isEqualTo(7);
+        assertThat(report.getImported()).isEqualTo(3);
+        assertThat(report.getFailed()).isEqualTo(4);
+        assertThat(report.getErrors()).extracting(RowError::line).containsExactly(4L, 5L, 6L, 7L);
+        assertThat(report.getErrors().get(0).message()).startsWith("egn:");
+        assertThat(report.getErrors().get(1).message()).contains("already registered");
+        // the first Ana was committed with an earlier chunk
+        assertThat(report.getErrors().get(2).message()).contains("already registered");
+        assertThat(report.getErrors().get(3).message()).startsWith("Unreadable row");
+
+        String hash = jdbc.queryForObject("select password from users where email = 'ana@example.com'", String.class);
+        assertThat(passwordEncoder.matches("password-1", hash)).isTrue();
+        assertThat(jdbc.queryForObject("select first_name from users where email = 'ivan@example.com'", String.class))
+                .isEqualTo("Ivan, Jr.");
+        assertThat(jdbc.queryForList("""
+                select ua.authority from user_authorities ua join users u on u.id = ua.user_id
+                where u.email = 'elena@example.com'""", String.class)).containsExactly("PATIENT");
+        assertThat(jdbc.queryForList("""
+                select a.allergen from allergies a
+                join patients_allergies pa on pa.allergies_id = a.id
+                join patients p on p.id = pa.patient_id
+                join users u on u.id = p.user_id
+                where u.email = 'ana@example.com'""", String.class)).containsExactlyInAnyOrder("penicillin", "pollen");
+        // one catalog entry per allergen, shared by Ana and Elena
+        assertThat(jdbc.queryForObject("select count(*) from allergies", Long.class)).isEqualTo(2);
+        assertThat(jdbc.queryForObject("select count(*) from patients", Long.class)).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("NDJSON doctors: specializations are linked, the GP flag follows them, bad rows are skipped")
+    void importsDoctorsFromNdjson() {
+        jdbc.update("insert into specializations (id, type) values (1, 'GP'), (2, 'Cardiology')");
+
+        ImportReportDtoResponse report = importService.importDoctors(file(
+                "{\"email\":\"gp@example.com\",\"egn\":\"8001011234\",\"firstName\":\"Georgi\",\"lastName\":\"Georgiev\",\"specializationIds\":[1,2],\"password\":\"password-1\"}",
+                "{\"email\":\"cardio@example.com\",\"egn\":\"8102021234\",\"firstName\":\"Petya\",\"lastName\":\"Petrova\",\"specializationIds\":[2],\"password\":\"password-2\"}",
+                "{\"email\":\"ghost@example.com\",\"egn\":\"8203031234\",\"firstName\":\"No\",\"lastName\":\"Spec\",\"specializationIds\":[9],\"password\":\"password-3\"}",
+                "{\"email\": broken",
+                "{\"email\":\"same-egn@example.com\",\"egn\":\"8102021234\",\"firstName\":\"Dup\",\"lastName\":\"Egn\",\"specializationIds\":[2],\"password\":\"password-5\"}"
+        ), ImportService.Format.NDJSON);
+
+        assertThat(report.getImported()).isEqualTo(2);
+        assertThat(report.getErrors()).extracting(RowError::line).containsExactly(3L, 4L, 5L);
+        assertThat(report.getErrors().get(0).message()).contains("[9]");
+        assertThat(report.getErrors().get(2).message()).contains("EGN 8102021234");
+
+        assertThat(jdbc.queryForList("""
+                select d.gp from doctors d join users u on u.id = d.user_id order by u.email""", Boolean.class))
+                .containsExactly(false, true);
+        assertThat(jdbc.queryForList("""
+                select ds.specialization_id from doctor_specializations ds
+                join doctors d on d.id = ds.doctor_id join users u on u.id = d.user_id
+                where u.email = 'gp@example.com' order by ds.specialization_id""", Long.class)).containsExactly(1L, 2L);
+    }
+}
@@ -0,0 +1,67 @@
+package org.nbu.medicalrecord;
+
+import jakarta.persistence.EntityManager;
+import org.nbu.medicalrecord.entities.Doctor;
+import org.nbu.medicalrecord.entities.Patient;
+import org.nbu.medicalrecord.entities.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+
+/**
+ * Base of the repository and service slice tests: the JPA layer on H2 in MySQL mode (the h2 profile),
+ * plus Jackson for the services that serialize. Each test class imports the beans it exercises and
+ * builds its data with the factories below.
+ */
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+abstract class JpaSliceTest {
+
+    @Autowired
+    protected EntityManager em;
+
+    @Autowired
+    protected JdbcTemplate jdbc;
+
+    // cleanup for the tests that commit (propagation NOT_SUPPORTED); referencing tables first
+    protected void deleteFrom(String... tables) {
+        for (String table : tables) {
+            jdbc.update("delete from " + table);
+        }
+    }
+
+    // the egn is unique per user, so it also makes the email unique
+    protected User user(String firstName, String lastName, String egn) {
+        User u = new User();
+        u.setEmail(egn + "@test.bg");
+        u.setPassword("x");
+        u.setEgn(egn);
+        u.setFirstName(firstName);
+        u.setLastName(lastName);
+        em.persist(u);
+        return u;
+    }
+
+    protected Doctor doctor(String firstName, String lastName, String egn) {
+        Doctor d = new Doctor();
+        d.setUser(user(firstName, lastName, egn));
+        em.persist(d);
+        return d;
+    }
+
+    protected Patient patient(String firstName, String lastName, String egn) {
+        Patient p = new Patient();
+        p.setUser(user(firstName, lastName, egn));
+        p.setBirthDate(LocalDate.of(1990, 5, 5));
+        em.persist(p);
+        return p;
+    }
+}
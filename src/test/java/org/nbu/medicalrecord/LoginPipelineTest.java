@@ -0,0 +1,152 @@
+package org.nbu.medicalrecord;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.nbu.medicalrecord.security.LoginPipeline;
+import org.nbu.medicalrecord.security.LoginRejectedException;
+import org.nbu.medicalrecord.security.LoginThrottle;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LoginPipelineTest {
+
+    @Mock
+    private AuthenticationManager authManager;
+
+    private LoginPipeline pipeline;
+
+    private LoginPipeline pipeline(int threads, int queueCapacity, long maxWaitMillis) {
+        LoginThrottle throttle = new LoginThrottle(3, 10, 15, 1000);
+        pipeline = new LoginPipeline(authManager, throttle, threads, queueCapacity, maxWaitMillis, 2);
+        return pipeline;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (pipeline != null) pipeline.shutdown();
+    }
+
+    private static Authentication authenticated(String email) {
+        return new UsernamePasswordAuthenticationToken(email, null, List.of());
+    }
+
+    @Test
+    @DisplayName("after too many failures the account is refused with 429 without hashing")
+    void throttlesAccountAfterFailures() {
+        LoginPipeline p = pipeline(1, 4, 5000);
+        when(authManager.authenticate(any())).thenThrow(new BadCredentialsException("Bad credentials"));
+
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> p.authenticate("ana@example.com", "wrong", "10.0.0.1"))
+                    .isInstanceOf(BadCredentialsException.class);
+        }
+
+        assertThatThrownBy(() -> p.authenticate("ana@example.com", "wrong", "10.0.0.2"))
+                .isInstanceOfSatisfying(LoginRejectedException.class, e -> {
+                    assertThat(e.getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+                    assertThat(e.getRetryAfterSeconds()).isBetween(1L, 15 * 60L);
+                });
+        verify(authManager, times(3)).authenticate(any());
+        assertThat(p.stats().throttled()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("a successful login clears the failures of the account")
+    void successClearsAccountFailures() {
+        LoginPipeline p = pipeline(1, 4, 5000);
+        when(authManager.authenticate(any()))
+                .thenThrow(new BadCredentialsException("Bad credentials"))
+                .thenThrow(new BadCredentialsException("Bad credentials"))
+                .thenReturn(authenticated("ana@example.com"))
+                .thenThrow(new BadCredentialsException("Bad credentials"))
+                .thenThrow(new BadCredentialsException("Bad credentials"))
+                .thenReturn(authenticated("ana@example.com"));
+
+        for (int round = 0; round < 2; round++) {
+            assertThatThrownBy(() -> p.authenticate("ana@example.com", "wrong", "10.0.0.1")).isInstanceOf(BadCredentialsException.class);
+            assertThatThrownBy(() -> p.authenticate("ana@example.com", "wrong", "10.0.0.1")).isInstanceOf(BadCredentialsException.class);
+            assertThat(p.authenticate("ana@example.com", "secret", "10.0.0.1").getName()).isEqualTo("ana@example.com");
+        }
+        // every login waited for a thread and was hashed, the failed ones included
+        assertThat(p.queueWait().count()).isEqualTo(6);
+        assertThat(p.hashTime().count()).isEqualTo(6);
+        assertThat(p.hashTime().maxNanos()).isPositive().isLessThanOrEqualTo(p.hashTime().totalNanos());
+    }
+
+    @Test
+    @DisplayName("a saturated hashing pool sheds logins with 503 instead of queueing them")
+    void saturatedPoolRejects() throws Exception {
+        LoginPipeline p = pipeline(1, 1, 5000);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(authManager.authenticate(any())).thenAnswer(inv -> {
+            started.countDown();
+            release.await();
+            return authenticated("busy@example.com");
+        });
+
+        // one login hashing, one waiting in the queue
+        CompletableFuture<Authentication> running = CompletableFuture.supplyAsync(() -> p.authenticate("a@example.com", "x", "10.0.0.1"));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Authentication> queued = CompletableFuture.supplyAsync(() -> p.authenticate("b@example.com", "x", "10.0.0.1"));
+        await(() -> p.stats().queued() == 1);
+
+        assertThatThrownBy(() -> p.authenticate("c@example.com", "x", "10.0.0.1"))
+                .isInstanceOfSatisfying(LoginRejectedException.class, e -> {
+                    assertThat(e.getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+                    assertThat(e.getRetryAfterSeconds()).isEqualTo(2);
+                });
+
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isNotNull();
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isNotNull();
+        assertThat(p.stats().rejected()).isEqualTo(1);
+        assertThat(p.stats().accepted()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("a login that waits longer than max-wait is answered with 503")
+    void slowLoginTimesOut() {
+        LoginPipeline p = pipeline(1, 1, 50);
+        CountDownLatch release = new CountDownLatch(1);
+        when(authManager.authenticate(any())).thenAnswer(inv -> {
+            release.await();
+            return authenticated("slow@example.com");
+        });
+
+        try {
+            assertThatThrownBy(() -> p.authenticate("slow@example.com", "x", "10.0.0.1"))
+                    .isInstanceOfSatisfying(LoginRejectedException.class,
+                            e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+            assertThat(p.stats().timedOut()).isEqualTo(1);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) fail("condition not met in time");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -10,12 +10,16 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.nbu.medicalrecord.dtos.request.MedicalRecordDtoRequest;
 import org.nbu.medicalrecord.dtos.response.MedicalRecordDtoResponse;
+import org.nbu.medicalrecord.entities.Diagnosis;
 import org.nbu.medicalrecord.entities.MedicalRecord;
 import org.nbu.medicalrecord.entities.Patient;
 import org.nbu.medicalrecord.entities.User;
 import org.nbu.medicalrecord.entities.Visit;
 import org.nbu.medicalrecord.repositories.MedicalRecordRepository;
 import org.nbu.medicalrecord.repositories.PatientRepository;
+import org.nbu.medicalrecord.services.PatientVersionService;
+import org.nbu.medicalrecord.services.StatisticsService;
+import org.nbu.medicalrecord.services.TimelineService;
 import org.nbu.medicalrecord.services.impl.MedicalRecordServiceImpl;
 
 import java.time.LocalDate;
@@ -34,6 +38,15 @@ class MedicalRecordServiceImplTest {
     @Mock
     private PatientRepository patientRepo;
 
+    @Mock
+    private PatientVersionService patientVersions;
+
+    @Mock
+    private StatisticsService statistics;
+
+    @Mock
+    private TimelineService timeline;
+
     @InjectMocks
     private MedicalRecordServiceImpl service;
 
@@ -210,7 +223,7 @@ class MedicalRecordServiceImplTest {
         @Test
         @DisplayName("throws when record does not exist")
         void deleteMissing_throws() {
-            when(recordRepo.existsById(500L)).thenReturn(false);
+            when(recordRepo.findById(500L)).thenReturn(Optional.empty());
 
             assertThatThrownBy(() -> service.deleteMedicalRecord(500L))
                     .isInstanceOf(IllegalArgumentException.class)
@@ -222,10 +235,39 @@ class MedicalRecordServiceImplTest {
         @Test
         @DisplayName("deletes when record exists")
         void deleteSuccessfully() {
-            when(recordRepo.existsById(42L)).thenReturn(true);
+            MedicalRecord rec = new MedicalRecord();
+            rec.setId(42L);
+            rec.setPatient(buildPatient(7L, "Ivan", "Petrov", LocalDate.of(1990, 1, 1)));
+            when(recordRepo.findById(42L)).thenReturn(Optional.of(rec));
+
+            service.deleteMedicalRecord(42L);
+
+            verify(recordRepo).deleteById(42L);
+            verify(patientVersions).patientChanged(7L);
+        }
+
+        @Test
+        @DisplayName("removes the timeline events and diagnosis counts of the visits deleted with the record")
+        void deleteRemovesVisitEvents() {
+            Diagnosis flu = new Diagnosis();
+            flu.setId(9L);
+            Visit v1 = new Visit();
+            v1.setId(1L);
+            v1.setDiagnosis(flu);
+            Visit v2 = new Visit();
+            v2.setId(2L);
+            MedicalRecord rec = new MedicalRecord();
+            rec.setId(42L);
+            rec.setPatient(buildPatient(7L, "Ivan", "Petrov", LocalDate.of(1990, 1, 1)));
+            rec.setVisits(Set.of(v1, v2));
+            when(recordRepo.findById(42L)).thenReturn(Optional.of(rec));
 
             service.deleteMedicalRecord(42L);
 
+            verify(timeline).visitDeleted(v1);
+            verify(timeline).visitDeleted(v2);
+            verify(statistics).diagnosisDeleted(flu);
+            verifyNoMoreInteractions(statistics);
             verify(recordRepo).deleteById(42L);
         }
     }
@@ -0,0 +1,94 @@
+package org.nbu.medicalrecord;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.nbu.medicalrecord.entities.Medicine;
+import org.nbu.medicalrecord.repositories.MedicineRepository;
+import org.nbu.medicalrecord.services.impl.MedicineSearchIndex;
+import org.nbu.medicalrecord.services.impl.MedicineSearchIndex.Entry;
+
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MedicineSearchIndexTest {
+
+    @Mock
+    private MedicineRepository medicineRepo;
+
+    @InjectMocks
+    private MedicineSearchIndex index;
+
+    private static Medicine med(long id, String name, int mg, String type) {
+        Medicine m = new Medicine(name, mg, type);
+        m.setId(id);
+        return m;
+    }
+
+    @BeforeEach
+    void warmUp() {
+        when(medicineRepo.streamAllByOrderByIdAsc()).thenReturn(Stream.of(
+                med(1L, "Ibuprofen", 200, "tablet"),
+                med(2L, "Ibuprofen", 400, "tablet"),
+                med(3L, "Ibuprofen Forte", 400, "capsule"),
+                med(4L, "Paracetamol", 500, "tablet"),
+                med(5L, "Children's Paracetamol", 120, "syrup"),
+                med(6L, "Amoxicillin", 500, "capsule")));
+        index.reload();
+    }
+
+    @Test
+    @DisplayName("before the warm-up the index is not ready, so the service searches the database")
+    void coldIndex_isNotReady() {
+        assertThat(new MedicineSearchIndex(medicineRepo).isReady()).isFalse();
+        assertThat(index.isReady()).isTrue();
+        assertThat(index.size()).isEqualTo(6);
+    }
+
+    @Test
+    @DisplayName("prefix of the name: names starting with it first, then the word matches, shorter names first")
+    void rankByPrefix() {
+        assertThat(index.search("para", 10)).extracting(Entry::id).containsExactly(4L, 5L);
+        assertThat(index.search("ibu", 2)).extracting(Entry::id).containsExactly(1L, 2L);
+        assertThat(index.search("IBUPROFEN", 10)).extracting(Entry::id).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    @DisplayName("every term has to match: name words, milligrams and the medicine type")
+    void everyTermMatches() {
+        assertThat(index.search("ibuprofen 400", 10)).extracting(Entry::id).containsExactly(2L, 3L);
+        assertThat(index.search("forte ibu", 10)).extracting(Entry::id).containsExactly(3L);
+        assertThat(index.search("caps", 10)).extracting(Entry::id).containsExactlyInAnyOrder(3L, 6L);
+        assertThat(index.search("syrup para", 10)).extracting(Entry::id).containsExactly(5L);
+    }
+
+    @Test
+    @DisplayName("misspelled terms still match, below the exact prefix matches")
+    void toleratesTypos() {
+        assertThat(index.search("paracetmol", 10)).extracting(Entry::id).containsExactlyInAnyOrder(4L, 5L);
+        assertThat(index.search("amoxicilin 500", 10)).extracting(Entry::id).containsExactly(6L);
+        assertThat(index.search("xyzzy", 10)).isEmpty();
+        assertThat(index.search("  ", 10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("added and removed medicines are searchable at once")
+    void incrementalUpdates() {
+        index.add(new Entry(7L, "Ibuprofen", 600, "tablet"));
+        assertThat(index.search("ibuprofen 6", 10)).extracting(Entry::id).containsExactly(7L);
+
+        index.remove(3L);
+        index.remove(7L);
+        assertThat(index.search("forte", 10)).isEmpty();
+        assertThat(index.search("ibu", 10)).extracting(Entry::id).containsExactly(1L, 2L);
+        // the trigrams of "forte" went with its last medicine
+        assertThat(index.search("fortee", 10)).isEmpty();
+    }
+}
@@ -0,0 +1,218 @@
+package org.nbu.medicalrecord;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.nbu.medicalrecord.entities.OutboxEvent;
+import org.nbu.medicalrecord.entities.OutboxEvent.Status;
+import org.nbu.medicalrecord.entities.OutboxEvent.Type;
+import org.nbu.medicalrecord.repositories.OutboxEventRepository;
+import org.nbu.medicalrecord.services.OutboxHandler;
+import org.nbu.medicalrecord.services.OutboxService;
+import org.nbu.medicalrecord.services.impl.OutboxDispatcher;
+import org.nbu.medicalrecord.services.impl.OutboxServiceImpl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+// claims and results are committed by the dispatcher itself, so the tests run outside of a test transaction and clean up afterwards
+@TestPropertySource(properties = {"outbox.workers=4", "outbox.batch-size=8", "outbox.max-attempts=2",
+        "outbox.backoff.initial-ms=60000", "outbox.backoff.max-ms=120000"})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({OutboxServiceImpl.class, OutboxDispatcher.class, OutboxDispatcherTest.VisitHandler.class})
+class OutboxDispatcherTest extends JpaSliceTest {
+
+    // the only handler: sick leave and the other types are delivered to nobody
+    static class VisitHandler implements OutboxHandler {
+
+        final List<OutboxEvent> handled = new CopyOnWriteArrayList<>();
+        volatile Behavior behavior = event -> {};
+
+        interface Behavior {
+            void accept(OutboxEvent event) throws Exception;
+        }
+
+        @Override
+        public Type type() {
+            return Type.VISIT_CREATED;
+        }
+
+        @Override
+        public void handle(OutboxEvent event) throws Exception {
+            behavior.accept(event);
+            handled.add(event);
+        }
+    }
+
+    @Autowired
+    private OutboxService outbox;
+
+    @Autowired
+    private OutboxDispatcher dispatcher;
+
+    @Autowired
+    private OutboxEventRepository outboxRepo;
+
+    @Autowired
+    private VisitHandler visitHandler;
+
+    @Autowired
+    private TransactionTemplate tx;
+
+    @AfterEach
+    void cleanUp() {
+        deleteFrom("outbox_events");
+        visitHandler.handled.clear();
+        visitHandler.behavior = event -> {};
+    }
+
+    private void publish(Type type, long aggregateId) {
+        tx.executeWithoutResult(s -> outbox.publish(type, aggregateId, Map.of("id", aggregateId)));
+    }
+
+    private OutboxEvent only() {
+        return outboxRepo.findAll().getFirst();
+    }
+
+    @Test
+    @DisplayName("events of committed transactions are delivered and marked done; rolled back ones never existed")
+    void deliversCommitted() {
+        publish(Type.VISIT_CREATED, 1);
+        tx.executeWithoutResult(s -> {
+            outbox.publish(Type.VISIT_CREATED, 2, Map.of("id", 2));
+            s.setRollbackOnly();
+        });
+        publish(Type.SICK_LEAVE_ISSUED, 3);
+        assertThatThrownBy(() -> outbox.publish(Type.VISIT_CREATED, 4, Map.of()))
+                .isInstanceOf(IllegalTransactionStateException.class);
+
+        dispatcher.dispatch();
+
+        assertThat(visitHandler.handled).singleElement().satisfies(e -> {
+            assertThat(e.getAggregateId()).isEqualTo(1);
+            assertThat(e.getPayload()).isEqualTo("{\"id\":1}");
+        });
+        assertThat(outboxRepo.findAll()).hasSize(2)
+                .allSatisfy(e -> {
+                    assertThat(e.getStatus()).isEqualTo(Status.DONE);
+                    assertThat(e.getAttempts()).isEqualTo(1);
+                    assertThat(e.getProcessedAt()).isNotNull();
+                });
+        assertThat(dispatcher.stats().pending()).isZero();
+        assertThat(dispatcher.stats().lagSeconds()).isZero();
+    }
+
+    @Test
+    @DisplayName("a failing event is retried after a backoff, then marked failed after max-attempts")
+    void retriesWithBackoff() {
+        long before = dispatcher.stats().retried();
+        visitHandler.behavior = event -> {
+            throw new IllegalStateException("downstream unavailable");
+        };
+        publish(Type.VISIT_CREATED, 1);
+
+        dispatcher.dispatch();
+        OutboxEvent retry = only();
+        assertThat(retry.getStatus()).isEqualTo(Status.PENDING);
+        assertThat(retry.getAttempts()).isEqualTo(1);
+        assertThat(retry.getLastError()).contains("downstream unavailable");
+        assertThat(retry.getAvailableAt()).isBetween(Instant.now().plusSeconds(25), Instant.now().plusSeconds(60));
+        assertThat(dispatcher.stats().retried()).isEqualTo(before + 1);
+        assertThat(dispatcher.stats().pending()).isEqualTo(1);
+
+        // not due yet: left alone
+        dispatcher.dispatch();
+        assertThat(only().getAttempts()).isEqualTo(1);
+
+        jdbc.update("update outbox_events set available_at = created_at");
+        dispatcher.dispatch();
+        OutboxEvent failed = only();
+        assertThat(failed.getStatus()).isEqualTo(Status.FAILED);
+        assertThat(failed.getAttempts()).isEqualTo(2);
+        assertThat(dispatcher.stats().pending()).isZero();
+    }
+
+    @Test
+    @DisplayName("backoff doubles per attempt up to the cap, with jitter below it")
+    void backoff() {
+        for (int i = 0; i < 100; i++) {
+            assertThat(dispatcher.backoffMillis(1)).isBetween(30_000L, 60_000L);
+            assertThat(dispatcher.backoffMillis(2)).isBetween(60_000L, 120_000L);
+            assertThat(dispatcher.backoffMillis(40)).isBetween(60_000L, 120_000L);
+        }
+    }
+
+    @Test
+    @DisplayName("a batch is handled by the worker pool in parallel")
+    void parallelWorkers() {
+        CountDownLatch allRunning = new CountDownLatch(4);
+        visitHandler.behavior = event -> {
+            allRunning.countDown();
+            if (!allRunning.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("handled one at a time");
+            }
+        };
+        for (long id = 1; id <= 4; id++) {
+            publish(Type.VISIT_CREATED, id);
+        }
+
+        dispatcher.dispatch();
+
+        assertThat(visitHandler.handled).hasSize(4);
+        assertThat(outboxRepo.findAll()).extracting(OutboxEvent::getStatus).containsOnly(Status.DONE);
+    }
+
+    @Test
+    @DisplayName("a second dispatcher skips the rows another one is claiming, and takes over expired leases")
+    void skipLocked() throws Exception {
+        for (long id = 1; id <= 4; id++) {
+            publish(Type.VISIT_CREATED, id);
+        }
+
+        // H2 locks every due row of an ordered claim before applying the limit (MySQL stops at the batch),
+        // so the rows held by the other dispatcher are locked by id
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<List<Long>> first = CompletableFuture.supplyAsync(() -> tx.execute(s -> {
+            List<Long> ids = jdbc.queryForList(
+                    "select aggregate_id from outbox_events where aggregate_id in (1, 2) order by id for update", Long.class);
+            locked.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return ids;
+        }));
+        assertThat(locked.await(5, TimeUnit.SECONDS)).isTrue();
+
+        List<Long> second = CompletableFuture.supplyAsync(() -> tx.execute(s ->
+                        outboxRepo.lockDue(Instant.now(), 10).stream()
+                                .map(OutboxEvent::getAggregateId).toList()))
+                .get(5, TimeUnit.SECONDS);
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).containsExactly(1L, 2L);
+        assertThat(second).containsExactly(3L, 4L);
+
+        // the workers died with the events claimed: their leases ran out
+        jdbc.update("update outbox_events set attempts = 1, available_at = created_at");
+        dispatcher.dispatch();
+        assertThat(visitHandler.handled).extracting(OutboxEvent::getAggregateId).containsExactlyInAnyOrder(1L, 2L, 3L, 4L);
+        assertThat(outboxRepo.findAll()).extracting(OutboxEvent::getAttempts).containsOnly(2);
+    }
+}
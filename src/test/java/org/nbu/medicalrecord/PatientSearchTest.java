@@ -0,0 +1,174 @@
+package org.nbu.medicalrecord;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.nbu.medicalrecord.dtos.response.CursorPageDtoResponse;
+import org.nbu.medicalrecord.dtos.response.PatientDataWithDoctorDtoResponse;
+import org.nbu.medicalrecord.dtos.response.SpecializationDtoResponse;
+import org.nbu.medicalrecord.entities.Doctor;
+import org.nbu.medicalrecord.entities.Patient;
+import org.nbu.medicalrecord.entities.Specialization;
+import org.nbu.medicalrecord.services.impl.PatientServiceImpl;
+import org.nbu.medicalrecord.services.impl.StatisticsServiceImpl;
+import org.nbu.medicalrecord.util.NameKeyUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+
+@Import({PatientServiceImpl.class, StatisticsServiceImpl.class})
+class PatientSearchTest extends JpaSliceTest {
+
+    @Autowired
+    private PatientServiceImpl patientService;
+
+    private List<String> names(String query) {
+        return names(patientService.searchPatients(query, null, 50));
+    }
+
+    private static List<String> names(CursorPageDtoResponse<PatientDataWithDoctorDtoResponse> page) {
+        return page.getItems().stream()
+                .map(r -> r.getPatientData().getFirstName() + " " + r.getPatientData().getLastName())
+                .toList();
+    }
+
+    @Test
+    @DisplayName("names are normalized: case, accents and separators do not matter, Cyrillic stays Cyrillic")
+    void normalizesNames() {
+        assertThat(NameKeyUtil.nameKey("Ана-Мария", "  ПЕТРОВА ")).isEqualTo("петрова ана мария");
+        assertThat(NameKeyUtil.reversedNameKey("José", "O'Brien")).isEqualTo("jose o brien");
+        assertThat(NameKeyUtil.normalize("Йордан")).isEqualTo("иордан");
+        assertThat(NameKeyUtil.normalize(null)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("every term starts the first or the last name, in either order; doctors are not patients")
+    void matchesNamePrefixes() {
+        patient("Ivan", "Petrov", "8501011111");
+        patient("Maria", "Ivanova", "9002022222");
+        patient("Petar", "Dimitrov", "7503033333");
+        patient("Мария", "Петрова", "8804044444");
+        patient("José", "Álvarez", "9105055555");
+        user("Ivan", "Doctorov", "6006066666");
+        em.flush();
+        em.clear();
+
+        assertThat(names("pet")).containsExactly("Petar Dimitrov", "Ivan Petrov");
+        assertThat(names("ivan pet")).containsExactly("Ivan Petrov");
+        assertThat(names("PETROV iv")).containsExactly("Ivan Petrov");
+        assertThat(names("petr iv")).containsExactly("Ivan Petrov");
+        assertThat(names("iv pet")).containsExactly("Ivan Petrov");
+        assertThat(names("iv")).containsExactly("Ivan Petrov", "Maria Ivanova");
+        assertThat(names("мар")).containsExactly("Мария Петрова");
+        assertThat(names("петрова м")).containsExactly("Мария Петрова");
+        assertThat(names("alvarez jose")).containsExactly("José Álvarez");
+        assertThat(names("docto")).isEmpty();
+        assertThat(names(" - ")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("digits are an EGN prefix, alone or next to a name")
+    void matchesEgnPrefix() {
+        patient("Ivan", "Petrov", "8501011111");
+        patient("Maria", "Ivanova", "8502022222");
+        patient("Petar", "Dimitrov", "7503033333");
+        em.flush();
+        em.clear();
+
+        assertThat(names("850")).containsExactly("Ivan Petrov", "Maria Ivanova");
+        assertThat(names("8502")).containsExactly("Maria Ivanova");
+        assertThat(names("iv 85")).containsExactly("Ivan Petrov", "Maria Ivanova");
+        assertThat(names("pet 75")).containsExactly("Petar Dimitrov");
+        assertThat(names("99")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("hits carry the patient's GP with the GP's specializations")
+    void includesGp() {
+        Specialization cardiology = new Specialization();
+        cardiology.setType("Cardiology");
+        em.persist(cardiology);
+        Doctor gp = new Doctor();
+        gp.setUser(user("Ana", "Dimitrova", "7001011111"));
+        gp.setGp(true);
+        gp.setSpecializations(Set.of(cardiology));
+        em.persist(gp);
+        patient("Ivan", "Petrov", "8501011111").setGp(gp);
+        patient("Maria", "Petrova", "8502022222");
+        em.flush();
+        em.clear();
+
+        List<PatientDataWithDoctorDtoResponse> items = patientService.searchPatients("petrov", null, 10).getItems();
+
+        assertThat(items).hasSize(2);
+        assertThat(items.getFirst().getDoctorData().getId()).isEqualTo(gp.getId());
+        assertThat(items.getFirst().getDoctorData().getLastName()).isEqualTo("Dimitrova");
+        assertThat(items.getFirst().getDoctorData().getSpecializations())
+                .extracting(SpecializationDtoResponse::getType).containsExactly("Cardiology");
+        assertThat(items.getLast().getDoctorData()).isNull();
+    }
+
+    @Test
+    @DisplayName("pages follow the cursor across both name orders without repeating or skipping anyone")
+    void pagesWithCursor() {
+        patient("Ivan", "Petrov", "8501011111");
+        patient("Ivan", "Petrov", "8501011112");
+        patient("Maria", "Ivanova", "9002022222");
+        patient("Ivo", "Ivov", "9002022223");
+        patient("Iva", "Zaharieva", "9002022224");
+        em.flush();
+        em.clear();
+
+        List<String> all = new ArrayList<>();
+        List<String> cursors = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPageDtoResponse<PatientDataWithDoctorDtoResponse> page = patientService.searchPatients("iv", cursor, 2);
+            assertThat(page.getItems()).hasSizeLessThanOrEqualTo(2);
+            all.addAll(names(page));
+            cursor = page.getNextCursor();
+            cursors.add(cursor);
+        } while (cursor != null);
+
+        // ordered by the name that matched: "iva zaharieva", "ivan petrov" x2, "ivanova maria", "ivov ivo"
+        assertThat(all).containsExactly("Iva Zaharieva", "Ivan Petrov", "Ivan Petrov", "Maria Ivanova", "Ivo Ivov");
+        assertThat(cursors).hasSize(3);
+        assertThatThrownBy(() -> patientService.searchPatients("iv", "not a cursor", 2))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("users written before the name keys existed are backfilled and then found")
+    void backfillsNameKeys() {
+        jdbc.update("insert into users (id, email, password, first_name, last_name, egn, enabled, locked) "
+                + "values (9000, 'old@example.com', 'x', 'Elena', 'Koleva', '7001011111', true, false)");
+        jdbc.update("insert into patients (id, user_id, birth_date) values (9000, 9000, ?)", LocalDate.of(1970, 1, 1));
+
+        assertThat(names("kol")).isEmpty();
+
+        patientService.backfillNameKeys();
+
+        assertThat(names("kol")).containsExactly("Elena Koleva");
+        assertThat(names("elena k")).containsExactly("Elena Koleva");
+    }
+
+    @Test
+    @DisplayName("names at their length limit that expand under normalization get keys cut to the column")
+    void keysOfLongNamesFit() {
+        // "ﬃ" normalizes to "ffi" and "Ǆ" to "dz": 30 characters each become 90 and 60
+        Patient p = patient("ﬃ".repeat(30), "Ǆ".repeat(30), "8501011111");
+        em.flush();
+
+        assertThat(p.getUser().getNameKey()).hasSize(NameKeyUtil.KEY_LENGTH).startsWith("dz".repeat(30) + " ffi");
+        assertThat(p.getUser().getReversedNameKey()).hasSize(NameKeyUtil.KEY_LENGTH).isEqualTo("ffi".repeat(21) + "f");
+        em.clear();
+
+        assertThat(names("dzdz ff")).hasSize(1);
+        assertThat(names("ffiffi")).hasSize(1);
+    }
+}
@@ -265,12 +265,12 @@ class PatientServiceImplTest {
         Patient a = patient(10L, "Maya", "Zed", LocalDate.of(1991, 4, 4), gp);
         Patient b = patient(11L, "Maya", "Ace", LocalDate.of(1992, 5, 5), gp);
 
-        when(patientRepository.findDistinctByAllergen("pollen"))
+        when(patientRepository.findDistinctByAllergenKey("pollen"))
                 .thenReturn(List.of(a, b));
 
-        Set<PatientDataWithDoctorDtoResponse> out = service.showAllPatientsWithAllergy("pollen");
+        Set<PatientDataWithDoctorDtoResponse> out = service.showAllPatientsWithAllergy(" Pollen ");
 
-        verify(patientRepository).findDistinctByAllergen("pollen");
+        verify(patientRepository).findDistinctByAllergenKey("pollen");
 
         // Sorting:
         // firstName: "Maya"/"Maya"
@@ -0,0 +1,108 @@
+package org.nbu.medicalrecord;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.nbu.medicalrecord.dtos.request.DiagnosisDtoRequest;
+import org.nbu.medicalrecord.dtos.request.SickLeaveDtoRequest;
+import org.nbu.medicalrecord.dtos.response.DiagnosisDtoResponse;
+import org.nbu.medicalrecord.entities.Doctor;
+import org.nbu.medicalrecord.entities.Patient;
+import org.nbu.medicalrecord.services.impl.DiagnosisServiceImpl;
+import org.nbu.medicalrecord.services.impl.IdAllocator;
+import org.nbu.medicalrecord.services.impl.OutboxServiceImpl;
+import org.nbu.medicalrecord.services.impl.PatientVersionServiceImpl;
+import org.nbu.medicalrecord.services.impl.SickLeaveServiceImpl;
+import org.nbu.medicalrecord.services.impl.StatisticsServiceImpl;
+import org.nbu.medicalrecord.services.impl.TimelineServiceImpl;
+import org.nbu.medicalrecord.util.QueryCounter;
+import org.nbu.medicalrecord.util.SqlStatementTracker;
+import org.nbu.medicalrecord.web.DiagnosisController;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+
+@Import({PatientVersionServiceImpl.class, DiagnosisServiceImpl.class, SickLeaveServiceImpl.class, StatisticsServiceImpl.class,
+        TimelineServiceImpl.class, OutboxServiceImpl.class, IdAllocator.class, QueryCounter.class, SqlStatementTracker.class})
+class PatientVersionTest extends JpaSliceTest {
+
+    @Autowired
+    private PatientVersionServiceImpl versions;
+
+    @Autowired
+    private DiagnosisServiceImpl diagnosisService;
+
+    @Autowired
+    private SickLeaveServiceImpl sickLeaveService;
+
+    private Doctor doctor;
+    private Patient p1;
+    private Patient p2;
+
+    @BeforeEach
+    void seed() {
+        doctor = doctor("Maria", "Ivanova", "1111111111");
+        p1 = patient("First", "Last", "2222222221");
+        p2 = patient("First", "Last", "2222222222");
+    }
+
+    @Test
+    @DisplayName("diagnosis and sick leave writes move the version of their patient only")
+    void bumpedPerPatient() {
+        assertThat(versions.currentVersion(p1.getId())).isZero();
+
+        DiagnosisDtoResponse flu = diagnosisService.createDiagnosis(new DiagnosisDtoRequest("Flu", p1.getId(), doctor.getId()));
+        sickLeaveService.createSickLeave(new SickLeaveDtoRequest(doctor.getId(), p1.getId(),
+                LocalDate.now(), LocalDate.now().plusDays(2), "flu"));
+        assertThat(versions.currentVersion(p1.getId())).isEqualTo(2);
+
+        diagnosisService.deleteDiagnosis(flu.getId());
+        assertThat(versions.currentVersion(p1.getId())).isEqualTo(3);
+        assertThat(versions.currentVersion(p2.getId())).isZero();
+    }
+
+    @Test
+    @DisplayName("a matching If-None-Match is answered 304 from the version lookup alone")
+    void notModifiedWithoutLoading() {
+        DiagnosisController controller = new DiagnosisController(diagnosisService, versions);
+        diagnosisService.createDiagnosis(new DiagnosisDtoRequest("Flu", p1.getId(), doctor.getId()));
+        em.flush();
+        em.clear();
+
+        ResponseEntity<Set<DiagnosisDtoResponse>> first = controller.byPatient(p1.getId(), request(null));
+        assertThat(first.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(first.getBody()).hasSize(1);
+        String etag = first.getHeaders().getETag();
+        assertThat(etag).isEqualTo("W/\"1\"");
+        assertThat(first.getHeaders().getCacheControl()).contains("no-cache");
+
+        QueryCounter.start();
+        ResponseEntity<Set<DiagnosisDtoResponse>> poll = controller.byPatient(p1.getId(), request(etag));
+        assertThat(QueryCounter.stop().statements()).isEqualTo(1);
+        assertThat(poll.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(poll.getBody()).isNull();
+
+        diagnosisService.createDiagnosis(new DiagnosisDtoRequest("Angina", p1.getId(), doctor.getId()));
+        ResponseEntity<Set<DiagnosisDtoResponse>> changed = controller.byPatient(p1.getId(), request(etag));
+        assertThat(changed.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(changed.getBody()).hasSize(2);
+        assertThat(changed.getHeaders().getETag()).isEqualTo("W/\"2\"");
+    }
+
+    private static ServletWebRequest request(String ifNoneMatch) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/diagnosis/patient/1");
+        if (ifNoneMatch != null) {
+            request.addHeader("If-None-Match", ifNoneMatch);
+        }
+        return new ServletWebRequest(request, new MockHttpServletResponse());
+    }
+}
@@ -0,0 +1,59 @@
+package org.nbu.medicalrecord;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.nbu.medicalrecord.security.PrincipalCache;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.*;
+
+class PrincipalCacheTest {
+
+    private static User.UserBuilder account(String email) {
+        return User.withUsername(email).password("x").authorities("ROLE_PATIENT");
+    }
+
+    @Test
+    @DisplayName("an account is loaded once, unknown emails are cached as inactive")
+    void loadsOnce() {
+        AtomicInteger loads = new AtomicInteger();
+        PrincipalCache cache = new PrincipalCache(email -> {
+            loads.incrementAndGet();
+            if (email.startsWith("gone")) throw new UsernameNotFoundException(email);
+            return account(email).build();
+        }, 300, 100);
+
+        assertThat(cache.get("a@example.com")).isEqualTo(new PrincipalCache.CachedAccount(true, Set.of("ROLE_PATIENT")));
+        assertThat(cache.get("a@example.com").active()).isTrue();
+        assertThat(cache.get("gone@example.com").active()).isFalse();
+        assertThat(cache.get("gone@example.com").active()).isFalse();
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("a load that raced an eviction is not kept: the next lookup sees the change")
+    void evictionDuringLoadWins() {
+        AtomicReference<PrincipalCache> cache = new AtomicReference<>();
+        AtomicInteger loads = new AtomicInteger();
+        UserDetailsService uds = email -> {
+            if (loads.incrementAndGet() == 1) {
+                // the account is locked (and evicted) after this load read it
+                cache.get().evict(email);
+                return account(email).build();
+            }
+            return account(email).accountLocked(true).build();
+        };
+        cache.set(new PrincipalCache(uds, 300, 100));
+
+        assertThat(cache.get().get("a@example.com").active()).isTrue();
+        assertThat(cache.get().get("a@example.com").active()).isFalse();
+        assertThat(cache.get().get("a@example.com").active()).isFalse();
+        assertThat(loads).hasValue(2);
+    }
+}
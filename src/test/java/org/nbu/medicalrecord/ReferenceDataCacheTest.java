@@ -0,0 +1,128 @@
+package org.nbu.medicalrecord;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.nbu.medicalrecord.dtos.request.MedicineDtoRequest;
+import org.nbu.medicalrecord.dtos.request.SpecializationDtoRequest;
+import org.nbu.medicalrecord.entities.Medicine;
+import org.nbu.medicalrecord.entities.Specialization;
+import org.nbu.medicalrecord.services.MedicineService;
+import org.nbu.medicalrecord.services.SpecializationService;
+import org.nbu.medicalrecord.services.impl.AllergenCatalog;
+import org.nbu.medicalrecord.services.impl.IdAllocator;
+import org.nbu.medicalrecord.services.impl.MedicineSearchIndex;
+import org.nbu.medicalrecord.services.impl.MedicineServiceImpl;
+import org.nbu.medicalrecord.services.impl.ReferenceDataCache;
+import org.nbu.medicalrecord.services.impl.SpecializationServiceImpl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.*;
+
+// the services commit their changes, so the tests run outside of a test transaction and clean up afterwards
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ReferenceDataCache.class, AllergenCatalog.class, IdAllocator.class, MedicineServiceImpl.class, MedicineSearchIndex.class,
+        SpecializationServiceImpl.class})
+class ReferenceDataCacheTest extends JpaSliceTest {
+
+    @Autowired
+    private ReferenceDataCache referenceData;
+
+    @Autowired
+    private AllergenCatalog allergenCatalog;
+
+    @Autowired
+    private MedicineService medicineService;
+
+    @Autowired
+    private SpecializationService specializationService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        deleteFrom("allergies", "medicines", "specializations");
+        referenceData.clear();
+    }
+
+    private Map<String, Long> hits() {
+        return referenceData.stats().entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().hits()));
+    }
+
+    @Test
+    @DisplayName("once loaded, reference rows are served from memory until they are invalidated")
+    void servesRepeatedReadsFromMemory() {
+        // the context and its caches are shared by the tests, so hits are counted from here on
+        Map<String, Long> hitsBefore = hits();
+        jdbc.update("insert into specializations (id, type) values (1, 'Cardiology'), (2, 'GP')");
+        jdbc.update("insert into medicines (id, name, milligrams, medicine_type) values (5, 'Ibuprofen', 200, 'tablet')");
+
+        assertThat(referenceData.findSpecializationsById(List.of(1L, 2L, 3L)))
+                .extracting(Specialization::getType).containsExactlyInAnyOrder("Cardiology", "GP");
+        assertThat(referenceData.specializationTypeExists("cardiology")).isTrue();
+        assertThat(referenceData.findMedicinesById(List.of(5L))).extracting(Medicine::getName).containsExactly("Ibuprofen");
+
+        // changed behind the cache's back: the cached state is still served
+        deleteFrom("specializations", "medicines");
+
+        assertThat(referenceData.findSpecializationsById(List.of(1L, 2L))).hasSize(2);
+        assertThat(referenceData.specializationTypeExists("CARDIOLOGY")).isTrue();
+        Medicine ibuprofen = referenceData.findMedicinesById(List.of(5L)).getFirst();
+        assertThat(ibuprofen.getMg()).isEqualTo(200);
+        assertThat(ibuprofen.getMedicineType()).isEqualTo("tablet");
+
+        Map<String, Long> hitsAfter = hits();
+        assertThat(hitsAfter.get("specializations-by-id") - hitsBefore.get("specializations-by-id")).isEqualTo(2);
+        assertThat(hitsAfter.get("specialization-types") - hitsBefore.get("specialization-types")).isEqualTo(1);
+        assertThat(hitsAfter.get("medicines-by-id") - hitsBefore.get("medicines-by-id")).isEqualTo(1);
+
+        referenceData.clear();
+        assertThat(referenceData.findSpecializationsById(List.of(1L, 2L))).isEmpty();
+        assertThat(referenceData.specializationTypeExists("cardiology")).isFalse();
+    }
+
+    @Test
+    @DisplayName("adding or deleting through the services invalidates cached lookups, absent ones included")
+    void serviceMutationsInvalidate() {
+        assertThat(referenceData.findMedicine("Paracetamol", 500)).isEmpty();
+        assertThat(referenceData.specializationTypeExists("Neurology")).isFalse();
+
+        long medicineId = medicineService.addMedicine(new MedicineDtoRequest("Paracetamol", 500, "tablet")).getId();
+        long specializationId = specializationService.addNewSpecialization(new SpecializationDtoRequest("Neurology")).getId();
+
+        assertThat(referenceData.findMedicine("PARACETAMOL", 500)).map(Medicine::getId).contains(medicineId);
+        assertThat(referenceData.specializationTypeExists("neurology")).isTrue();
+        assertThatThrownBy(() -> specializationService.addNewSpecialization(new SpecializationDtoRequest("neurology")))
+                .isInstanceOf(IllegalStateException.class);
+
+        medicineService.deleteMedicine(medicineId);
+        specializationService.deleteSpecialization(specializationId);
+
+        assertThat(referenceData.findMedicine("Paracetamol", 500)).isEmpty();
+        assertThat(referenceData.findSpecializationsById(List.of(specializationId))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("an allergen created by a transaction that rolls back is not cached")
+    void rolledBackAllergenIsNotCached() {
+        transactionTemplate.executeWithoutResult(status -> {
+            assertThat(allergenCatalog.resolveIds(List.of("Latex"))).containsKey("latex");
+            status.setRollbackOnly();
+        });
+
+        assertThat(referenceData.findAllergy("latex")).isEmpty();
+
+        long id = allergenCatalog.resolveIds(List.of("latex")).get("latex");
+        assertThat(referenceData.findAllergy("latex")).map(ReferenceDataCache.AllergyView::id).contains(id);
+    }
+}
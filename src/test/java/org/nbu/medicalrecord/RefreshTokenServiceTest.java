@@ -0,0 +1,134 @@
+package org.nbu.medicalrecord;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.nbu.medicalrecord.dtos.response.LoginDtoResponse;
+import org.nbu.medicalrecord.entities.User;
+import org.nbu.medicalrecord.security.IdentityResolver;
+import org.nbu.medicalrecord.security.JwtUtil;
+import org.nbu.medicalrecord.security.PrincipalCache;
+import org.nbu.medicalrecord.security.RefreshTokenService;
+import org.nbu.medicalrecord.services.impl.UserServiceImpl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+
+@Import({RefreshTokenService.class, IdentityResolver.class, PrincipalCache.class, JwtUtil.class, UserServiceImpl.class})
+class RefreshTokenServiceTest extends JpaSliceTest {
+
+    @Autowired
+    private RefreshTokenService refreshTokens;
+
+    @Autowired
+    private PrincipalCache principalCache;
+
+    @Autowired
+    private IdentityResolver identityResolver;
+
+    @Autowired
+    private JwtUtil jwt;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = user("Ana", "Petrova", "9001011234");
+        user.setEnabled(true);
+        user.setAuthorities(Set.of("PATIENT"));
+        em.flush();
+
+        // the caches outlive the rolled back users of earlier tests
+        principalCache.evictAll();
+        identityResolver.evictAll();
+    }
+
+    private LoginDtoResponse login() {
+        UserDetails principal = org.springframework.security.core.userdetails.User
+                .withUsername(user.getEmail()).password("").authorities("PATIENT").build();
+        Authentication auth = new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+        LoginDtoResponse res = refreshTokens.login(auth);
+        // the token row is only written on flush now that ids are not generated by the insert
+        em.flush();
+        return res;
+    }
+
+    private LoginDtoResponse refresh(String token) {
+        LoginDtoResponse res = refreshTokens.refresh(token);
+        em.flush();
+        em.clear();
+        return res;
+    }
+
+    @Test
+    @DisplayName("refresh rotates the token and mints an access token with the current authorities")
+    void refreshRotates() {
+        LoginDtoResponse first = login();
+
+        LoginDtoResponse second = refresh(first.getRefreshToken());
+
+        assertThat(second.getRefreshToken()).isNotEqualTo(first.getRefreshToken());
+        assertThat(jwt.parse(second.getAccessToken()).getSubject()).isEqualTo(user.getEmail());
+        assertThat(jwt.authorities(jwt.parse(second.getAccessToken()))).containsExactly("PATIENT");
+        assertThat(second.getExpiresInSeconds()).isEqualTo(15 * 60L);
+
+        assertThat(refresh(second.getRefreshToken()).getRefreshToken()).isNotBlank();
+    }
+
+    @Test
+    @DisplayName("presenting a rotated token again revokes the whole session")
+    void reuseRevokesFamily() {
+        LoginDtoResponse first = login();
+        LoginDtoResponse second = refresh(first.getRefreshToken());
+
+        assertThatThrownBy(() -> refresh(first.getRefreshToken()))
+                .isInstanceOf(BadCredentialsException.class)
+                .hasMessageContaining("reuse");
+        em.flush();
+        em.clear();
+
+        // the token the thief (or the user) got from the rotation is dead as well
+        assertThatThrownBy(() -> refresh(second.getRefreshToken()))
+                .isInstanceOf(BadCredentialsException.class);
+    }
+
+    @Test
+    @DisplayName("logout ends the session, other sessions of the user stay valid")
+    void logoutRevokesSession() {
+        LoginDtoResponse phone = login();
+        LoginDtoResponse laptop = login();
+
+        refreshTokens.logout(phone.getRefreshToken());
+        em.flush();
+        em.clear();
+
+        assertThatThrownBy(() -> refresh(phone.getRefreshToken()))
+                .isInstanceOf(BadCredentialsException.class);
+        assertThat(refresh(laptop.getRefreshToken()).getAccessToken()).isNotBlank();
+    }
+
+    @Test
+    @DisplayName("unknown tokens and locked accounts get no access token")
+    void rejectsUnknownTokenAndLockedAccount() {
+        assertThatThrownBy(() -> refreshTokens.refresh("not-a-token"))
+                .isInstanceOf(BadCredentialsException.class);
+
+        LoginDtoResponse res = login();
+        em.createQuery("update User u set u.locked = true where u.id = :id")
+                .setParameter("id", user.getId())
+                .executeUpdate();
+        em.clear();
+        principalCache.evictAll();
+
+        assertThatThrownBy(() -> refresh(res.getRefreshToken()))
+                .isInstanceOf(BadCredentialsException.class)
+                .hasMessageContaining("locked");
+    }
+}
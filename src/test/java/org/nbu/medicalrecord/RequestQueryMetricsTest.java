@@ -0,0 +1,80 @@
+package org.nbu.medicalrecord;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.nbu.medicalrecord.entities.Specialization;
+import org.nbu.medicalrecord.repositories.SpecializationRepository;
+import org.nbu.medicalrecord.util.QueryCounter;
+import org.nbu.medicalrecord.util.SqlStatementTracker;
+import org.nbu.medicalrecord.web.RequestQueryMetricsFilter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import static org.assertj.core.api.Assertions.*;
+
+@Import({QueryCounter.class, SqlStatementTracker.class})
+class RequestQueryMetricsTest extends JpaSliceTest {
+
+    @Autowired
+    private SpecializationRepository specializationRepository;
+
+    @BeforeEach
+    void seed() {
+        for (String type : new String[]{"Cardiology", "Neurology", "Pediatrics"}) {
+            Specialization s = new Specialization();
+            s.setType(type);
+            em.persist(s);
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    @DisplayName("statements and entity loads are counted on the thread that started counting only")
+    void countsStatementsAndEntityLoads() {
+        specializationRepository.findAll();
+
+        QueryCounter.start();
+        specializationRepository.findAll();
+        em.clear();
+        specializationRepository.findAll();
+        QueryCounter.Counts counts = QueryCounter.stop();
+
+        assertThat(counts.statements()).isEqualTo(2);
+        // the first listing found them in the persistence context already
+        assertThat(counts.entityLoads()).isEqualTo(3);
+
+        specializationRepository.findAll();
+        assertThat(QueryCounter.stop().statements()).isZero();
+    }
+
+    @Test
+    @DisplayName("every request records its counts under the endpoint's pattern")
+    void recordsPerEndpoint() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RequestQueryMetricsFilter filter = new RequestQueryMetricsFilter(registry);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/specialization/all");
+
+        for (int i = 0; i < 2; i++) {
+            em.clear();
+            filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+                req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/specialization/all");
+                specializationRepository.findAll();
+            });
+        }
+
+        DistributionSummary statements = registry.get("http.server.requests.statements")
+                .tag("method", "GET").tag("uri", "/specialization/all").summary();
+        DistributionSummary loads = registry.get("http.server.requests.entity.loads")
+                .tag("uri", "/specialization/all").summary();
+        assertThat(statements.count()).isEqualTo(2);
+        assertThat(statements.max()).isEqualTo(1);
+        assertThat(loads.totalAmount()).isEqualTo(6);
+    }
+}
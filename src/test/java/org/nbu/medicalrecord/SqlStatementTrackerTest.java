@@ -0,0 +1,56 @@
+package org.nbu.medicalrecord;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.nbu.medicalrecord.util.QueryCounter;
+import org.nbu.medicalrecord.util.SqlStatementTracker;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+class SqlStatementTrackerTest {
+
+    @Test
+    @DisplayName("literals, IN lists and multi-row VALUES do not make new fingerprints")
+    void fingerprints() {
+        assertThat(SqlStatementTracker.fingerprint("select p1_0.id from patients p1_0\n  where p1_0.egn = '9001011234' and p1_0.id > 42"))
+                .isEqualTo("select p1_0.id from patients p1_0 where p1_0.egn = ? and p1_0.id > ?");
+        assertThat(SqlStatementTracker.fingerprint("select * from visits where id in (?, ?,?) limit 10"))
+                .isEqualTo("select * from visits where id in (?) limit ?");
+        assertThat(SqlStatementTracker.fingerprint("insert into allergies (allergen) values (?), (?), ('it''s')"))
+                .isEqualTo("insert into allergies (allergen) values (?)");
+    }
+
+    @Test
+    @DisplayName("statements run through the wrapped DataSource are ranked by total time and counted per thread")
+    void tracksStatements() {
+        SqlStatementTracker tracker = new SqlStatementTracker(true, 0, 60, 100);
+        DataSource dataSource = (DataSource) tracker.postProcessAfterInitialization(
+                new DriverManagerDataSource("jdbc:h2:mem:sql-tracking;DB_CLOSE_DELAY=-1", "sa", ""), "dataSource");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+
+        jdbc.execute("create table notes (id int primary key, body varchar(50))");
+        QueryCounter.start();
+        jdbc.batchUpdate("insert into notes (id, body) values (?, ?)", List.of(new Object[]{1, "a"}, new Object[]{2, "b"}));
+        for (int i = 1; i <= 3; i++) {
+            jdbc.queryForObject("select body from notes where id = " + (i % 2 + 1), String.class);
+        }
+        assertThat(QueryCounter.stop().statements()).isEqualTo(4);
+
+        List<SqlStatementTracker.Fingerprint> top = tracker.top(10);
+        assertThat(top).extracting(SqlStatementTracker.Fingerprint::sql)
+                .contains("select body from notes where id = ?", "insert into notes (id, body) values (?, ?)");
+        assertThat(top).isSortedAccordingTo((a, b) -> Double.compare(b.totalMillis(), a.totalMillis()));
+        SqlStatementTracker.Fingerprint select = top.stream()
+                .filter(f -> f.sql().startsWith("select")).findFirst().orElseThrow();
+        assertThat(select.executions()).isEqualTo(3);
+        assertThat(select.slow()).isEqualTo(3);
+
+        tracker.reset();
+        assertThat(tracker.top(10)).isEmpty();
+    }
+}
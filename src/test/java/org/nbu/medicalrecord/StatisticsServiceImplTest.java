@@ -0,0 +1,132 @@
+package org.nbu.medicalrecord;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.nbu.medicalrecord.dtos.request.DiagnosisDtoRequest;
+import org.nbu.medicalrecord.dtos.request.SickLeaveDtoRequest;
+import org.nbu.medicalrecord.dtos.response.DiagnosisDtoResponse;
+import org.nbu.medicalrecord.entities.Doctor;
+import org.nbu.medicalrecord.entities.Patient;
+import org.nbu.medicalrecord.entities.StatisticCounter;
+import org.nbu.medicalrecord.repositories.StatisticCounterRepository;
+import org.nbu.medicalrecord.services.impl.DiagnosisServiceImpl;
+import org.nbu.medicalrecord.services.impl.IdAllocator;
+import org.nbu.medicalrecord.services.impl.OutboxServiceImpl;
+import org.nbu.medicalrecord.services.impl.PatientVersionServiceImpl;
+import org.nbu.medicalrecord.services.impl.SickLeaveServiceImpl;
+import org.nbu.medicalrecord.services.impl.StatisticsServiceImpl;
+import org.nbu.medicalrecord.services.impl.TimelineServiceImpl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.*;
+
+@Import({StatisticsServiceImpl.class, DiagnosisServiceImpl.class, SickLeaveServiceImpl.class, PatientVersionServiceImpl.class,
+        TimelineServiceImpl.class, OutboxServiceImpl.class, IdAllocator.class})
+class StatisticsServiceImplTest extends JpaSliceTest {
+
+    @Autowired
+    private StatisticsServiceImpl statistics;
+
+    @Autowired
+    private DiagnosisServiceImpl diagnosisService;
+
+    @Autowired
+    private SickLeaveServiceImpl sickLeaveService;
+
+    @Autowired
+    private StatisticCounterRepository counterRepo;
+
+    private Doctor d1;
+    private Doctor d2;
+    private Patient p1;
+    private Patient p2;
+
+    @BeforeEach
+    void seed() {
+        d1 = doctor("Maria", "Ivanova", "1111111111");
+        d2 = doctor("Ana", "Dimitrova", "1111111112");
+        p1 = patient("First", "Last", "2222222221");
+        p2 = patient("First", "Last", "2222222222");
+    }
+
+    private DiagnosisDtoResponse diagnose(Doctor d, Patient p, String text) {
+        return diagnosisService.createDiagnosis(new DiagnosisDtoRequest(text, p.getId(), d.getId()));
+    }
+
+    private void sickLeave(Doctor d, Patient p, LocalDate from) {
+        sickLeaveService.createSickLeave(new SickLeaveDtoRequest(d.getId(), p.getId(), from, from.plusDays(2), "flu"));
+    }
+
+    private Map<String, Long> snapshot() {
+        em.flush();
+        em.clear();
+        return counterRepo.findAll().stream()
+                .filter(c -> c.getCounterValue() != 0)
+                .collect(Collectors.toMap(
+                        c -> c.getId().getKind() + "/" + c.getId().getCounterKey(),
+                        StatisticCounter::getCounterValue));
+    }
+
+    @Test
+    @DisplayName("sick leave counters feed the month and doctor reports")
+    void sickLeaveReports() {
+        LocalDate thisYear = LocalDate.now().withDayOfMonth(1);
+        LocalDate march = thisYear.withMonth(3).isAfter(LocalDate.now()) ? thisYear.withMonth(3).minusYears(1) : thisYear.withMonth(3);
+
+        sickLeave(d1, p1, march);
+        sickLeave(d2, p1, march.plusDays(3));
+        sickLeave(d2, p2, march.plusMonths(1));
+
+        assertThat(sickLeaveService.showMonthWithMostSickLeaves()).isEqualTo(Month.MARCH);
+        assertThat(statistics.doctorIdsByMostSickLeaves()).containsExactly(d2.getId(), d1.getId());
+    }
+
+    @Test
+    @DisplayName("diagnosis counters: most frequent by key, distinct patients per doctor, decrement on delete")
+    void diagnosisReports() {
+        diagnose(d1, p1, "Flu");
+        diagnose(d1, p1, "flu");
+        DiagnosisDtoResponse p2Flu = diagnose(d1, p2, "FLU ");
+        diagnose(d2, p2, "Angina");
+
+        assertThat(diagnosisService.showMostFrequentDiagnosisResult())
+                .singleElement()
+                .satisfies(d -> assertThat(d.getDiagnosis()).isEqualTo("Flu"));
+        assertThat(statistics.countPatientsDiagnosedByDoctor(d1.getId())).isEqualTo(2);
+        assertThat(statistics.countPatientsDiagnosedByDoctor(d2.getId())).isEqualTo(1);
+
+        diagnosisService.deleteDiagnosis(p2Flu.getId());
+        assertThat(statistics.countPatientsDiagnosedByDoctor(d1.getId())).isEqualTo(1);
+
+        // a second diagnosis of the same pair does not count the patient twice
+        diagnose(d2, p2, "Migraine");
+        assertThat(statistics.countPatientsDiagnosedByDoctor(d2.getId())).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("rebuild from scratch yields exactly the incrementally maintained counters")
+    void rebuild_matchesIncremental() {
+        LocalDate day = LocalDate.now().minusDays(10);
+        sickLeave(d1, p1, day);
+        sickLeave(d1, p2, day);
+        sickLeave(d2, p2, day.minusMonths(2));
+        diagnose(d1, p1, "Flu");
+        DiagnosisDtoResponse gone = diagnose(d1, p2, "Flu");
+        diagnose(d2, p2, "Angina");
+        diagnose(d2, p2, "angina");
+        diagnosisService.deleteDiagnosis(gone.getId());
+
+        Map<String, Long> incremental = snapshot();
+        statistics.rebuild();
+        Map<String, Long> rebuilt = snapshot();
+
+        assertThat(rebuilt).isEqualTo(incremental).isNotEmpty();
+    }
+}
@@ -0,0 +1,215 @@
+package org.nbu.medicalrecord;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.nbu.medicalrecord.dtos.request.DiagnosisDtoRequest;
+import org.nbu.medicalrecord.dtos.request.SickLeaveDtoRequest;
+import org.nbu.medicalrecord.dtos.request.VisitDtoRequest;
+import org.nbu.medicalrecord.dtos.response.CursorPageDtoResponse;
+import org.nbu.medicalrecord.dtos.response.DiagnosisDtoResponse;
+import org.nbu.medicalrecord.dtos.response.TimelineEventDtoResponse;
+import org.nbu.medicalrecord.entities.*;
+import org.nbu.medicalrecord.entities.TimelineEvent.Kind;
+import org.nbu.medicalrecord.repositories.TimelineEventRepository;
+import org.nbu.medicalrecord.services.impl.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+
+@Import({TimelineServiceImpl.class, VisitServiceImpl.class, DiagnosisServiceImpl.class, SickLeaveServiceImpl.class,
+        HealthInsuranceServiceImpl.class, MedicalRecordServiceImpl.class, StatisticsServiceImpl.class, PatientVersionServiceImpl.class, OutboxServiceImpl.class, IdAllocator.class})
+class TimelineServiceTest extends JpaSliceTest {
+
+    @Autowired
+    private TimelineServiceImpl timeline;
+
+    @Autowired
+    private VisitServiceImpl visitService;
+
+    @Autowired
+    private DiagnosisServiceImpl diagnosisService;
+
+    @Autowired
+    private SickLeaveServiceImpl sickLeaveService;
+
+    @Autowired
+    private HealthInsuranceServiceImpl healthInsuranceService;
+
+    @Autowired
+    private MedicalRecordServiceImpl medicalRecordService;
+
+    @Autowired
+    private TimelineEventRepository timelineRepo;
+
+    private Doctor doctor;
+    private Patient p1;
+    private Patient p2;
+
+    @BeforeEach
+    void seed() {
+        doctor = doctor("Maria", "Ivanova", "1111111111");
+        p1 = patient("First", "Last", "2222222221");
+        p2 = patient("First", "Last", "2222222222");
+    }
+
+    private Medicine medicine(String name, int mg) {
+        Medicine m = new Medicine();
+        m.setName(name);
+        m.setMg(mg);
+        m.setMedicineType("tablet");
+        em.persist(m);
+        return m;
+    }
+
+    // a visit on the given day, with a diagnosis and a prescription of two medicines
+    private void visit(Patient p, LocalDate date, String complaints) {
+        Appointment appt = new Appointment();
+        appt.setDoctor(doctor);
+        appt.setPatient(p);
+        appt.setDate(date);
+        appt.setHourOfAppointment(LocalTime.of(9, 0));
+        em.persist(appt);
+
+        MedicalRecord record = em.createQuery("select r from MedicalRecord r where r.patient = :p", MedicalRecord.class)
+                .setParameter("p", p).getResultStream().findFirst()
+                .orElseGet(() -> {
+                    MedicalRecord r = new MedicalRecord();
+                    r.setPatient(p);
+                    em.persist(r);
+                    return r;
+                });
+
+        Medication medication = new Medication();
+        medication.setMedicines(Set.of(medicine("Paracetamol", 500), medicine("Ibuprofen", 200)));
+        medication.setPrescription("twice a day for five days");
+        em.persist(medication);
+
+        DiagnosisDtoResponse diagnosis = diagnosisService.createDiagnosis(new DiagnosisDtoRequest("Flu", p.getId(), doctor.getId()));
+        visitService.createNewVisit(new VisitDtoRequest(appt.getId(), complaints, null, diagnosis.getId(),
+                medication.getId(), null, null, record.getId()));
+    }
+
+    private List<TimelineEventDtoResponse> all(long patientId, int size) {
+        List<TimelineEventDtoResponse> events = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPageDtoResponse<TimelineEventDtoResponse> page = timeline.showTimeline(patientId, cursor, size);
+            assertThat(page.getItems()).hasSizeLessThanOrEqualTo(size);
+            events.addAll(page.getItems());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return events;
+    }
+
+    @Test
+    @DisplayName("writes add pre-rendered events to their patient's timeline, newest first")
+    void eventsOnWrite() {
+        LocalDate today = LocalDate.now();
+        visit(p1, today.minusDays(10), "Cough   and\nfever");
+        sickLeaveService.createSickLeave(new SickLeaveDtoRequest(doctor.getId(), p1.getId(),
+                today.minusDays(9), today.minusDays(7), "flu"));
+
+        List<TimelineEventDtoResponse> events = all(p1.getId(), 20);
+
+        assertThat(events).extracting(TimelineEventDtoResponse::getKind)
+                .containsExactly(Kind.DIAGNOSIS, Kind.SICK_LEAVE, Kind.MEDICATION, Kind.VISIT);
+        assertThat(events).extracting(TimelineEventDtoResponse::getSummary).containsExactly(
+                "Diagnosis by Dr. Maria Ivanova: Flu",
+                "Sick leave " + today.minusDays(9) + " to " + today.minusDays(7) + " (3 days) by Dr. Maria Ivanova: flu",
+                "Prescribed Ibuprofen 200 mg, Paracetamol 500 mg: twice a day for five days",
+                "Visit with Dr. Maria Ivanova: Cough and fever");
+        assertThat(events.getFirst().getDate()).isEqualTo(today);
+        assertThat(all(p2.getId(), 20)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("pages follow the cursor without gaps or repeats, also across events of the same day")
+    void paging() {
+        LocalDate day = LocalDate.now().minusDays(30);
+        for (int i = 0; i < 3; i++) {
+            visit(p1, day.plusDays(i), "visit " + i);
+        }
+
+        List<TimelineEventDtoResponse> paged = all(p1.getId(), 2);
+        List<TimelineEventDtoResponse> whole = timeline.showTimeline(p1.getId(), null, 100).getItems();
+
+        assertThat(whole).hasSize(9);
+        assertThat(paged).usingRecursiveFieldByFieldElementComparator().containsExactlyElementsOf(whole);
+        assertThat(whole).extracting(TimelineEventDtoResponse::getDate)
+                .isSortedAccordingTo((a, b) -> b.compareTo(a));
+    }
+
+    @Test
+    @DisplayName("deleted diagnoses leave the timeline; an unknown patient is an error")
+    void deleteAndUnknown() {
+        DiagnosisDtoResponse flu = diagnosisService.createDiagnosis(new DiagnosisDtoRequest("Flu", p1.getId(), doctor.getId()));
+        diagnosisService.deleteDiagnosis(flu.getId());
+
+        assertThat(all(p1.getId(), 20)).isEmpty();
+        assertThatThrownBy(() -> timeline.showTimeline(999_999L, null, 20))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> timeline.showTimeline(p1.getId(), "not-a-cursor", 20))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("deleting a medical record removes the events of its visits, diagnoses and medications")
+    void deleteRecord() {
+        LocalDate today = LocalDate.now();
+        visit(p1, today.minusDays(5), "Headache");
+        sickLeaveService.createSickLeave(new SickLeaveDtoRequest(doctor.getId(), p1.getId(),
+                today.minusDays(5), today.minusDays(4), "flu"));
+        MedicalRecord record = em.createQuery("select r from MedicalRecord r where r.patient = :p", MedicalRecord.class)
+                .setParameter("p", p1).getSingleResult();
+        em.flush();
+        em.clear();
+
+        medicalRecordService.deleteMedicalRecord(record.getId());
+        em.flush();
+
+        assertThat(all(p1.getId(), 20)).extracting(TimelineEventDtoResponse::getKind).containsExactly(Kind.SICK_LEAVE);
+    }
+
+    @Test
+    @DisplayName("a rebuild reproduces the events maintained on write")
+    void rebuildMatchesWrites() {
+        LocalDate today = LocalDate.now();
+        visit(p1, today.minusDays(20), "Headache");
+        visit(p2, today.minusDays(3), "Back pain");
+        sickLeaveService.createSickLeave(new SickLeaveDtoRequest(doctor.getId(), p2.getId(),
+                today.minusDays(3), today.minusDays(1), "back pain"));
+
+        HealthInsurance hi = new HealthInsurance();
+        hi.setPatient(p1);
+        hi.setMonth(Month.JANUARY);
+        hi.setYear(2025);
+        em.persist(hi);
+        healthInsuranceService.payHealthInsuranceForMonthInYear(p1.getId(), Month.JANUARY, 2025);
+
+        List<TimelineEventDtoResponse> p1Before = all(p1.getId(), 20);
+        List<TimelineEventDtoResponse> p2Before = all(p2.getId(), 20);
+        assertThat(p1Before).extracting(TimelineEventDtoResponse::getSummary)
+                .contains("Health insurance paid for January 2025");
+
+        em.flush();
+        timelineRepo.deleteAll();
+        timeline.rebuild();
+        em.flush();
+        em.clear();
+
+        assertThat(timelineRepo.count()).isEqualTo(p1Before.size() + p2Before.size());
+        assertThat(all(p1.getId(), 20)).usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyInAnyOrderElementsOf(p1Before);
+        assertThat(all(p2.getId(), 20)).usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyInAnyOrderElementsOf(p2Before);
+    }
+}
@@ -0,0 +1,120 @@
+package org.nbu.medicalrecord;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.nbu.medicalrecord.dtos.response.VisitDtoResponse;
+import org.nbu.medicalrecord.entities.*;
+import org.nbu.medicalrecord.repositories.VisitRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.*;
+
+class VisitRepositoryQueryCountTest extends JpaSliceTest {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2020, 1, 1);
+
+    @Autowired
+    private VisitRepository visitRepo;
+
+    private Doctor doctor;
+    private Patient patient;
+
+    private void seed(int visits) {
+        doctor = doctor("Ana", "Dimitrova", "1111111111");
+        patient = patient("Ivan", "Petrov", "2222222222");
+
+        MedicalRecord record = new MedicalRecord();
+        record.setPatient(patient);
+        em.persist(record);
+
+        for (int i = 0; i < visits; i++) {
+            Appointment a = new Appointment();
+            a.setDoctor(doctor);
+            a.setPatient(patient);
+            a.setDate(FIRST_DAY.plusDays(i));
+            a.setHourOfAppointment(LocalTime.of(9, 0));
+            em.persist(a);
+
+            SickLeave sl = null;
+            if (i % 2 == 0) {
+                sl = new SickLeave();
+                sl.setDoctor(doctor);
+                sl.setPatient(patient);
+                sl.setFromDate(a.getDate());
+                sl.setToDate(a.getDate().plusDays(3));
+                sl.setReason("flu");
+                em.persist(sl);
+            }
+
+            Visit v = new Visit();
+            v.setAppointment(a);
+            v.setMedicalRecord(record);
+            v.setSickLeave(sl);
+            v.setComplaints("complaint " + i);
+            em.persist(v);
+
+            if (i % 500 == 499) {
+                em.flush();
+                em.clear();
+                doctor = em.getReference(Doctor.class, doctor.getId());
+                patient = em.getReference(Patient.class, patient.getId());
+                record = em.getReference(MedicalRecord.class, record.getId());
+            }
+        }
+        em.flush();
+        em.clear();
+    }
+
+    private Statistics statistics() {
+        return em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    }
+
+    private List<VisitDtoResponse> countingStatements(Supplier<List<VisitDtoResponse>> listing) {
+        Statistics stats = statistics();
+        stats.clear();
+
+        List<VisitDtoResponse> out = listing.get();
+
+        assertThat(stats.getPrepareStatementCount()).as("statements per listing").isEqualTo(1);
+        assertThat(stats.getEntityLoadCount()).as("entities loaded").isZero();
+        return out;
+    }
+
+    @ParameterizedTest(name = "{0} visits")
+    @ValueSource(ints = {1, 100, 10_000})
+    @DisplayName("every visit listing is served by exactly one statement, regardless of size")
+    void listingsIssueOneStatement(int visits) {
+        seed(visits);
+        LocalDate last = FIRST_DAY.plusDays(visits - 1);
+
+        List<VisitDtoResponse> byDoctor = countingStatements(() -> visitRepo.findDtosByDoctor(doctor.getId()));
+        List<VisitDtoResponse> byPatient = countingStatements(() -> visitRepo.findDtosByPatient(patient.getId()));
+        List<VisitDtoResponse> byDoctorInPeriod = countingStatements(
+                () -> visitRepo.findDtosByDoctorInPeriod(doctor.getId(), FIRST_DAY, last));
+        List<VisitDtoResponse> byPatientInPeriod = countingStatements(
+                () -> visitRepo.findDtosByPatientInPeriod(patient.getId(), FIRST_DAY, last));
+
+        assertThat(byDoctor).hasSize(visits);
+        assertThat(byPatient).hasSize(visits);
+        assertThat(byDoctorInPeriod).hasSize(visits);
+        assertThat(byPatientInPeriod).hasSize(visits);
+
+        // newest first; the oldest visit (i = 0) carries a sick leave
+        VisitDtoResponse oldest = byDoctor.get(visits - 1);
+        assertThat(oldest.getDoctorName()).isEqualTo("Ana Dimitrova");
+        assertThat(oldest.getComplaints()).isEqualTo("complaint 0");
+        assertThat(oldest.getSickLeaveId()).isNotNull();
+        assertThat(oldest.getMedicationId()).isNull();
+        assertThat(oldest.getDiagnosisId()).isNull();
+        assertThat(byDoctor.get(0).getAppointmentId()).isNotNull();
+        assertThat(byDoctor.get(0).getMedicalRecordId()).isNotNull();
+    }
+}